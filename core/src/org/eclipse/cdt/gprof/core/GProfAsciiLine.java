@@ -0,0 +1,104 @@
+/*
+ * =======================================================================
+ * ============================ gprof-eclipse ============================
+ * =======================================================================
+ * 
+ * 
+ * File: GProfAsciiLine.java
+ * 
+ * 
+ * -----------------------------------------------------------------------
+ * Copyright (c) 2009 Chris Culy and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * + Chris Culy - initial API and implementation
+ * -----------------------------------------------------------------------
+ * 
+ * 
+ * Last changed:
+ * $Revision$
+ * $Author$
+ * $Date$
+ */
+
+package org.eclipse.cdt.gprof.core;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A line of gprof output viewed directly over the bytes it was read into.
+ * 
+ * gprof writes plain ASCII, so each byte is treated as one character and no charset decoding takes place. The line is a window onto a
+ * buffer owned by a {@link GProfLineReader}; it is only valid until the next line is read.
+ */
+final class GProfAsciiLine implements CharSequence
+{
+    /** Holds the buffer that holds the bytes of the line. */
+    private ByteBuffer buffer;
+    
+    /** Holds the index of the first byte of the line within the buffer. */
+    private int offset;
+    
+    /** Holds the number of bytes in the line. */
+    private int length;
+    
+    /**
+     * Points the line at the given region of the given buffer.
+     * 
+     * @param buffer The buffer that holds the line.
+     * @param offset The index of the first byte of the line within the buffer.
+     * @param length The number of bytes in the line.
+     */
+    void set(ByteBuffer buffer, int offset, int length)
+    {
+        this.buffer = buffer;
+        this.offset = offset;
+        this.length = length;
+    }
+    
+    /**
+     * @see CharSequence#length()
+     */
+    public int length()
+    {
+        return this.length;
+    }
+    
+    /**
+     * @see CharSequence#charAt(int)
+     */
+    public char charAt(int index)
+    {
+        return (char)(this.buffer.get(this.offset + index) & 0xFF);
+    }
+    
+    /**
+     * Retrieves a copy of the given region of the line.
+     * 
+     * @see CharSequence#subSequence(int, int)
+     */
+    public CharSequence subSequence(int start, int end)
+    {
+        char[] chars = new char[end - start];
+        for (int i = 0; i < chars.length; i++)
+        {
+            chars[i] = this.charAt(start + i);
+        }
+        return new String(chars);
+    }
+    
+    /**
+     * Retrieves a copy of the line.
+     * 
+     * @see Object#toString()
+     */
+    public String toString()
+    {
+        return this.subSequence(0, this.length).toString();
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * =======================================================================
+ * ============================ gprof-eclipse ============================
+ * =======================================================================
+ * 
+ * 
+ * File: GProfCallGraphSection.java
+ * 
+ * 
+ * -----------------------------------------------------------------------
+ * Copyright (c) 2009 Chris Culy and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * + Chris Culy - initial API and implementation
+ * -----------------------------------------------------------------------
+ * 
+ * 
+ * Last changed:
+ * $Revision$
+ * $Author$
+ * $Date$
+ */
+
+package org.eclipse.cdt.gprof.core;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Holds the lines of the call graph section of the gprof output, split into the blocks that are separated by the dashed lines.
+ * 
+ * The lines are copied into a single byte array (the gprof output is plain ASCII) so that the blocks can be parsed independently of
+ * the reader they were read with, and so that a section of hundreds of thousands of blocks does not cost an object per line.
+ */
+final class GProfCallGraphSection
+{
+    /** Holds the initial capacity of the byte array. */
+    private static final int INITIAL_BYTE_CAPACITY = 64 * 1024;
+    
+    /** Holds the initial capacity of the line and block arrays. */
+    private static final int INITIAL_LINE_CAPACITY = 1024;
+    
+    /** Holds the bytes of the lines. */
+    private byte[] bytes = new byte[INITIAL_BYTE_CAPACITY];
+    
+    /** Holds the bytes of the lines wrapped for use by the lines handed out. */
+    private ByteBuffer buffer = ByteBuffer.wrap(this.bytes);
+    
+    /** Holds the number of bytes used. */
+    private int byteCount;
+    
+    /** Holds the index of the end of each line within the byte array (exclusive). */
+    private int[] lineEnds = new int[INITIAL_LINE_CAPACITY];
+    
+    /** Holds the number of lines. */
+    private int lineCount;
+    
+    /** Holds the index of the end of each block within the lines (exclusive). */
+    private int[] blockEnds = new int[INITIAL_LINE_CAPACITY];
+    
+    /** Holds the number of blocks. */
+    private int blockCount;
+    
+    /**
+     * Adds the given line to the current block.
+     * 
+     * @param line The line to add.
+     */
+    void addLine(CharSequence line)
+    {
+        // Make room for the line.
+        int length = line.length();
+        if (this.byteCount + length > this.bytes.length)
+        {
+            byte[] bytes = new byte[Math.max(this.bytes.length * 2, this.byteCount + length)];
+            System.arraycopy(this.bytes, 0, bytes, 0, this.byteCount);
+            this.bytes = bytes;
+            this.buffer = ByteBuffer.wrap(bytes);
+        }
+        if (this.lineCount == this.lineEnds.length)
+        {
+            int[] lineEnds = new int[this.lineEnds.length * 2];
+            System.arraycopy(this.lineEnds, 0, lineEnds, 0, this.lineCount);
+            this.lineEnds = lineEnds;
+        }
+        
+        // Copy the line.
+        for (int i = 0; i < length; i++)
+        {
+            this.bytes[this.byteCount++] = (byte)line.charAt(i);
+        }
+        this.lineEnds[this.lineCount++] = this.byteCount;
+    }
+    
+    /**
+     * Ends the current block. Nothing happens if no line has been added to the current block.
+     */
+    void endBlock()
+    {
+        if (this.lineCount > this.getBlockStart(this.blockCount))
+        {
+            if (this.blockCount == this.blockEnds.length)
+            {
+                int[] blockEnds = new int[this.blockEnds.length * 2];
+                System.arraycopy(this.blockEnds, 0, blockEnds, 0, this.blockCount);
+                this.blockEnds = blockEnds;
+            }
+            this.blockEnds[this.blockCount++] = this.lineCount;
+        }
+    }
+    
+    /**
+     * Retrieves the number of (ended) blocks.
+     * 
+     * @return The number of blocks.
+     */
+    int getBlockCount()
+    {
+        return this.blockCount;
+    }
+    
+    /**
+     * Retrieves the index of the first line of the given block.
+     * 
+     * @param block The index of the block.
+     * @return The index of the first line of the block.
+     */
+    int getBlockStart(int block)
+    {
+        return block > 0 ? this.blockEnds[block - 1] : 0;
+    }
+    
+    /**
+     * Retrieves the index of the line following the last line of the given block.
+     * 
+     * @param block The index of the block.
+     * @return The index of the end of the block (exclusive).
+     */
+    int getBlockEnd(int block)
+    {
+        return this.blockEnds[block];
+    }
+    
+    /**
+     * Points the given line at the line with the given index. Once all lines have been added, any number of threads may retrieve lines
+     * concurrently (as long as each uses its own line).
+     * 
+     * @param index The index of the line.
+     * @param line The line to point at the line with the given index.
+     * @return The line.
+     */
+    CharSequence getLine(int index, GProfAsciiLine line)
+    {
+        int start = index > 0 ? this.lineEnds[index - 1] : 0;
+        line.set(this.buffer, start, this.lineEnds[index] - start);
+        return line;
+    }
+}
@@ -28,6 +28,11 @@
 
 package org.eclipse.cdt.gprof.core;
 
+import org.eclipse.cdt.gprof.core.profiled.ProfilerReport;
+import org.eclipse.cdt.gprof.launch.GProfLaunchPlugin;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.ListenerList;
+import org.eclipse.core.runtime.Preferences;
 import org.eclipse.jface.resource.ImageDescriptor;
 import org.eclipse.ui.plugin.AbstractUIPlugin;
 import org.osgi.framework.BundleContext;
@@ -40,9 +45,36 @@ public class GProfCorePlugin extends AbstractUIPlugin
     /** Holds the plugin identifier. */
 	public static final String PLUGIN_ID = "org.eclipse.cdt.gprof.core";
 	
+	/** Holds the name of the directory within the plugin's state location that the report cache is kept in. */
+	private static final String REPORT_CACHE_DIRECTORY = "reports";
+	
 	/** Holds the shared instance of the plugin. */
 	private static GProfCorePlugin plugin;
 	
+	/** Holds the cache of parsed profiler reports. */
+	private GProfReportCache reportCache;
+	
+	/** Holds the launch preferences that the size of the report cache is taken from (<code>null</code> if not available). */
+	private Preferences launchPreferences;
+	
+	/** Holds the listener that resizes the report cache when the launch preferences change. */
+	private final Preferences.IPropertyChangeListener reportCacheSizeListener = new Preferences.IPropertyChangeListener()
+	{
+		public void propertyChange(Preferences.PropertyChangeEvent event)
+		{
+			if (GProfLaunchPlugin.GPROF_REPORT_CACHE_SIZE.equals(event.getProperty()))
+			{
+				GProfCorePlugin.this.updateReportCacheSize();
+			}
+		}
+	};
+	
+	/** Holds the report of the last completed parse (<code>null</code> if no parse has completed yet). */
+	private volatile ProfilerReport report;
+	
+	/** Holds the listeners that are notified of the report of each completed parse. */
+	private final ListenerList reportListeners = new ListenerList();
+	
 	/**
 	 * Constructs the plugin.
 	 */
@@ -58,6 +90,16 @@ public class GProfCorePlugin extends AbstractUIPlugin
 	{
 		super.start(context);
 		plugin = this;
+		this.reportCache = new GProfReportCache(this.getStateLocation().append(REPORT_CACHE_DIRECTORY).toFile(), 0);
+		
+		// Size the report cache from the launch preferences, and again whenever the size is changed there.
+		GProfLaunchPlugin launchPlugin = GProfLaunchPlugin.getDefault();
+		if (launchPlugin != null)
+		{
+			this.launchPreferences = launchPlugin.getPluginPreferences();
+			this.launchPreferences.addPropertyChangeListener(this.reportCacheSizeListener);
+			this.updateReportCacheSize();
+		}
 	}
 	
 	/**
@@ -65,6 +107,11 @@ public class GProfCorePlugin extends AbstractUIPlugin
 	 */
 	public void stop(BundleContext context) throws Exception
 	{
+		if (this.launchPreferences != null)
+		{
+			this.launchPreferences.removePropertyChangeListener(this.reportCacheSizeListener);
+			this.launchPreferences = null;
+		}
 		plugin = null;
 		super.stop(context);
 	}
@@ -79,6 +126,89 @@ public class GProfCorePlugin extends AbstractUIPlugin
 		return plugin;
 	}
 	
+	/**
+	 * Logs the given status to the plugin's log. Nothing is logged if the plugin is not running.
+	 * 
+	 * @param status The status to log.
+	 */
+	public static void log(IStatus status)
+	{
+		if (plugin != null)
+		{
+			plugin.getLog().log(status);
+		}
+	}
+	
+	/**
+	 * Retrieves the cache of parsed profiler reports, sized to the number of reports that the launch preferences keep in memory.
+	 * 
+	 * @return The report cache (<code>null</code> if the plugin is not running).
+	 */
+	static GProfReportCache getReportCache()
+	{
+		GProfCorePlugin plugin = GProfCorePlugin.plugin;
+		return plugin != null ? plugin.reportCache : null;
+	}
+	
+	/**
+	 * Sizes the report cache to the number of reports that the launch preferences keep in memory.
+	 */
+	private void updateReportCacheSize()
+	{
+		this.reportCache.setMemoryCapacity(this.launchPreferences.getInt(GProfLaunchPlugin.GPROF_REPORT_CACHE_SIZE));
+	}
+	
+	/**
+	 * Retrieves the report of the last completed parse.
+	 * 
+	 * @return The profiler report (<code>null</code> if no parse has completed yet).
+	 */
+	public ProfilerReport getReport()
+	{
+		return this.report;
+	}
+	
+	/**
+	 * Adds a listener to be notified of the report of each completed parse.
+	 * 
+	 * @param listener The listener.
+	 */
+	public void addReportListener(IGProfReportListener listener)
+	{
+		this.reportListeners.add(listener);
+	}
+	
+	/**
+	 * Removes a listener added by {@link #addReportListener(IGProfReportListener)}.
+	 * 
+	 * @param listener The listener.
+	 */
+	public void removeReportListener(IGProfReportListener listener)
+	{
+		this.reportListeners.remove(listener);
+	}
+	
+	/**
+	 * Makes the given report the report of the last completed parse and notifies the report listeners. Nothing happens if the plugin is
+	 * not running.
+	 * 
+	 * @param report The profiler report.
+	 */
+	static void publishReport(ProfilerReport report)
+	{
+		GProfCorePlugin plugin = GProfCorePlugin.plugin;
+		if (plugin == null)
+		{
+			return;
+		}
+		plugin.report = report;
+		Object[] listeners = plugin.reportListeners.getListeners();
+		for (int i = 0; i < listeners.length; i++)
+		{
+			((IGProfReportListener)listeners[i]).onReport(report);
+		}
+	}
+	
 	/**
 	 * Retrieves an image descriptor for the image file at the given plug-in relative path.
 	 * 
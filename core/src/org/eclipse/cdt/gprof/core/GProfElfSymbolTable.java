@@ -0,0 +1,483 @@
+/*
+ * =======================================================================
+ * ============================ gprof-eclipse ============================
+ * =======================================================================
+ * 
+ * 
+ * File: GProfElfSymbolTable.java
+ * 
+ * 
+ * -----------------------------------------------------------------------
+ * Copyright (c) 2009 Chris Culy and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * + Chris Culy - initial API and implementation
+ * -----------------------------------------------------------------------
+ * 
+ * 
+ * Last changed:
+ * $Revision$
+ * $Author$
+ * $Date$
+ */
+
+package org.eclipse.cdt.gprof.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Holds the function symbols of an ELF executable (from its '.symtab' section or, for stripped executables, its '.dynsym' section),
+ * sorted by address so that program counters can be resolved to the functions containing them.
+ * 
+ * The symbols are kept in primitive arrays (the start addresses, the sizes and the offsets of the names within a copy of the string
+ * table), so an executable with millions of symbols costs a few arrays rather than an object per symbol, and resolving an address is an
+ * allocation-free binary search. Names are only decoded when asked for. Since reading the symbols of a large executable is expensive,
+ * the symbol tables of the most recently used executables are cached until the executable is modified.
+ */
+final class GProfElfSymbolTable
+{
+    // ========================== ELF Constants ========================== //
+    
+    private static final byte[] ELF_MAGIC = { 0x7f, 'E', 'L', 'F' };
+    
+    private static final int ELF_CLASS_INDEX = 4;
+    
+    private static final int ELF_DATA_INDEX = 5;
+    
+    private static final int ELF_CLASS_64 = 2;
+    
+    private static final int ELF_DATA_BIG_ENDIAN = 2;
+    
+    private static final int ELF_SECTION_TYPE_SYMTAB = 2;
+    
+    private static final int ELF_SECTION_TYPE_DYNSYM = 11;
+    
+    private static final int ELF_SYMBOL_TYPE_FUNC = 2;
+    
+    private static final int ELF_SYMBOL_BINDING_GLOBAL = 1;
+    
+    private static final int ELF_SECTION_UNDEFINED = 0;
+    
+    // ========================== ELF Constants ========================== //
+    
+    /** Holds the number of executables whose symbol tables are cached. */
+    private static final int CACHE_SIZE = 4;
+    
+    /** Holds the character set of the symbol names. */
+    private static final Charset NAME_CHARSET = Charset.forName("UTF-8");
+    
+    /** Holds the cached symbol tables keyed by the path of their executable (least recently used first). */
+    private static final Map<String, GProfElfSymbolTable> cache = new LinkedHashMap<String, GProfElfSymbolTable>(CACHE_SIZE, 0.75f, true)
+    {
+        private static final long serialVersionUID = 1L;
+        
+        /**
+         * @see LinkedHashMap#removeEldestEntry(java.util.Map.Entry)
+         */
+        protected boolean removeEldestEntry(Map.Entry<String, GProfElfSymbolTable> eldest)
+        {
+            return this.size() > CACHE_SIZE;
+        }
+    };
+    
+    /** Holds the modification time of the executable when its symbols were read. */
+    private long lastModified;
+    
+    /** Holds the size of the executable when its symbols were read. */
+    private long length;
+    
+    /** Holds whether the executable is a 64 bit executable. */
+    private boolean is64Bit;
+    
+    /** Holds the byte order of the executable. */
+    private ByteOrder byteOrder;
+    
+    /** Holds the start addresses of the functions (sorted). */
+    private long[] addresses;
+    
+    /** Holds the sizes of the functions (0 if unknown). */
+    private long[] sizes;
+    
+    /** Holds the offsets of the names of the functions within the string table. */
+    private int[] nameOffsets;
+    
+    /** Holds the string table holding the (nul terminated) names. */
+    private byte[] strings;
+    
+    /**
+     * Reads the function symbols of the given executable.
+     * 
+     * @param executable The ELF executable.
+     * @throws IOException When the executable cannot be read or is not an ELF executable.
+     */
+    private GProfElfSymbolTable(File executable) throws IOException
+    {
+        this.lastModified = executable.lastModified();
+        this.length = executable.length();
+        RandomAccessFile file = new RandomAccessFile(executable, "r");
+        try
+        {
+            this.read(file.getChannel());
+        }
+        finally
+        {
+            file.close();
+        }
+    }
+    
+    /**
+     * Retrieves the symbol table of the given executable, reading it only if it is not cached or the executable has been modified since
+     * it was read.
+     * 
+     * @param executable The ELF executable.
+     * @return The symbol table.
+     * @throws IOException When the executable cannot be read or is not an ELF executable.
+     */
+    static GProfElfSymbolTable forExecutable(File executable) throws IOException
+    {
+        String path = executable.getCanonicalPath();
+        synchronized (cache)
+        {
+            GProfElfSymbolTable symbolTable = cache.get(path);
+            if (symbolTable == null || symbolTable.lastModified != executable.lastModified() || symbolTable.length != executable.length())
+            {
+                symbolTable = new GProfElfSymbolTable(executable);
+                cache.put(path, symbolTable);
+            }
+            return symbolTable;
+        }
+    }
+    
+    /**
+     * Retrieves whether the executable is a 64 bit executable (and so uses 64 bit addresses).
+     * 
+     * @return <code>true</code> if the executable is a 64 bit executable;<code>false</code> otherwise.
+     */
+    boolean is64Bit()
+    {
+        return this.is64Bit;
+    }
+    
+    /**
+     * Retrieves the byte order of the executable.
+     * 
+     * @return The byte order.
+     */
+    ByteOrder getByteOrder()
+    {
+        return this.byteOrder;
+    }
+    
+    /**
+     * Retrieves the number of function symbols.
+     * 
+     * @return The number of symbols.
+     */
+    int getSymbolCount()
+    {
+        return this.addresses.length;
+    }
+    
+    /**
+     * Retrieves the start address of the given symbol.
+     * 
+     * @param symbol The index of the symbol.
+     * @return The start address.
+     */
+    long getAddress(int symbol)
+    {
+        return this.addresses[symbol];
+    }
+    
+    /**
+     * Retrieves the name of the given symbol.
+     * 
+     * @param symbol The index of the symbol.
+     * @return The name.
+     */
+    String getName(int symbol)
+    {
+        int start = this.nameOffsets[symbol];
+        int end = start;
+        while (end < this.strings.length && this.strings[end] != 0)
+        {
+            end++;
+        }
+        return new String(this.strings, start, end - start, NAME_CHARSET);
+    }
+    
+    /**
+     * Retrieves the size of the given symbol.
+     * 
+     * @param symbol The index of the symbol.
+     * @return The size in bytes (0 if unknown).
+     */
+    long getSize(int symbol)
+    {
+        return this.sizes[symbol];
+    }
+    
+    /**
+     * Retrieves the symbol of the function containing the given address. A function whose size is unknown is taken to extend up to the
+     * next function.
+     * 
+     * @param address The address to resolve.
+     * @return The index of the symbol or -1 if no function contains the address.
+     */
+    int find(long address)
+    {
+        // Find the last function starting at or before the address and make sure it actually contains the address.
+        int symbol = this.findPreceding(address);
+        if (symbol == -1 || (this.sizes[symbol] != 0 && address - this.addresses[symbol] >= this.sizes[symbol]))
+        {
+            return -1;
+        }
+        return symbol;
+    }
+    
+    /**
+     * Retrieves the symbol of the last function starting at or before the given address (whether or not it extends up to the address).
+     * 
+     * @param address The address to resolve.
+     * @return The index of the symbol or -1 if every function starts after the address.
+     */
+    int findPreceding(long address)
+    {
+        int low = 0;
+        int high = this.addresses.length - 1;
+        while (low <= high)
+        {
+            int middle = (low + high) >>> 1;
+            if (this.addresses[middle] <= address)
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle - 1;
+            }
+        }
+        return high;
+    }
+    
+    /**
+     * Reads the function symbols from the given channel, mapping the headers and the symbol table into memory rather than copying them.
+     * 
+     * @param channel The channel of the executable.
+     * @throws IOException When the executable cannot be read or is not an ELF executable.
+     */
+    private void read(FileChannel channel) throws IOException
+    {
+        // Check the identification bytes.
+        ByteBuffer header = map(channel, 0, Math.min(64, channel.size()));
+        for (int i = 0; i < ELF_MAGIC.length; i++)
+        {
+            if (header.limit() <= i || header.get(i) != ELF_MAGIC[i])
+            {
+                throw new IOException("Not an ELF executable.");
+            }
+        }
+        this.is64Bit = header.get(ELF_CLASS_INDEX) == ELF_CLASS_64;
+        this.byteOrder = header.get(ELF_DATA_INDEX) == ELF_DATA_BIG_ENDIAN ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+        header.order(this.byteOrder);
+        
+        // Map the section header table.
+        long sectionHeaderOffset = this.is64Bit ? header.getLong(0x28) : header.getInt(0x20) & 0xFFFFFFFFL;
+        int sectionHeaderSize = header.getShort(this.is64Bit ? 0x3A : 0x2E) & 0xFFFF;
+        int sectionCount = header.getShort(this.is64Bit ? 0x3C : 0x30) & 0xFFFF;
+        ByteBuffer sections = map(channel, sectionHeaderOffset, (long)sectionHeaderSize * sectionCount).order(this.byteOrder);
+        
+        // Find the symbol table (preferring the full symbol table over the dynamic one).
+        int symbolSection = -1;
+        for (int i = 0; i < sectionCount; i++)
+        {
+            int type = sections.getInt(i * sectionHeaderSize + 4);
+            if (type == ELF_SECTION_TYPE_SYMTAB || (type == ELF_SECTION_TYPE_DYNSYM && symbolSection == -1))
+            {
+                symbolSection = i;
+            }
+        }
+        if (symbolSection == -1)
+        {
+            throw new IOException("The executable does not have a symbol table.");
+        }
+        
+        // Map the symbol table and copy its string table (so that the executable is not kept mapped once the symbols have been read).
+        int symbolHeader = symbolSection * sectionHeaderSize;
+        int stringHeader = sections.getInt(symbolHeader + (this.is64Bit ? 0x28 : 0x18)) * sectionHeaderSize;
+        ByteBuffer symbols = map(channel, this.getSectionOffset(sections, symbolHeader), this.getSectionSize(sections, symbolHeader))
+            .order(this.byteOrder);
+        this.strings = new byte[(int)this.getSectionSize(sections, stringHeader)];
+        map(channel, this.getSectionOffset(sections, stringHeader), this.strings.length).get(this.strings);
+        
+        // Gather the defined function symbols.
+        int symbolSize = this.is64Bit ? 24 : 16;
+        int symbolCount = symbols.capacity() / symbolSize;
+        long[] addresses = new long[symbolCount];
+        long[] sizes = new long[symbolCount];
+        int[] nameOffsets = new int[symbolCount];
+        boolean[] global = new boolean[symbolCount];
+        int functionCount = 0;
+        for (int i = 0; i < symbolCount; i++)
+        {
+            int symbol = i * symbolSize;
+            int info = symbols.get(symbol + (this.is64Bit ? 4 : 12)) & 0xFF;
+            int section = symbols.getShort(symbol + (this.is64Bit ? 6 : 14)) & 0xFFFF;
+            if ((info & 0xF) != ELF_SYMBOL_TYPE_FUNC || section == ELF_SECTION_UNDEFINED)
+            {
+                continue;
+            }
+            nameOffsets[functionCount] = symbols.getInt(symbol);
+            addresses[functionCount] = this.is64Bit ? symbols.getLong(symbol + 8) : symbols.getInt(symbol + 4) & 0xFFFFFFFFL;
+            sizes[functionCount] = this.is64Bit ? symbols.getLong(symbol + 16) : symbols.getInt(symbol + 8) & 0xFFFFFFFFL;
+            global[functionCount] = (info >> 4) == ELF_SYMBOL_BINDING_GLOBAL;
+            functionCount++;
+        }
+        
+        // Sort the functions by address (global symbols first among aliases of the same address).
+        int[] order = new int[functionCount];
+        for (int i = 0; i < functionCount; i++)
+        {
+            order[i] = i;
+        }
+        sort(order, new int[functionCount], 0, functionCount, addresses, global);
+        
+        // Keep one symbol per address.
+        this.addresses = new long[functionCount];
+        this.sizes = new long[functionCount];
+        this.nameOffsets = new int[functionCount];
+        int count = 0;
+        for (int i = 0; i < functionCount; i++)
+        {
+            int function = order[i];
+            if (count > 0 && this.addresses[count - 1] == addresses[function])
+            {
+                continue;
+            }
+            this.addresses[count] = addresses[function];
+            this.sizes[count] = sizes[function];
+            this.nameOffsets[count] = nameOffsets[function];
+            count++;
+        }
+        this.addresses = Arrays.copyOf(this.addresses, count);
+        this.sizes = Arrays.copyOf(this.sizes, count);
+        this.nameOffsets = Arrays.copyOf(this.nameOffsets, count);
+    }
+    
+    /**
+     * Retrieves the file offset of the given section.
+     * 
+     * @param sections The section header table.
+     * @param header The offset of the section's header within the table.
+     * @return The offset of the section within the file.
+     */
+    private long getSectionOffset(ByteBuffer sections, int header)
+    {
+        return this.is64Bit ? sections.getLong(header + 0x18) : sections.getInt(header + 0x10) & 0xFFFFFFFFL;
+    }
+    
+    /**
+     * Retrieves the size of the given section.
+     * 
+     * @param sections The section header table.
+     * @param header The offset of the section's header within the table.
+     * @return The size of the section in bytes.
+     */
+    private long getSectionSize(ByteBuffer sections, int header)
+    {
+        return this.is64Bit ? sections.getLong(header + 0x20) : sections.getInt(header + 0x14) & 0xFFFFFFFFL;
+    }
+    
+    /**
+     * Maps the given region of the channel into memory.
+     * 
+     * @param channel The channel to map.
+     * @param position The position of the region.
+     * @param length The length of the region.
+     * @return The mapped region.
+     * @throws IOException When the region lies outside of the executable (or is too large to be mapped at once).
+     */
+    private static MappedByteBuffer map(FileChannel channel, long position, long length) throws IOException
+    {
+        if (position < 0 || length < 0 || length > Integer.MAX_VALUE || position + length > channel.size())
+        {
+            throw new IOException("Invalid ELF section bounds.");
+        }
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+    }
+    
+    /**
+     * Sorts the given range of symbol indices by address (and global symbols before other symbols of the same address) with a merge
+     * sort, so that no object is created per symbol.
+     * 
+     * @param order The symbol indices to sort.
+     * @param temp A scratch array as large as the symbol indices.
+     * @param start The start of the range to sort.
+     * @param end The end of the range to sort (exclusive).
+     * @param addresses The addresses of the symbols.
+     * @param global Whether each symbol is global.
+     */
+    private static void sort(int[] order, int[] temp, int start, int end, long[] addresses, boolean[] global)
+    {
+        if (end - start < 2)
+        {
+            return;
+        }
+        int middle = (start + end) >>> 1;
+        sort(order, temp, start, middle, addresses, global);
+        sort(order, temp, middle, end, addresses, global);
+        
+        // Merge the sorted halves (skipping the merge if they are already in order).
+        if (!isBefore(order[middle], order[middle - 1], addresses, global))
+        {
+            return;
+        }
+        System.arraycopy(order, start, temp, start, end - start);
+        int left = start;
+        int right = middle;
+        for (int i = start; i < end; i++)
+        {
+            if (right >= end || (left < middle && !isBefore(temp[right], temp[left], addresses, global)))
+            {
+                order[i] = temp[left++];
+            }
+            else
+            {
+                order[i] = temp[right++];
+            }
+        }
+    }
+    
+    /**
+     * Retrieves whether the first symbol sorts before the second symbol.
+     * 
+     * @param first The index of the first symbol.
+     * @param second The index of the second symbol.
+     * @param addresses The addresses of the symbols.
+     * @param global Whether each symbol is global.
+     * @return <code>true</code> if the first symbol sorts before the second symbol;<code>false</code> otherwise.
+     */
+    private static boolean isBefore(int first, int second, long[] addresses, boolean[] global)
+    {
+        if (addresses[first] != addresses[second])
+        {
+            return addresses[first] < addresses[second];
+        }
+        return global[first] && !global[second];
+    }
+}
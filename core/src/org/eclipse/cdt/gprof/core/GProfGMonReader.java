@@ -0,0 +1,903 @@
+/*
+ * =======================================================================
+ * ============================ gprof-eclipse ============================
+ * =======================================================================
+ * 
+ * 
+ * File: GProfGMonReader.java
+ * 
+ * 
+ * -----------------------------------------------------------------------
+ * Copyright (c) 2009 Chris Culy and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * + Chris Culy - initial API and implementation
+ * -----------------------------------------------------------------------
+ * 
+ * 
+ * Last changed:
+ * $Revision$
+ * $Author$
+ * $Date$
+ */
+
+package org.eclipse.cdt.gprof.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import org.eclipse.cdt.gprof.core.profiled.ProfiledCaller;
+import org.eclipse.cdt.gprof.core.profiled.ProfiledFunction;
+import org.eclipse.cdt.gprof.core.profiled.ProfiledGraphs;
+import org.eclipse.cdt.gprof.core.profiled.ProfiledSubroutine;
+import org.eclipse.cdt.gprof.core.profiled.ProfilerReport;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+
+/**
+ * Reads the binary profiling data written by a program compiled with '-pg' (i.e. gmon.out) directly into a profiler report, without
+ * having gprof format it as text first.
+ * 
+ * The histogram records are attributed to the functions of the executable's symbol table to give the self times, and the call graph
+ * arc records give the call counts. As with gprof, the cycles of the call graph are then collapsed and the time spent in each
+ * function's subroutines is propagated up the condensed call graph in proportion to the calls along each arc, sharing the time of a
+ * cycle among the calls into it from outside (calls within a cycle do not propagate time). Basic-block records are read past, since
+ * the report does not hold line-level statistics.
+ */
+final class GProfGMonReader
+{
+    // ======================== GMon Format Constants ====================== //
+    
+    private static final byte[] GMON_MAGIC = { 'g', 'm', 'o', 'n' };
+    
+    private static final int GMON_HEADER_SIZE = 20;
+    
+    private static final int GMON_VERSION = 1;
+    
+    private static final int GMON_TAG_TIME_HIST = 0;
+    
+    private static final int GMON_TAG_CG_ARC = 1;
+    
+    private static final int GMON_TAG_BB_COUNT = 2;
+    
+    private static final int GMON_HIST_DIMENSION_SIZE = 16;
+    
+    private static final int GMON_READ_BUFFER_SIZE = 64 * 1024;
+    
+    // ======================== GMon Format Constants ====================== //
+    
+    // ========================= GMon Read Constants ======================= //
+    
+    private static final int GMON_INITIAL_ARC_CAPACITY = 1024;
+    
+    private static final int GMON_NO_ARC = -1;
+    
+    private static final int GMON_CANCEL_CHECK_INTERVAL = 64 * 1024;
+    
+    // ========================= GMon Read Constants ======================= //
+    
+    /**
+     * Holds a function or a cycle as a whole while the entries of the call graph are numbered.
+     */
+    private static final class GMonEntry
+    {
+        /** The name of the function (<code>null</code> for a cycle as a whole). */
+        final String name;
+        
+        /** The symbol of the function (-1 for a cycle as a whole). */
+        final int symbol;
+        
+        /** The time spent in the function or cycle and its subroutines. */
+        final double totalTime;
+        
+        /** The number of calls to the function or into the cycle (from outside of it). */
+        final long callCount;
+        
+        /**
+         * Constructs the entry.
+         * 
+         * @param name The name of the function (<code>null</code> for a cycle as a whole).
+         * @param symbol The symbol of the function (-1 for a cycle as a whole).
+         * @param totalTime The time spent in the function or cycle and its subroutines.
+         * @param callCount The number of calls to the function or into the cycle.
+         */
+        GMonEntry(String name, int symbol, double totalTime, long callCount)
+        {
+            this.name = name;
+            this.symbol = symbol;
+            this.totalTime = totalTime;
+            this.callCount = callCount;
+        }
+    }
+    
+    /**
+     * Orders the entries of the call graph the way gprof numbers them: by decreasing total time, the cycles as a whole coming before the
+     * functions with the same time, then the names not starting with '_' before those that do, then by decreasing calls and by name.
+     */
+    private static final Comparator<GMonEntry> GMON_ENTRY_ORDER = new Comparator<GMonEntry>()
+    {
+        public int compare(GMonEntry first, GMonEntry second)
+        {
+            int result = Double.compare(second.totalTime, first.totalTime);
+            if (result != 0)
+            {
+                return result;
+            }
+            if (first.name == null || second.name == null)
+            {
+                return first.name == null ? (second.name == null ? 0 : -1) : 1;
+            }
+            boolean firstHidden = first.name.startsWith("_");
+            if (firstHidden != second.name.startsWith("_"))
+            {
+                return firstHidden ? 1 : -1;
+            }
+            if (first.callCount != second.callCount)
+            {
+                return first.callCount > second.callCount ? -1 : 1;
+            }
+            return first.name.compareTo(second.name);
+        }
+    };
+    
+    /**
+     * Carries the failure to read a profiling data file out of a read task.
+     */
+    private static final class GMonReadFailure extends RuntimeException
+    {
+        private static final long serialVersionUID = 1L;
+        
+        /**
+         * Constructs the failure for the given cause.
+         * 
+         * @param cause The cause of the failure.
+         */
+        public GMonReadFailure(IOException cause)
+        {
+            super(cause);
+        }
+    }
+    
+    /**
+     * Reads a range of profiling data files, splitting the range in half and adding up the samples and arcs of the halves.
+     */
+    private static final class GMonReadTask extends RecursiveTask<GProfGMonReader>
+    {
+        private static final long serialVersionUID = 1L;
+        
+        /** The symbols of the profiled executable. */
+        private final GProfElfSymbolTable symbols;
+        
+        /** The progress monitor checked for cancellation (<code>null</code> if none). */
+        private final IProgressMonitor monitor;
+        
+        /** The profiling data files. */
+        private final File[] gmonFiles;
+        
+        /** The index of the first file to read. */
+        private final int start;
+        
+        /** The index of the file following the last file to read. */
+        private final int end;
+        
+        /**
+         * Constructs the task for the given range of files.
+         * 
+         * @param symbols The symbols of the profiled executable.
+         * @param monitor The progress monitor checked for cancellation (<code>null</code> if none).
+         * @param gmonFiles The profiling data files.
+         * @param start The index of the first file to read.
+         * @param end The index of the file following the last file to read.
+         */
+        public GMonReadTask(GProfElfSymbolTable symbols, IProgressMonitor monitor, File[] gmonFiles, int start, int end)
+        {
+            this.symbols = symbols;
+            this.monitor = monitor;
+            this.gmonFiles = gmonFiles;
+            this.start = start;
+            this.end = end;
+        }
+        
+        /**
+         * @see RecursiveTask#compute()
+         */
+        protected GProfGMonReader compute()
+        {
+            if (this.end - this.start == 1)
+            {
+                GProfGMonReader reader = new GProfGMonReader(this.symbols);
+                reader.monitor = this.monitor;
+                try
+                {
+                    reader.readRecords(this.gmonFiles[this.start]);
+                }
+                catch (IOException e)
+                {
+                    throw new GMonReadFailure(e);
+                }
+                return reader;
+            }
+            int middle = (this.start + this.end) >>> 1;
+            GMonReadTask second = new GMonReadTask(this.symbols, this.monitor, this.gmonFiles, middle, this.end);
+            second.fork();
+            GProfGMonReader reader = new GMonReadTask(this.symbols, this.monitor, this.gmonFiles, this.start, middle).compute();
+            reader.add(second.join());
+            return reader;
+        }
+    }
+    
+    /** Holds the symbols of the profiled executable. */
+    private final GProfElfSymbolTable symbols;
+    
+    /** Holds the channel being read. */
+    private FileChannel channel;
+    
+    /** Holds the read buffer. */
+    private ByteBuffer buffer;
+    
+    /** Holds the number of histogram samples attributed to each symbol. */
+    private double[] samples;
+    
+    /** Holds the sampling rate of the histogram (in samples per second). */
+    private int profileRate;
+    
+    /** Holds the hash index of the arcs by their caller and callee symbols (open addressing, the empty slots holding no arc). */
+    private int[] arcSlots = newArcSlots(GMON_INITIAL_ARC_CAPACITY * 2);
+    
+    /** Holds the caller symbol of each arc. */
+    private int[] arcCallers = new int[GMON_INITIAL_ARC_CAPACITY];
+    
+    /** Holds the callee symbol of each arc. */
+    private int[] arcCallees = new int[GMON_INITIAL_ARC_CAPACITY];
+    
+    /** Holds the number of calls along each arc. */
+    private long[] arcCounts = new long[GMON_INITIAL_ARC_CAPACITY];
+    
+    /** Holds the number of arcs. */
+    private int arcCount;
+    
+    /** Holds the progress monitor checked for cancellation (<code>null</code> if none). */
+    private IProgressMonitor monitor;
+    
+    /** Holds the number of records and histogram bins read since the progress monitor was last checked. */
+    private int uncheckedCount;
+    
+    /**
+     * Constructs the reader for profiling data written by the executable with the given symbols.
+     * 
+     * @param symbols The symbols of the profiled executable.
+     */
+    GProfGMonReader(GProfElfSymbolTable symbols)
+    {
+        this.symbols = symbols;
+        this.samples = new double[symbols.getSymbolCount()];
+    }
+    
+    /**
+     * Sets the progress monitor that the reader checks for cancellation while it reads the profiling data and creates the report.
+     * 
+     * @param monitor The progress monitor (<code>null</code> if none).
+     */
+    void setProgressMonitor(IProgressMonitor monitor)
+    {
+        this.monitor = monitor;
+    }
+    
+    /**
+     * Reads the given profiling data into a profiler report.
+     * 
+     * @param gmonFile The profiling data (i.e. gmon.out).
+     * @return The profiler report.
+     * @throws IOException When the profiling data cannot be read or is not in the gmon format.
+     * @throws OperationCanceledException When the read has been cancelled through the progress monitor.
+     */
+    ProfilerReport read(File gmonFile) throws IOException
+    {
+        this.readRecords(gmonFile);
+        return this.createReport();
+    }
+    
+    /**
+     * Reads the given profiling data files (i.e. of several runs of the executable) into a single profiler report, like 'gprof -s'
+     * does: the histograms and the arc counts of the files are summed before the times are propagated up the call graph.
+     * 
+     * The files are read and summed pairwise as a tree (the sums of each half of the files being added to each other) across the given
+     * number of threads.
+     * 
+     * @param gmonFiles The profiling data files.
+     * @param parallelism The number of threads to read the files with (1 to read them serially).
+     * @return The profiler report.
+     * @throws IOException When any of the profiling data files cannot be read or is not in the gmon format.
+     * @throws OperationCanceledException When the read has been cancelled through the progress monitor.
+     */
+    ProfilerReport read(File[] gmonFiles, int parallelism) throws IOException
+    {
+        if (parallelism <= 1 || gmonFiles.length <= 1)
+        {
+            for (int i = 0; i < gmonFiles.length; i++)
+            {
+                this.readRecords(gmonFiles[i]);
+            }
+            return this.createReport();
+        }
+        
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try
+        {
+            GProfGMonReader sum = pool.invoke(new GMonReadTask(this.symbols, this.monitor, gmonFiles, 0, gmonFiles.length));
+            return sum.createReport();
+        }
+        catch (GMonReadFailure e)
+        {
+            // Rethrow the original failure (the pool may have wrapped it when passing it on from another thread).
+            Throwable cause = e;
+            while (!(cause instanceof IOException))
+            {
+                cause = cause.getCause();
+            }
+            throw (IOException)cause;
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+    
+    /**
+     * Adds the histogram samples and the arcs read by the given reader (for the same executable) to those read by this reader.
+     * 
+     * @param reader The reader whose samples and arcs to add.
+     */
+    private void add(GProfGMonReader reader)
+    {
+        for (int i = 0; i < this.samples.length; i++)
+        {
+            this.samples[i] += reader.samples[i];
+        }
+        if (this.profileRate == 0)
+        {
+            this.profileRate = reader.profileRate;
+        }
+        for (int i = 0; i < reader.arcCount; i++)
+        {
+            this.addArc(reader.arcCallers[i], reader.arcCallees[i], reader.arcCounts[i]);
+        }
+    }
+    
+    /**
+     * Reads the records of the given profiling data, adding them to the records read so far.
+     * 
+     * @param gmonFile The profiling data (i.e. gmon.out).
+     * @throws IOException When the profiling data cannot be read or is not in the gmon format.
+     */
+    private void readRecords(File gmonFile) throws IOException
+    {
+        this.checkCanceled();
+        RandomAccessFile file = new RandomAccessFile(gmonFile, "r");
+        try
+        {
+            this.channel = file.getChannel();
+            this.buffer = ByteBuffer.allocate(GMON_READ_BUFFER_SIZE).order(this.symbols.getByteOrder());
+            this.buffer.flip();
+            
+            // Check the header.
+            this.require(GMON_HEADER_SIZE);
+            for (int i = 0; i < GMON_MAGIC.length; i++)
+            {
+                if (this.buffer.get() != GMON_MAGIC[i])
+                {
+                    throw new IOException("Not a gmon profiling data file.");
+                }
+            }
+            if (this.buffer.getInt() != GMON_VERSION)
+            {
+                throw new IOException("Unsupported gmon profiling data version.");
+            }
+            this.buffer.position(GMON_HEADER_SIZE);
+            
+            // Read the records.
+            while (this.require(1))
+            {
+                this.countRead();
+                int tag = this.buffer.get();
+                if (tag == GMON_TAG_TIME_HIST)
+                {
+                    this.readHistogram();
+                }
+                else if (tag == GMON_TAG_CG_ARC)
+                {
+                    this.readArc();
+                }
+                else if (tag == GMON_TAG_BB_COUNT)
+                {
+                    this.skipBasicBlocks();
+                }
+                else
+                {
+                    throw new IOException("Unknown gmon record tag " + tag + ".");
+                }
+            }
+        }
+        finally
+        {
+            this.channel = null;
+            this.buffer = null;
+            file.close();
+        }
+    }
+    
+    /**
+     * Reads a histogram record. Like gprof, the samples of a bin that spans several functions are split between them in proportion to
+     * how much of the bin each function covers (a function being taken to extend up to the next function).
+     * 
+     * @throws IOException When the record cannot be read.
+     */
+    private void readHistogram() throws IOException
+    {
+        long lowPC = this.readAddress();
+        long highPC = this.readAddress();
+        this.require(8 + GMON_HIST_DIMENSION_SIZE);
+        int binCount = this.buffer.getInt();
+        this.profileRate = this.buffer.getInt();
+        this.buffer.position(this.buffer.position() + GMON_HIST_DIMENSION_SIZE);
+        
+        double binSize = binCount > 0 ? (double)(highPC - lowPC) / binCount : 0;
+        for (int i = 0; i < binCount; i++)
+        {
+            this.countRead();
+            this.require(2);
+            int count = this.buffer.getShort() & 0xFFFF;
+            if (count == 0)
+            {
+                continue;
+            }
+            double binStart = lowPC + i * binSize;
+            double binEnd = binStart + binSize;
+            int symbolCount = this.symbols.getSymbolCount();
+            for (int symbol = Math.max(0, this.symbols.findPreceding((long)binStart)); symbol < symbolCount
+                && this.symbols.getAddress(symbol) < binEnd; symbol++)
+            {
+                double start = Math.max(binStart, this.symbols.getAddress(symbol));
+                double end = symbol + 1 < symbolCount ? Math.min(binEnd, this.symbols.getAddress(symbol + 1)) : binEnd;
+                if (end > start)
+                {
+                    this.samples[symbol] += count * (end - start) / binSize;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Reads a call graph arc record.
+     * 
+     * @throws IOException When the record cannot be read.
+     */
+    private void readArc() throws IOException
+    {
+        long fromPC = this.readAddress();
+        long selfPC = this.readAddress();
+        this.require(4);
+        long count = this.buffer.getInt() & 0xFFFFFFFFL;
+        
+        int caller = this.symbols.find(fromPC);
+        int callee = this.symbols.find(selfPC);
+        if (caller != -1 && callee != -1)
+        {
+            this.addArc(caller, callee, count);
+        }
+    }
+    
+    /**
+     * Adds the given number of calls to the arc between the given symbols.
+     * 
+     * @param caller The caller symbol.
+     * @param callee The callee symbol.
+     * @param count The number of calls.
+     */
+    private void addArc(int caller, int callee, long count)
+    {
+        // Add up the counts of arcs between the same functions (i.e. from different call sites).
+        int slot = this.findArcSlot(caller, callee);
+        int arc = this.arcSlots[slot];
+        if (arc != GMON_NO_ARC)
+        {
+            this.arcCounts[arc] += count;
+            return;
+        }
+        
+        // Make room for the arc (keeping the hash index at most half full).
+        if (this.arcCount == this.arcCounts.length)
+        {
+            this.arcCallers = Arrays.copyOf(this.arcCallers, this.arcCount * 2);
+            this.arcCallees = Arrays.copyOf(this.arcCallees, this.arcCount * 2);
+            this.arcCounts = Arrays.copyOf(this.arcCounts, this.arcCount * 2);
+        }
+        if (this.arcCount * 2 >= this.arcSlots.length)
+        {
+            this.arcSlots = newArcSlots(this.arcSlots.length * 2);
+            for (int i = 0; i < this.arcCount; i++)
+            {
+                this.arcSlots[this.findArcSlot(this.arcCallers[i], this.arcCallees[i])] = i;
+            }
+            slot = this.findArcSlot(caller, callee);
+        }
+        this.arcCallers[this.arcCount] = caller;
+        this.arcCallees[this.arcCount] = callee;
+        this.arcCounts[this.arcCount] = count;
+        this.arcSlots[slot] = this.arcCount;
+        this.arcCount++;
+    }
+    
+    /**
+     * Finds the slot of the hash index that holds the arc between the given symbols, or the empty slot where it belongs (probing
+     * linearly from the slot the symbols hash to).
+     * 
+     * @param caller The caller symbol.
+     * @param callee The callee symbol.
+     * @return The slot.
+     */
+    private int findArcSlot(int caller, int callee)
+    {
+        int mask = this.arcSlots.length - 1;
+        int hash = caller * 0x9E3779B1 + callee;
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        while (true)
+        {
+            int arc = this.arcSlots[slot];
+            if (arc == GMON_NO_ARC || (this.arcCallers[arc] == caller && this.arcCallees[arc] == callee))
+            {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+    
+    /**
+     * Creates an empty hash index of the arcs.
+     * 
+     * @param capacity The number of slots (a power of two).
+     * @return The slots.
+     */
+    private static int[] newArcSlots(int capacity)
+    {
+        int[] slots = new int[capacity];
+        Arrays.fill(slots, GMON_NO_ARC);
+        return slots;
+    }
+    
+    /**
+     * Reads past a basic-block count record.
+     * 
+     * @throws IOException When the record cannot be read.
+     */
+    private void skipBasicBlocks() throws IOException
+    {
+        this.require(4);
+        int blockCount = this.buffer.getInt();
+        for (int i = 0; i < blockCount; i++)
+        {
+            // Each block holds its address and its count.
+            this.readAddress();
+            this.readAddress();
+        }
+    }
+    
+    /**
+     * Creates the profiler report from the samples and arcs that were read.
+     * 
+     * @return The profiler report.
+     */
+    private ProfilerReport createReport()
+    {
+        int symbolCount = this.symbols.getSymbolCount();
+        double secondsPerSample = this.profileRate > 0 ? 1.0 / this.profileRate : 0;
+        
+        // Calculate the self times and call counts.
+        double[] selfTimes = new double[symbolCount];
+        double totalSelfTime = 0;
+        for (int i = 0; i < symbolCount; i++)
+        {
+            selfTimes[i] = this.samples[i] * secondsPerSample;
+            totalSelfTime += selfTimes[i];
+        }
+        long[] callCounts = new long[symbolCount];
+        long[] recursiveCallCounts = new long[symbolCount];
+        for (int i = 0; i < this.arcCount; i++)
+        {
+            if (this.arcCallers[i] == this.arcCallees[i])
+            {
+                recursiveCallCounts[this.arcCallees[i]] += this.arcCounts[i];
+            }
+            else
+            {
+                callCounts[this.arcCallees[i]] += this.arcCounts[i];
+            }
+        }
+        
+        // Find the cycles of the call graph (the components are numbered in the order they are completed, i.e. callees first).
+        this.checkCanceled();
+        int[] firstOutgoingArc = new int[symbolCount + 1];
+        int[] outgoingArcs = ProfiledGraphs.Group(this.arcCallers, this.arcCount, symbolCount, firstOutgoingArc);
+        int[] outgoingCallees = new int[this.arcCount];
+        for (int i = 0; i < this.arcCount; i++)
+        {
+            outgoingCallees[i] = this.arcCallees[outgoingArcs[i]];
+        }
+        int[] components = new int[symbolCount];
+        int componentCount = ProfiledGraphs.FindComponents(symbolCount, firstOutgoingArc, outgoingCallees, components);
+        
+        // Gather the self time of each component and the calls into it from outside of it.
+        double[] componentSelfTimes = new double[componentCount];
+        for (int i = 0; i < symbolCount; i++)
+        {
+            componentSelfTimes[components[i]] += selfTimes[i];
+        }
+        long[] componentCallCounts = new long[componentCount];
+        for (int i = 0; i < this.arcCount; i++)
+        {
+            int component = components[this.arcCallees[i]];
+            if (components[this.arcCallers[i]] != component)
+            {
+                componentCallCounts[component] += this.arcCounts[i];
+            }
+        }
+        
+        // Propagate the times up the condensed call graph (callees before their callers). Like gprof, a cycle is treated as a whole: its
+        // time is shared out among the calls into the cycle from outside, while the calls within the cycle do not propagate any time.
+        double[] childTimes = new double[symbolCount];
+        double[] componentChildTimes = new double[componentCount];
+        double[] arcSelfTimes = new double[this.arcCount];
+        double[] arcChildTimes = new double[this.arcCount];
+        int[] firstIncomingArc = new int[symbolCount + 1];
+        int[] incomingArcs = ProfiledGraphs.Group(this.arcCallees, this.arcCount, symbolCount, firstIncomingArc);
+        int[] firstMember = new int[componentCount + 1];
+        int[] members = ProfiledGraphs.Group(components, symbolCount, componentCount, firstMember);
+        for (int component = 0; component < componentCount; component++)
+        {
+            for (int i = firstMember[component]; i < firstMember[component + 1]; i++)
+            {
+                int callee = members[i];
+                for (int j = firstIncomingArc[callee]; j < firstIncomingArc[callee + 1]; j++)
+                {
+                    int arc = incomingArcs[j];
+                    int caller = this.arcCallers[arc];
+                    int callerComponent = components[caller];
+                    if (callerComponent == component)
+                    {
+                        // Leave the times of the calls within the cycle unset (gprof leaves them blank as well).
+                        arcSelfTimes[arc] = -1;
+                        arcChildTimes[arc] = -1;
+                        continue;
+                    }
+                    double share = (double)this.arcCounts[arc] / componentCallCounts[component];
+                    arcSelfTimes[arc] = componentSelfTimes[component] * share;
+                    arcChildTimes[arc] = componentChildTimes[component] * share;
+                    childTimes[caller] += arcSelfTimes[arc] + arcChildTimes[arc];
+                    componentChildTimes[callerComponent] += arcSelfTimes[arc] + arcChildTimes[arc];
+                }
+            }
+        }
+        
+        // Create the functions for the symbols that were sampled or called.
+        this.checkCanceled();
+        boolean[] called = new boolean[symbolCount];
+        for (int i = 0; i < this.arcCount; i++)
+        {
+            called[this.arcCallers[i]] = true;
+            called[this.arcCallees[i]] = true;
+        }
+        ArrayList<ProfiledFunction> functions = new ArrayList<ProfiledFunction>();
+        ProfiledFunction[] functionsBySymbol = new ProfiledFunction[symbolCount];
+        for (int i = 0; i < symbolCount; i++)
+        {
+            if (this.samples[i] == 0 && !called[i])
+            {
+                continue;
+            }
+            ProfiledFunction function = new ProfiledFunction();
+            long calls = callCounts[i];
+            double totalTime = selfTimes[i] + childTimes[i];
+            function.SetName(this.symbols.getName(i));
+            function.SetSelfTime((float)selfTimes[i]);
+            function.SetSubroutineTime((float)childTimes[i]);
+            function.SetTotalTime((float)totalTime);
+            if (totalSelfTime > 0)
+            {
+                function.SetPercentTotalSelfTime((float)(selfTimes[i] * 100 / totalSelfTime));
+                function.SetPercentTotalTime((float)(totalTime * 100 / totalSelfTime));
+            }
+            
+            // Leave the call counts of functions that were never called (recursively) unset, as gprof leaves them blank.
+            if (calls > 0)
+            {
+                function.SetCallCount(calls);
+                function.SetSelfMSPerCall((float)(selfTimes[i] * 1000 / calls));
+                function.SetTotalMSPerCall((float)(totalTime * 1000 / calls));
+            }
+            if (recursiveCallCounts[i] > 0)
+            {
+                function.SetRecursiveCallCount((int)recursiveCallCounts[i]);
+            }
+            functions.add(function);
+            functionsBySymbol[i] = function;
+        }
+        
+        // Number the functions like gprof does, counting in the cycles as a whole (which take up numbers of their own in gprof's call
+        // graph) and comparing the total times at full precision, so that the IDs match those of gprof's output.
+        ArrayList<GMonEntry> entries = new ArrayList<GMonEntry>(functions.size());
+        for (int i = 0; i < symbolCount; i++)
+        {
+            if (functionsBySymbol[i] != null)
+            {
+                entries.add(new GMonEntry(functionsBySymbol[i].GetName(), i, selfTimes[i] + childTimes[i], callCounts[i]));
+            }
+        }
+        for (int component = 0; component < componentCount; component++)
+        {
+            if (firstMember[component + 1] - firstMember[component] > 1)
+            {
+                double totalTime = componentSelfTimes[component] + componentChildTimes[component];
+                entries.add(new GMonEntry(null, -1, totalTime, componentCallCounts[component]));
+            }
+        }
+        Collections.sort(entries, GMON_ENTRY_ORDER);
+        for (int i = 0; i < entries.size(); i++)
+        {
+            if (entries.get(i).symbol != -1)
+            {
+                functionsBySymbol[entries.get(i).symbol].SetID(i + 1);
+            }
+        }
+        
+        // Gather the callers and subroutines of the functions (the lists are not retained by the functions, so they are set once complete).
+        ArrayList<ArrayList<ProfiledCaller>> callersBySymbol = new ArrayList<ArrayList<ProfiledCaller>>(Collections
+            .<ArrayList<ProfiledCaller>> nCopies(symbolCount, null));
+        ArrayList<ArrayList<ProfiledSubroutine>> subroutinesBySymbol = new ArrayList<ArrayList<ProfiledSubroutine>>(Collections
+            .<ArrayList<ProfiledSubroutine>> nCopies(symbolCount, null));
+        for (int i = 0; i < this.arcCount; i++)
+        {
+            ProfiledFunction caller = functionsBySymbol[this.arcCallers[i]];
+            ProfiledFunction callee = functionsBySymbol[this.arcCallees[i]];
+            
+            ProfiledCaller profiledCaller = new ProfiledCaller();
+            profiledCaller.SetID(caller.GetID());
+            profiledCaller.SetName(caller.GetName());
+            profiledCaller.SetCallCount((int)this.arcCounts[i]);
+            profiledCaller.SetTimeInCalledSelf((float)arcSelfTimes[i]);
+            profiledCaller.SetTimeInCalledSubroutines((float)arcChildTimes[i]);
+            if (callersBySymbol.get(this.arcCallees[i]) == null)
+            {
+                callersBySymbol.set(this.arcCallees[i], new ArrayList<ProfiledCaller>());
+            }
+            callersBySymbol.get(this.arcCallees[i]).add(profiledCaller);
+            
+            ProfiledSubroutine profiledSubroutine = new ProfiledSubroutine();
+            profiledSubroutine.SetID(callee.GetID());
+            profiledSubroutine.SetName(callee.GetName());
+            profiledSubroutine.SetCallCount((int)this.arcCounts[i]);
+            profiledSubroutine.SetTimeInSubroutineSelf((float)arcSelfTimes[i]);
+            profiledSubroutine.SetTimeInSubroutineSubroutines((float)arcChildTimes[i]);
+            if (subroutinesBySymbol.get(this.arcCallers[i]) == null)
+            {
+                subroutinesBySymbol.set(this.arcCallers[i], new ArrayList<ProfiledSubroutine>());
+            }
+            subroutinesBySymbol.get(this.arcCallers[i]).add(profiledSubroutine);
+        }
+        
+        // Order the functions like the flat profile (by decreasing self time, then by decreasing calls and name).
+        Collections.sort(functions, new Comparator<ProfiledFunction>()
+        {
+            public int compare(ProfiledFunction first, ProfiledFunction second)
+            {
+                int result = Float.compare(second.GetSelfTime(), first.GetSelfTime());
+                if (result == 0)
+                {
+                    result = second.GetCallCount() - first.GetCallCount();
+                }
+                return result != 0 ? result : first.GetName().compareTo(second.GetName());
+            }
+        });
+        ProfilerReport report = new ProfilerReport();
+        report.SetFunctions(functions);
+        
+        // Add the callers and subroutines (as arcs of the report).
+        for (int i = 0; i < symbolCount; i++)
+        {
+            if (functionsBySymbol[i] != null)
+            {
+                functionsBySymbol[i].SetCallers(callersBySymbol.get(i));
+                functionsBySymbol[i].SetSubroutines(subroutinesBySymbol.get(i));
+            }
+        }
+        report.BuildCallGraph();
+        return report;
+    }
+    
+    /**
+     * Counts a record or histogram bin as read, checking the progress monitor for cancellation every
+     * {@link #GMON_CANCEL_CHECK_INTERVAL} records and bins.
+     */
+    private void countRead()
+    {
+        if (++this.uncheckedCount == GMON_CANCEL_CHECK_INTERVAL)
+        {
+            this.uncheckedCount = 0;
+            this.checkCanceled();
+        }
+    }
+    
+    /**
+     * Checks whether the read has been cancelled through the progress monitor (if there is one).
+     * 
+     * @throws OperationCanceledException When the read has been cancelled.
+     */
+    private void checkCanceled()
+    {
+        if (this.monitor != null && this.monitor.isCanceled())
+        {
+            throw new OperationCanceledException();
+        }
+    }
+    
+    /**
+     * Reads an address (whose size depends on whether the executable is a 64 bit executable).
+     * 
+     * @return The address.
+     * @throws IOException When the address cannot be read.
+     */
+    private long readAddress() throws IOException
+    {
+        if (this.symbols.is64Bit())
+        {
+            this.require(8);
+            return this.buffer.getLong();
+        }
+        this.require(4);
+        return this.buffer.getInt() & 0xFFFFFFFFL;
+    }
+    
+    /**
+     * Makes sure the read buffer holds at least the given number of bytes, reading more from the channel if necessary.
+     * 
+     * @param count The number of bytes required.
+     * @return <code>true</code> if the bytes are available;<code>false</code> if the end of the file was reached before any of them
+     *         could be read.
+     * @throws IOException When the file cannot be read or ends part way through the required bytes.
+     */
+    private boolean require(int count) throws IOException
+    {
+        if (this.buffer.remaining() >= count)
+        {
+            return true;
+        }
+        this.buffer.compact();
+        while (this.buffer.position() < count)
+        {
+            if (this.channel.read(this.buffer) == -1)
+            {
+                this.buffer.flip();
+                if (this.buffer.remaining() == 0)
+                {
+                    return false;
+                }
+                throw new IOException("Unexpected end of the gmon profiling data.");
+            }
+        }
+        this.buffer.flip();
+        return true;
+    }
+}
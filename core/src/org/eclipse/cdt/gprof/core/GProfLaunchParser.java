@@ -28,20 +28,32 @@
 
 package org.eclipse.cdt.gprof.core;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
-import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
+import org.eclipse.cdt.gprof.core.profiled.ProfiledArcTable;
 import org.eclipse.cdt.gprof.core.profiled.ProfiledCaller;
 import org.eclipse.cdt.gprof.core.profiled.ProfiledFunction;
 import org.eclipse.cdt.gprof.core.profiled.ProfiledSubroutine;
 import org.eclipse.cdt.gprof.core.profiled.ProfilerReport;
-import org.eclipse.cdt.gprof.launch.IGProfLaunchParser;
+import org.eclipse.cdt.gprof.launch.IGProfLaunchParser2;
+import org.eclipse.cdt.gprof.launch.IGProfParseListener;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.ListenerList;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
 
 /**
  * Parses the gprof output into a profiler report.
+ * 
+ * While parsing, the parser also delivers each entry of the gprof output to its parse listeners as soon as the entry has been read.
  */
-public class GProfLaunchParser implements IGProfLaunchParser
+public class GProfLaunchParser implements IGProfLaunchParser2
 {
     /**
      * Represents the range of a statistic within a given line to be parsed.
@@ -55,20 +67,98 @@ public class GProfLaunchParser implements IGProfLaunchParser
         public int end;
         
         /**
-         * Retrieves whether the given stat range overlaps this stat range.
+         * Retrieves whether the given range of a line overlaps this stat range.
          * 
-         * @param statRange The stat range to compare.
-         * @return <code>true</code> if the stat ranges overlap;<code>false</code> otherwise.
+         * @param start The starting index of the range.
+         * @param end The (inclusive) ending index of the range.
+         * @return <code>true</code> if the ranges overlap;<code>false</code> otherwise.
          */
-        public boolean overlaps(StatRange statRange)
+        public boolean overlaps(int start, int end)
         {
-            return (this.start <= statRange.end && this.end >= statRange.start)
-                || (statRange.start <= this.end && statRange.end >= this.start);
+            return this.start <= end && this.end >= start;
         }
     }
     
-    /** Holds the scanner used to parse the gprof output. */
-    private Scanner scanner;
+    /**
+     * Represents a block of the call graph: the primary function along with its callers and subroutines.
+     */
+    private static final class CallGraphBlock
+    {
+        /** The primary function of the block (<code>null</code> if the block does not have a primary line). */
+        public ProfiledFunction function;
+        
+        /** The callers listed above the primary function. */
+        public ArrayList<ProfiledCaller> callers = new ArrayList<ProfiledCaller>();
+        
+        /** The subroutines listed below the primary function. */
+        public ArrayList<ProfiledSubroutine> subroutines = new ArrayList<ProfiledSubroutine>();
+    }
+    
+    /**
+     * Parses a range of the blocks of a call graph section, splitting the range in half until it is small enough to be parsed by a
+     * single thread.
+     */
+    private static final class CallGraphBlockTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+        
+        /** The parser whose call graph is being parsed. */
+        private final GProfLaunchParser parser;
+        
+        /** The call graph section holding the blocks. */
+        private final GProfCallGraphSection section;
+        
+        /** The array to fill with the parsed blocks (indexed like the blocks of the section). */
+        private final CallGraphBlock[] blocks;
+        
+        /** The index of the first block to parse. */
+        private final int start;
+        
+        /** The index of the block following the last block to parse. */
+        private final int end;
+        
+        /**
+         * Constructs the task for the given range of blocks.
+         * 
+         * @param parser The parser whose call graph is being parsed.
+         * @param section The call graph section holding the blocks.
+         * @param blocks The array to fill with the parsed blocks.
+         * @param start The index of the first block to parse.
+         * @param end The index of the block following the last block to parse.
+         */
+        public CallGraphBlockTask(GProfLaunchParser parser, GProfCallGraphSection section, CallGraphBlock[] blocks, int start, int end)
+        {
+            this.parser = parser;
+            this.section = section;
+            this.blocks = blocks;
+            this.start = start;
+            this.end = end;
+        }
+        
+        /**
+         * @see RecursiveAction#compute()
+         */
+        protected void compute()
+        {
+            if (this.end - this.start <= PARSE_BLOCKS_PER_TASK)
+            {
+                // Parse the blocks with a worker of our own (the tokenizer and name builder cannot be shared between threads).
+                GProfLaunchParser worker = this.parser.createWorker();
+                worker.checkCanceled();
+                GProfAsciiLine line = new GProfAsciiLine();
+                for (int i = this.start; i < this.end; i++)
+                {
+                    this.blocks[i] = worker.parseCallGraphBlock(this.section, i, line);
+                }
+            }
+            else
+            {
+                int middle = (this.start + this.end) >>> 1;
+                invokeAll(new CallGraphBlockTask(this.parser, this.section, this.blocks, this.start, middle), new CallGraphBlockTask(
+                    this.parser, this.section, this.blocks, middle, this.end));
+            }
+        }
+    }
     
     /** Holds the state of the parser. */
     private int state = PARSE_STATE_NONE;
@@ -76,12 +166,51 @@ public class GProfLaunchParser implements IGProfLaunchParser
     /** Holds the profiler report that the parser populates. */
     private ProfilerReport report = new ProfilerReport();
     
+    /** Holds whether the parsed entries are retained in the profiler report (as opposed to only being delivered to the listeners). */
+    private boolean retainReport;
+    
+    /** Holds the listeners that receive the parse events of every parse. */
+    private ListenerList listeners = new ListenerList();
+    
+    /** Holds the listeners that receive the parse events of the current parse. */
+    private IGProfParseListener[] activeListeners = new IGProfParseListener[0];
+    
+    /** Holds the number of threads that parses use (0 to choose automatically, see {@link #setParallelism(int)}). */
+    private int parallelism = PARSE_AUTOMATIC_PARALLELISM;
+    
+    /** Holds the number of threads used by the current parse (1 parses the call graph on the calling thread as it is read). */
+    private int activeParallelism = 1;
+    
+    /** Holds the progress monitor that parses report to (<code>null</code> if none). */
+    private IProgressMonitor monitor;
+    
+    /** Holds the number of bytes of output being parsed (-1 if unknown). */
+    private long progressLength;
+    
+    /** Holds the amount of work reported to the progress monitor so far. */
+    private int progressWorked;
+    
+    /** Holds the number of lines read by the current parse. */
+    private int progressLineCount;
+    
     /** Holds the statistic ranges for the flat profile stats. */
     private StatRange[] flatProfileStatRanges = new StatRange[PARSE_FLAT_PROFILE_STAT_COUNT];
     
     /** Holds the statistic ranges for the call graph stats. */
     private StatRange[] callGraphStatRanges = new StatRange[PARSE_CALL_GRAPH_STAT_COUNT];
     
+    /** Holds the tokenizer used to split each line into statistics. */
+    private GProfLineTokenizer tokenizer = new GProfLineTokenizer();
+    
+    /** Holds the name being assembled from the name tokens of the line currently being parsed. */
+    private StringBuilder nameBuilder = new StringBuilder();
+    
+    /** Holds the cumulative seconds parsed from the flat profile line currently being parsed (-1 if none). */
+    private float cumulativeTime;
+    
+    /** Holds the call counts parsed from the 'called' column of a call graph function ({ nonrecursive, recursive }). */
+    private int[] callCounts = new int[2];
+    
     // ======================= Parser State Constants ====================== //
     
     private static final int PARSE_STATE_NONE = 0x0001;
@@ -106,10 +235,6 @@ public class GProfLaunchParser implements IGProfLaunchParser
     
     private static final int PARSE_CALL_GRAPH_STAT_COUNT = 6;
     
-    private static final String PARSE_STR_FLAG_CHARACTER = "";
-    
-    private static final String[] PARSE_STR_FLAG = { PARSE_STR_FLAG_CHARACTER };
-    
     private static final String[] PARSE_STR_FLAT_PROFILE = { "Flat", "profile:" };
     
     private static final String[] PARSE_STR_FLAT_PROFILE_STATS = { "time", "seconds", "seconds", "calls", "ms/call", "ms/call", "name" };
@@ -122,285 +247,1049 @@ public class GProfLaunchParser implements IGProfLaunchParser
     
     private static final String PARSE_CG_SPONTANEOUS_ENTRY = "<spontaneous>";
     
-    private static final String PARSE_CALL_COUNT_SEPARATOR = "/";
+    private static final String PARSE_CG_CYCLE_START = "<cycle ";
+    
+    private static final String PARSE_CG_CYCLE_AS_A_WHOLE_END = " as a whole>";
+    
+    private static final char PARSE_CALL_COUNT_SEPARATOR = '/';
+    
+    private static final char PARSE_CALL_COUNTS_SEPARATOR = '+';
+    
+    private static final char PARSE_ID_START_CHAR = '[';
+    
+    private static final char PARSE_ID_END_CHAR = ']';
+    
+    private static final char PARSE_DECIMAL_POINT = '.';
+    
+    private static final char PARSE_NAME_SEPARATOR = ' ';
+    
+    private static final int PARSE_MAX_FAST_INT_DIGITS = 9;
+    
+    private static final int PARSE_MAX_FAST_DIGITS = 15;
+    
+    private static final double[] PARSE_POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14,
+        1e15 };
+    
+    private static final int PARSE_AUTOMATIC_PARALLELISM = 0;
+    
+    private static final int PARSE_BLOCKS_PER_TASK = 512;
+    
+    private static final int PARSE_PROGRESS_LINES = 4096;
+    
+    private static final int PARSE_PROGRESS_TOTAL_WORK = 1000;
+    
+    private static final String PARSE_TASK_NAME = "Parsing the gprof output";
+    
+    private static final String PARSE_GMON_TASK_NAME = "Reading the gprof output file";
+    
+    private static final String PARSE_PROGRESS_BYTES_READ = " KB read";
+    
+    private static final String PARSE_ARC_MISMATCH_MESSAGE = " call graph arc(s) differ between the caller and the subroutine entries:";
+    
+    private static final String PARSE_ARC_SEPARATOR = " -> ";
+    
+    private static final int PARSE_ARC_MISMATCHES_LISTED = 10;
+    
+    private static final String PARSE_CACHE_FAILED_MESSAGE = "The profiler report could not be added to the report cache.";
+    
+    // ====================== General Parser Constants ===================== //
+    
+    /**
+     * Parses the gprof output piped in on the given input stream.
+     * 
+     * @param input The gprof output as an input stream.
+     */
+    public void parse(InputStream input)
+    {
+        this.parse(input, null, true);
+    }
+    
+    /**
+     * @see IGProfLaunchParser2#parse(InputStream, IGProfParseListener)
+     */
+    public void parse(InputStream input, IGProfParseListener listener)
+    {
+        this.parse(input, listener, false);
+    }
+    
+    /**
+     * Parses a saved gprof report (the text output of 'gprof -b'). The file is memory mapped and scanned in place, so reports larger than
+     * the available heap (or than 2 GB) can be parsed.
+     * 
+     * @param reportFile The saved gprof report.
+     * @throws IOException When the report cannot be read.
+     */
+    public void parse(File reportFile) throws IOException
+    {
+        GProfMappedLineReader reader = new GProfMappedLineReader(reportFile);
+        try
+        {
+            this.activeParallelism = this.resolveParallelism(true);
+            this.parse(reader, null, true, reader.getSize());
+        }
+        finally
+        {
+            reader.close();
+        }
+    }
+    
+    /**
+     * Reads the profiling data written by the profiled program (i.e. gmon.out) directly, without running gprof. The parse listeners
+     * receive the functions as if they had been parsed from the flat profile and the call graph of the gprof output.
+     * 
+     * @see IGProfLaunchParser2#parse(File, File)
+     */
+    public void parse(File gmonFile, File executable) throws IOException
+    {
+        this.parse(new File[] { gmonFile }, executable);
+    }
+    
+    /**
+     * Reads and merges the profiling data written by several runs of the profiled program (i.e. several gmon.out files) directly, like
+     * 'gprof -s' followed by gprof would. The files are read and summed across the parser's threads (see {@link #setParallelism(int)}).
+     * The parse listeners receive the functions of the merged report as if they had been parsed from the gprof output.
+     * 
+     * @param gmonFiles The profiling data written by the runs of the profiled program.
+     * @param executable The profiled executable.
+     * @throws IOException When any of the profiling data files or the executable cannot be read.
+     * @throws OperationCanceledException When the parse has been cancelled through the progress monitor (see
+     *         {@link #setProgressMonitor(IProgressMonitor)}).
+     */
+    public void parse(File[] gmonFiles, File executable) throws IOException
+    {
+        // Read the profiling data, resolving the functions from the executable's symbol table.
+        this.report = new ProfilerReport();
+        if (this.monitor != null)
+        {
+            this.monitor.beginTask(PARSE_GMON_TASK_NAME, IProgressMonitor.UNKNOWN);
+        }
+        try
+        {
+            GProfGMonReader reader = new GProfGMonReader(GProfElfSymbolTable.forExecutable(executable));
+            reader.setProgressMonitor(this.monitor);
+            this.report = reader.read(gmonFiles, this.resolveParallelism(true));
+        }
+        finally
+        {
+            if (this.monitor != null)
+            {
+                this.monitor.done();
+            }
+        }
+        this.retainReport = true;
+        this.deliverReport();
+    }
+    
+    /**
+     * Restores the report of an earlier parse of the given profiling data and executable from the report cache. The parse listeners
+     * receive the functions of the restored report as if they had been parsed.
+     * 
+     * @see IGProfLaunchParser2#restore(File, File, String)
+     */
+    public boolean restore(File gmonFile, File executable, String producer)
+    {
+        GProfReportCache cache = GProfCorePlugin.getReportCache();
+        if (cache == null)
+        {
+            return false;
+        }
+        
+        // Look the report up by the fingerprint of the files (missing files simply miss the cache).
+        ProfilerReport report;
+        try
+        {
+            report = cache.get(GProfReportCache.fingerprint(gmonFile, executable, producer));
+        }
+        catch (IOException e)
+        {
+            return false;
+        }
+        if (report == null)
+        {
+            return false;
+        }
+        this.report = report;
+        this.retainReport = true;
+        this.deliverReport();
+        return true;
+    }
+    
+    /**
+     * Adds the report of the last parse to the report cache under the fingerprint of the given profiling data and executable. Nothing
+     * is cached if the last parse did not retain its results; a report that cannot be cached is reported to the log.
+     * 
+     * @see IGProfLaunchParser2#store(File, File, String)
+     */
+    public void store(File gmonFile, File executable, String producer)
+    {
+        GProfReportCache cache = GProfCorePlugin.getReportCache();
+        if (cache == null || !this.retainReport)
+        {
+            return;
+        }
+        try
+        {
+            cache.put(GProfReportCache.fingerprint(gmonFile, executable, producer), this.report);
+        }
+        catch (IOException e)
+        {
+            GProfCorePlugin.log(new Status(IStatus.WARNING, GProfCorePlugin.PLUGIN_ID, PARSE_CACHE_FAILED_MESSAGE, e));
+        }
+    }
+    
+    /**
+     * Delivers the functions of the report to the listeners: the flat profile (in report order) and then the call graph (in ID order).
+     * The report is published as the report of the last completed parse.
+     */
+    private void deliverReport()
+    {
+        this.gatherListeners(null);
+        ArrayList<ProfiledFunction> functions = this.report.GetFunctions();
+        float cumulativeTime = 0;
+        for (int i = 0; i < functions.size(); i++)
+        {
+            ProfiledFunction function = functions.get(i);
+            cumulativeTime += Math.max(function.GetSelfTime(), 0);
+            this.fireFlatProfileEntry(function, cumulativeTime);
+        }
+        ArrayList<ProfiledCaller> noCallers = new ArrayList<ProfiledCaller>();
+        for (int id = 1; id <= functions.size(); id++)
+        {
+            ProfiledFunction function = this.report.FindByID(id);
+            if (function == null)
+            {
+                continue;
+            }
+            this.fireCallGraphBlock(function, function.GetCallers() != null ? function.GetCallers() : noCallers);
+            ArrayList<ProfiledSubroutine> subroutines = function.GetSubroutines();
+            for (int i = 0; subroutines != null && i < subroutines.size(); i++)
+            {
+                this.fireSubroutine(subroutines.get(i));
+            }
+        }
+        GProfCorePlugin.publishReport(this.report);
+        this.fireEnd();
+    }
     
-    private static final String PARSE_CALL_COUNTS_SEPARATOR = "+";
+    /**
+     * @see IGProfLaunchParser2#addParseListener(IGProfParseListener)
+     */
+    public void addParseListener(IGProfParseListener listener)
+    {
+        this.listeners.add(listener);
+    }
     
-    private static final String PARSE_ID_START_STR = "[";
+    /**
+     * @see IGProfLaunchParser2#removeParseListener(IGProfParseListener)
+     */
+    public void removeParseListener(IGProfParseListener listener)
+    {
+        this.listeners.remove(listener);
+    }
     
-    private static final String PARSE_ID_END_STR = "]";
+    /**
+     * Retrieves the number of threads that parses use.
+     * 
+     * @return The number of threads (0 if it is chosen automatically).
+     */
+    public int getParallelism()
+    {
+        return this.parallelism;
+    }
     
-    private static final Object PARSE_PERCENT_STR = "%";
+    /**
+     * Sets the number of threads that parses use. With more than one thread, the call graph of a retained report is read in full, split
+     * into its blocks, parsed across a fork/join pool and then merged into the report in the order of the output (so the report and the
+     * parse events are the same as for a serial parse); gmon.out files are read and summed across the threads. Parses that only deliver
+     * events to a listener are always serial, so that they do not have to hold on to the call graph.
+     * 
+     * By default (0), the number of threads is chosen automatically: output piped in on a stream (i.e. from a running gprof) is parsed
+     * serially as it is read, so that it is not buffered in full, while saved reports and gmon.out files (which are at hand in full
+     * anyway) use one thread per processor.
+     * 
+     * @param parallelism The number of threads (1 to parse serially, 0 to choose automatically).
+     */
+    public void setParallelism(int parallelism)
+    {
+        this.parallelism = Math.max(PARSE_AUTOMATIC_PARALLELISM, parallelism);
+    }
     
-    private static final String PARSE_EMPTY_STRING = "";
+    /**
+     * Sets the progress monitor that subsequent parses report their progress to. The progress is the number of bytes of output consumed
+     * out of the total (when the total is known, i.e. for saved reports) and the monitor is checked for cancellation every few thousand
+     * lines. A cancelled parse discards its partial report and throws an {@link OperationCanceledException}.
+     * 
+     * @see IGProfLaunchParser2#setProgressMonitor(IProgressMonitor)
+     */
+    public void setProgressMonitor(IProgressMonitor monitor)
+    {
+        this.monitor = monitor;
+    }
     
-    private static final String PARSE_SPACE_STR = " ";
+    /**
+     * Retrieves the profiler report filled by the last parse.
+     * 
+     * @return The profiler report (empty if the last parse did not retain its results).
+     */
+    public ProfilerReport getReport()
+    {
+        return this.report;
+    }
     
-    private static final String PARSE_WHITESPACE_REGEX = "\\s";
+    /**
+     * Parses the gprof output piped in on the given input stream.
+     * 
+     * @param input The gprof output as an input stream.
+     * @param listener An additional listener to receive the parse events of this parse (may be <code>null</code>).
+     * @param retainReport Whether to fill the profiler report with the parsed entries.
+     */
+    private void parse(InputStream input, IGProfParseListener listener, boolean retainReport)
+    {
+        try
+        {
+            this.activeParallelism = this.resolveParallelism(false);
+            this.parse(new GProfStreamLineReader(input), listener, retainReport, -1);
+        }
+        catch (IOException e)
+        {
+            // A stream that can no longer be read is treated as the end of the gprof output.
+        }
+    }
     
-    private static final String PARSE_WHITESPACES_REGEX = "\\s+";
+    /**
+     * Parses the gprof output read by the given line reader.
+     * 
+     * @param reader The reader to read the gprof output from.
+     * @param listener An additional listener to receive the parse events of this parse (may be <code>null</code>).
+     * @param retainReport Whether to fill the profiler report with the parsed entries.
+     * @param length The number of bytes of output to be read (-1 if unknown).
+     * @throws IOException When the gprof output cannot be read.
+     */
+    private void parse(GProfLineReader reader, IGProfParseListener listener, boolean retainReport, long length) throws IOException
+    {
+        this.beginProgress(length);
+        try
+        {
+            this.parseOutput(reader, listener, retainReport);
+        }
+        catch (OperationCanceledException e)
+        {
+            // Discard the partial results.
+            this.report = new ProfilerReport();
+            throw e;
+        }
+        finally
+        {
+            this.endProgress();
+        }
+    }
     
-    private static final String PARSE_TRAILING_WHITESPACE_REGEX = "\\s+$";
+    /**
+     * Parses the gprof output read by the given line reader.
+     * 
+     * @param reader The reader to read the gprof output from.
+     * @param listener An additional listener to receive the parse events of this parse (may be <code>null</code>).
+     * @param retainReport Whether to fill the profiler report with the parsed entries.
+     * @throws IOException When the gprof output cannot be read.
+     */
+    private void parseOutput(GProfLineReader reader, IGProfParseListener listener, boolean retainReport) throws IOException
+    {
+        if (reader != null)
+        {
+            // Create the report to be filled (it indexes its functions by name and ID as they are added).
+            this.report = new ProfilerReport();
+            this.retainReport = retainReport;
+            this.setState(PARSE_STATE_NONE);
+            
+            // Gather the listeners for this parse.
+            this.gatherListeners(listener);
+            
+            // Create a list of profiled callers and profiled subroutines.
+            ArrayList<ProfiledCaller> callers = new ArrayList<ProfiledCaller>();
+            ArrayList<ProfiledSubroutine> subroutines = new ArrayList<ProfiledSubroutine>();
+            
+            // Create a ProfiledFunction object to point to the call graph function currently being parsed.
+            ProfiledFunction currentCallGraphFunction = new ProfiledFunction();
+            
+            // Holds whether the arcs of the call graph function currently being parsed are kept (see isCycleAsAWhole).
+            boolean keepArcs = false;
+            
+            // Perform the actual parsing of the gprof output.
+            CharSequence line;
+            while ((line = reader.readLine()) != null)
+            {
+                // Report the progress (and check for cancellation) every so often.
+                this.updateProgress(reader);
+                
+                // Split the current line into tokens by whitespace.
+                int tokenCount = this.tokenizer.tokenize(line);
+                
+                // Depending on the state, only check for appropriate inputs.
+                if (this.isInState(PARSE_STATE_NONE))
+                {
+                    // Update the state if appropriate.
+                    if (this.tokenizer.matches(GProfLaunchParser.PARSE_STR_FLAT_PROFILE))
+                    {
+                        this.setState(PARSE_STATE_FLAT_PROFILE);
+                    }
+                }
+                else if (this.isInState(PARSE_STATE_FLAT_PROFILE))
+                {
+                    if (this.tokenizer.matches(GProfLaunchParser.PARSE_STR_FLAT_PROFILE_STATS))
+                    {
+                        // Calculate the statistic ranges (used to parse the actual stats later on).
+                        this.getStatRanges(this.flatProfileStatRanges);
+                        
+                        // Update the state.
+                        this.setState(PARSE_STATE_FLAT_PROFILE_STATS);
+                    }
+                }
+                else if (this.isInState(PARSE_STATE_FLAT_PROFILE_STATS))
+                {
+                    // Update the state if appropriate.
+                    if (this.tokenizer.isFlagLine())
+                    {
+                        this.setState(GProfLaunchParser.PARSE_STATE_FLAT_PROFILE_STATS_END);
+                        continue;
+                    }
+                    
+                    // Parse the function's statistics.
+                    ProfiledFunction function = new ProfiledFunction();
+                    this.nameBuilder.setLength(0);
+                    this.cumulativeTime = -1f;
+                    for (int i = 0; i < tokenCount; i++)
+                    {
+                        if (this.tokenizer.isStat(i))
+                        {
+                            parseFPFunctionStat(function, line, this.tokenizer.getStatStart(i), this.tokenizer.getEnd(i));
+                        }
+                    }
+                    if (this.nameBuilder.length() > 0)
+                    {
+                        function.SetName(this.nameBuilder.toString());
+                    }
+                    
+                    // Add the function to the report and notify the listeners.
+                    if (this.retainReport)
+                    {
+                        this.report.AddFunction(function);
+                    }
+                    this.fireFlatProfileEntry(function, this.cumulativeTime);
+                }
+                else if (this.isInState(PARSE_STATE_FLAT_PROFILE_STATS_END))
+                {
+                    // Update the state if appropriate.
+                    if (this.tokenizer.matches(GProfLaunchParser.PARSE_STR_CALL_GRAPH))
+                    {
+                        this.setState(PARSE_STATE_CALL_GRAPH);
+                    }
+                }
+                else if (this.isInState(PARSE_STATE_CALL_GRAPH))
+                {
+                    if (this.tokenizer.matches(GProfLaunchParser.PARSE_STR_CALL_GRAPH_STATS))
+                    {
+                        // Calculate the statistic ranges (used to parse the actual stats later on).
+                        this.getStatRanges(this.callGraphStatRanges);
+                        
+                        // Update the state.
+                        this.setState(PARSE_STATE_CALL_GRAPH_STATS_PROFILED_CALLER);
+                        
+                        // Parse the rest of the call graph across multiple threads if appropriate.
+                        if (this.retainReport && this.activeParallelism > 1)
+                        {
+                            this.parseCallGraphInParallel(reader);
+                            break;
+                        }
+                    }
+                }
+                else if (this.isInState(PARSE_STATE_CALL_GRAPH_STATS_PROFILED_CALLER))
+                {
+                    // Check if we are done parsing.
+                    if (this.tokenizer.isFlagLine())
+                    {
+                        // We're done, so stop parsing.
+                        break;
+                    }
+                    
+                    // Ignore '<spontaneous>' entries in the call graph.
+                    if (tokenCount == 1 && this.tokenizer.tokenEquals(0, PARSE_CG_SPONTANEOUS_ENTRY))
+                    {
+                        continue;
+                    }
+                    // Parse the caller's statistics.
+                    else if (line.length() == 0 || line.charAt(0) != GProfLaunchParser.PARSE_ID_START_CHAR)
+                    {
+                        ProfiledCaller caller = this.parseCallGraphCaller(line, tokenCount);
+                        
+                        // If the corresponding function does not exist, add it.
+                        this.addCallerFunction(caller);
+                        
+                        // Add the caller to the list of callers (they are delivered to the listeners along with the function's statistics).
+                        callers.add(caller);
+                    }
+                    // Parse the function's statistics.
+                    else
+                    {
+                        ProfiledFunction function = this.parseCallGraphFunction(line, tokenCount);
+                        
+                        // Notify the listeners of the function and its callers.
+                        this.fireCallGraphBlock(function, callers);
+                        
+                        // If the function already exists, update it-otherwise add it (and use the report's function from here on).
+                        function = this.addCallGraphFunction(function);
+                        
+                        // Add the callers if there are any and then clear the array.
+                        keepArcs = this.retainReport && !isCycleAsAWhole(function.GetName());
+                        if (callers.size() > 0)
+                        {
+                            if (keepArcs)
+                            {
+                                function.SetCallers(callers);
+                                callers = new ArrayList<ProfiledCaller>();
+                            }
+                            else
+                            {
+                                callers.clear();
+                            }
+                        }
+                        
+                        // Set this function as the current call graph function.
+                        currentCallGraphFunction = function;
+                        
+                        // Update the state.
+                        this.setState(GProfLaunchParser.PARSE_STATE_CALL_GRAPH_STATS_PROFILED_SUBROUTINE);
+                    }
+                }
+                else if (this.isInState(PARSE_STATE_CALL_GRAPH_STATS_PROFILED_SUBROUTINE))
+                {
+                    // Check if we are done parsing subroutines for the current function.
+                    if (tokenCount == 1 && this.tokenizer.tokenStartsWith(0, GProfLaunchParser.PARSE_STR_CALL_GRAPH_FLAG_LINE_START))
+                    {
+                        // Set the subroutines on the current call graph function (if there are any) and clear the subroutines array.
+                        if (subroutines.size() > 0)
+                        {
+                            currentCallGraphFunction.SetSubroutines(subroutines);
+                            subroutines = new ArrayList<ProfiledSubroutine>();
+                        }
+                        
+                        // We are done with this profiled function and its callers and subroutines, so go back to the caller state.
+                        this.setState(PARSE_STATE_CALL_GRAPH_STATS_PROFILED_CALLER);
+                    }
+                    // Parse the profiled subroutine's statistics.
+                    else
+                    {
+                        ProfiledSubroutine subroutine = this.parseCallGraphSubroutine(line, tokenCount);
+                        
+                        // Add the subroutine to the list of subroutines and notify the listeners.
+                        if (keepArcs)
+                        {
+                            subroutines.add(subroutine);
+                        }
+                        this.fireSubroutine(subroutine);
+                    }
+                }
+            }
+            
+            // Make sure the output did not end early because the parse was cancelled (i.e. gprof was stopped).
+            this.checkCanceled();
+            
+            // Index the call graph now that the callers and subroutines of all functions are known.
+            if (this.retainReport)
+            {
+                this.report.BuildCallGraph();
+                this.reportArcMismatches();
+                GProfCorePlugin.publishReport(this.report);
+            }
+            
+            // Let the listeners know that the parse is complete.
+            this.fireEnd();
+        }
+    }
+    
+    /**
+     * Parses the rest of the call graph read by the given line reader across multiple threads.
+     * 
+     * The call graph is first read in full and split into its blocks at the dashed lines. Since each block holds everything needed to
+     * parse it (the callers, the primary function and the subroutines), the blocks are then parsed independently across a fork/join
+     * pool. Finally, the parsed blocks are merged into the report (and delivered to the listeners) in the order they appear in the
+     * output, so the result does not depend on the order in which the blocks were parsed.
+     * 
+     * @param reader The reader to read the call graph from (positioned after the call graph stats header).
+     * @throws IOException When the gprof output cannot be read.
+     */
+    private void parseCallGraphInParallel(GProfLineReader reader) throws IOException
+    {
+        // Read the rest of the call graph, splitting it into blocks.
+        GProfCallGraphSection section = new GProfCallGraphSection();
+        CharSequence line;
+        while ((line = reader.readLine()) != null)
+        {
+            this.updateProgress(reader);
+            int tokenCount = this.tokenizer.tokenize(line);
+            if (this.tokenizer.isFlagLine())
+            {
+                break;
+            }
+            else if (tokenCount == 1 && this.tokenizer.tokenStartsWith(0, GProfLaunchParser.PARSE_STR_CALL_GRAPH_FLAG_LINE_START))
+            {
+                section.endBlock();
+            }
+            else
+            {
+                section.addLine(line);
+            }
+        }
+        section.endBlock();
+        
+        // Parse the blocks (only bringing up a pool if there are enough blocks to split them between threads).
+        CallGraphBlock[] blocks = new CallGraphBlock[section.getBlockCount()];
+        CallGraphBlockTask task = new CallGraphBlockTask(this, section, blocks, 0, blocks.length);
+        if (blocks.length <= PARSE_BLOCKS_PER_TASK)
+        {
+            task.invoke();
+        }
+        else
+        {
+            ForkJoinPool pool = new ForkJoinPool(this.activeParallelism);
+            try
+            {
+                pool.invoke(task);
+            }
+            finally
+            {
+                pool.shutdown();
+            }
+        }
+        
+        // Merge the blocks into the report in the order of the output.
+        ArrayList<ProfiledCaller> callers = new ArrayList<ProfiledCaller>();
+        for (int i = 0; i < blocks.length; i++)
+        {
+            CallGraphBlock block = blocks[i];
+            
+            // If the functions corresponding to the callers do not exist, add them.
+            for (int j = 0; j < block.callers.size(); j++)
+            {
+                ProfiledCaller caller = block.callers.get(j);
+                this.addCallerFunction(caller);
+                callers.add(caller);
+            }
+            
+            // A block without a primary function passes its callers on to the next block (just like a serial parse).
+            if (block.function == null)
+            {
+                continue;
+            }
+            
+            // Notify the listeners of the function and its callers and add the function to the report.
+            this.fireCallGraphBlock(block.function, callers);
+            ProfiledFunction function = this.addCallGraphFunction(block.function);
+            boolean keepArcs = !isCycleAsAWhole(function.GetName());
+            if (callers.size() > 0)
+            {
+                if (keepArcs)
+                {
+                    function.SetCallers(callers);
+                    callers = new ArrayList<ProfiledCaller>();
+                }
+                else
+                {
+                    callers.clear();
+                }
+            }
+            
+            // Notify the listeners of the subroutines and add them to the function.
+            for (int j = 0; j < block.subroutines.size(); j++)
+            {
+                this.fireSubroutine(block.subroutines.get(j));
+            }
+            if (keepArcs && block.subroutines.size() > 0)
+            {
+                function.SetSubroutines(block.subroutines);
+            }
+        }
+    }
+    
+    /**
+     * Retrieves the number of threads to parse the given kind of input with.
+     * 
+     * @param inputAtHand Whether the input is at hand in full (i.e. a saved report or gmon.out files, as opposed to output piped in on a
+     *            stream).
+     * @return The number of threads.
+     */
+    private int resolveParallelism(boolean inputAtHand)
+    {
+        if (this.parallelism != PARSE_AUTOMATIC_PARALLELISM)
+        {
+            return this.parallelism;
+        }
+        return inputAtHand ? Runtime.getRuntime().availableProcessors() : 1;
+    }
+    
+    /**
+     * Creates a parser to parse call graph blocks on behalf of this parser on another thread.
+     * 
+     * @return The worker parser (sharing the call graph stat ranges of this parser).
+     */
+    private GProfLaunchParser createWorker()
+    {
+        GProfLaunchParser worker = new GProfLaunchParser();
+        worker.callGraphStatRanges = this.callGraphStatRanges;
+        worker.monitor = this.monitor;
+        return worker;
+    }
+    
+    /**
+     * Starts reporting the progress of a parse to the progress monitor (if there is one).
+     * 
+     * @param length The number of bytes of output to be read (-1 if unknown).
+     */
+    private void beginProgress(long length)
+    {
+        this.progressLength = length;
+        this.progressWorked = 0;
+        this.progressLineCount = 0;
+        if (this.monitor != null)
+        {
+            this.monitor.beginTask(PARSE_TASK_NAME, length > 0 ? PARSE_PROGRESS_TOTAL_WORK : IProgressMonitor.UNKNOWN);
+        }
+    }
+    
+    /**
+     * Reports the number of bytes consumed by the given reader to the progress monitor and checks for cancellation. Since this is
+     * called for every line, the monitor is only consulted every {@link #PARSE_PROGRESS_LINES} lines.
+     * 
+     * @param reader The reader of the current parse.
+     */
+    private void updateProgress(GProfLineReader reader)
+    {
+        if (this.monitor == null || ++this.progressLineCount % PARSE_PROGRESS_LINES != 0)
+        {
+            return;
+        }
+        this.checkCanceled();
+        if (this.progressLength > 0)
+        {
+            int worked = (int)(reader.getPosition() * PARSE_PROGRESS_TOTAL_WORK / this.progressLength);
+            if (worked > this.progressWorked)
+            {
+                this.monitor.worked(worked - this.progressWorked);
+                this.progressWorked = worked;
+            }
+        }
+        else
+        {
+            this.monitor.subTask(reader.getPosition() / 1024 + PARSE_PROGRESS_BYTES_READ);
+        }
+    }
+    
+    /**
+     * Finishes reporting the progress of a parse to the progress monitor (if there is one).
+     */
+    private void endProgress()
+    {
+        if (this.monitor != null)
+        {
+            this.monitor.done();
+        }
+    }
+    
+    /**
+     * Checks whether the parse has been cancelled through the progress monitor (if there is one).
+     * 
+     * @throws OperationCanceledException When the parse has been cancelled.
+     */
+    private void checkCanceled()
+    {
+        if (this.monitor != null && this.monitor.isCanceled())
+        {
+            throw new OperationCanceledException();
+        }
+    }
+    
+    /**
+     * Parses the given block of the given call graph section.
+     * 
+     * @param section The call graph section holding the block.
+     * @param block The index of the block.
+     * @param line The line to read the lines of the block into.
+     * @return The parsed block.
+     */
+    private CallGraphBlock parseCallGraphBlock(GProfCallGraphSection section, int block, GProfAsciiLine line)
+    {
+        CallGraphBlock callGraphBlock = new CallGraphBlock();
+        this.setState(PARSE_STATE_CALL_GRAPH_STATS_PROFILED_CALLER);
+        for (int i = section.getBlockStart(block); i < section.getBlockEnd(block); i++)
+        {
+            CharSequence blockLine = section.getLine(i, line);
+            int tokenCount = this.tokenizer.tokenize(blockLine);
+            if (this.isInState(PARSE_STATE_CALL_GRAPH_STATS_PROFILED_CALLER))
+            {
+                // Ignore '<spontaneous>' entries in the call graph.
+                if (tokenCount == 1 && this.tokenizer.tokenEquals(0, PARSE_CG_SPONTANEOUS_ENTRY))
+                {
+                    continue;
+                }
+                // Parse the caller's statistics.
+                else if (blockLine.length() == 0 || blockLine.charAt(0) != GProfLaunchParser.PARSE_ID_START_CHAR)
+                {
+                    callGraphBlock.callers.add(this.parseCallGraphCaller(blockLine, tokenCount));
+                }
+                // Parse the function's statistics.
+                else
+                {
+                    callGraphBlock.function = this.parseCallGraphFunction(blockLine, tokenCount);
+                    this.setState(PARSE_STATE_CALL_GRAPH_STATS_PROFILED_SUBROUTINE);
+                }
+            }
+            else
+            {
+                // Parse the profiled subroutine's statistics.
+                callGraphBlock.subroutines.add(this.parseCallGraphSubroutine(blockLine, tokenCount));
+            }
+        }
+        return callGraphBlock;
+    }
+    
+    /**
+     * Parses the given (already tokenized) line as a caller in the call graph.
+     * 
+     * @param line The line to parse.
+     * @param tokenCount The number of tokens in the line.
+     * @return The parsed caller.
+     */
+    private ProfiledCaller parseCallGraphCaller(CharSequence line, int tokenCount)
+    {
+        ProfiledCaller caller = new ProfiledCaller();
+        this.nameBuilder.setLength(0);
+        for (int i = 0; i < tokenCount; i++)
+        {
+            if (this.tokenizer.isStat(i))
+            {
+                parseCGCallerStat(caller, line, this.tokenizer.getStatStart(i), this.tokenizer.getEnd(i));
+            }
+        }
+        if (this.nameBuilder.length() > 0)
+        {
+            caller.SetName(this.nameBuilder.toString());
+        }
+        return caller;
+    }
+    
+    /**
+     * Parses the given (already tokenized) line as the primary function of a block in the call graph.
+     * 
+     * @param line The line to parse.
+     * @param tokenCount The number of tokens in the line.
+     * @return The parsed function.
+     */
+    private ProfiledFunction parseCallGraphFunction(CharSequence line, int tokenCount)
+    {
+        ProfiledFunction function = new ProfiledFunction();
+        this.nameBuilder.setLength(0);
+        for (int i = 0; i < tokenCount; i++)
+        {
+            if (this.tokenizer.isStat(i))
+            {
+                parseCGFunctionStat(function, line, this.tokenizer.getStatStart(i), this.tokenizer.getEnd(i));
+            }
+        }
+        if (this.nameBuilder.length() > 0)
+        {
+            function.SetName(this.nameBuilder.toString());
+        }
+        
+        // The total time is the time spent in the function itself and in its subroutines.
+        if (function.GetSelfTime() != -1f && function.GetSubroutineTime() != -1f)
+        {
+            function.SetTotalTime(function.GetSelfTime() + function.GetSubroutineTime());
+        }
+        return function;
+    }
+    
+    /**
+     * Retrieves whether the given name is the name of a cycle as a whole (e.g. "&lt;cycle 1 as a whole&gt;"). The block of a cycle as a
+     * whole lists the members of the cycle as its subroutines (and the callers of the cycle as its callers); these lines repeat the arcs
+     * of the members' own blocks rather than being arcs themselves, so they are not added to the report's arcs.
+     * 
+     * @param name The name.
+     * @return <code>true</code> if the name is the name of a cycle as a whole; <code>false</code> otherwise.
+     */
+    private static boolean isCycleAsAWhole(String name)
+    {
+        return name != null && name.startsWith(PARSE_CG_CYCLE_START) && name.endsWith(PARSE_CG_CYCLE_AS_A_WHOLE_END);
+    }
+    
+    /**
+     * Parses the given (already tokenized) line as a subroutine in the call graph.
+     * 
+     * @param line The line to parse.
+     * @param tokenCount The number of tokens in the line.
+     * @return The parsed subroutine.
+     */
+    private ProfiledSubroutine parseCallGraphSubroutine(CharSequence line, int tokenCount)
+    {
+        ProfiledSubroutine subroutine = new ProfiledSubroutine();
+        this.nameBuilder.setLength(0);
+        for (int i = 0; i < tokenCount; i++)
+        {
+            if (this.tokenizer.isStat(i))
+            {
+                parseCGSubroutineStat(subroutine, line, this.tokenizer.getStatStart(i), this.tokenizer.getEnd(i));
+            }
+        }
+        if (this.nameBuilder.length() > 0)
+        {
+            subroutine.SetName(this.nameBuilder.toString());
+        }
+        return subroutine;
+    }
+    
+    /**
+     * Adds a function for the given caller to the report if the report does not contain the function yet.
+     * 
+     * @param caller The parsed caller.
+     */
+    private void addCallerFunction(ProfiledCaller caller)
+    {
+        if (this.retainReport && this.report.FindByName(caller.GetName()) == null)
+        {
+            ProfiledFunction function = new ProfiledFunction();
+            function.SetID(caller.GetID());
+            function.SetName(caller.GetName());
+            this.report.AddFunction(function);
+        }
+    }
+    
+    /**
+     * Adds the given primary function of a call graph block to the report. If the report already contains the function (i.e. from the
+     * flat profile), the existing function is updated with the call graph statistics instead.
+     * 
+     * @param function The parsed function.
+     * @return The function as held by the report (the given function if the report is not retained).
+     */
+    private ProfiledFunction addCallGraphFunction(ProfiledFunction function)
+    {
+        ProfiledFunction existingFunction = this.retainReport ? this.report.FindByName(function.GetName()) : null;
+        if (existingFunction != null)
+        {
+            // Only update the fields that were just parsed.
+            existingFunction.SetPercentTotalTime(function.GetPercentTotalTime());
+            existingFunction.SetSelfTime(function.GetSelfTime());
+            existingFunction.SetSubroutineTime(function.GetSubroutineTime());
+            existingFunction.SetTotalTime(function.GetTotalTime());
+            existingFunction.SetCallCount(function.GetCallCount());
+            existingFunction.SetRecursiveCallCount(function.GetRecursiveCallCount());
+            existingFunction.SetID(function.GetID());
+            existingFunction.SetName(function.GetName());
+            this.report.IndexFunction(existingFunction);
+            return existingFunction;
+        }
+        else if (this.retainReport)
+        {
+            this.report.AddFunction(function);
+        }
+        return function;
+    }
+    
+    /**
+     * Reports the arcs of the report whose two copies in the call graph (as a caller and as a subroutine) disagree to the log.
+     */
+    private void reportArcMismatches()
+    {
+        ProfiledArcTable arcs = this.report.GetFunctionTable().GetArcTable();
+        int mismatchCount = arcs.GetMismatchCount();
+        if (mismatchCount == 0)
+        {
+            return;
+        }
+        
+        // List the first few mismatches.
+        StringBuilder message = new StringBuilder();
+        message.append(mismatchCount).append(PARSE_ARC_MISMATCH_MESSAGE);
+        for (int i = 0; i < Math.min(mismatchCount, PARSE_ARC_MISMATCHES_LISTED); i++)
+        {
+            int arc = arcs.GetMismatchedArc(i);
+            message.append('\n').append(arcs.GetCallerName(arc)).append(PARSE_ARC_SEPARATOR).append(arcs.GetSubroutineName(arc));
+        }
+        GProfCorePlugin.log(new Status(IStatus.WARNING, GProfCorePlugin.PLUGIN_ID, message.toString()));
+    }
+    
+    /**
+     * Gathers the listeners that receive the parse events of the current parse.
+     * 
+     * @param listener An additional listener to receive the parse events of the current parse (may be <code>null</code>).
+     */
+    private void gatherListeners(IGProfParseListener listener)
+    {
+        Object[] registeredListeners = this.listeners.getListeners();
+        this.activeListeners = new IGProfParseListener[registeredListeners.length + (listener != null ? 1 : 0)];
+        System.arraycopy(registeredListeners, 0, this.activeListeners, 0, registeredListeners.length);
+        if (listener != null)
+        {
+            this.activeListeners[registeredListeners.length] = listener;
+        }
+    }
     
-    // ====================== General Parser Constants ===================== //
+    /**
+     * Notifies the listeners of a function parsed from the flat profile.
+     * 
+     * @param function The parsed function.
+     * @param cumulativeTime The cumulative seconds of the function's flat profile line (-1 if none).
+     */
+    private void fireFlatProfileEntry(ProfiledFunction function, float cumulativeTime)
+    {
+        for (int i = 0; i < this.activeListeners.length; i++)
+        {
+            this.activeListeners[i].onFlatProfileEntry(function.GetName(), function.GetPercentTotalSelfTime(), cumulativeTime,
+                function.GetSelfTime(), function.GetCallCount(), function.GetSelfMSPerCall(), function.GetTotalMSPerCall());
+        }
+    }
     
     /**
-     * Parses the gprof output piped in on the given input stream.
+     * Notifies the listeners of the primary function of a call graph block and the callers listed above it.
      * 
-     * @param input The gprof output as an input stream.
+     * @param function The parsed function.
+     * @param callers The parsed callers of the function.
      */
-    public void parse(InputStream input)
+    private void fireCallGraphBlock(ProfiledFunction function, ArrayList<ProfiledCaller> callers)
     {
-        // Create a Scanner for the input stream and start parsing.
-        scanner = new Scanner(input);
-        
-        if (scanner != null)
+        for (int i = 0; i < this.activeListeners.length; i++)
         {
-            // Create a list of profiled functions to be filled.
-            ArrayList<ProfiledFunction> functions = new ArrayList<ProfiledFunction>();
-            
-            // Create a list of profiled callers and profiled subroutines.
-            ArrayList<ProfiledCaller> callers = new ArrayList<ProfiledCaller>();
-            ArrayList<ProfiledSubroutine> subroutines = new ArrayList<ProfiledSubroutine>();
-            
-            // Create a ProfiledFunction object to point to the call graph function currently being parsed.
-            ProfiledFunction currentCallGraphFunction = new ProfiledFunction();
-            
-            // Perform the actual parsing of the gprof output.
-            while (scanner.hasNextLine())
+            IGProfParseListener listener = this.activeListeners[i];
+            listener.onCallGraphBlock(function.GetID(), function.GetName(), function.GetPercentTotalTime(), function.GetSelfTime(),
+                function.GetSubroutineTime(), function.GetCallCount(), function.GetRecursiveCallCount());
+            for (int j = 0; j < callers.size(); j++)
             {
-                // Get the current line and split it into tokens by whitespace.
-                String line = scanner.nextLine();
-                String[] tokens = getTokens(line);
-                
-                // Depending on the state, only check for appropriate inputs.
-                if (this.isInState(PARSE_STATE_NONE))
-                {
-                    // Update the state if appropriate.
-                    if (stringArraysMatch(GProfLaunchParser.PARSE_STR_FLAT_PROFILE, tokens))
-                    {
-                        this.setState(PARSE_STATE_FLAT_PROFILE);
-                    }
-                }
-                else if (this.isInState(PARSE_STATE_FLAT_PROFILE))
-                {
-                    if (stringArraysMatch(GProfLaunchParser.PARSE_STR_FLAT_PROFILE_STATS, tokens))
-                    {
-                        // Calculate the statistic ranges (used to parse the actual stats later on).
-                        String currentLine = line;
-                        int parsePosition = 0;
-                        int parseStatCount = 0;
-                        while (parseStatCount < PARSE_FLAT_PROFILE_STAT_COUNT)
-                        {
-                            StatRange statRange = getStatRange(currentLine, parsePosition);
-                            if (statRange != null)
-                            {
-                                this.flatProfileStatRanges[parseStatCount] = statRange;
-                                parsePosition = statRange.end + 1;
-                                parseStatCount++;
-                            }
-                            else
-                            {
-                                break;
-                            }
-                        }
-                        
-                        // Update the state.
-                        this.setState(PARSE_STATE_FLAT_PROFILE_STATS);
-                    }
-                }
-                else if (this.isInState(PARSE_STATE_FLAT_PROFILE_STATS))
-                {
-                    // Update the state if appropriate.
-                    if (stringArraysMatch(GProfLaunchParser.PARSE_STR_FLAG, tokens))
-                    {
-                        this.setState(GProfLaunchParser.PARSE_STATE_FLAT_PROFILE_STATS_END);
-                        continue;
-                    }
-                    
-                    // Parse the function's statistics.
-                    ProfiledFunction function = new ProfiledFunction();
-                    int parsePosition = 0;
-                    while (parsePosition < line.trim().length())
-                    {
-                        StatRange statRange = getStatRange(line, parsePosition);
-                        if (statRange != null)
-                        {
-                            parseFPFunctionStat(function, line, statRange);
-                            parsePosition = statRange.end + 1;
-                        }
-                    }
-                    
-                    // Add the function to the list of functions.
-                    functions.add(function);
-                }
-                else if (this.isInState(PARSE_STATE_FLAT_PROFILE_STATS_END))
-                {
-                    // Update the state if appropriate.
-                    if (stringArraysMatch(GProfLaunchParser.PARSE_STR_CALL_GRAPH, tokens))
-                    {
-                        this.setState(PARSE_STATE_CALL_GRAPH);
-                    }
-                }
-                else if (this.isInState(PARSE_STATE_CALL_GRAPH))
-                {
-                    if (stringArraysMatch(GProfLaunchParser.PARSE_STR_CALL_GRAPH_STATS, tokens))
-                    {
-                        // Calculate the statistic ranges (used to parse the actual stats later on).
-                        String currentLine = line;
-                        int parsePosition = 0;
-                        int parseStatCount = 0;
-                        while (parseStatCount < PARSE_CALL_GRAPH_STAT_COUNT)
-                        {
-                            StatRange statRange = getStatRange(currentLine, parsePosition);
-                            if (statRange != null)
-                            {
-                                this.callGraphStatRanges[parseStatCount] = statRange;
-                                parsePosition = statRange.end + 1;
-                                parseStatCount++;
-                            }
-                            else
-                            {
-                                break;
-                            }
-                        }
-                        
-                        // Update the state.
-                        this.setState(PARSE_STATE_CALL_GRAPH_STATS_PROFILED_CALLER);
-                    }
-                }
-                else if (this.isInState(PARSE_STATE_CALL_GRAPH_STATS_PROFILED_CALLER))
-                {
-                    // Check if we are done parsing.
-                    if (stringArraysMatch(GProfLaunchParser.PARSE_STR_FLAG, tokens))
-                    {
-                        // We're done, so stop parsing.
-                        break;
-                    }
-                    
-                    // Ignore '<spontaneous>' entries in the call graph.
-                    if (line.trim().equals(PARSE_CG_SPONTANEOUS_ENTRY))
-                    {
-                        continue;
-                    }
-                    // Parse the caller's statistics.
-                    else if (!line.startsWith(GProfLaunchParser.PARSE_ID_START_STR))
-                    {
-                        ProfiledCaller caller = new ProfiledCaller();
-                        int parsePosition = 0;
-                        String lineWithNoTrailingWhitespace = line.replaceAll(GProfLaunchParser.PARSE_TRAILING_WHITESPACE_REGEX,
-                            GProfLaunchParser.PARSE_EMPTY_STRING);
-                        while (parsePosition < lineWithNoTrailingWhitespace.length())
-                        {
-                            StatRange statRange = getStatRange(line, parsePosition);
-                            if (statRange != null)
-                            {
-                                parseCGCallerStat(caller, line, statRange);
-                                parsePosition = statRange.end + 1;
-                            }
-                        }
-                        
-                        // If the corresponding function does not exist, add it.
-                        ProfiledFunction function = getProfiledFunctionByName(functions, caller.GetName());
-                        if (function == null)
-                        {
-                            function = new ProfiledFunction();
-                            function.SetID(caller.GetID());
-                            function.SetName(caller.GetName());
-                            functions.add(function);
-                        }
-                        
-                        // Add the caller to the list of callers.
-                        callers.add(caller);
-                    }
-                    // Parse the function's statistics.
-                    else
-                    {
-                        ProfiledFunction function = new ProfiledFunction();
-                        int parsePosition = 0;
-                        while (parsePosition < line.trim().length())
-                        {
-                            StatRange statRange = getStatRange(line, parsePosition);
-                            if (statRange != null)
-                            {
-                                parseCGFunctionStat(function, line, statRange);
-                                parsePosition = statRange.end + 1;
-                            }
-                        }
-                        
-                        // If the function already exists, update it-otherwise add it.
-                        ProfiledFunction existingFunction = getProfiledFunctionByName(functions, function.GetName());
-                        if (existingFunction != null)
-                        {
-                            // Only update the fields that were just parsed.
-                            existingFunction.SetPercentTotalTime(function.GetPercentTotalTime());
-                            existingFunction.SetSelfTime(function.GetSelfTime());
-                            existingFunction.SetSubroutineTime(function.GetSubroutineTime());
-                            existingFunction.SetCallCount(function.GetCallCount());
-                            existingFunction.SetRecursiveCallCount(function.GetRecursiveCallCount());
-                            existingFunction.SetID(function.GetID());
-                            existingFunction.SetName(function.GetName());
-                            
-                            // Set this so that when we use it below it is the correct object.
-                            function = existingFunction;
-                        }
-                        else
-                        {
-                            functions.add(function);
-                        }
-                        
-                        // Add the callers if there are any and then clear the array.
-                        if (callers.size() > 0)
-                        {
-                            function.SetCallers(callers);
-                            callers = new ArrayList<ProfiledCaller>();
-                        }
-                        
-                        // Set this function as the current call graph function.
-                        currentCallGraphFunction = function;
-                        
-                        // Update the state.
-                        this.setState(GProfLaunchParser.PARSE_STATE_CALL_GRAPH_STATS_PROFILED_SUBROUTINE);
-                    }
-                }
-                else if (this.isInState(PARSE_STATE_CALL_GRAPH_STATS_PROFILED_SUBROUTINE))
-                {
-                    // Check if we are done parsing subroutines for the current function.
-                    if (tokens.length == 1 && tokens[0].startsWith(GProfLaunchParser.PARSE_STR_CALL_GRAPH_FLAG_LINE_START))
-                    {
-                        // Set the subroutines on the current call graph function (if there are any) and clear the subroutines array.
-                        if (subroutines.size() > 0)
-                        {
-                            currentCallGraphFunction.SetSubroutines(subroutines);
-                            subroutines = new ArrayList<ProfiledSubroutine>();
-                        }
-                        
-                        // We are done with this profiled function and its callers and subroutines, so go back to the caller state.
-                        this.setState(PARSE_STATE_CALL_GRAPH_STATS_PROFILED_CALLER);
-                    }
-                    // Parse the profiled subroutine's statistics.
-                    else
-                    {
-                        ProfiledSubroutine subroutine = new ProfiledSubroutine();
-                        int parsePosition = 0;
-                        while (parsePosition < line.trim().length())
-                        {
-                            StatRange statRange = getStatRange(line, parsePosition);
-                            if (statRange != null)
-                            {
-                                parseCGSubroutineStat(subroutine, line, statRange);
-                                parsePosition = statRange.end + 1;
-                            }
-                        }
-                        
-                        // Add the subroutine to the list of subroutines.
-                        subroutines.add(subroutine);
-                    }
-                }
+                ProfiledCaller caller = callers.get(j);
+                listener.onCaller(caller.GetID(), caller.GetName(), caller.GetCallCount(), caller.GetTimeInCalledSelf(),
+                    caller.GetTimeInCalledSubroutines());
             }
-            
-            // Store the list of constructed profiled functions in the profiled report.
-            this.report.SetFunctions(functions);
+        }
+    }
+    
+    /**
+     * Notifies the listeners of a subroutine of the current call graph block.
+     * 
+     * @param subroutine The parsed subroutine.
+     */
+    private void fireSubroutine(ProfiledSubroutine subroutine)
+    {
+        for (int i = 0; i < this.activeListeners.length; i++)
+        {
+            this.activeListeners[i].onSubroutine(subroutine.GetID(), subroutine.GetName(), subroutine.GetCallCount(),
+                subroutine.GetTimeInSubroutineSelf(), subroutine.GetTimeInSubroutineSubroutines());
+        }
+    }
+    
+    /**
+     * Notifies the listeners that the parse is complete.
+     */
+    private void fireEnd()
+    {
+        for (int i = 0; i < this.activeListeners.length; i++)
+        {
+            this.activeListeners[i].onEnd();
         }
     }
     
@@ -410,110 +1299,94 @@ public class GProfLaunchParser implements IGProfLaunchParser
      * 
      * @param function The function to parse the statistic for.
      * @param line The line to parse.
-     * @param statRange The statistic range to parse.
+     * @param start The starting index of the statistic within the line.
+     * @param end The (inclusive) ending index of the statistic within the line.
      */
-    private void parseFPFunctionStat(ProfiledFunction function, String line, StatRange statRange)
+    private void parseFPFunctionStat(ProfiledFunction function, CharSequence line, int start, int end)
     {
-        // Get the string that holds the actual statistic value to be parsed.
-        String statString = line.substring(statRange.start, statRange.end + 1);
-        
         // Determine the correct statistic to be parsed.
-        if (statRange.overlaps(flatProfileStatRanges[0]))
+        if (flatProfileStatRanges[0].overlaps(start, end))
         {
             if (function.GetPercentTotalSelfTime() == -1f)
             {
                 // Percent Total Self Time.
-                function.SetPercentTotalSelfTime(Float.parseFloat(statString));
+                function.SetPercentTotalSelfTime(parseFloat(line, start, end));
             }
             else
             {
-                // Total Time.
-                function.SetTotalTime(Float.parseFloat(statString));
+                // Cumulative Time.
+                this.cumulativeTime = parseFloat(line, start, end);
             }
         }
-        else if (statRange.overlaps(flatProfileStatRanges[1]))
+        else if (flatProfileStatRanges[1].overlaps(start, end))
         {
-            if (function.GetTotalTime() == -1f)
+            if (this.cumulativeTime == -1f)
             {
-                // Total Time.
-                function.SetTotalTime(Float.parseFloat(statString));
+                // Cumulative Time (the running sum of the self times, which is not kept by the report).
+                this.cumulativeTime = parseFloat(line, start, end);
             }
             else
             {
                 // Self Time.
-                function.SetSelfTime(Float.parseFloat(statString));
+                function.SetSelfTime(parseFloat(line, start, end));
             }
         }
-        else if (statRange.overlaps(flatProfileStatRanges[2]))
+        else if (flatProfileStatRanges[2].overlaps(start, end))
         {
             if (function.GetSelfTime() == -1f)
             {
                 // Self Time.
-                function.SetSelfTime(Float.parseFloat(statString));
+                function.SetSelfTime(parseFloat(line, start, end));
             }
             else
             {
                 // Call Count.
-                function.SetCallCount(Float.parseFloat(statString));
+                function.SetCallCount(parseFloat(line, start, end));
             }
         }
-        else if (statRange.overlaps(flatProfileStatRanges[3]))
+        else if (flatProfileStatRanges[3].overlaps(start, end))
         {
             if (function.GetCallCount() == -1f)
             {
                 // Call Count.
-                function.SetCallCount(Float.parseFloat(statString));
+                function.SetCallCount(parseFloat(line, start, end));
             }
             else
             {
                 // Self MS Per Call.
-                function.SetSelfMSPerCall(Float.parseFloat(statString));
+                function.SetSelfMSPerCall(parseFloat(line, start, end));
             }
         }
-        else if (statRange.overlaps(flatProfileStatRanges[4]))
+        else if (flatProfileStatRanges[4].overlaps(start, end))
         {
             if (function.GetSelfMSPerCall() == -1f)
             {
                 // Self MS Per Call.
-                function.SetSelfMSPerCall(Float.parseFloat(statString));
+                function.SetSelfMSPerCall(parseFloat(line, start, end));
             }
             else
             {
                 // Total MS Per Call.
-                function.SetTotalMSPerCall(Float.parseFloat(statString));
+                function.SetTotalMSPerCall(parseFloat(line, start, end));
             }
         }
-        else if (statRange.overlaps(flatProfileStatRanges[5]))
+        else if (flatProfileStatRanges[5].overlaps(start, end))
         {
             if (function.GetTotalMSPerCall() == -1f)
             {
                 // Total MS Per Call.
-                function.SetTotalMSPerCall(Float.parseFloat(statString));
+                function.SetTotalMSPerCall(parseFloat(line, start, end));
             }
             else
             {
                 // Name.
-                if (function.GetName() != null && !function.GetName().isEmpty())
-                {
-                    function.SetName(function.GetName() + GProfLaunchParser.PARSE_SPACE_STR + statString);
-                }
-                else
-                {
-                    function.SetName(statString);
-                }
+                this.appendName(line, start, end);
             }
         }
-        else if (statRange.overlaps(flatProfileStatRanges[6]) || statRange.start >= flatProfileStatRanges[6].end)
+        else if (flatProfileStatRanges[6].overlaps(start, end) || start >= flatProfileStatRanges[6].end)
         {
             // Name.
-            if (function.GetName() != null && !function.GetName().isEmpty())
-            {
-                function.SetName(function.GetName() + GProfLaunchParser.PARSE_SPACE_STR + statString);
-            }
-            else
-            {
-                function.SetName(statString);
-            }
+            this.appendName(line, start, end);
         }
     }
     
@@ -523,33 +1396,31 @@ public class GProfLaunchParser implements IGProfLaunchParser
      * 
      * @param function The function to parse the statistic for.
      * @param line The line to parse.
-     * @param statRange The statistic range to parse.
+     * @param start The starting index of the statistic within the line.
+     * @param end The (inclusive) ending index of the statistic within the line.
      */
-    private void parseCGFunctionStat(ProfiledFunction function, String line, StatRange statRange)
+    private void parseCGFunctionStat(ProfiledFunction function, CharSequence line, int start, int end)
     {
-        // Get the string that holds the actual statistic value to be parsed.
-        String statString = line.substring(statRange.start, statRange.end + 1);
-        
         // Determine the correct statistic to be parsed.
-        if (statRange.overlaps(callGraphStatRanges[0]))
+        if (callGraphStatRanges[0].overlaps(start, end))
         {
             if (function.GetID() == -1)
             {
                 // ID.
-                function.SetID(getID(statString));
+                function.SetID(getID(line, start, end));
             }
             else
             {
                 // Percent Total Time.
-                function.SetPercentTotalTime(Float.parseFloat(statString));
+                function.SetPercentTotalTime(parseFloat(line, start, end));
             }
         }
-        else if (statRange.overlaps(callGraphStatRanges[1]))
+        else if (callGraphStatRanges[1].overlaps(start, end))
         {
             if (function.GetPercentTotalTime() == -1f)
             {
                 // Percent Total Time.
-                function.SetPercentTotalTime(Float.parseFloat(statString));
+                function.SetPercentTotalTime(parseFloat(line, start, end));
             }
             else
             {
@@ -557,87 +1428,76 @@ public class GProfLaunchParser implements IGProfLaunchParser
                 if (function.GetSelfTime() == -1f)
                 {
                     // Self Time.
-                    function.SetSelfTime(Float.parseFloat(statString));
+                    function.SetSelfTime(parseFloat(line, start, end));
                 }
             }
         }
-        else if (statRange.overlaps(callGraphStatRanges[2]))
+        else if (callGraphStatRanges[2].overlaps(start, end))
         {
             if (function.GetSelfTime() == -1f)
             {
                 // Self Time.
-                function.SetSelfTime(Float.parseFloat(statString));
+                function.SetSelfTime(parseFloat(line, start, end));
             }
             else
             {
                 // Subroutine Time.
-                function.SetSubroutineTime(Float.parseFloat(statString));
+                function.SetSubroutineTime(parseFloat(line, start, end));
             }
         }
-        else if (statRange.overlaps(callGraphStatRanges[3]))
+        else if (callGraphStatRanges[3].overlaps(start, end))
         {
             if (function.GetSubroutineTime() == -1f)
             {
                 // Subroutine Time.
-                function.SetSubroutineTime(Float.parseFloat(statString));
+                function.SetSubroutineTime(parseFloat(line, start, end));
             }
             else
             {
                 // Call Counts.
-                int[] callCounts = getCGCallCounts(statString);
+                int callCountsLength = getCGCallCounts(line, start, end, this.callCounts);
                 if (function.GetCallCount() == -1)
                 {
-                    function.SetCallCount(callCounts[0]);
+                    function.SetCallCount(this.callCounts[0]);
                 }
-                if (callCounts.length == 2)
+                if (callCountsLength == 2)
                 {
-                    function.SetRecursiveCallCount(callCounts[1]);
+                    function.SetRecursiveCallCount(this.callCounts[1]);
                 }
             }
         }
-        else if (statRange.overlaps(callGraphStatRanges[4]))
+        else if (callGraphStatRanges[4].overlaps(start, end))
         {
             if (function.GetCallCount() == -1 || function.GetRecursiveCallCount() == -1)
             {
                 // Call Counts.
-                int[] callCounts = getCGCallCounts(statString);
+                int callCountsLength = getCGCallCounts(line, start, end, this.callCounts);
                 if (function.GetCallCount() == -1)
                 {
-                    function.SetCallCount(callCounts[0]);
+                    function.SetCallCount(this.callCounts[0]);
                 }
-                if (callCounts.length == 2)
+                if (callCountsLength == 2)
                 {
-                    function.SetRecursiveCallCount(callCounts[1]);
+                    function.SetRecursiveCallCount(this.callCounts[1]);
                 }
             }
             else
             {
                 // Name.
-                if (function.GetName() != null && !function.GetName().isEmpty())
-                {
-                    function.SetName(function.GetName() + GProfLaunchParser.PARSE_SPACE_STR + statString);
-                }
-                else
-                {
-                    function.SetName(statString);
-                }
+                this.appendName(line, start, end);
             }
         }
-        else if (statRange.overlaps(callGraphStatRanges[5]) || statRange.start > callGraphStatRanges[5].start)
+        else if (callGraphStatRanges[5].overlaps(start, end) || start > callGraphStatRanges[5].start)
         {
             // Ignore the ID at the end of the line since it was parsed at the beginning of the line.
-            if (statString.startsWith(GProfLaunchParser.PARSE_ID_START_STR))
+            if (line.charAt(start) == GProfLaunchParser.PARSE_ID_START_CHAR)
             {
                 return;
             }
             // Name.
-            else if (function.GetName() != null && !function.GetName().isEmpty())
-            {
-                function.SetName(function.GetName() + GProfLaunchParser.PARSE_SPACE_STR + statString);
-            }
             else
             {
-                function.SetName(statString);
+                this.appendName(line, start, end);
             }
         }
     }
@@ -647,75 +1507,62 @@ public class GProfLaunchParser implements IGProfLaunchParser
      * 
      * @param caller The caller to parse the statistic for.
      * @param line The line to parse.
-     * @param statRange The statistic range to parse.
+     * @param start The starting index of the statistic within the line.
+     * @param end The (inclusive) ending index of the statistic within the line.
      */
-    private void parseCGCallerStat(ProfiledCaller caller, String line, StatRange statRange)
+    private void parseCGCallerStat(ProfiledCaller caller, CharSequence line, int start, int end)
     {
-        // Get the string that holds the actual statistic value to be parsed.
-        String statString = line.substring(statRange.start, statRange.end + 1);
-        
         // Determine the correct statistic to be parsed.
-        if (statRange.overlaps(callGraphStatRanges[2]))
+        if (callGraphStatRanges[2].overlaps(start, end))
         {
             if (caller.GetTimeInCalledSelf() == -1f)
             {
                 // Time In Called Self.
-                caller.SetTimeInCalledSelf(Float.parseFloat(statString));
+                caller.SetTimeInCalledSelf(parseFloat(line, start, end));
             }
             else
             {
                 // Time In Called Subroutines.
-                caller.SetTimeInCalledSubroutines(Float.parseFloat(statString));
+                caller.SetTimeInCalledSubroutines(parseFloat(line, start, end));
             }
         }
-        else if (statRange.overlaps(callGraphStatRanges[3]))
+        else if (callGraphStatRanges[3].overlaps(start, end))
         {
             if (caller.GetTimeInCalledSubroutines() == -1f)
             {
                 // Time In Called Subroutines.
-                caller.SetTimeInCalledSubroutines(Float.parseFloat(statString));
+                caller.SetTimeInCalledSubroutines(parseFloat(line, start, end));
             }
             else
             {
                 // Call Count.
-                caller.SetCallCount(getCGCallCount(statString));
+                caller.SetCallCount(getCGCallCount(line, start, end));
             }
         }
-        else if (statRange.overlaps(callGraphStatRanges[4]))
+        else if (callGraphStatRanges[4].overlaps(start, end))
         {
             if (caller.GetCallCount() == -1)
             {
                 // Call Counts.
-                caller.SetCallCount(getCGCallCount(statString));
+                caller.SetCallCount(getCGCallCount(line, start, end));
             }
             else
             {
                 // Name.
-                if (caller.GetName() != null && !caller.GetName().isEmpty())
-                {
-                    caller.SetName(caller.GetName() + GProfLaunchParser.PARSE_SPACE_STR + statString);
-                }
-                else
-                {
-                    caller.SetName(statString);
-                }
+                this.appendName(line, start, end);
             }
         }
-        else if (statRange.overlaps(callGraphStatRanges[5]) || statRange.start >= callGraphStatRanges[5].end)
+        else if (callGraphStatRanges[5].overlaps(start, end) || start >= callGraphStatRanges[5].end)
         {
             // ID.
-            if (statString.startsWith(GProfLaunchParser.PARSE_ID_START_STR) && caller.GetID() == -1)
+            if (line.charAt(start) == GProfLaunchParser.PARSE_ID_START_CHAR && caller.GetID() == -1)
             {
-                caller.SetID(getID(statString));
+                caller.SetID(getID(line, start, end));
             }
             // Name.
-            else if (caller.GetName() != null && !caller.GetName().isEmpty())
-            {
-                caller.SetName(caller.GetName() + GProfLaunchParser.PARSE_SPACE_STR + statString);
-            }
             else
             {
-                caller.SetName(statString);
+                this.appendName(line, start, end);
             }
         }
     }
@@ -725,75 +1572,62 @@ public class GProfLaunchParser implements IGProfLaunchParser
      * 
      * @param subroutine The subroutine to parse the statistic for.
      * @param line The line to parse.
-     * @param statRange The statistic range to parse.
+     * @param start The starting index of the statistic within the line.
+     * @param end The (inclusive) ending index of the statistic within the line.
      */
-    private void parseCGSubroutineStat(ProfiledSubroutine subroutine, String line, StatRange statRange)
+    private void parseCGSubroutineStat(ProfiledSubroutine subroutine, CharSequence line, int start, int end)
     {
-        // Get the string that holds the actual statistic value to be parsed.
-        String statString = line.substring(statRange.start, statRange.end + 1);
-        
         // Determine the correct statistic to be parsed.
-        if (statRange.overlaps(callGraphStatRanges[2]))
+        if (callGraphStatRanges[2].overlaps(start, end))
         {
             if (subroutine.GetTimeInSubroutineSelf() == -1f)
             {
                 // Time In Subroutine Self.
-                subroutine.SetTimeInSubroutineSelf(Float.parseFloat(statString));
+                subroutine.SetTimeInSubroutineSelf(parseFloat(line, start, end));
             }
             else
             {
                 // Time In Subroutine Subroutines.
-                subroutine.SetTimeInSubroutineSubroutines(Float.parseFloat(statString));
+                subroutine.SetTimeInSubroutineSubroutines(parseFloat(line, start, end));
             }
         }
-        else if (statRange.overlaps(callGraphStatRanges[3]))
+        else if (callGraphStatRanges[3].overlaps(start, end))
         {
             if (subroutine.GetTimeInSubroutineSubroutines() == -1f)
             {
                 // Time In Subroutine Subroutines.
-                subroutine.SetTimeInSubroutineSubroutines(Float.parseFloat(statString));
+                subroutine.SetTimeInSubroutineSubroutines(parseFloat(line, start, end));
             }
             else
             {
                 // Call Count.
-                subroutine.SetCallCount(getCGCallCount(statString));
+                subroutine.SetCallCount(getCGCallCount(line, start, end));
             }
         }
-        else if (statRange.overlaps(callGraphStatRanges[4]))
+        else if (callGraphStatRanges[4].overlaps(start, end))
         {
             if (subroutine.GetCallCount() == -1)
             {
                 // Call Counts.
-                subroutine.SetCallCount(getCGCallCount(statString));
+                subroutine.SetCallCount(getCGCallCount(line, start, end));
             }
             else
             {
                 // Name.
-                if (subroutine.GetName() != null && !subroutine.GetName().isEmpty())
-                {
-                    subroutine.SetName(subroutine.GetName() + GProfLaunchParser.PARSE_SPACE_STR + statString);
-                }
-                else
-                {
-                    subroutine.SetName(statString);
-                }
+                this.appendName(line, start, end);
             }
         }
-        else if (statRange.overlaps(callGraphStatRanges[5]) || statRange.start >= callGraphStatRanges[5].end)
+        else if (callGraphStatRanges[5].overlaps(start, end) || start >= callGraphStatRanges[5].end)
         {
             // ID.
-            if (statString.startsWith(GProfLaunchParser.PARSE_ID_START_STR) && subroutine.GetID() == -1)
+            if (line.charAt(start) == GProfLaunchParser.PARSE_ID_START_CHAR && subroutine.GetID() == -1)
             {
-                subroutine.SetID(getID(statString));
+                subroutine.SetID(getID(line, start, end));
             }
             // Name.
-            else if (subroutine.GetName() != null && !subroutine.GetName().isEmpty())
-            {
-                subroutine.SetName(subroutine.GetName() + GProfLaunchParser.PARSE_SPACE_STR + statString);
-            }
             else
             {
-                subroutine.SetName(statString);
+                this.appendName(line, start, end);
             }
         }
     }
@@ -823,185 +1657,200 @@ public class GProfLaunchParser implements IGProfLaunchParser
      * Retrieves the number of times a caller called the current function or a subroutine was called by the current function given the parse
      * string for the 'called' column in the call graph section.
      * 
-     * @param parseString The string to be parsed.
+     * @param line The line to parse.
+     * @param start The starting index of the parse string within the line.
+     * @param end The (inclusive) ending index of the parse string within the line.
      * @return The call count.
      */
-    private static int getCGCallCount(String parseString)
+    private static int getCGCallCount(CharSequence line, int start, int end)
     {
-        int index = parseString.indexOf(GProfLaunchParser.PARSE_CALL_COUNT_SEPARATOR);
+        int index = indexOf(line, start, end, GProfLaunchParser.PARSE_CALL_COUNT_SEPARATOR);
         if (index != -1)
         {
-            return Integer.parseInt(parseString.substring(0, index));
+            return parseInt(line, start, index - 1);
         }
-        return Integer.parseInt(parseString);
+        return parseInt(line, start, end);
     }
     
     /**
      * Retrieves the call counts for the given parse string.
      * 
-     * @param parseString The parse string.
-     * @return The call counts in the array form : { nonrecursive call count, recursive call count } if there are recursive calls; {
-     *         nonrecursive call count } otherwise.
+     * @param line The line to parse.
+     * @param start The starting index of the parse string within the line.
+     * @param end The (inclusive) ending index of the parse string within the line.
+     * @param callCounts The array to fill with the call counts in the form : { nonrecursive call count, recursive call count }.
+     * @return The number of call counts parsed: 2 if there are recursive calls; 1 otherwise.
      */
-    private static int[] getCGCallCounts(String parseString)
+    private static int getCGCallCounts(CharSequence line, int start, int end, int[] callCounts)
     {
-        int index = parseString.indexOf(GProfLaunchParser.PARSE_CALL_COUNTS_SEPARATOR);
+        int index = indexOf(line, start, end, GProfLaunchParser.PARSE_CALL_COUNTS_SEPARATOR);
         if (index != -1)
         {
-            return new int[] { Integer.parseInt(parseString.substring(0, index)), Integer.parseInt(parseString.substring(index + 1)) };
+            callCounts[0] = parseInt(line, start, index - 1);
+            callCounts[1] = parseInt(line, index + 1, end);
+            return 2;
         }
         else
         {
-            return new int[] { Integer.parseInt(parseString) };
+            callCounts[0] = parseInt(line, start, end);
+            return 1;
         }
     }
     
     /**
      * Retrieves the ID of the function given the parse string of the form '[ID#]'.
      * 
-     * @param parseString The parse string.
+     * @param line The line to parse.
+     * @param start The starting index of the parse string within the line.
+     * @param end The (inclusive) ending index of the parse string within the line.
      * @return The ID of the function.
      */
-    private static int getID(String parseString)
+    private static int getID(CharSequence line, int start, int end)
     {
-        int startIndex = parseString.indexOf(GProfLaunchParser.PARSE_ID_START_STR);
-        int endIndex = parseString.indexOf(GProfLaunchParser.PARSE_ID_END_STR);
+        int startIndex = indexOf(line, start, end, GProfLaunchParser.PARSE_ID_START_CHAR);
+        int endIndex = indexOf(line, start, end, GProfLaunchParser.PARSE_ID_END_CHAR);
         if (startIndex != -1 && endIndex != -1)
         {
-            return Integer.parseInt(parseString.substring(startIndex + 1, endIndex));
+            return parseInt(line, startIndex + 1, endIndex - 1);
         }
         return -1;
     }
     
     /**
-     * Retrieves the function by name.
+     * Retrieves the index of the first occurrence of the given character within the given region of the line.
      * 
-     * @param functions The list of functions to search.
-     * @param name The name of the function to retrieve.
-     * @return The function with the given name or <code>null</code> if the function cannot be found.
+     * @param line The line to search.
+     * @param start The starting index of the region.
+     * @param end The (inclusive) ending index of the region.
+     * @param c The character to search for.
+     * @return The index of the character or -1 if the region does not contain it.
      */
-    private static ProfiledFunction getProfiledFunctionByName(ArrayList<ProfiledFunction> functions, String name)
+    private static int indexOf(CharSequence line, int start, int end, char c)
     {
-        if (name != null)
+        for (int i = start; i <= end; i++)
         {
-            for (int i = 0; i < functions.size(); i++)
+            if (line.charAt(i) == c)
             {
-                if (name.equals(functions.get(i).GetName()))
-                {
-                    return functions.get(i);
-                }
+                return i;
             }
         }
-        return null;
+        return -1;
     }
     
     /**
-     * Retrieves the first stat range for the given string starting from the given parsing position. This is essentially the start and end
-     * indices of the first token of the given string.
+     * Parses the given region of the line as an integer without creating an intermediate string.
      * 
-     * @param string The string to search.
-     * @param parsePosition The position in the string to start parsing from.
-     * @return The statistic range for the given string or <code>null</code> if none is found.
+     * @param line The line to parse.
+     * @param start The starting index of the integer.
+     * @param end The (inclusive) ending index of the integer.
+     * @return The integer.
+     * @throws NumberFormatException When the region does not hold a valid integer.
      */
-    private static StatRange getStatRange(String string, int parsePosition)
+    private static int parseInt(CharSequence line, int start, int end)
     {
-        // Get the starting index (the first non whitespace character).
-        int startIndex = -1;
-        for (int i = parsePosition; i < string.length(); i++)
+        // Leave anything other than a short run of digits to the standard parser (signs, overflow and errors).
+        if (start > end || end - start + 1 > PARSE_MAX_FAST_INT_DIGITS)
         {
-            // Check if the current character is not a whitespace character.
-            // (Special case for the "percent time" statistic in the call graph, we ignore
-            // the '%' character since we want the start and end indices to be for the string 'time'.)
-            if (!string.substring(i, i + 1).matches(GProfLaunchParser.PARSE_WHITESPACE_REGEX)
-                && !string.substring(i, i + 1).equals(GProfLaunchParser.PARSE_PERCENT_STR))
-            {
-                startIndex = i;
-                break;
-            }
+            return Integer.parseInt(line.subSequence(start, end + 1).toString());
         }
-        
-        // Check if the start of the column header exists.
-        if (startIndex != -1)
+        int value = 0;
+        for (int i = start; i <= end; i++)
         {
-            // Get the ending index (search for the first whitespace character and return the preceding position).
-            for (int i = startIndex; i < string.length(); i++)
+            int digit = line.charAt(i) - '0';
+            if (digit < 0 || digit > 9)
             {
-                // Check if the current character is not a whitespace character.
-                if (string.substring(i, i + 1).matches(GProfLaunchParser.PARSE_WHITESPACE_REGEX))
-                {
-                    StatRange statRange = new StatRange();
-                    statRange.start = startIndex;
-                    statRange.end = i - 1;
-                    return statRange;
-                }
+                return Integer.parseInt(line.subSequence(start, end + 1).toString());
             }
-            
-            // In this case, the statistic column header goes to the end of the line.
-            StatRange statRange = new StatRange();
-            statRange.start = startIndex;
-            statRange.end = string.length() - 1;
-            return statRange;
+            value = value * 10 + digit;
         }
-        return null;
+        return value;
     }
     
     /**
-     * Takes the given line and returns a proper set of tokens.
+     * Parses the given region of the line as a float without creating an intermediate string.
+     * 
+     * gprof prints its statistics as plain fixed point numbers (i.e. '12.34'), which are converted directly. Anything else (signs,
+     * exponents, very long numbers) is handed to {@link Float#parseFloat(String)}.
      * 
-     * @param line The line to parse into tokens.
-     * @return The proper set of tokens.
+     * @param line The line to parse.
+     * @param start The starting index of the float.
+     * @param end The (inclusive) ending index of the float.
+     * @return The float.
+     * @throws NumberFormatException When the region does not hold a valid float.
      */
-    private String[] getTokens(String line)
+    private static float parseFloat(CharSequence line, int start, int end)
     {
-        String[] strings = line.split(GProfLaunchParser.PARSE_WHITESPACES_REGEX);
-        // Check if the array of strings is null.
-        if (strings == null)
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = -1;
+        for (int i = start; i <= end; i++)
         {
-            return null;
+            char c = line.charAt(i);
+            if (c >= '0' && c <= '9')
+            {
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+                if (fractionDigits != -1)
+                {
+                    fractionDigits++;
+                }
+            }
+            else if (c == GProfLaunchParser.PARSE_DECIMAL_POINT && fractionDigits == -1)
+            {
+                fractionDigits = 0;
+            }
+            else
+            {
+                digits = -1;
+                break;
+            }
         }
-        
-        // Check for the special flag character case.
-        if (line.equals(PARSE_STR_FLAG_CHARACTER))
+        if (digits <= 0 || digits > PARSE_MAX_FAST_DIGITS)
         {
-            return new String[] { line };
+            return Float.parseFloat(line.subSequence(start, end + 1).toString());
         }
-        
-        // Go through and remove all empty strings.
-        ArrayList<String> stringList = new ArrayList<String>();
-        for (int i = 0; i < strings.length; i++)
+        if (fractionDigits <= 0)
         {
-            if (strings[i].length() > 0)
-            {
-                stringList.add(strings[i]);
-            }
+            return (float)mantissa;
         }
-        
-        return stringList.toArray(new String[stringList.size()]);
+        return (float)(mantissa / PARSE_POWERS_OF_TEN[fractionDigits]);
     }
     
     /**
-     * Retrieves whether the two arrays of Strings match.
+     * Appends the given region of the line to the name currently being parsed, separating it from any previous name token with a space.
      * 
-     * @param arrayOne The first array.
-     * @param arrayTwo The second array.
-     * @return <code>true</code> if the two arrays match;<code>false</code> otherwise.
+     * @param line The line to parse.
+     * @param start The starting index of the name token.
+     * @param end The (inclusive) ending index of the name token.
      */
-    private static boolean stringArraysMatch(String[] arrayOne, String[] arrayTwo)
+    private void appendName(CharSequence line, int start, int end)
     {
-        // Make sure the two arrays have the same length.
-        if (arrayOne.length != arrayTwo.length)
+        if (this.nameBuilder.length() > 0)
         {
-            return false;
+            this.nameBuilder.append(GProfLaunchParser.PARSE_NAME_SEPARATOR);
         }
-        
-        // Go through the two and make sure all the elements match.
-        for (int i = 0; i < arrayOne.length; i++)
+        this.nameBuilder.append(line, start, end + 1);
+    }
+    
+    /**
+     * Fills the given array with the stat ranges of the column headers on the last tokenized line. These are essentially the start and end
+     * indices of the header tokens (with the '%' of the '% time' header skipped since we want the range of the string 'time').
+     * 
+     * @param statRanges The array to fill with stat ranges.
+     */
+    private void getStatRanges(StatRange[] statRanges)
+    {
+        int parseStatCount = 0;
+        for (int i = 0; i < this.tokenizer.getTokenCount() && parseStatCount < statRanges.length; i++)
         {
-            if (!arrayOne[i].equals(arrayTwo[i]))
+            if (this.tokenizer.isStat(i))
             {
-                return false;
+                StatRange statRange = new StatRange();
+                statRange.start = this.tokenizer.getStatStart(i);
+                statRange.end = this.tokenizer.getEnd(i);
+                statRanges[parseStatCount] = statRange;
+                parseStatCount++;
             }
         }
-        return true;
     }
 }
@@ -0,0 +1,88 @@
+/*
+ * =======================================================================
+ * ============================ gprof-eclipse ============================
+ * =======================================================================
+ * 
+ * 
+ * File: GProfLineReader.java
+ * 
+ * 
+ * -----------------------------------------------------------------------
+ * Copyright (c) 2009 Chris Culy and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * + Chris Culy - initial API and implementation
+ * -----------------------------------------------------------------------
+ * 
+ * 
+ * Last changed:
+ * $Revision$
+ * $Author$
+ * $Date$
+ */
+
+package org.eclipse.cdt.gprof.core;
+
+import java.io.IOException;
+
+/**
+ * Reads gprof output line by line as {@link GProfAsciiLine}s.
+ * 
+ * Lines are terminated by '\n' (an '\r' preceding it is dropped). The returned line is reused, so it is only valid until the next call to
+ * {@link #readLine()}.
+ */
+abstract class GProfLineReader
+{
+    /** Holds the line terminator. */
+    protected static final byte LINE_FEED = '\n';
+    
+    /** Holds the character dropped from the end of lines terminated by "\r\n". */
+    protected static final byte CARRIAGE_RETURN = '\r';
+    
+    /** Holds the line returned by the reader. */
+    protected final GProfAsciiLine line = new GProfAsciiLine();
+    
+    /**
+     * Reads the next line.
+     * 
+     * @return The next line or <code>null</code> if the end of the output has been reached.
+     * @throws IOException When the output cannot be read.
+     */
+    public abstract CharSequence readLine() throws IOException;
+    
+    /**
+     * Retrieves the number of bytes of output consumed by the lines read so far (including their terminators).
+     * 
+     * @return The number of bytes consumed.
+     */
+    public abstract long getPosition();
+    
+    /**
+     * Releases the resources held by the reader.
+     * 
+     * @throws IOException When the underlying output cannot be closed.
+     */
+    public abstract void close() throws IOException;
+    
+    /**
+     * Retrieves the length of the given line once a trailing carriage return is dropped.
+     * 
+     * @param start The index of the first byte of the line.
+     * @param end The index of the line feed terminating the line (or the end of the output).
+     * @param lastByte The byte preceding <code>end</code> (ignored if the line is empty).
+     * @return The length of the line.
+     */
+    protected static int lineLength(int start, int end, byte lastByte)
+    {
+        if (end > start && lastByte == CARRIAGE_RETURN)
+        {
+            return end - start - 1;
+        }
+        return end - start;
+    }
+}
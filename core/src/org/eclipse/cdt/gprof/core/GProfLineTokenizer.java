@@ -0,0 +1,279 @@
+/*
+ * =======================================================================
+ * ============================ gprof-eclipse ============================
+ * =======================================================================
+ * 
+ * 
+ * File: GProfLineTokenizer.java
+ * 
+ * 
+ * -----------------------------------------------------------------------
+ * Copyright (c) 2009 Chris Culy and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * + Chris Culy - initial API and implementation
+ * -----------------------------------------------------------------------
+ * 
+ * 
+ * Last changed:
+ * $Revision$
+ * $Author$
+ * $Date$
+ */
+
+package org.eclipse.cdt.gprof.core;
+
+/**
+ * Splits a line of gprof output into whitespace separated tokens.
+ * 
+ * The line is walked once and the start and end index of every token is recorded. The offset arrays are reused from line to line, so
+ * once they have grown to fit the widest line seen tokenizing does not allocate.
+ */
+final class GProfLineTokenizer
+{
+    /** Holds the initial number of tokens that can be recorded before the offset arrays have to grow. */
+    private static final int INITIAL_TOKEN_CAPACITY = 16;
+    
+    /** Holds the character that marks the end of a section in the gprof output (a form feed). */
+    private static final char FLAG_CHARACTER = '\f';
+    
+    /** Holds the character that is skipped at the start of a statistic (i.e. the '%' in the '% time' column header). */
+    private static final char PERCENT_CHARACTER = '%';
+    
+    /** Holds the line that was last tokenized. */
+    private CharSequence line;
+    
+    /** Holds the number of tokens in the line. */
+    private int count;
+    
+    /** Holds the starting index of each token. */
+    private int[] starts = new int[INITIAL_TOKEN_CAPACITY];
+    
+    /** Holds the starting index of each token with any leading '%' characters skipped. */
+    private int[] statStarts = new int[INITIAL_TOKEN_CAPACITY];
+    
+    /** Holds the (inclusive) ending index of each token. */
+    private int[] ends = new int[INITIAL_TOKEN_CAPACITY];
+    
+    /**
+     * Tokenizes the given line.
+     * 
+     * @param line The line to tokenize.
+     * @return The number of tokens in the line.
+     */
+    public int tokenize(CharSequence line)
+    {
+        this.line = line;
+        this.count = 0;
+        
+        // Walk the line once, closing each token at the whitespace (or the end of the line) following it.
+        int length = line.length();
+        int start = -1;
+        int statStart = -1;
+        for (int i = 0; i <= length; i++)
+        {
+            char c = i < length ? line.charAt(i) : ' ';
+            if (isWhitespace(c))
+            {
+                if (start >= 0)
+                {
+                    this.add(start, statStart >= 0 ? statStart : i, i - 1);
+                    start = -1;
+                }
+            }
+            else if (start < 0)
+            {
+                // Record the start of the token, both as is and with any leading '%' characters skipped.
+                start = i;
+                statStart = c == PERCENT_CHARACTER ? -1 : i;
+            }
+            else if (statStart < 0 && c != PERCENT_CHARACTER)
+            {
+                statStart = i;
+            }
+        }
+        return this.count;
+    }
+    
+    /**
+     * Retrieves the number of tokens in the last tokenized line.
+     * 
+     * @return The number of tokens.
+     */
+    public int getTokenCount()
+    {
+        return this.count;
+    }
+    
+    /**
+     * Retrieves the starting index of the given token.
+     * 
+     * @param token The index of the token.
+     * @return The starting index of the token within the line.
+     */
+    public int getStart(int token)
+    {
+        return this.starts[token];
+    }
+    
+    /**
+     * Retrieves the starting index of the given token as a statistic, that is with any leading '%' characters skipped.
+     * 
+     * @param token The index of the token.
+     * @return The starting index of the statistic within the line (greater than the ending index if the token is only '%' characters).
+     */
+    public int getStatStart(int token)
+    {
+        return this.statStarts[token];
+    }
+    
+    /**
+     * Retrieves the (inclusive) ending index of the given token.
+     * 
+     * @param token The index of the token.
+     * @return The ending index of the token within the line.
+     */
+    public int getEnd(int token)
+    {
+        return this.ends[token];
+    }
+    
+    /**
+     * Retrieves whether the given token is a statistic (i.e. it is not made up solely of '%' characters).
+     * 
+     * @param token The index of the token.
+     * @return <code>true</code> if the token holds a statistic;<code>false</code> otherwise.
+     */
+    public boolean isStat(int token)
+    {
+        return this.statStarts[token] <= this.ends[token];
+    }
+    
+    /**
+     * Retrieves whether the last tokenized line is the section flag line (a lone form feed).
+     * 
+     * @return <code>true</code> if the line is the flag line;<code>false</code> otherwise.
+     */
+    public boolean isFlagLine()
+    {
+        return this.line.length() == 1 && this.line.charAt(0) == FLAG_CHARACTER;
+    }
+    
+    /**
+     * Retrieves whether the tokens of the last tokenized line match the given strings exactly.
+     * 
+     * @param strings The strings to compare against.
+     * @return <code>true</code> if the tokens match;<code>false</code> otherwise.
+     */
+    public boolean matches(String[] strings)
+    {
+        if (strings.length != this.count)
+        {
+            return false;
+        }
+        for (int i = 0; i < this.count; i++)
+        {
+            if (!this.tokenEquals(i, strings[i]))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Retrieves whether the given token is equal to the given string.
+     * 
+     * @param token The index of the token.
+     * @param string The string to compare against.
+     * @return <code>true</code> if the token is equal to the string;<code>false</code> otherwise.
+     */
+    public boolean tokenEquals(int token, String string)
+    {
+        return this.ends[token] - this.starts[token] + 1 == string.length() && this.tokenStartsWith(token, string);
+    }
+    
+    /**
+     * Retrieves whether the given token starts with the given prefix.
+     * 
+     * @param token The index of the token.
+     * @param prefix The prefix to check for.
+     * @return <code>true</code> if the token starts with the prefix;<code>false</code> otherwise.
+     */
+    public boolean tokenStartsWith(int token, String prefix)
+    {
+        int start = this.starts[token];
+        if (this.ends[token] - start + 1 < prefix.length())
+        {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++)
+        {
+            if (this.line.charAt(start + i) != prefix.charAt(i))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Retrieves whether the given character is a whitespace character (the same set of characters as the '\s' regular expression class).
+     * 
+     * @param c The character to check.
+     * @return <code>true</code> if the character is whitespace;<code>false</code> otherwise.
+     */
+    static boolean isWhitespace(char c)
+    {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+    
+    /**
+     * Records a token.
+     * 
+     * @param start The starting index of the token.
+     * @param statStart The starting index of the token with any leading '%' characters skipped.
+     * @param end The (inclusive) ending index of the token.
+     */
+    private void add(int start, int statStart, int end)
+    {
+        if (this.count == this.starts.length)
+        {
+            this.grow();
+        }
+        this.starts[this.count] = start;
+        this.statStarts[this.count] = statStart;
+        this.ends[this.count] = end;
+        this.count++;
+    }
+    
+    /**
+     * Doubles the capacity of the token offset arrays.
+     */
+    private void grow()
+    {
+        int capacity = this.starts.length * 2;
+        this.starts = copyOf(this.starts, capacity);
+        this.statStarts = copyOf(this.statStarts, capacity);
+        this.ends = copyOf(this.ends, capacity);
+    }
+    
+    /**
+     * Copies the given array into a new array of the given length.
+     * 
+     * @param array The array to copy.
+     * @param length The length of the new array.
+     * @return The new array.
+     */
+    private static int[] copyOf(int[] array, int length)
+    {
+        int[] copy = new int[length];
+        System.arraycopy(array, 0, copy, 0, array.length);
+        return copy;
+    }
+}
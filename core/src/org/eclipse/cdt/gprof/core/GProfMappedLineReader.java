@@ -0,0 +1,194 @@
+/*
+ * =======================================================================
+ * ============================ gprof-eclipse ============================
+ * =======================================================================
+ * 
+ * 
+ * File: GProfMappedLineReader.java
+ * 
+ * 
+ * -----------------------------------------------------------------------
+ * Copyright (c) 2009 Chris Culy and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * + Chris Culy - initial API and implementation
+ * -----------------------------------------------------------------------
+ * 
+ * 
+ * Last changed:
+ * $Revision$
+ * $Author$
+ * $Date$
+ */
+
+package org.eclipse.cdt.gprof.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads a saved gprof report line by line by memory mapping the file.
+ * 
+ * The file is mapped one window at a time, so files larger than the 2 GB a single mapping can address are read as a sequence of
+ * windows. A line that straddles the end of a window is picked up again at the start of the next window.
+ */
+final class GProfMappedLineReader extends GProfLineReader
+{
+    /** Holds the default size of a mapped window. */
+    private static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+    
+    /** Holds the file being read. */
+    private final RandomAccessFile file;
+    
+    /** Holds the channel used to map the file. */
+    private final FileChannel channel;
+    
+    /** Holds the size of the file. */
+    private final long size;
+    
+    /** Holds the size of the windows to map. */
+    private int windowSize;
+    
+    /** Holds the currently mapped window (<code>null</code> before the first window is mapped). */
+    private MappedByteBuffer window;
+    
+    /** Holds the offset within the file of the currently mapped window. */
+    private long windowStart;
+    
+    /** Holds the index within the window of the first unconsumed byte. */
+    private int start;
+    
+    /**
+     * Constructs the reader for the given file, mapping it in windows of the default size.
+     * 
+     * @param reportFile The saved gprof report.
+     * @throws IOException When the file cannot be opened.
+     */
+    GProfMappedLineReader(File reportFile) throws IOException
+    {
+        this(reportFile, DEFAULT_WINDOW_SIZE);
+    }
+    
+    /**
+     * Constructs the reader for the given file.
+     * 
+     * @param reportFile The saved gprof report.
+     * @param windowSize The size of the windows to map (grows if a single line does not fit into a window).
+     * @throws IOException When the file cannot be opened.
+     */
+    GProfMappedLineReader(File reportFile, int windowSize) throws IOException
+    {
+        this.file = new RandomAccessFile(reportFile, "r");
+        this.channel = this.file.getChannel();
+        this.size = this.channel.size();
+        this.windowSize = windowSize;
+    }
+    
+    /**
+     * @see GProfLineReader#readLine()
+     */
+    public CharSequence readLine() throws IOException
+    {
+        if (this.window == null)
+        {
+            this.map(0);
+        }
+        
+        int scan = this.start;
+        while (true)
+        {
+            // Look for the end of the line in the current window.
+            int limit = this.window.limit();
+            for (; scan < limit; scan++)
+            {
+                if (this.window.get(scan) == LINE_FEED)
+                {
+                    return this.consumeLine(scan, scan + 1);
+                }
+            }
+            
+            // The last line of the file does not have to be terminated.
+            if (this.windowStart + limit == this.size)
+            {
+                if (this.start < limit)
+                {
+                    return this.consumeLine(limit, limit);
+                }
+                return null;
+            }
+            
+            // Map the next window starting at the current line (growing the window if the line alone fills it).
+            if (this.start == 0)
+            {
+                this.windowSize = (int)Math.min((long)this.windowSize * 2, Integer.MAX_VALUE);
+            }
+            scan -= this.start;
+            this.map(this.windowStart + this.start);
+        }
+    }
+    
+    /**
+     * @see GProfLineReader#getPosition()
+     */
+    public long getPosition()
+    {
+        return this.windowStart + this.start;
+    }
+    
+    /**
+     * Retrieves the size of the file being read.
+     * 
+     * @return The size of the file in bytes.
+     */
+    public long getSize()
+    {
+        return this.size;
+    }
+    
+    /**
+     * @see GProfLineReader#close()
+     */
+    public void close() throws IOException
+    {
+        // The mapped window is released once it is garbage collected.
+        this.window = null;
+        this.file.close();
+    }
+    
+    /**
+     * Points the line at the bytes from the first unconsumed byte up to the given end and consumes them.
+     * 
+     * @param end The index of the end of the line (exclusive).
+     * @param next The index of the first byte of the next line.
+     * @return The line.
+     */
+    private CharSequence consumeLine(int end, int next)
+    {
+        byte lastByte = end > this.start ? this.window.get(end - 1) : 0;
+        this.line.set(this.window, this.start, lineLength(this.start, end, lastByte));
+        this.start = next;
+        return this.line;
+    }
+    
+    /**
+     * Maps the window starting at the given offset within the file.
+     * 
+     * @param offset The offset of the window.
+     * @throws IOException When the file cannot be mapped.
+     */
+    private void map(long offset) throws IOException
+    {
+        long length = Math.min(this.windowSize, this.size - offset);
+        this.window = this.channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+        this.windowStart = offset;
+        this.start = 0;
+    }
+}
@@ -0,0 +1,345 @@
+/*
+ * =======================================================================
+ * ============================ gprof-eclipse ============================
+ * =======================================================================
+ * 
+ * 
+ * File: GProfReportCache.java
+ * 
+ * 
+ * -----------------------------------------------------------------------
+ * Copyright (c) 2009 Chris Culy and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * + Chris Culy - initial API and implementation
+ * -----------------------------------------------------------------------
+ * 
+ * 
+ * Last changed:
+ * $Revision$
+ * $Author$
+ * $Date$
+ */
+
+package org.eclipse.cdt.gprof.core;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.cdt.gprof.core.profiled.ProfilerReport;
+import org.eclipse.cdt.gprof.core.profiled.ProfilerReportSnapshot;
+
+/**
+ * Caches parsed profiler reports, keyed by a fingerprint of the profiling data (i.e. gmon.out) and the executable they were produced
+ * from, so that profiling the same run again does not have to run gprof and parse its output again.
+ * 
+ * The reports are kept as snapshots in a directory on disk (the oldest snapshots are deleted once there are too many), with the
+ * snapshots of the most recently used reports also kept in memory in front of the disk. Only snapshots are kept, never the reports
+ * themselves: each report retrieved is restored from its snapshot (which is cheap, as the snapshot is read lazily), so callers that
+ * change their report (e.g. by filtering or sorting it) never change the report seen by another caller.
+ */
+final class GProfReportCache
+{
+    // ==================== GProf Report Cache Constants =================== //
+    
+    /** Holds the extension of the snapshot files. */
+    private static final String REPORT_FILE_EXTENSION = ".report";
+    
+    /** Holds the extension of snapshot files that are still being written. */
+    private static final String REPORT_TEMPORARY_FILE_EXTENSION = ".tmp";
+    
+    /** Holds the number of snapshots kept on disk. */
+    private static final int REPORT_DISK_ENTRY_LIMIT = 16;
+    
+    /** Holds the number of samples of a file's content that its fingerprint covers. */
+    private static final int FINGERPRINT_SAMPLE_COUNT = 16;
+    
+    /** Holds the size of each sample of a file's content that its fingerprint covers. */
+    private static final int FINGERPRINT_SAMPLE_SIZE = 4096;
+    
+    /** Holds the digits of the hexadecimal fingerprints. */
+    private static final char[] FINGERPRINT_DIGITS = "0123456789abcdef".toCharArray();
+    
+    // ==================== GProf Report Cache Constants =================== //
+    
+    /** Holds the directory that the snapshots are kept in. */
+    private final File directory;
+    
+    /** Holds the number of snapshots kept in memory. */
+    private int memoryCapacity;
+    
+    /** Holds the snapshots kept in memory by fingerprint, the least recently used first. */
+    private final LinkedHashMap<String, byte[]> snapshots = new LinkedHashMap<String, byte[]>(16, 0.75f, true)
+    {
+        private static final long serialVersionUID = 1L;
+        
+        /**
+         * @see LinkedHashMap#removeEldestEntry(Map.Entry)
+         */
+        protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest)
+        {
+            return this.size() > GProfReportCache.this.memoryCapacity;
+        }
+    };
+    
+    /**
+     * Constructs the cache keeping its snapshots in the given directory.
+     * 
+     * @param directory The directory to keep the snapshots in (created as needed).
+     * @param memoryCapacity The number of snapshots to keep in memory.
+     */
+    GProfReportCache(File directory, int memoryCapacity)
+    {
+        this.directory = directory;
+        this.memoryCapacity = Math.max(memoryCapacity, 0);
+    }
+    
+    /**
+     * Computes the fingerprint of the given profiling data and executable. The fingerprint covers the path, size and modification time
+     * of both files as well as a hash of samples spread over their content (so that it is cheap to compute for large files, yet changes
+     * when a file is rewritten within the resolution of its modification time).
+     * 
+     * @param gmonFile The profiling data written by the profiled program.
+     * @param executable The profiled executable.
+     * @param producer What produces the report from the files (i.e. the gprof command), so that reports produced differently are cached
+     *        apart.
+     * @return The fingerprint.
+     * @throws IOException When either file cannot be read.
+     */
+    static String fingerprint(File gmonFile, File executable, String producer) throws IOException
+    {
+        MessageDigest digest;
+        try
+        {
+            digest = MessageDigest.getInstance("SHA-1");
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw new IOException(e.getLocalizedMessage());
+        }
+        digest.update(producer.getBytes("UTF-8"));
+        digestFile(digest, gmonFile);
+        digestFile(digest, executable);
+        
+        // Format the fingerprint as hexadecimal digits (so that it can be used as a file name).
+        byte[] hash = digest.digest();
+        char[] digits = new char[hash.length * 2];
+        for (int i = 0; i < hash.length; i++)
+        {
+            digits[i * 2] = FINGERPRINT_DIGITS[(hash[i] >> 4) & 0xF];
+            digits[i * 2 + 1] = FINGERPRINT_DIGITS[hash[i] & 0xF];
+        }
+        return new String(digits);
+    }
+    
+    /**
+     * Sets the number of snapshots kept in memory, dropping the least recently used snapshots from memory if there are more.
+     * 
+     * @param memoryCapacity The number of snapshots to keep in memory (0 to only keep snapshots on disk).
+     */
+    synchronized void setMemoryCapacity(int memoryCapacity)
+    {
+        this.memoryCapacity = Math.max(memoryCapacity, 0);
+        while (this.snapshots.size() > this.memoryCapacity)
+        {
+            this.snapshots.remove(this.snapshots.keySet().iterator().next());
+        }
+    }
+    
+    /**
+     * Retrieves the report with the given fingerprint, restored from its snapshot in memory or else on disk. Each call returns a report
+     * of its own.
+     * 
+     * @param fingerprint The fingerprint of the report.
+     * @return The report (<code>null</code> if the cache does not hold a report with the fingerprint).
+     */
+    synchronized ProfilerReport get(String fingerprint)
+    {
+        byte[] snapshot = this.snapshots.get(fingerprint);
+        if (snapshot != null)
+        {
+            try
+            {
+                return ProfilerReportSnapshot.Read(snapshot);
+            }
+            catch (IOException e)
+            {
+                // The snapshot was valid when it was read from disk, so this does not happen; fall back to the disk regardless.
+                this.snapshots.remove(fingerprint);
+            }
+        }
+        
+        // Read the snapshot from disk, marking it as recently used.
+        File file = this.getReportFile(fingerprint);
+        if (!file.isFile())
+        {
+            return null;
+        }
+        ProfilerReport report;
+        try
+        {
+            snapshot = ProfilerReportSnapshot.ReadBytes(file);
+            report = ProfilerReportSnapshot.Read(snapshot);
+        }
+        catch (IOException e)
+        {
+            // A snapshot that cannot be read is of no further use.
+            file.delete();
+            return null;
+        }
+        file.setLastModified(System.currentTimeMillis());
+        if (this.memoryCapacity > 0)
+        {
+            this.snapshots.put(fingerprint, snapshot);
+        }
+        return report;
+    }
+    
+    /**
+     * Adds the given report with the given fingerprint to the cache, both on disk and in memory. The report is stored as a snapshot, so
+     * changing it afterwards does not change the cached report.
+     * 
+     * @param fingerprint The fingerprint of the report.
+     * @param report The report.
+     * @throws IOException When the report cannot be written to disk.
+     */
+    synchronized void put(String fingerprint, ProfilerReport report) throws IOException
+    {
+        this.snapshots.remove(fingerprint);
+        
+        // Write the snapshot to a temporary file first, so that an interrupted write never leaves a partial snapshot behind.
+        if (!this.directory.isDirectory() && !this.directory.mkdirs())
+        {
+            throw new IOException("The report cache directory \'" + this.directory + "\' could not be created.");
+        }
+        File file = this.getReportFile(fingerprint);
+        File temporaryFile = new File(this.directory, fingerprint + REPORT_TEMPORARY_FILE_EXTENSION);
+        try
+        {
+            ProfilerReportSnapshot.Write(report, temporaryFile);
+            file.delete();
+            if (!temporaryFile.renameTo(file))
+            {
+                throw new IOException("The report cache file \'" + file + "\' could not be written.");
+            }
+        }
+        finally
+        {
+            temporaryFile.delete();
+        }
+        this.evict();
+        
+        // Keep the snapshot just written in memory as well.
+        if (this.memoryCapacity > 0)
+        {
+            this.snapshots.put(fingerprint, ProfilerReportSnapshot.ReadBytes(file));
+        }
+    }
+    
+    /**
+     * Deletes the least recently used snapshots from disk while there are more than the limit.
+     */
+    private void evict()
+    {
+        File[] files = this.directory.listFiles(new FileFilter()
+        {
+            public boolean accept(File file)
+            {
+                return file.getName().endsWith(REPORT_FILE_EXTENSION);
+            }
+        });
+        if (files == null || files.length <= REPORT_DISK_ENTRY_LIMIT)
+        {
+            return;
+        }
+        Arrays.sort(files, new Comparator<File>()
+        {
+            public int compare(File file1, File file2)
+            {
+                long lastModified1 = file1.lastModified();
+                long lastModified2 = file2.lastModified();
+                return lastModified1 < lastModified2 ? -1 : (lastModified1 > lastModified2 ? 1 : 0);
+            }
+        });
+        for (int i = 0; i < files.length - REPORT_DISK_ENTRY_LIMIT; i++)
+        {
+            files[i].delete();
+        }
+    }
+    
+    /**
+     * Retrieves the snapshot file for the report with the given fingerprint.
+     * 
+     * @param fingerprint The fingerprint of the report.
+     * @return The snapshot file.
+     */
+    private File getReportFile(String fingerprint)
+    {
+        return new File(this.directory, fingerprint + REPORT_FILE_EXTENSION);
+    }
+    
+    /**
+     * Adds the path, size and modification time of the given file and samples of its content to the given digest.
+     * 
+     * @param digest The digest to add to.
+     * @param file The file.
+     * @throws IOException When the file cannot be read.
+     */
+    private static void digestFile(MessageDigest digest, File file) throws IOException
+    {
+        RandomAccessFile input = new RandomAccessFile(file, "r");
+        try
+        {
+            long length = input.length();
+            digest.update(file.getCanonicalPath().getBytes("UTF-8"));
+            digest.update(toBytes(length));
+            digest.update(toBytes(file.lastModified()));
+            
+            // Sample the content evenly from the start to the end of the file (all of it if the file is small).
+            byte[] sample = new byte[FINGERPRINT_SAMPLE_SIZE];
+            long sampledLength = (long)FINGERPRINT_SAMPLE_COUNT * FINGERPRINT_SAMPLE_SIZE;
+            int sampleCount = length > sampledLength ? FINGERPRINT_SAMPLE_COUNT : (int)((length + sample.length - 1) / sample.length);
+            for (int i = 0; i < sampleCount; i++)
+            {
+                long offset = length > sampledLength ? (length - sample.length) * i / (sampleCount - 1) : (long)i * sample.length;
+                int sampleLength = (int)Math.min(sample.length, length - offset);
+                input.seek(offset);
+                input.readFully(sample, 0, sampleLength);
+                digest.update(sample, 0, sampleLength);
+            }
+        }
+        finally
+        {
+            input.close();
+        }
+    }
+    
+    /**
+     * Converts the given value to its (big-endian) bytes.
+     * 
+     * @param value The value.
+     * @return The bytes.
+     */
+    private static byte[] toBytes(long value)
+    {
+        byte[] bytes = new byte[8];
+        for (int i = 0; i < bytes.length; i++)
+        {
+            bytes[i] = (byte)(value >>> (56 - i * 8));
+        }
+        return bytes;
+    }
+}
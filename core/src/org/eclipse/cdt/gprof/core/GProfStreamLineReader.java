@@ -0,0 +1,177 @@
+/*
+ * =======================================================================
+ * ============================ gprof-eclipse ============================
+ * =======================================================================
+ * 
+ * 
+ * File: GProfStreamLineReader.java
+ * 
+ * 
+ * -----------------------------------------------------------------------
+ * Copyright (c) 2009 Chris Culy and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * + Chris Culy - initial API and implementation
+ * -----------------------------------------------------------------------
+ * 
+ * 
+ * Last changed:
+ * $Revision$
+ * $Author$
+ * $Date$
+ */
+
+package org.eclipse.cdt.gprof.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Reads gprof output line by line from an input stream (i.e. the output of a running gprof process).
+ * 
+ * The stream is read in large blocks into a byte buffer that the lines are viewed over directly, so neither a charset decoder nor a
+ * regular expression is involved.
+ */
+final class GProfStreamLineReader extends GProfLineReader
+{
+    /** Holds the initial size of the read buffer (it grows to fit the longest line). */
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+    
+    /** Holds the stream to read from. */
+    private final InputStream input;
+    
+    /** Holds the read buffer. */
+    private byte[] bytes = new byte[INITIAL_BUFFER_SIZE];
+    
+    /** Holds the read buffer wrapped for use by the line. */
+    private ByteBuffer buffer = ByteBuffer.wrap(this.bytes);
+    
+    /** Holds the index of the first unconsumed byte in the read buffer. */
+    private int start;
+    
+    /** Holds the number of valid bytes in the read buffer. */
+    private int limit;
+    
+    /** Holds the number of bytes consumed before the current contents of the read buffer. */
+    private long bufferPosition;
+    
+    /** Holds whether the end of the stream has been reached. */
+    private boolean endOfStream;
+    
+    /**
+     * Constructs the reader for the given stream.
+     * 
+     * @param input The stream to read from.
+     */
+    GProfStreamLineReader(InputStream input)
+    {
+        this.input = input;
+    }
+    
+    /**
+     * @see GProfLineReader#readLine()
+     */
+    public CharSequence readLine() throws IOException
+    {
+        int scan = this.start;
+        while (true)
+        {
+            // Look for the end of the line in the bytes already read.
+            for (; scan < this.limit; scan++)
+            {
+                if (this.bytes[scan] == LINE_FEED)
+                {
+                    return this.consumeLine(scan, scan + 1);
+                }
+            }
+            
+            // The last line of the stream does not have to be terminated.
+            if (this.endOfStream)
+            {
+                if (this.start < this.limit)
+                {
+                    return this.consumeLine(this.limit, this.limit);
+                }
+                return null;
+            }
+            
+            // Make room for more bytes and read them.
+            scan -= this.fill();
+        }
+    }
+    
+    /**
+     * @see GProfLineReader#getPosition()
+     */
+    public long getPosition()
+    {
+        return this.bufferPosition + this.start;
+    }
+    
+    /**
+     * @see GProfLineReader#close()
+     */
+    public void close() throws IOException
+    {
+        this.input.close();
+    }
+    
+    /**
+     * Points the line at the bytes from the first unconsumed byte up to the given end and consumes them.
+     * 
+     * @param end The index of the end of the line (exclusive).
+     * @param next The index of the first byte of the next line.
+     * @return The line.
+     */
+    private CharSequence consumeLine(int end, int next)
+    {
+        byte lastByte = end > this.start ? this.bytes[end - 1] : 0;
+        this.line.set(this.buffer, this.start, lineLength(this.start, end, lastByte));
+        this.start = next;
+        return this.line;
+    }
+    
+    /**
+     * Moves the unconsumed bytes to the front of the read buffer (growing it if the unconsumed bytes fill it) and reads more bytes from
+     * the stream.
+     * 
+     * @return The number of positions the unconsumed bytes were moved towards the front of the buffer.
+     * @throws IOException When the stream cannot be read.
+     */
+    private int fill() throws IOException
+    {
+        int shift = this.start;
+        int remaining = this.limit - this.start;
+        if (remaining == this.bytes.length)
+        {
+            byte[] bytes = new byte[this.bytes.length * 2];
+            System.arraycopy(this.bytes, this.start, bytes, 0, remaining);
+            this.bytes = bytes;
+            this.buffer = ByteBuffer.wrap(bytes);
+        }
+        else if (shift > 0)
+        {
+            System.arraycopy(this.bytes, this.start, this.bytes, 0, remaining);
+        }
+        this.bufferPosition += shift;
+        this.start = 0;
+        this.limit = remaining;
+        
+        int read = this.input.read(this.bytes, this.limit, this.bytes.length - this.limit);
+        if (read == -1)
+        {
+            this.endOfStream = true;
+        }
+        else
+        {
+            this.limit += read;
+        }
+        return shift;
+    }
+}
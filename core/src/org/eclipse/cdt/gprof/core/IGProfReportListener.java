@@ -0,0 +1,46 @@
+/*
+ * =======================================================================
+ * ============================ gprof-eclipse ============================
+ * =======================================================================
+ * 
+ * 
+ * File: IGProfReportListener.java
+ * 
+ * 
+ * -----------------------------------------------------------------------
+ * Copyright (c) 2009 Chris Culy and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * + Chris Culy - initial API and implementation
+ * -----------------------------------------------------------------------
+ * 
+ * 
+ * Last changed:
+ * $Revision$
+ * $Author$
+ * $Date$
+ */
+
+package org.eclipse.cdt.gprof.core;
+
+import org.eclipse.cdt.gprof.core.profiled.ProfilerReport;
+
+/**
+ * The interface that must be implemented to be notified of the profiler report of each completed parse (see
+ * {@link GProfCorePlugin#addReportListener(IGProfReportListener)}).
+ */
+public interface IGProfReportListener
+{
+    /**
+     * Called once a parse has completed its report. The listener is called on the thread that parsed the report (not necessarily the UI
+     * thread) and must not modify the report.
+     * 
+     * @param report The profiler report.
+     */
+    public void onReport(ProfilerReport report);
+}
@@ -0,0 +1,261 @@
+/*
+ * =======================================================================
+ * ============================ gprof-eclipse ============================
+ * =======================================================================
+ * 
+ * 
+ * File: ProfiledArcList.java
+ * 
+ * 
+ * -----------------------------------------------------------------------
+ * Copyright (c) 2009 Chris Culy and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * + Chris Culy - initial API and implementation
+ * -----------------------------------------------------------------------
+ * 
+ * 
+ * Last changed:
+ * $Revision$
+ * $Author$
+ * $Date$
+ */
+
+package org.eclipse.cdt.gprof.core.profiled;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Holds the callers or the subroutines of a profiled function that has been added to a report, as views over the arcs of the
+ * function's table. Changes made to the list (adding, removing, replacing or reordering entries) are written through to the arc table,
+ * so they show in every list of the function retrieved afterwards; changes made to the entries themselves are written through by the
+ * views.
+ * 
+ * The list reloads its entries from the arc table whenever the table has been modified since (e.g. through another list), so it
+ * always reflects the arcs of the function when it is changed.
+ * 
+ * @param <T> The type of the entries ({@link ProfiledCaller} or {@link ProfiledSubroutine}).
+ * @author chrisculy
+ */
+final class ProfiledArcList<T> extends ArrayList<T>
+{
+	/** Holds the serialization version. */
+	private static final long serialVersionUID = 1L;
+	
+	/** Holds the function whose callers or subroutines the list holds. */
+	private final ProfiledFunction function;
+	
+	/** Holds the arc table of the function's table. */
+	private final ProfiledArcTable arcs;
+	
+	/** Holds whether the list holds the callers (<code>true</code>) or the subroutines (<code>false</code>) of the function. */
+	private final boolean callers;
+	
+	/** Holds the modification count of the arc table when the list was last in step with it. */
+	private int arcModificationCount;
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param function The function (which has been added to a report and has a name).
+	 * @param arcs The arc table of the function's table.
+	 * @param callers Whether the list holds the callers (<code>true</code>) or the subroutines (<code>false</code>) of the function.
+	 */
+	ProfiledArcList(ProfiledFunction function, ProfiledArcTable arcs, boolean callers)
+	{
+		this.function = function;
+		this.arcs = arcs;
+		this.callers = callers;
+		this.Load();
+	}
+	
+	/**
+	 * @see java.util.ArrayList#add(java.lang.Object)
+	 */
+	@Override
+	public boolean add(T entry)
+	{
+		this.Update();
+		boolean changed = super.add(entry);
+		this.Store();
+		return changed;
+	}
+	
+	/**
+	 * @see java.util.ArrayList#add(int, java.lang.Object)
+	 */
+	@Override
+	public void add(int index, T entry)
+	{
+		this.Update();
+		super.add(index, entry);
+		this.Store();
+	}
+	
+	/**
+	 * @see java.util.ArrayList#addAll(java.util.Collection)
+	 */
+	@Override
+	public boolean addAll(Collection<? extends T> entries)
+	{
+		this.Update();
+		boolean changed = super.addAll(entries);
+		this.Store();
+		return changed;
+	}
+	
+	/**
+	 * @see java.util.ArrayList#addAll(int, java.util.Collection)
+	 */
+	@Override
+	public boolean addAll(int index, Collection<? extends T> entries)
+	{
+		this.Update();
+		boolean changed = super.addAll(index, entries);
+		this.Store();
+		return changed;
+	}
+	
+	/**
+	 * @see java.util.ArrayList#set(int, java.lang.Object)
+	 */
+	@Override
+	public T set(int index, T entry)
+	{
+		this.Update();
+		T previous = super.set(index, entry);
+		this.Store();
+		return previous;
+	}
+	
+	/**
+	 * @see java.util.ArrayList#remove(int)
+	 */
+	@Override
+	public T remove(int index)
+	{
+		this.Update();
+		T previous = super.remove(index);
+		this.Store();
+		return previous;
+	}
+	
+	/**
+	 * @see java.util.ArrayList#remove(java.lang.Object)
+	 */
+	@Override
+	public boolean remove(Object entry)
+	{
+		this.Update();
+		boolean changed = super.remove(entry);
+		this.Store();
+		return changed;
+	}
+	
+	/**
+	 * @see java.util.ArrayList#removeAll(java.util.Collection)
+	 */
+	@Override
+	public boolean removeAll(Collection<?> entries)
+	{
+		this.Update();
+		boolean changed = super.removeAll(entries);
+		this.Store();
+		return changed;
+	}
+	
+	/**
+	 * @see java.util.ArrayList#retainAll(java.util.Collection)
+	 */
+	@Override
+	public boolean retainAll(Collection<?> entries)
+	{
+		this.Update();
+		boolean changed = super.retainAll(entries);
+		this.Store();
+		return changed;
+	}
+	
+	/**
+	 * @see java.util.ArrayList#clear()
+	 */
+	@Override
+	public void clear()
+	{
+		this.Update();
+		super.clear();
+		this.Store();
+	}
+	
+	/**
+	 * @see java.util.ArrayList#removeRange(int, int)
+	 */
+	@Override
+	protected void removeRange(int fromIndex, int toIndex)
+	{
+		this.Update();
+		super.removeRange(fromIndex, toIndex);
+		this.Store();
+	}
+	
+	/**
+	 * Reloads the entries of the list from the arc table if the table has been modified since the list was last in step with it.
+	 */
+	private void Update()
+	{
+		if (this.arcModificationCount != this.arcs.GetModificationCount())
+		{
+			this.Load();
+		}
+	}
+	
+	/**
+	 * Loads the entries of the list from the arc table (as views over the arcs of the function).
+	 */
+	@SuppressWarnings("unchecked")
+	private void Load()
+	{
+		super.clear();
+		ProfiledFunctionTable table = this.function.GetTable();
+		int nameID = table.GetNameID(this.function.GetRow());
+		if (nameID >= 0 && this.callers)
+		{
+			for (int arc = this.arcs.GetFirstCallerArc(nameID); arc >= 0; arc = this.arcs.GetNextCallerArc(arc))
+			{
+				super.add((T)new ProfiledCaller(this.arcs, arc));
+			}
+		}
+		else if (nameID >= 0)
+		{
+			for (int arc = this.arcs.GetFirstSubroutineArc(nameID); arc >= 0; arc = this.arcs.GetNextSubroutineArc(arc))
+			{
+				super.add((T)new ProfiledSubroutine(this.arcs, arc));
+			}
+		}
+		this.arcModificationCount = this.arcs.GetModificationCount();
+	}
+	
+	/**
+	 * Stores the entries of the list as the callers or the subroutines of the function (removing the arcs that are no longer listed).
+	 */
+	@SuppressWarnings("unchecked")
+	private void Store()
+	{
+		if (this.callers)
+		{
+			this.arcs.ReplaceCallers(this.function.GetName(), this.function.GetID(), (List<ProfiledCaller>)this);
+		}
+		else
+		{
+			this.arcs.ReplaceSubroutines(this.function.GetName(), this.function.GetID(), (List<ProfiledSubroutine>)this);
+		}
+		this.arcModificationCount = this.arcs.GetModificationCount();
+	}
+}
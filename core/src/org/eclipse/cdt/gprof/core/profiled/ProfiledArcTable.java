@@ -0,0 +1,1092 @@
+/*
+ * =======================================================================
+ * ============================ gprof-eclipse ============================
+ * =======================================================================
+ * 
+ * 
+ * File: ProfiledArcTable.java
+ * 
+ * 
+ * -----------------------------------------------------------------------
+ * Copyright (c) 2009 Chris Culy and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * + Chris Culy - initial API and implementation
+ * -----------------------------------------------------------------------
+ * 
+ * 
+ * Last changed:
+ * $Revision$
+ * $Author$
+ * $Date$
+ */
+
+package org.eclipse.cdt.gprof.core.profiled;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Holds the arcs of the call graph of a set of profiled functions, each arc (a caller calling a subroutine) stored once.
+ * 
+ * gprof prints every arc twice: as a subroutine in the block of the caller and as a caller in the block of the subroutine. Both copies
+ * are merged into a single row of this table, keyed by the names of the caller and the subroutine (by their IDs within the name pool
+ * of the function table). The callers and the subroutines of a function (see {@link ProfiledFunction#GetCallers()} and
+ * {@link ProfiledFunction#GetSubroutines()}) are views over the rows. When both copies of an arc are added and their statistics
+ * disagree, the arc is recorded as a mismatch.
+ * 
+ * Removing an arc (see {@link #RemoveArc(int)}) removes it from the callers of its subroutine and from the subroutines of its caller
+ * alike. The row of a removed arc is kept (so the other arcs keep their rows) until the table is written to a snapshot.
+ * 
+ * @author chrisculy
+ */
+public final class ProfiledArcTable
+{
+	// ================== Profiled Arc Table Copy Constants ================= //
+	
+	/** The flag of an arc that has been added as a caller of its subroutine. */
+	private static final byte COPY_CALLER = 1;
+	
+	/** The flag of an arc that has been added as a subroutine of its caller. */
+	private static final byte COPY_SUBROUTINE = 2;
+	
+	// ================== Profiled Arc Table Copy Constants ================= //
+	
+	/** Holds the initial capacity of the arc columns. */
+	private static final int INITIAL_CAPACITY = 16;
+	
+	/** Holds the marker of an empty hash slot (and of the end of a chain of arcs). */
+	private static final int NONE = -1;
+	
+	/** Holds the names of the functions. */
+	private final ProfiledNamePool namePool;
+	
+	/** Holds the number of arcs (including the removed arcs). */
+	private int arcCount;
+	
+	/** Holds the number of removed arcs. */
+	private int removedArcCount;
+	
+	/** Holds the name ID of the caller of each arc. */
+	private int[] callerNameIDs = new int[INITIAL_CAPACITY];
+	
+	/** Holds the name ID of the subroutine of each arc. */
+	private int[] subroutineNameIDs = new int[INITIAL_CAPACITY];
+	
+	/** Holds the gprof ID of the caller of each arc. */
+	private int[] callerIDs = new int[INITIAL_CAPACITY];
+	
+	/** Holds the gprof ID of the subroutine of each arc. */
+	private int[] subroutineIDs = new int[INITIAL_CAPACITY];
+	
+	/** Holds the number of calls of each arc. */
+	private long[] callCounts = new long[INITIAL_CAPACITY];
+	
+	/** Holds the time spent in the subroutine itself of each arc. */
+	private double[] selfTimes = new double[INITIAL_CAPACITY];
+	
+	/** Holds the time spent in the subroutine's subroutines of each arc. */
+	private double[] childTimes = new double[INITIAL_CAPACITY];
+	
+	/** Holds the copies that have been added of each arc (none if the arc has been removed). */
+	private byte[] copies = new byte[INITIAL_CAPACITY];
+	
+	/** Holds the next arc of each arc in the chain of callers of its subroutine. */
+	private int[] nextCallerArcs = new int[INITIAL_CAPACITY];
+	
+	/** Holds the next arc of each arc in the chain of subroutines of its caller. */
+	private int[] nextSubroutineArcs = new int[INITIAL_CAPACITY];
+	
+	/** Holds the first and last arc of the chain of callers of each name ID. */
+	private int[] callerChains = new int[0];
+	
+	/** Holds the first and last arc of the chain of subroutines of each name ID. */
+	private int[] subroutineChains = new int[0];
+	
+	/**
+	 * Holds the arcs indexed by caller and subroutine name ID (open addressing, the capacity being a power of two; <code>null</code> until
+	 * the index is first needed for a table read from a snapshot).
+	 */
+	private int[] slots = NewSlots(INITIAL_CAPACITY * 2);
+	
+	/** Holds the arcs whose copies disagree. */
+	private int[] mismatches = new int[0];
+	
+	/** Holds the number of arcs whose copies disagree. */
+	private int mismatchCount;
+	
+	/** Holds the number of modifications made to the table. */
+	private int modificationCount;
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param namePool The names of the functions.
+	 */
+	ProfiledArcTable(ProfiledNamePool namePool)
+	{
+		this.namePool = namePool;
+	}
+	
+	/**
+	 * Constructs the table over the given columns (i.e. as read from a snapshot). The arcs are given grouped by caller, each caller's
+	 * arcs in the order of its subroutines; the order of the callers of each subroutine is given separately.
+	 * 
+	 * @param namePool The names of the functions.
+	 * @param arcCount The number of arcs.
+	 * @param callerNameIDs The name ID of the caller of each arc.
+	 * @param subroutineNameIDs The name ID of the subroutine of each arc.
+	 * @param callerIDs The gprof ID of the caller of each arc.
+	 * @param subroutineIDs The gprof ID of the subroutine of each arc.
+	 * @param callCounts The number of calls of each arc.
+	 * @param selfTimes The time spent in the subroutine itself of each arc.
+	 * @param childTimes The time spent in the subroutine's subroutines of each arc.
+	 * @param copies The copies that have been added of each arc.
+	 * @param callerOrder The arcs grouped by subroutine, each subroutine's arcs in the order of its callers.
+	 */
+	ProfiledArcTable(ProfiledNamePool namePool, int arcCount, int[] callerNameIDs, int[] subroutineNameIDs, int[] callerIDs,
+		int[] subroutineIDs, long[] callCounts, double[] selfTimes, double[] childTimes, byte[] copies, int[] callerOrder)
+	{
+		this.namePool = namePool;
+		this.arcCount = arcCount;
+		this.callerNameIDs = callerNameIDs;
+		this.subroutineNameIDs = subroutineNameIDs;
+		this.callerIDs = callerIDs;
+		this.subroutineIDs = subroutineIDs;
+		this.callCounts = callCounts;
+		this.selfTimes = selfTimes;
+		this.childTimes = childTimes;
+		this.copies = copies;
+		this.nextCallerArcs = new int[arcCount];
+		this.nextSubroutineArcs = new int[arcCount];
+		this.slots = null;
+		
+		// Link the chains (the hash index is only built once it is needed).
+		for (int arc = 0; arc < arcCount; arc++)
+		{
+			this.subroutineChains = Append(this.subroutineChains, this.nextSubroutineArcs, callerNameIDs[arc], arc);
+		}
+		for (int i = 0; i < arcCount; i++)
+		{
+			this.callerChains = Append(this.callerChains, this.nextCallerArcs, subroutineNameIDs[callerOrder[i]], callerOrder[i]);
+		}
+	}
+	
+	/**
+	 * Retrieves the number of arcs (i.e. the number of rows, including the rows of the removed arcs).
+	 * 
+	 * @return The number of arcs.
+	 */
+	public int GetArcCount()
+	{
+		return this.arcCount;
+	}
+	
+	/**
+	 * Retrieves the number of removed arcs.
+	 * 
+	 * @return The number of removed arcs.
+	 */
+	int GetRemovedArcCount()
+	{
+		return this.removedArcCount;
+	}
+	
+	/**
+	 * Retrieves whether the given arc has been removed.
+	 * 
+	 * @param arc The arc.
+	 * @return <code>true</code> if the arc has been removed; <code>false</code> otherwise.
+	 */
+	public boolean IsRemoved(int arc)
+	{
+		return this.copies[arc] == 0;
+	}
+	
+	/**
+	 * Removes the given arc (from the callers of its subroutine as well as from the subroutines of its caller).
+	 * 
+	 * @param arc The arc.
+	 */
+	public void RemoveArc(int arc)
+	{
+		if (this.copies[arc] == 0)
+		{
+			return;
+		}
+		this.modificationCount++;
+		this.Unindex(arc);
+		Unlink(this.callerChains, this.nextCallerArcs, this.subroutineNameIDs[arc], arc);
+		Unlink(this.subroutineChains, this.nextSubroutineArcs, this.callerNameIDs[arc], arc);
+		this.copies[arc] = 0;
+		this.removedArcCount++;
+		
+		// Drop the arc from the mismatches.
+		for (int i = 0; i < this.mismatchCount; i++)
+		{
+			if (this.mismatches[i] == arc)
+			{
+				System.arraycopy(this.mismatches, i + 1, this.mismatches, i, --this.mismatchCount - i);
+				break;
+			}
+		}
+	}
+	
+	/**
+	 * Retrieves the number of modifications made to the table (so that results derived from the table can tell whether they are stale).
+	 * 
+	 * @return The modification count.
+	 */
+	int GetModificationCount()
+	{
+		return this.modificationCount;
+	}
+	
+	/**
+	 * Retrieves the name of the caller of the given arc.
+	 * 
+	 * @param arc The arc.
+	 * @return The name of the caller.
+	 */
+	public String GetCallerName(int arc)
+	{
+		return this.namePool.Get(this.callerNameIDs[arc]);
+	}
+	
+	/**
+	 * Sets the name of the caller of the given arc (moving the arc to the end of the subroutines of the named caller).
+	 * 
+	 * @param arc The arc.
+	 * @param name The name of the caller.
+	 */
+	public void SetCallerName(int arc, String name)
+	{
+		int nameID = this.namePool.Intern(name);
+		if (nameID == this.callerNameIDs[arc])
+		{
+			return;
+		}
+		this.modificationCount++;
+		if (this.copies[arc] == 0)
+		{
+			this.callerNameIDs[arc] = nameID;
+			return;
+		}
+		this.Unindex(arc);
+		Unlink(this.subroutineChains, this.nextSubroutineArcs, this.callerNameIDs[arc], arc);
+		this.callerNameIDs[arc] = nameID;
+		this.subroutineChains = Append(this.subroutineChains, this.nextSubroutineArcs, nameID, arc);
+		this.Index(arc);
+	}
+	
+	/**
+	 * Retrieves the name of the subroutine of the given arc.
+	 * 
+	 * @param arc The arc.
+	 * @return The name of the subroutine.
+	 */
+	public String GetSubroutineName(int arc)
+	{
+		return this.namePool.Get(this.subroutineNameIDs[arc]);
+	}
+	
+	/**
+	 * Sets the name of the subroutine of the given arc (moving the arc to the end of the callers of the named subroutine).
+	 * 
+	 * @param arc The arc.
+	 * @param name The name of the subroutine.
+	 */
+	public void SetSubroutineName(int arc, String name)
+	{
+		int nameID = this.namePool.Intern(name);
+		if (nameID == this.subroutineNameIDs[arc])
+		{
+			return;
+		}
+		this.modificationCount++;
+		if (this.copies[arc] == 0)
+		{
+			this.subroutineNameIDs[arc] = nameID;
+			return;
+		}
+		this.Unindex(arc);
+		Unlink(this.callerChains, this.nextCallerArcs, this.subroutineNameIDs[arc], arc);
+		this.subroutineNameIDs[arc] = nameID;
+		this.callerChains = Append(this.callerChains, this.nextCallerArcs, nameID, arc);
+		this.Index(arc);
+	}
+	
+	/**
+	 * Retrieves the ID of the caller of the given arc.
+	 * 
+	 * @param arc The arc.
+	 * @return The ID of the caller.
+	 */
+	public int GetCallerID(int arc)
+	{
+		return this.callerIDs[arc];
+	}
+	
+	/**
+	 * Sets the ID of the caller of the given arc.
+	 * 
+	 * @param arc The arc.
+	 * @param id The ID of the caller.
+	 */
+	public void SetCallerID(int arc, int id)
+	{
+		this.modificationCount++;
+		this.callerIDs[arc] = id;
+	}
+	
+	/**
+	 * Retrieves the ID of the subroutine of the given arc.
+	 * 
+	 * @param arc The arc.
+	 * @return The ID of the subroutine.
+	 */
+	public int GetSubroutineID(int arc)
+	{
+		return this.subroutineIDs[arc];
+	}
+	
+	/**
+	 * Sets the ID of the subroutine of the given arc.
+	 * 
+	 * @param arc The arc.
+	 * @param id The ID of the subroutine.
+	 */
+	public void SetSubroutineID(int arc, int id)
+	{
+		this.modificationCount++;
+		this.subroutineIDs[arc] = id;
+	}
+	
+	/**
+	 * Retrieves the number of times the caller of the given arc called the subroutine.
+	 * 
+	 * @param arc The arc.
+	 * @return The call count.
+	 */
+	public long GetCallCount(int arc)
+	{
+		return this.callCounts[arc];
+	}
+	
+	/**
+	 * Sets the number of times the caller of the given arc called the subroutine.
+	 * 
+	 * @param arc The arc.
+	 * @param callCount The call count.
+	 */
+	public void SetCallCount(int arc, long callCount)
+	{
+		this.modificationCount++;
+		this.callCounts[arc] = callCount;
+	}
+	
+	/**
+	 * Retrieves the amount of time spent in the subroutine of the given arc itself when called by the caller.
+	 * 
+	 * @param arc The arc.
+	 * @return The time spent in the subroutine.
+	 */
+	public double GetSelfTime(int arc)
+	{
+		return this.selfTimes[arc];
+	}
+	
+	/**
+	 * Sets the amount of time spent in the subroutine of the given arc itself when called by the caller.
+	 * 
+	 * @param arc The arc.
+	 * @param selfTime The time spent in the subroutine.
+	 */
+	public void SetSelfTime(int arc, double selfTime)
+	{
+		this.modificationCount++;
+		this.selfTimes[arc] = selfTime;
+	}
+	
+	/**
+	 * Retrieves the amount of time spent in the subroutines of the subroutine of the given arc when called by the caller.
+	 * 
+	 * @param arc The arc.
+	 * @return The time spent in the subroutine's subroutines.
+	 */
+	public double GetChildTime(int arc)
+	{
+		return this.childTimes[arc];
+	}
+	
+	/**
+	 * Sets the amount of time spent in the subroutines of the subroutine of the given arc when called by the caller.
+	 * 
+	 * @param arc The arc.
+	 * @param childTime The time spent in the subroutine's subroutines.
+	 */
+	public void SetChildTime(int arc, double childTime)
+	{
+		this.modificationCount++;
+		this.childTimes[arc] = childTime;
+	}
+	
+	/**
+	 * Retrieves the number of arcs whose two copies (as a caller and as a subroutine) disagree.
+	 * 
+	 * @return The number of mismatched arcs.
+	 */
+	public int GetMismatchCount()
+	{
+		return this.mismatchCount;
+	}
+	
+	/**
+	 * Retrieves the given mismatched arc.
+	 * 
+	 * @param index The index of the mismatch (in the order the mismatches were found).
+	 * @return The arc.
+	 */
+	public int GetMismatchedArc(int index)
+	{
+		return this.mismatches[index];
+	}
+	
+	/**
+	 * Retrieves the arc from the given caller to the given subroutine.
+	 * 
+	 * @param callerName The name of the caller.
+	 * @param subroutineName The name of the subroutine.
+	 * @return The arc or -1 if there is no such arc.
+	 */
+	public int FindArc(String callerName, String subroutineName)
+	{
+		int callerNameID = this.namePool.Find(callerName);
+		int subroutineNameID = this.namePool.Find(subroutineName);
+		if (callerNameID < 0 || subroutineNameID < 0)
+		{
+			return NONE;
+		}
+		return this.slots[this.FindSlot(callerNameID, subroutineNameID)];
+	}
+	
+	/**
+	 * Adds the given callers of the function with the given name and ID. Each caller is merged with the arc already added as a subroutine
+	 * of the caller (if any). The callers of the function are ordered as given, followed by any arcs to the function that have only been
+	 * added as subroutines.
+	 * 
+	 * @param name The name of the function.
+	 * @param id The ID of the function.
+	 * @param callers The callers.
+	 */
+	void SetCallers(String name, int id, List<ProfiledCaller> callers)
+	{
+		this.modificationCount++;
+		int nameID = this.namePool.Intern(name);
+		int[] arcs = this.AddCallers(nameID, id, callers);
+		this.callerChains = this.Rechain(this.callerChains, this.nextCallerArcs, nameID, arcs);
+	}
+	
+	/**
+	 * Replaces the callers of the function with the given name and ID by the given callers, in the given order. The arcs to the function
+	 * that are not given are removed (from the subroutines of their callers as well).
+	 * 
+	 * @param name The name of the function.
+	 * @param id The ID of the function.
+	 * @param callers The callers.
+	 */
+	void ReplaceCallers(String name, int id, List<ProfiledCaller> callers)
+	{
+		this.modificationCount++;
+		int nameID = this.namePool.Intern(name);
+		int[] arcs = this.AddCallers(nameID, id, callers);
+		this.RemoveOthers(this.GetFirstCallerArc(nameID), this.nextCallerArcs, arcs);
+		this.callerChains = this.Rechain(this.callerChains, this.nextCallerArcs, nameID, arcs);
+	}
+	
+	/**
+	 * Adds the given subroutines of the function with the given name and ID. Each subroutine is merged with the arc already added as a
+	 * caller of the subroutine (if any). The subroutines of the function are ordered as given, followed by any arcs from the function
+	 * that have only been added as callers.
+	 * 
+	 * @param name The name of the function.
+	 * @param id The ID of the function.
+	 * @param subroutines The subroutines.
+	 */
+	void SetSubroutines(String name, int id, List<ProfiledSubroutine> subroutines)
+	{
+		this.modificationCount++;
+		int nameID = this.namePool.Intern(name);
+		int[] arcs = this.AddSubroutines(nameID, id, subroutines);
+		this.subroutineChains = this.Rechain(this.subroutineChains, this.nextSubroutineArcs, nameID, arcs);
+	}
+	
+	/**
+	 * Adds the arc from the function with the given name ID and ID to the function with the given name ID and ID as both of its copies
+	 * (i.e. an arc known to be consistent, such as an arc summed from other reports), appending it to the chains of its caller and
+	 * subroutine.
+	 * 
+	 * @param callerNameID The name ID of the caller.
+	 * @param callerID The ID of the caller.
+	 * @param subroutineNameID The name ID of the subroutine.
+	 * @param subroutineID The ID of the subroutine.
+	 * @param callCount The number of calls of the arc.
+	 * @param selfTime The time spent in the subroutine itself of the arc.
+	 * @param childTime The time spent in the subroutine's subroutines of the arc.
+	 * @return The arc.
+	 */
+	int AddArc(int callerNameID, int callerID, int subroutineNameID, int subroutineID, long callCount, double selfTime, double childTime)
+	{
+		this.modificationCount++;
+		int arc = this.AddArc(callerNameID, subroutineNameID, (byte)(COPY_CALLER | COPY_SUBROUTINE), callCount, selfTime, childTime);
+		this.callerIDs[arc] = callerID;
+		this.subroutineIDs[arc] = subroutineID;
+		return arc;
+	}
+	
+	/**
+	 * Replaces the subroutines of the function with the given name and ID by the given subroutines, in the given order. The arcs from the
+	 * function that are not given are removed (from the callers of their subroutines as well).
+	 * 
+	 * @param name The name of the function.
+	 * @param id The ID of the function.
+	 * @param subroutines The subroutines.
+	 */
+	void ReplaceSubroutines(String name, int id, List<ProfiledSubroutine> subroutines)
+	{
+		this.modificationCount++;
+		int nameID = this.namePool.Intern(name);
+		int[] arcs = this.AddSubroutines(nameID, id, subroutines);
+		this.RemoveOthers(this.GetFirstSubroutineArc(nameID), this.nextSubroutineArcs, arcs);
+		this.subroutineChains = this.Rechain(this.subroutineChains, this.nextSubroutineArcs, nameID, arcs);
+	}
+	
+	/**
+	 * Retrieves the first arc of the chain of subroutines of the given name ID.
+	 * 
+	 * @param nameID The name ID of the caller.
+	 * @return The first arc or -1 if the chain is empty.
+	 */
+	int GetFirstSubroutineArc(int nameID)
+	{
+		return 2 * nameID < this.subroutineChains.length ? this.subroutineChains[2 * nameID] : NONE;
+	}
+	
+	/**
+	 * Retrieves the arc following the given arc in the chain of subroutines of its caller.
+	 * 
+	 * @param arc The arc.
+	 * @return The next arc or -1 if the arc is the last of the chain.
+	 */
+	int GetNextSubroutineArc(int arc)
+	{
+		return this.nextSubroutineArcs[arc];
+	}
+	
+	/**
+	 * Retrieves the first arc of the chain of callers of the given name ID.
+	 * 
+	 * @param nameID The name ID of the subroutine.
+	 * @return The first arc or -1 if the chain is empty.
+	 */
+	int GetFirstCallerArc(int nameID)
+	{
+		return 2 * nameID < this.callerChains.length ? this.callerChains[2 * nameID] : NONE;
+	}
+	
+	/**
+	 * Retrieves the arc following the given arc in the chain of callers of its subroutine.
+	 * 
+	 * @param arc The arc.
+	 * @return The next arc or -1 if the arc is the last of the chain.
+	 */
+	int GetNextCallerArc(int arc)
+	{
+		return this.nextCallerArcs[arc];
+	}
+	
+	/**
+	 * Retrieves the name ID of the caller of the given arc.
+	 * 
+	 * @param arc The arc.
+	 * @return The name ID of the caller.
+	 */
+	int GetCallerNameID(int arc)
+	{
+		return this.callerNameIDs[arc];
+	}
+	
+	/**
+	 * Retrieves the name ID of the subroutine of the given arc.
+	 * 
+	 * @param arc The arc.
+	 * @return The name ID of the subroutine.
+	 */
+	int GetSubroutineNameID(int arc)
+	{
+		return this.subroutineNameIDs[arc];
+	}
+	
+	/**
+	 * Retrieves the copies that have been added of the given arc.
+	 * 
+	 * @param arc The arc.
+	 * @return The copies (a combination of the copy flags).
+	 */
+	byte GetCopies(int arc)
+	{
+		return this.copies[arc];
+	}
+	
+	/**
+	 * Adds the given callers of the function with the given name ID and ID (a caller that is a view over an arc to the function is taken
+	 * as is).
+	 * 
+	 * @param nameID The name ID of the function.
+	 * @param id The ID of the function.
+	 * @param callers The callers.
+	 * @return The arc of each caller.
+	 */
+	private int[] AddCallers(int nameID, int id, List<ProfiledCaller> callers)
+	{
+		int[] arcs = new int[callers.size()];
+		for (int i = 0; i < arcs.length; i++)
+		{
+			ProfiledCaller caller = callers.get(i);
+			int arc = caller.GetArc(this);
+			if (arc < 0 || this.copies[arc] == 0 || this.subroutineNameIDs[arc] != nameID)
+			{
+				arc = this.AddArc(this.namePool.Intern(caller.GetName()), nameID, COPY_CALLER, caller.GetCallCount(),
+					caller.GetTimeInCalledSelf(), caller.GetTimeInCalledSubroutines());
+				this.callerIDs[arc] = caller.GetID();
+				this.subroutineIDs[arc] = id;
+			}
+			arcs[i] = arc;
+		}
+		return arcs;
+	}
+	
+	/**
+	 * Adds the given subroutines of the function with the given name ID and ID (a subroutine that is a view over an arc from the function
+	 * is taken as is).
+	 * 
+	 * @param nameID The name ID of the function.
+	 * @param id The ID of the function.
+	 * @param subroutines The subroutines.
+	 * @return The arc of each subroutine.
+	 */
+	private int[] AddSubroutines(int nameID, int id, List<ProfiledSubroutine> subroutines)
+	{
+		int[] arcs = new int[subroutines.size()];
+		for (int i = 0; i < arcs.length; i++)
+		{
+			ProfiledSubroutine subroutine = subroutines.get(i);
+			int arc = subroutine.GetArc(this);
+			if (arc < 0 || this.copies[arc] == 0 || this.callerNameIDs[arc] != nameID)
+			{
+				arc = this.AddArc(nameID, this.namePool.Intern(subroutine.GetName()), COPY_SUBROUTINE, subroutine.GetCallCount(),
+					subroutine.GetTimeInSubroutineSelf(), subroutine.GetTimeInSubroutineSubroutines());
+				this.callerIDs[arc] = id;
+				this.subroutineIDs[arc] = subroutine.GetID();
+			}
+			arcs[i] = arc;
+		}
+		return arcs;
+	}
+	
+	/**
+	 * Removes the arcs of the given chain that are not among the given arcs.
+	 * 
+	 * @param first The first arc of the chain.
+	 * @param next The next arc of each arc within its chain.
+	 * @param arcs The arcs to keep.
+	 */
+	private void RemoveOthers(int first, int[] next, int[] arcs)
+	{
+		int[] kept = arcs.clone();
+		Arrays.sort(kept);
+		for (int arc = first; arc != NONE; )
+		{
+			int nextArc = next[arc];
+			if (Arrays.binarySearch(kept, arc) < 0)
+			{
+				this.RemoveArc(arc);
+			}
+			arc = nextArc;
+		}
+	}
+	
+	/**
+	 * Adds the given copy of the arc from the given caller to the given subroutine. If the arc has already been added, the copy is merged
+	 * into it (recording a mismatch if the other copy disagrees); otherwise the arc is appended to the chains of its caller and subroutine.
+	 * 
+	 * @param callerNameID The name ID of the caller.
+	 * @param subroutineNameID The name ID of the subroutine.
+	 * @param copy The copy being added.
+	 * @param callCount The call count of the copy.
+	 * @param selfTime The time spent in the subroutine itself of the copy.
+	 * @param childTime The time spent in the subroutine's subroutines of the copy.
+	 * @return The arc.
+	 */
+	private int AddArc(int callerNameID, int subroutineNameID, byte copy, long callCount, double selfTime, double childTime)
+	{
+		int slot = this.FindSlot(callerNameID, subroutineNameID);
+		int arc = this.slots[slot];
+		if (arc != NONE)
+		{
+			// Check the copies against each other (the copy being added again simply replaces itself).
+			if ((this.copies[arc] & ~copy) != 0
+				&& (this.callCounts[arc] != callCount || this.selfTimes[arc] != selfTime || this.childTimes[arc] != childTime))
+			{
+				this.AddMismatch(arc);
+			}
+			this.copies[arc] |= copy;
+			this.callCounts[arc] = callCount;
+			this.selfTimes[arc] = selfTime;
+			this.childTimes[arc] = childTime;
+			return arc;
+		}
+		
+		// Make room for the arc.
+		if (this.arcCount == this.callerNameIDs.length)
+		{
+			this.Grow(Math.max(this.callerNameIDs.length * 2, INITIAL_CAPACITY));
+		}
+		if (this.arcCount * 2 >= this.slots.length)
+		{
+			this.Rehash(this.slots.length * 2);
+			slot = this.FindSlot(callerNameID, subroutineNameID);
+		}
+		
+		// Add the arc.
+		arc = this.arcCount++;
+		this.callerNameIDs[arc] = callerNameID;
+		this.subroutineNameIDs[arc] = subroutineNameID;
+		this.callerIDs[arc] = NONE;
+		this.subroutineIDs[arc] = NONE;
+		this.callCounts[arc] = callCount;
+		this.selfTimes[arc] = selfTime;
+		this.childTimes[arc] = childTime;
+		this.copies[arc] = copy;
+		this.slots[slot] = arc;
+		
+		// Append the arc to the chains of its caller and subroutine.
+		this.callerChains = Append(this.callerChains, this.nextCallerArcs, subroutineNameID, arc);
+		this.subroutineChains = Append(this.subroutineChains, this.nextSubroutineArcs, callerNameID, arc);
+		return arc;
+	}
+	
+	/**
+	 * Reorders the chain of the given name ID so that it starts with the given arcs (in the given order), followed by the other arcs of
+	 * the chain (in their current order).
+	 * 
+	 * @param chains The first and last arc of the chain of each name ID.
+	 * @param next The next arc of each arc within its chain.
+	 * @param nameID The name ID.
+	 * @param arcs The arcs to start the chain with (all of them already part of the chain).
+	 * @return The chains.
+	 */
+	private int[] Rechain(int[] chains, int[] next, int nameID, int[] arcs)
+	{
+		if (arcs.length == 0)
+		{
+			return chains;
+		}
+		
+		// Mark the given arcs by flipping their next arc (dropping any arc given twice).
+		int arcCount = 0;
+		for (int i = 0; i < arcs.length; i++)
+		{
+			if (next[arcs[i]] >= NONE)
+			{
+				next[arcs[i]] = -3 - next[arcs[i]];
+				arcs[arcCount++] = arcs[i];
+			}
+		}
+		
+		// Collect the rest of the chain (the arcs not given), unmarking the given arcs on the way.
+		int chainLength = 0;
+		for (int arc = chains[2 * nameID]; arc != NONE; arc = next[arc] < NONE ? -3 - next[arc] : next[arc])
+		{
+			chainLength++;
+		}
+		int[] rest = new int[chainLength - arcCount];
+		int restCount = 0;
+		for (int arc = chains[2 * nameID]; arc != NONE; )
+		{
+			int nextArc = next[arc];
+			if (nextArc < NONE)
+			{
+				nextArc = -3 - nextArc;
+				next[arc] = nextArc;
+			}
+			else
+			{
+				rest[restCount++] = arc;
+			}
+			arc = nextArc;
+		}
+		
+		// Relink the chain.
+		chains[2 * nameID] = NONE;
+		for (int i = 0; i < arcCount; i++)
+		{
+			chains = Append(chains, next, nameID, arcs[i]);
+		}
+		for (int i = 0; i < restCount; i++)
+		{
+			chains = Append(chains, next, nameID, rest[i]);
+		}
+		return chains;
+	}
+	
+	/**
+	 * Appends the given arc to the chain of the given name ID.
+	 * 
+	 * @param chains The first and last arc of the chain of each name ID.
+	 * @param next The next arc of each arc within its chain.
+	 * @param nameID The name ID.
+	 * @param arc The arc.
+	 * @return The chains (grown if the name ID did not fit).
+	 */
+	private static int[] Append(int[] chains, int[] next, int nameID, int arc)
+	{
+		if (2 * nameID >= chains.length)
+		{
+			int[] grown = new int[Math.max(2 * nameID + 2, chains.length * 2)];
+			System.arraycopy(chains, 0, grown, 0, chains.length);
+			Arrays.fill(grown, chains.length, grown.length, NONE);
+			chains = grown;
+		}
+		next[arc] = NONE;
+		if (chains[2 * nameID] == NONE)
+		{
+			chains[2 * nameID] = arc;
+		}
+		else
+		{
+			next[chains[2 * nameID + 1]] = arc;
+		}
+		chains[2 * nameID + 1] = arc;
+		return chains;
+	}
+	
+	/**
+	 * Unlinks the given arc from the chain of the given name ID.
+	 * 
+	 * @param chains The first and last arc of the chain of each name ID.
+	 * @param next The next arc of each arc within its chain.
+	 * @param nameID The name ID.
+	 * @param arc The arc.
+	 */
+	private static void Unlink(int[] chains, int[] next, int nameID, int arc)
+	{
+		int previous = NONE;
+		for (int current = chains[2 * nameID]; current != NONE; current = next[current])
+		{
+			if (current == arc)
+			{
+				if (previous == NONE)
+				{
+					chains[2 * nameID] = next[arc];
+				}
+				else
+				{
+					next[previous] = next[arc];
+				}
+				if (chains[2 * nameID + 1] == arc)
+				{
+					chains[2 * nameID + 1] = previous;
+				}
+				next[arc] = NONE;
+				return;
+			}
+			previous = current;
+		}
+	}
+	
+	/**
+	 * Records the given arc as a mismatch (once).
+	 * 
+	 * @param arc The arc.
+	 */
+	private void AddMismatch(int arc)
+	{
+		for (int i = 0; i < this.mismatchCount; i++)
+		{
+			if (this.mismatches[i] == arc)
+			{
+				return;
+			}
+		}
+		if (this.mismatchCount == this.mismatches.length)
+		{
+			int[] mismatches = new int[Math.max(this.mismatches.length * 2, INITIAL_CAPACITY)];
+			System.arraycopy(this.mismatches, 0, mismatches, 0, this.mismatchCount);
+			this.mismatches = mismatches;
+		}
+		this.mismatches[this.mismatchCount++] = arc;
+	}
+	
+	/**
+	 * Retrieves the slot of the arc from the given caller to the given subroutine, or the empty slot where it belongs.
+	 * 
+	 * @param callerNameID The name ID of the caller.
+	 * @param subroutineNameID The name ID of the subroutine.
+	 * @return The slot.
+	 */
+	private int FindSlot(int callerNameID, int subroutineNameID)
+	{
+		if (this.slots == null)
+		{
+			int capacity = INITIAL_CAPACITY * 2;
+			while (capacity <= this.arcCount * 2)
+			{
+				capacity *= 2;
+			}
+			this.Rehash(capacity);
+		}
+		int mask = this.slots.length - 1;
+		int slot = Hash(callerNameID, subroutineNameID) & mask;
+		while (true)
+		{
+			int arc = this.slots[slot];
+			if (arc == NONE || (this.callerNameIDs[arc] == callerNameID && this.subroutineNameIDs[arc] == subroutineNameID))
+			{
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+	}
+	
+	/**
+	 * Adds the given arc to the hash index (unless another arc from the same caller to the same subroutine is indexed already).
+	 * 
+	 * @param arc The arc.
+	 */
+	private void Index(int arc)
+	{
+		int slot = this.FindSlot(this.callerNameIDs[arc], this.subroutineNameIDs[arc]);
+		if (this.slots[slot] == NONE)
+		{
+			this.slots[slot] = arc;
+		}
+	}
+	
+	/**
+	 * Removes the given arc from the hash index (if it is indexed), moving the arcs that follow it in the probe sequence back into the
+	 * emptied slot.
+	 * 
+	 * @param arc The arc.
+	 */
+	private void Unindex(int arc)
+	{
+		int hole = this.FindSlot(this.callerNameIDs[arc], this.subroutineNameIDs[arc]);
+		if (this.slots[hole] != arc)
+		{
+			return;
+		}
+		int mask = this.slots.length - 1;
+		for (int slot = (hole + 1) & mask; this.slots[slot] != NONE; slot = (slot + 1) & mask)
+		{
+			int other = this.slots[slot];
+			int home = Hash(this.callerNameIDs[other], this.subroutineNameIDs[other]) & mask;
+			if (((slot - home) & mask) >= ((slot - hole) & mask))
+			{
+				this.slots[hole] = other;
+				hole = slot;
+			}
+		}
+		this.slots[hole] = NONE;
+	}
+	
+	/**
+	 * Rebuilds the hash index with the given capacity.
+	 * 
+	 * @param capacity The capacity (a power of two).
+	 */
+	private void Rehash(int capacity)
+	{
+		this.slots = NewSlots(capacity);
+		for (int arc = 0; arc < this.arcCount; arc++)
+		{
+			if (this.copies[arc] != 0)
+			{
+				this.Index(arc);
+			}
+		}
+	}
+	
+	/**
+	 * Resizes the arc columns to the given capacity.
+	 * 
+	 * @param capacity The new capacity.
+	 */
+	private void Grow(int capacity)
+	{
+		this.callerNameIDs = CopyColumn(this.callerNameIDs, capacity, this.arcCount);
+		this.subroutineNameIDs = CopyColumn(this.subroutineNameIDs, capacity, this.arcCount);
+		this.callerIDs = CopyColumn(this.callerIDs, capacity, this.arcCount);
+		this.subroutineIDs = CopyColumn(this.subroutineIDs, capacity, this.arcCount);
+		this.nextCallerArcs = CopyColumn(this.nextCallerArcs, capacity, this.arcCount);
+		this.nextSubroutineArcs = CopyColumn(this.nextSubroutineArcs, capacity, this.arcCount);
+		long[] callCounts = new long[capacity];
+		System.arraycopy(this.callCounts, 0, callCounts, 0, this.arcCount);
+		this.callCounts = callCounts;
+		double[] selfTimes = new double[capacity];
+		System.arraycopy(this.selfTimes, 0, selfTimes, 0, this.arcCount);
+		this.selfTimes = selfTimes;
+		double[] childTimes = new double[capacity];
+		System.arraycopy(this.childTimes, 0, childTimes, 0, this.arcCount);
+		this.childTimes = childTimes;
+		byte[] copies = new byte[capacity];
+		System.arraycopy(this.copies, 0, copies, 0, this.arcCount);
+		this.copies = copies;
+	}
+	
+	/**
+	 * Copies the given number of entries of the given column into a new column of the given capacity.
+	 * 
+	 * @param column The column to copy.
+	 * @param capacity The capacity of the new column.
+	 * @param count The number of entries to copy.
+	 * @return The new column.
+	 */
+	private static int[] CopyColumn(int[] column, int capacity, int count)
+	{
+		int[] copy = new int[capacity];
+		System.arraycopy(column, 0, copy, 0, count);
+		return copy;
+	}
+	
+	/**
+	 * Creates an empty hash index of the given capacity.
+	 * 
+	 * @param capacity The capacity (a power of two).
+	 * @return The hash index.
+	 */
+	private static int[] NewSlots(int capacity)
+	{
+		int[] slots = new int[capacity];
+		Arrays.fill(slots, NONE);
+		return slots;
+	}
+	
+	/**
+	 * Hashes the given caller and subroutine name IDs.
+	 * 
+	 * @param callerNameID The name ID of the caller.
+	 * @param subroutineNameID The name ID of the subroutine.
+	 * @return The hash.
+	 */
+	private static int Hash(int callerNameID, int subroutineNameID)
+	{
+		int hash = callerNameID * 0x9E3779B1 + subroutineNameID;
+		return hash ^ (hash >>> 16);
+	}
+}
@@ -0,0 +1,416 @@
+/*
+ * =======================================================================
+ * ============================ gprof-eclipse ============================
+ * =======================================================================
+ * 
+ * 
+ * File: ProfiledCallGraph.java
+ * 
+ * 
+ * -----------------------------------------------------------------------
+ * Copyright (c) 2009 Chris Culy and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * + Chris Culy - initial API and implementation
+ * -----------------------------------------------------------------------
+ * 
+ * 
+ * Last changed:
+ * $Revision$
+ * $Author$
+ * $Date$
+ */
+
+package org.eclipse.cdt.gprof.core.profiled;
+
+import java.util.ArrayList;
+
+/**
+ * Holds the call graph of a profiler report in compressed sparse row form.
+ * 
+ * The functions are the rows of the report's {@link ProfiledFunctionTable}. The arcs to the subroutines of each function are stored
+ * contiguously (the subroutine arcs of row <code>r</code> are those from {@link #GetSubroutineArcsStart(int)} up to
+ * {@link #GetSubroutineArcsEnd(int)}), as are the arcs from the callers of each function, with the rows at the other end of the arcs
+ * resolved once when the graph is built. Traversing the graph thus neither looks up names nor allocates.
+ * 
+ * @author chrisculy
+ */
+public final class ProfiledCallGraph
+{
+	/** Holds the number of functions. */
+	private final int functionCount;
+	
+	/** Holds the index of the first subroutine arc of each function (plus the total number of subroutine arcs at the end). */
+	private final int[] subroutineOffsets;
+	
+	/** Holds the row of the subroutine of each subroutine arc. */
+	private final int[] subroutineRows;
+	
+	/** Holds the number of calls of each subroutine arc. */
+	private final long[] subroutineCallCounts;
+	
+	/** Holds the time spent in the subroutine itself of each subroutine arc. */
+	private final double[] subroutineSelfTimes;
+	
+	/** Holds the time spent in the subroutine's subroutines of each subroutine arc. */
+	private final double[] subroutineChildTimes;
+	
+	/** Holds the index of the first caller arc of each function (plus the total number of caller arcs at the end). */
+	private final int[] callerOffsets;
+	
+	/** Holds the row of the caller of each caller arc. */
+	private final int[] callerRows;
+	
+	/** Holds the number of calls of each caller arc. */
+	private final long[] callerCallCounts;
+	
+	/** Holds the time spent in the called function itself of each caller arc. */
+	private final double[] callerSelfTimes;
+	
+	/** Holds the time spent in the called function's subroutines of each caller arc. */
+	private final double[] callerChildTimes;
+	
+	/** Holds the call graph condensed into its cycles (<code>null</code> until it is first retrieved). */
+	private ProfiledCondensedGraph condensedGraph;
+	
+	/**
+	 * Builds the call graph of the given report from the callers and subroutines of its functions. Callers and subroutines that are
+	 * not functions of the report (i.e. &lt;spontaneous&gt;) are left out.
+	 * 
+	 * The arcs are read straight from the chains of the report's arc table in two passes, the first counting the arcs of each function
+	 * and the second filling them in, with the rows at the other end resolved through the report's indexes by ID and name ID (the
+	 * unnamed functions, which hold their callers and subroutines themselves, being read from their lists).
+	 * 
+	 * @param report The report.
+	 */
+	ProfiledCallGraph(ProfilerReport report)
+	{
+		ArrayList<ProfiledFunction> functions = report.GetFunctions();
+		this.functionCount = functions.size();
+		
+		// Move the callers and subroutines still held by the functions into the arc table.
+		for (int row = 0; row < this.functionCount; row++)
+		{
+			functions.get(row).StorePendingArcs();
+		}
+		ProfiledArcTable arcs = report.GetFunctionTable().FindArcTable();
+		
+		// Count the arcs of each function and turn the counts into offsets.
+		this.subroutineOffsets = new int[this.functionCount + 1];
+		this.callerOffsets = new int[this.functionCount + 1];
+		for (int row = 0; row < this.functionCount; row++)
+		{
+			this.subroutineOffsets[row + 1] = this.subroutineOffsets[row] + this.ResolveArcs(report, arcs, row, false, false);
+			this.callerOffsets[row + 1] = this.callerOffsets[row] + this.ResolveArcs(report, arcs, row, true, false);
+		}
+		
+		// Fill in the arcs.
+		int subroutineArcCount = this.subroutineOffsets[this.functionCount];
+		this.subroutineRows = new int[subroutineArcCount];
+		this.subroutineCallCounts = new long[subroutineArcCount];
+		this.subroutineSelfTimes = new double[subroutineArcCount];
+		this.subroutineChildTimes = new double[subroutineArcCount];
+		int callerArcCount = this.callerOffsets[this.functionCount];
+		this.callerRows = new int[callerArcCount];
+		this.callerCallCounts = new long[callerArcCount];
+		this.callerSelfTimes = new double[callerArcCount];
+		this.callerChildTimes = new double[callerArcCount];
+		for (int row = 0; row < this.functionCount; row++)
+		{
+			this.ResolveArcs(report, arcs, row, false, true);
+			this.ResolveArcs(report, arcs, row, true, true);
+		}
+	}
+	
+	/**
+	 * Retrieves the number of functions (rows) of the call graph.
+	 * 
+	 * @return The number of functions.
+	 */
+	public int GetFunctionCount()
+	{
+		return this.functionCount;
+	}
+	
+	/**
+	 * Retrieves the total number of subroutine arcs of the call graph.
+	 * 
+	 * @return The number of subroutine arcs.
+	 */
+	public int GetSubroutineArcCount()
+	{
+		return this.subroutineRows.length;
+	}
+	
+	/**
+	 * Retrieves the index of the first subroutine arc of the function in the given row.
+	 * 
+	 * @param row The row of the function.
+	 * @return The index of the first subroutine arc.
+	 */
+	public int GetSubroutineArcsStart(int row)
+	{
+		return this.subroutineOffsets[row];
+	}
+	
+	/**
+	 * Retrieves the index following the last subroutine arc of the function in the given row.
+	 * 
+	 * @param row The row of the function.
+	 * @return The index of the end of the subroutine arcs (exclusive).
+	 */
+	public int GetSubroutineArcsEnd(int row)
+	{
+		return this.subroutineOffsets[row + 1];
+	}
+	
+	/**
+	 * Retrieves the index of the first subroutine arc of each function (plus the total number of subroutine arcs at the end). The array is
+	 * not copied and must not be modified.
+	 * 
+	 * @return The offsets of the subroutine arcs.
+	 */
+	int[] GetSubroutineOffsets()
+	{
+		return this.subroutineOffsets;
+	}
+	
+	/**
+	 * Retrieves the row of the subroutine of each subroutine arc. The array is not copied and must not be modified.
+	 * 
+	 * @return The rows of the subroutines.
+	 */
+	int[] GetSubroutineRows()
+	{
+		return this.subroutineRows;
+	}
+	
+	/**
+	 * Retrieves the row of the subroutine of the given subroutine arc.
+	 * 
+	 * @param arc The index of the subroutine arc.
+	 * @return The row of the subroutine.
+	 */
+	public int GetSubroutineRow(int arc)
+	{
+		return this.subroutineRows[arc];
+	}
+	
+	/**
+	 * Retrieves the number of times the subroutine of the given subroutine arc was called by the function.
+	 * 
+	 * @param arc The index of the subroutine arc.
+	 * @return The call count.
+	 */
+	public long GetSubroutineCallCount(int arc)
+	{
+		return this.subroutineCallCounts[arc];
+	}
+	
+	/**
+	 * Retrieves the amount of time spent in the subroutine of the given subroutine arc itself when called by the function.
+	 * 
+	 * @param arc The index of the subroutine arc.
+	 * @return The time spent in the subroutine.
+	 */
+	public double GetSubroutineSelfTime(int arc)
+	{
+		return this.subroutineSelfTimes[arc];
+	}
+	
+	/**
+	 * Retrieves the amount of time spent in the subroutines of the subroutine of the given subroutine arc when called by the function.
+	 * 
+	 * @param arc The index of the subroutine arc.
+	 * @return The time spent in the subroutine's subroutines.
+	 */
+	public double GetSubroutineChildTime(int arc)
+	{
+		return this.subroutineChildTimes[arc];
+	}
+	
+	/**
+	 * Retrieves the total number of caller arcs of the call graph.
+	 * 
+	 * @return The number of caller arcs.
+	 */
+	public int GetCallerArcCount()
+	{
+		return this.callerRows.length;
+	}
+	
+	/**
+	 * Retrieves the index of the first caller arc of the function in the given row.
+	 * 
+	 * @param row The row of the function.
+	 * @return The index of the first caller arc.
+	 */
+	public int GetCallerArcsStart(int row)
+	{
+		return this.callerOffsets[row];
+	}
+	
+	/**
+	 * Retrieves the index following the last caller arc of the function in the given row.
+	 * 
+	 * @param row The row of the function.
+	 * @return The index of the end of the caller arcs (exclusive).
+	 */
+	public int GetCallerArcsEnd(int row)
+	{
+		return this.callerOffsets[row + 1];
+	}
+	
+	/**
+	 * Retrieves the row of the caller of the given caller arc.
+	 * 
+	 * @param arc The index of the caller arc.
+	 * @return The row of the caller.
+	 */
+	public int GetCallerRow(int arc)
+	{
+		return this.callerRows[arc];
+	}
+	
+	/**
+	 * Retrieves the number of times the caller of the given caller arc called the function.
+	 * 
+	 * @param arc The index of the caller arc.
+	 * @return The call count.
+	 */
+	public long GetCallerCallCount(int arc)
+	{
+		return this.callerCallCounts[arc];
+	}
+	
+	/**
+	 * Retrieves the amount of time spent in the function itself when called by the caller of the given caller arc.
+	 * 
+	 * @param arc The index of the caller arc.
+	 * @return The time spent in the called function.
+	 */
+	public double GetCallerSelfTime(int arc)
+	{
+		return this.callerSelfTimes[arc];
+	}
+	
+	/**
+	 * Retrieves the amount of time spent in the function's subroutines when called by the caller of the given caller arc.
+	 * 
+	 * @param arc The index of the caller arc.
+	 * @return The time spent in the called function's subroutines.
+	 */
+	public double GetCallerChildTime(int arc)
+	{
+		return this.callerChildTimes[arc];
+	}
+	
+	/**
+	 * Retrieves the call graph condensed into its strongly connected components (its cycles), condensing it (under the call graph's lock)
+	 * if it has not been condensed yet.
+	 * 
+	 * @return The condensed call graph.
+	 */
+	public synchronized ProfiledCondensedGraph GetCondensedGraph()
+	{
+		if (this.condensedGraph == null)
+		{
+			this.condensedGraph = new ProfiledCondensedGraph(this);
+		}
+		return this.condensedGraph;
+	}
+	
+	/**
+	 * Resolves the rows at the other end of the subroutine or caller arcs of the function in the given row, counting the arcs that lead
+	 * to functions of the report and, if requested, filling them in from the function's offset on.
+	 * 
+	 * @param report The report.
+	 * @param arcs The arc table of the report (<code>null</code> if it has no arcs).
+	 * @param row The row of the function.
+	 * @param callers Whether to resolve the caller arcs (<code>true</code>) or the subroutine arcs (<code>false</code>).
+	 * @param fill Whether to fill in the arcs (<code>false</code> to only count them).
+	 * @return The number of arcs leading to functions of the report.
+	 */
+	private int ResolveArcs(ProfilerReport report, ProfiledArcTable arcs, int row, boolean callers, boolean fill)
+	{
+		int[] rows = callers ? this.callerRows : this.subroutineRows;
+		long[] callCounts = callers ? this.callerCallCounts : this.subroutineCallCounts;
+		double[] selfTimes = callers ? this.callerSelfTimes : this.subroutineSelfTimes;
+		double[] childTimes = callers ? this.callerChildTimes : this.subroutineChildTimes;
+		int start = callers ? this.callerOffsets[row] : this.subroutineOffsets[row];
+		int count = 0;
+		
+		// Follow the chain of the function's name.
+		int nameID = report.GetFunctionTable().GetNameID(row);
+		if (nameID >= 0)
+		{
+			if (arcs == null)
+			{
+				return 0;
+			}
+			int arc = callers ? arcs.GetFirstCallerArc(nameID) : arcs.GetFirstSubroutineArc(nameID);
+			for (; arc >= 0; arc = callers ? arcs.GetNextCallerArc(arc) : arcs.GetNextSubroutineArc(arc))
+			{
+				int other = callers ? report.FindRow(arcs.GetCallerID(arc), arcs.GetCallerNameID(arc)) : report.FindRow(arcs
+					.GetSubroutineID(arc), arcs.GetSubroutineNameID(arc));
+				if (other >= 0)
+				{
+					if (fill)
+					{
+						rows[start + count] = other;
+						callCounts[start + count] = arcs.GetCallCount(arc);
+						selfTimes[start + count] = arcs.GetSelfTime(arc);
+						childTimes[start + count] = arcs.GetChildTime(arc);
+					}
+					count++;
+				}
+			}
+			return count;
+		}
+		
+		// Read the lists held by the unnamed function.
+		ProfiledFunction function = report.GetFunctions().get(row);
+		if (callers && function.GetCallers() != null)
+		{
+			for (ProfiledCaller caller : function.GetCallers())
+			{
+				int other = report.FindRow(caller.GetID(), report.GetFunctionTable().FindNameID(caller.GetName()));
+				if (other >= 0)
+				{
+					if (fill)
+					{
+						rows[start + count] = other;
+						callCounts[start + count] = caller.GetCallCount();
+						selfTimes[start + count] = caller.GetTimeInCalledSelf();
+						childTimes[start + count] = caller.GetTimeInCalledSubroutines();
+					}
+					count++;
+				}
+			}
+		}
+		else if (!callers && function.GetSubroutines() != null)
+		{
+			for (ProfiledSubroutine subroutine : function.GetSubroutines())
+			{
+				int other = report.FindRow(subroutine.GetID(), report.GetFunctionTable().FindNameID(subroutine.GetName()));
+				if (other >= 0)
+				{
+					if (fill)
+					{
+						rows[start + count] = other;
+						callCounts[start + count] = subroutine.GetCallCount();
+						selfTimes[start + count] = subroutine.GetTimeInSubroutineSelf();
+						childTimes[start + count] = subroutine.GetTimeInSubroutineSubroutines();
+					}
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+}
@@ -33,6 +33,8 @@ package org.eclipse.cdt.gprof.core.profiled;
  * 
  * This class represents a function that is a caller of a given profiled function that we are interested in.
  * 
+ * The callers retrieved from a function are views over the arc table of the function's {@link ProfiledFunctionTable}.
+ * 
  * @author chrisculy
  */
 public class ProfiledCaller
@@ -52,6 +54,12 @@ public class ProfiledCaller
 	/** Holds the amount of time spent in the given function's subroutines. */
 	private float timeInCalledSubroutines;
 	
+	/** Holds the arc table the caller is a view over (<code>null</code> if the caller holds its own data). */
+	private ProfiledArcTable arcs;
+	
+	/** Holds the arc of the caller within the arc table. */
+	private int arc;
+	
 	/**
 	 * Constructor.
 	 */
@@ -66,6 +74,18 @@ public class ProfiledCaller
         this.timeInCalledSubroutines = -1f;
 	}
 	
+	/**
+	 * Constructs the caller as a view over the given arc.
+	 * 
+	 * @param arcs The arc table.
+	 * @param arc The arc.
+	 */
+	ProfiledCaller(ProfiledArcTable arcs, int arc)
+	{
+		this.arcs = arcs;
+		this.arc = arc;
+	}
+	
 	/**
 	 * Retrieves the caller's ID.
 	 * 
@@ -73,7 +93,7 @@ public class ProfiledCaller
 	 */
 	public int GetID()
 	{
-		return this.id;
+		return this.arcs != null ? this.arcs.GetCallerID(this.arc) : this.id;
 	}
 	
 	/**
@@ -83,7 +103,7 @@ public class ProfiledCaller
      */
     public String GetName()
     {
-        return this.name;
+        return this.arcs != null ? this.arcs.GetCallerName(this.arc) : this.name;
     }
 	
 	/**
@@ -93,7 +113,7 @@ public class ProfiledCaller
 	 */
 	public int GetCallCount()
 	{
-		return this.callCount;
+		return this.arcs != null ? (int)this.arcs.GetCallCount(this.arc) : this.callCount;
 	}
 	
 	/**
@@ -103,7 +123,7 @@ public class ProfiledCaller
 	 */
 	public float GetTimeInCalledSelf()
 	{
-		return this.timeInCalledSelf;
+		return this.arcs != null ? (float)this.arcs.GetSelfTime(this.arc) : this.timeInCalledSelf;
 	}
 	
 	/**
@@ -113,7 +133,7 @@ public class ProfiledCaller
 	 */
 	public float GetTimeInCalledSubroutines()
 	{
-		return this.timeInCalledSubroutines;
+		return this.arcs != null ? (float)this.arcs.GetChildTime(this.arc) : this.timeInCalledSubroutines;
 	}
 	
 	/**
@@ -123,7 +143,14 @@ public class ProfiledCaller
 	 */
 	public void SetID(int id)
 	{
-		this.id = id;
+		if (this.arcs != null)
+		{
+			this.arcs.SetCallerID(this.arc, id);
+		}
+		else
+		{
+			this.id = id;
+		}
 	}
 	
 	/**
@@ -133,7 +160,14 @@ public class ProfiledCaller
      */
     public void SetName(String name)
     {
-        this.name = name;
+        if (this.arcs != null)
+        {
+            this.arcs.SetCallerName(this.arc, name);
+        }
+        else
+        {
+            this.name = name;
+        }
     }
 	
 	/**
@@ -143,7 +177,14 @@ public class ProfiledCaller
 	 */
 	public void SetCallCount(int callCount)
 	{
-		this.callCount = callCount;
+		if (this.arcs != null)
+		{
+			this.arcs.SetCallCount(this.arc, callCount);
+		}
+		else
+		{
+			this.callCount = callCount;
+		}
 	}
 	
 	/**
@@ -153,7 +194,14 @@ public class ProfiledCaller
 	 */
 	public void SetTimeInCalledSelf(float timeInCalledSelf)
 	{
-		this.timeInCalledSelf = timeInCalledSelf;
+		if (this.arcs != null)
+		{
+			this.arcs.SetSelfTime(this.arc, timeInCalledSelf);
+		}
+		else
+		{
+			this.timeInCalledSelf = timeInCalledSelf;
+		}
 	}
 	
 	/**
@@ -163,6 +211,24 @@ public class ProfiledCaller
 	 */
 	public void SetTimeInCalledSubroutines(float timeInCalledSubroutines)
 	{
-		this.timeInCalledSubroutines = timeInCalledSubroutines;
+		if (this.arcs != null)
+		{
+			this.arcs.SetChildTime(this.arc, timeInCalledSubroutines);
+		}
+		else
+		{
+			this.timeInCalledSubroutines = timeInCalledSubroutines;
+		}
+	}
+	
+	/**
+	 * Retrieves the arc the caller is a view over within the given arc table.
+	 * 
+	 * @param arcs The arc table.
+	 * @return The arc or -1 if the caller is not a view over an arc of the given table.
+	 */
+	int GetArc(ProfiledArcTable arcs)
+	{
+		return this.arcs == arcs && arcs != null ? this.arc : -1;
 	}
 }
@@ -0,0 +1,312 @@
+/*
+ * =======================================================================
+ * ============================ gprof-eclipse ============================
+ * =======================================================================
+ * 
+ * 
+ * File: ProfiledCondensedGraph.java
+ * 
+ * 
+ * -----------------------------------------------------------------------
+ * Copyright (c) 2009 Chris Culy and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * + Chris Culy - initial API and implementation
+ * -----------------------------------------------------------------------
+ * 
+ * 
+ * Last changed:
+ * $Revision$
+ * $Author$
+ * $Date$
+ */
+
+package org.eclipse.cdt.gprof.core.profiled;
+
+import java.util.Arrays;
+
+/**
+ * Holds the call graph of a profiler report condensed into its strongly connected components: the functions that call each other
+ * (directly or through other functions) form a component, the cycle that gprof reports as <code>&lt;cycle N as a whole&gt;</code>.
+ * 
+ * The components are found by Tarjan's algorithm (see {@link ProfiledGraphs#FindComponents(int, int[], int[], int[])}) in time linear
+ * in the size of the call graph. Every function belongs to exactly one component, most of them to a component of its own; a component
+ * is a cycle if it holds more than one function or its function calls itself. The components are numbered in topological order of the
+ * condensed graph, which is acyclic: the subroutine arcs of a component only lead to components with a higher index, so visiting the
+ * components in descending order visits every component after all of its subroutines (and thus allows inclusive analyses in a single
+ * pass). Parallel arcs between two components are merged, adding up their call counts and times; arcs within a component are left out.
+ * 
+ * @author chrisculy
+ */
+public final class ProfiledCondensedGraph
+{
+	/** Holds the component of each function. */
+	private final int[] components;
+	
+	/** Holds the number of components. */
+	private final int componentCount;
+	
+	/** Holds the index of the first function of each component within the functions by component (plus their number at the end). */
+	private final int[] memberOffsets;
+	
+	/** Holds the rows of the functions ordered by component. */
+	private final int[] members;
+	
+	/** Holds the cycle number of each component (from 1 in the order of the components; 0 if the component is not a cycle). */
+	private final int[] cycles;
+	
+	/** Holds the number of cycles. */
+	private int cycleCount;
+	
+	/** Holds the index of the first arc of each component (plus the total number of arcs at the end). */
+	private final int[] arcOffsets;
+	
+	/** Holds the subroutine component of each arc. */
+	private final int[] arcComponents;
+	
+	/** Holds the number of calls along each arc. */
+	private final long[] arcCallCounts;
+	
+	/** Holds the time propagated along each arc into the subroutine component itself. */
+	private final double[] arcSelfTimes;
+	
+	/** Holds the time propagated along each arc into the subroutines of the subroutine component. */
+	private final double[] arcChildTimes;
+	
+	/**
+	 * Condenses the given call graph.
+	 * 
+	 * @param callGraph The call graph.
+	 */
+	ProfiledCondensedGraph(ProfiledCallGraph callGraph)
+	{
+		int functionCount = callGraph.GetFunctionCount();
+		this.components = new int[functionCount];
+		
+		// Find the components (in reverse topological order) and number them topologically.
+		this.componentCount = ProfiledGraphs.FindComponents(functionCount, callGraph.GetSubroutineOffsets(), callGraph
+			.GetSubroutineRows(), this.components);
+		for (int row = 0; row < functionCount; row++)
+		{
+			this.components[row] = this.componentCount - 1 - this.components[row];
+		}
+		
+		// Group the functions by component.
+		this.memberOffsets = new int[this.componentCount + 1];
+		this.members = ProfiledGraphs.Group(this.components, functionCount, this.componentCount, this.memberOffsets);
+		
+		// Merge the arcs between the components (and number the cycles).
+		this.cycles = new int[this.componentCount];
+		this.arcOffsets = new int[this.componentCount + 1];
+		int capacity = Math.max(callGraph.GetSubroutineArcCount(), 1);
+		this.arcComponents = new int[capacity];
+		this.arcCallCounts = new long[capacity];
+		this.arcSelfTimes = new double[capacity];
+		this.arcChildTimes = new double[capacity];
+		int[] arcsByComponent = new int[this.componentCount];
+		Arrays.fill(arcsByComponent, -1);
+		int arcCount = 0;
+		for (int component = 0; component < this.componentCount; component++)
+		{
+			boolean cycle = this.memberOffsets[component + 1] - this.memberOffsets[component] > 1;
+			int firstArc = arcCount;
+			for (int member = this.memberOffsets[component]; member < this.memberOffsets[component + 1]; member++)
+			{
+				int row = this.members[member];
+				for (int arc = callGraph.GetSubroutineArcsStart(row); arc < callGraph.GetSubroutineArcsEnd(row); arc++)
+				{
+					int subroutine = this.components[callGraph.GetSubroutineRow(arc)];
+					if (subroutine == component)
+					{
+						cycle = true;
+						continue;
+					}
+					
+					// Merge the arc into the arc to the subroutine component (adding the arc if it is the first).
+					int merged = arcsByComponent[subroutine];
+					if (merged < firstArc)
+					{
+						merged = arcCount++;
+						arcsByComponent[subroutine] = merged;
+						this.arcComponents[merged] = subroutine;
+					}
+					this.arcCallCounts[merged] += Math.max(callGraph.GetSubroutineCallCount(arc), 0);
+					this.arcSelfTimes[merged] += Math.max(callGraph.GetSubroutineSelfTime(arc), 0);
+					this.arcChildTimes[merged] += Math.max(callGraph.GetSubroutineChildTime(arc), 0);
+				}
+			}
+			this.arcOffsets[component + 1] = arcCount;
+			if (cycle)
+			{
+				this.cycles[component] = ++this.cycleCount;
+			}
+		}
+	}
+	
+	/**
+	 * Retrieves the number of components.
+	 * 
+	 * @return The number of components.
+	 */
+	public int GetComponentCount()
+	{
+		return this.componentCount;
+	}
+	
+	/**
+	 * Retrieves the component of the function in the given row.
+	 * 
+	 * @param row The row of the function.
+	 * @return The component.
+	 */
+	public int GetComponent(int row)
+	{
+		return this.components[row];
+	}
+	
+	/**
+	 * Retrieves the index of the first function of the given component (within the functions ordered by component).
+	 * 
+	 * @param component The component.
+	 * @return The index of the first function.
+	 */
+	public int GetMembersStart(int component)
+	{
+		return this.memberOffsets[component];
+	}
+	
+	/**
+	 * Retrieves the index following the last function of the given component (within the functions ordered by component).
+	 * 
+	 * @param component The component.
+	 * @return The index of the end of the functions (exclusive).
+	 */
+	public int GetMembersEnd(int component)
+	{
+		return this.memberOffsets[component + 1];
+	}
+	
+	/**
+	 * Retrieves the row of the function at the given index of the functions ordered by component.
+	 * 
+	 * @param member The index of the function.
+	 * @return The row of the function.
+	 */
+	public int GetMemberRow(int member)
+	{
+		return this.members[member];
+	}
+	
+	/**
+	 * Retrieves the number of cycles (components of more than one function or of a function that calls itself).
+	 * 
+	 * @return The number of cycles.
+	 */
+	public int GetCycleCount()
+	{
+		return this.cycleCount;
+	}
+	
+	/**
+	 * Retrieves the cycle that the function in the given row is part of.
+	 * 
+	 * @param row The row of the function.
+	 * @return The cycle number (from 1) or 0 if the function is not part of a cycle.
+	 */
+	public int GetCycle(int row)
+	{
+		return this.cycles[this.components[row]];
+	}
+	
+	/**
+	 * Retrieves the cycle number of the given component.
+	 * 
+	 * @param component The component.
+	 * @return The cycle number (from 1) or 0 if the component is not a cycle.
+	 */
+	public int GetComponentCycle(int component)
+	{
+		return this.cycles[component];
+	}
+	
+	/**
+	 * Retrieves the total number of arcs between the components.
+	 * 
+	 * @return The number of arcs.
+	 */
+	public int GetArcCount()
+	{
+		return this.arcOffsets[this.componentCount];
+	}
+	
+	/**
+	 * Retrieves the index of the first arc from the given component to its subroutine components.
+	 * 
+	 * @param component The component.
+	 * @return The index of the first arc.
+	 */
+	public int GetArcsStart(int component)
+	{
+		return this.arcOffsets[component];
+	}
+	
+	/**
+	 * Retrieves the index following the last arc from the given component to its subroutine components.
+	 * 
+	 * @param component The component.
+	 * @return The index of the end of the arcs (exclusive).
+	 */
+	public int GetArcsEnd(int component)
+	{
+		return this.arcOffsets[component + 1];
+	}
+	
+	/**
+	 * Retrieves the subroutine component of the given arc (which is always higher than the component the arc leads from).
+	 * 
+	 * @param arc The index of the arc.
+	 * @return The subroutine component.
+	 */
+	public int GetArcComponent(int arc)
+	{
+		return this.arcComponents[arc];
+	}
+	
+	/**
+	 * Retrieves the number of calls along the given arc (the calls along all the arcs of the call graph that it merges).
+	 * 
+	 * @param arc The index of the arc.
+	 * @return The call count.
+	 */
+	public long GetArcCallCount(int arc)
+	{
+		return this.arcCallCounts[arc];
+	}
+	
+	/**
+	 * Retrieves the time propagated along the given arc into the functions of the subroutine component themselves.
+	 * 
+	 * @param arc The index of the arc.
+	 * @return The self time.
+	 */
+	public double GetArcSelfTime(int arc)
+	{
+		return this.arcSelfTimes[arc];
+	}
+	
+	/**
+	 * Retrieves the time propagated along the given arc into the subroutines of the functions of the subroutine component.
+	 * 
+	 * @param arc The index of the arc.
+	 * @return The child time.
+	 */
+	public double GetArcChildTime(int arc)
+	{
+		return this.arcChildTimes[arc];
+	}
+}
@@ -0,0 +1,330 @@
+/*
+ * =======================================================================
+ * ============================ gprof-eclipse ============================
+ * =======================================================================
+ * 
+ * 
+ * File: ProfiledDominatorTree.java
+ * 
+ * 
+ * -----------------------------------------------------------------------
+ * Copyright (c) 2009 Chris Culy and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * + Chris Culy - initial API and implementation
+ * -----------------------------------------------------------------------
+ * 
+ * 
+ * Last changed:
+ * $Revision$
+ * $Author$
+ * $Date$
+ */
+
+package org.eclipse.cdt.gprof.core.profiled;
+
+import java.util.Arrays;
+
+/**
+ * Holds the dominator tree of the call graph of a profiler report: a function dominates another if every call path from the root to
+ * the other function runs through it, so optimizing a function away takes the time of all the functions it dominates with it.
+ * 
+ * The tree is rooted at a given function (i.e. <code>main</code>) or at the entries of the call graph, the functions that have no
+ * callers within the report (the ones gprof lists as called <code>&lt;spontaneous&gt;</code>), in which case the entries hang off a
+ * virtual root and have no immediate dominator of their own. Functions only reachable through a cycle that nothing outside calls are
+ * treated as entries as well. The immediate dominators are computed by the iterative algorithm of Cooper, Harvey and Kennedy over
+ * primitive arrays in the reverse postorder of a depth first search; on call graphs this converges after very few passes, each of which
+ * is linear in the number of arcs. The self time of the functions dominated by each function is summed bottom up over the tree.
+ * 
+ * @author chrisculy
+ */
+public final class ProfiledDominatorTree
+{
+	/** Holds the immediate dominator of each function (-1 for the root, the entries and the functions not reachable from the root). */
+	private final int[] dominators;
+	
+	/** Holds the self time of each function and the functions it dominates. */
+	private final double[] dominatedSelfTimes;
+	
+	/** Holds the index of the first function each function immediately dominates (plus their total number at the end). */
+	private final int[] childOffsets;
+	
+	/** Holds the rows of the functions ordered by immediate dominator. */
+	private final int[] children;
+	
+	/** Holds the rows of the functions at the top of the tree (the root or the entries). */
+	private final int[] roots;
+	
+	/**
+	 * Computes the dominator tree of the given call graph.
+	 * 
+	 * @param callGraph The call graph.
+	 * @param table The function table of the call graph's functions (for their self time).
+	 * @param root The row of the root function or -1 to root the tree at the entries of the call graph.
+	 */
+	ProfiledDominatorTree(ProfiledCallGraph callGraph, ProfiledFunctionTable table, int root)
+	{
+		int functionCount = callGraph.GetFunctionCount();
+		int virtualRoot = functionCount;
+		
+		// Number the functions reachable from the root (or the virtual root) in postorder.
+		boolean[] entries = new boolean[functionCount];
+		int[] postorder = new int[functionCount + 1];
+		Arrays.fill(postorder, -1);
+		int[] rowsByPostorder = new int[functionCount + 1];
+		int reached = 0;
+		if (root >= 0)
+		{
+			reached = Number(callGraph, root, postorder, rowsByPostorder, reached);
+		}
+		else
+		{
+			for (int row = 0; row < functionCount; row++)
+			{
+				if (callGraph.GetCallerArcsStart(row) == callGraph.GetCallerArcsEnd(row))
+				{
+					entries[row] = true;
+					reached = Number(callGraph, row, postorder, rowsByPostorder, reached);
+				}
+			}
+			for (int row = 0; row < functionCount; row++)
+			{
+				if (postorder[row] < 0)
+				{
+					entries[row] = true;
+					reached = Number(callGraph, row, postorder, rowsByPostorder, reached);
+				}
+			}
+			postorder[virtualRoot] = reached;
+			rowsByPostorder[reached++] = virtualRoot;
+		}
+		
+		// Iterate the immediate dominators (by postorder number) in reverse postorder until they settle.
+		int top = reached - 1;
+		int[] dominators = new int[reached];
+		Arrays.fill(dominators, -1);
+		dominators[top] = top;
+		boolean changed = true;
+		while (changed)
+		{
+			changed = false;
+			for (int node = top - 1; node >= 0; node--)
+			{
+				int row = rowsByPostorder[node];
+				int dominator = entries[row] ? top : -1;
+				for (int arc = callGraph.GetCallerArcsStart(row); arc < callGraph.GetCallerArcsEnd(row); arc++)
+				{
+					int caller = postorder[callGraph.GetCallerRow(arc)];
+					if (caller >= 0 && dominators[caller] >= 0)
+					{
+						dominator = dominator < 0 ? caller : Intersect(dominators, caller, dominator);
+					}
+				}
+				if (dominators[node] != dominator)
+				{
+					dominators[node] = dominator;
+					changed = true;
+				}
+			}
+		}
+		
+		// Map the immediate dominators back to rows, counting the functions each function dominates immediately.
+		this.dominators = new int[functionCount];
+		Arrays.fill(this.dominators, -1);
+		this.childOffsets = new int[functionCount + 1];
+		int rootCount = 0;
+		for (int node = 0; node < top; node++)
+		{
+			int dominator = rowsByPostorder[dominators[node]];
+			if (dominator == virtualRoot)
+			{
+				rootCount++;
+			}
+			else
+			{
+				this.dominators[rowsByPostorder[node]] = dominator;
+				this.childOffsets[dominator + 1]++;
+			}
+		}
+		for (int row = 0; row < functionCount; row++)
+		{
+			this.childOffsets[row + 1] += this.childOffsets[row];
+		}
+		
+		// Fill in the children and the roots, summing the self times bottom up (every function comes before its dominator in postorder).
+		this.children = new int[this.childOffsets[functionCount]];
+		this.roots = new int[root >= 0 ? 1 : rootCount];
+		this.dominatedSelfTimes = new double[functionCount];
+		int[] next = Arrays.copyOf(this.childOffsets, functionCount);
+		rootCount = 0;
+		if (root >= 0)
+		{
+			this.roots[rootCount++] = root;
+		}
+		for (int node = 0; node < reached; node++)
+		{
+			int row = rowsByPostorder[node];
+			if (row == virtualRoot)
+			{
+				continue;
+			}
+			this.dominatedSelfTimes[row] += Math.max(table.GetStat(ProfiledFunctionTable.STAT_SELF_TIME, row), 0);
+			int dominator = this.dominators[row];
+			if (dominator >= 0)
+			{
+				this.children[next[dominator]++] = row;
+				this.dominatedSelfTimes[dominator] += this.dominatedSelfTimes[row];
+			}
+			else if (row != root)
+			{
+				this.roots[rootCount++] = row;
+			}
+		}
+	}
+	
+	/**
+	 * Retrieves the immediate dominator of the function in the given row.
+	 * 
+	 * @param row The row of the function.
+	 * @return The row of the immediate dominator or -1 if the function is at the top of the tree (or not reachable from the root).
+	 */
+	public int GetImmediateDominator(int row)
+	{
+		return this.dominators[row];
+	}
+	
+	/**
+	 * Retrieves the self time of the function in the given row plus that of all the functions it dominates (the time that would go away
+	 * with the function).
+	 * 
+	 * @param row The row of the function.
+	 * @return The dominated self time (zero for the functions not reachable from the root).
+	 */
+	public double GetDominatedSelfTime(int row)
+	{
+		return this.dominatedSelfTimes[row];
+	}
+	
+	/**
+	 * Retrieves the rows of the functions at the top of the tree (the root or the entries of the call graph).
+	 * 
+	 * @return The rows of the functions.
+	 */
+	public int[] GetRoots()
+	{
+		return this.roots.clone();
+	}
+	
+	/**
+	 * Retrieves the index of the first function that the function in the given row immediately dominates.
+	 * 
+	 * @param row The row of the function.
+	 * @return The index of the first child.
+	 */
+	public int GetChildrenStart(int row)
+	{
+		return this.childOffsets[row];
+	}
+	
+	/**
+	 * Retrieves the index following the last function that the function in the given row immediately dominates.
+	 * 
+	 * @param row The row of the function.
+	 * @return The index of the end of the children (exclusive).
+	 */
+	public int GetChildrenEnd(int row)
+	{
+		return this.childOffsets[row + 1];
+	}
+	
+	/**
+	 * Retrieves the row of the function at the given index of the functions ordered by immediate dominator.
+	 * 
+	 * @param child The index of the child.
+	 * @return The row of the function.
+	 */
+	public int GetChildRow(int child)
+	{
+		return this.children[child];
+	}
+	
+	/**
+	 * Numbers the functions reachable from the given function that have not been numbered yet in postorder of a depth first search
+	 * (without recursing, so that deep call graphs do not overflow the stack).
+	 * 
+	 * @param callGraph The call graph.
+	 * @param start The row of the function to search from.
+	 * @param postorder The postorder number of each function (-1 for the functions not numbered yet).
+	 * @param rowsByPostorder The rows of the functions by postorder number.
+	 * @param count The number of functions numbered so far.
+	 * @return The number of functions numbered.
+	 */
+	private static int Number(ProfiledCallGraph callGraph, int start, int[] postorder, int[] rowsByPostorder, int count)
+	{
+		// Mark the functions on the search path (or searched) so that they are not entered again.
+		int[] searchRows = new int[16];
+		int[] searchArcs = new int[16];
+		int depth = 0;
+		searchRows[0] = start;
+		searchArcs[0] = callGraph.GetSubroutineArcsStart(start);
+		postorder[start] = Integer.MAX_VALUE;
+		while (depth >= 0)
+		{
+			int row = searchRows[depth];
+			int arc = searchArcs[depth];
+			if (arc < callGraph.GetSubroutineArcsEnd(row))
+			{
+				searchArcs[depth] = arc + 1;
+				int subroutine = callGraph.GetSubroutineRow(arc);
+				if (postorder[subroutine] < 0)
+				{
+					postorder[subroutine] = Integer.MAX_VALUE;
+					if (++depth == searchRows.length)
+					{
+						searchRows = Arrays.copyOf(searchRows, depth * 2);
+						searchArcs = Arrays.copyOf(searchArcs, depth * 2);
+					}
+					searchRows[depth] = subroutine;
+					searchArcs[depth] = callGraph.GetSubroutineArcsStart(subroutine);
+				}
+			}
+			else
+			{
+				postorder[row] = count;
+				rowsByPostorder[count++] = row;
+				depth--;
+			}
+		}
+		return count;
+	}
+	
+	/**
+	 * Retrieves the nearest common dominator of the given nodes by walking up the dominators found so far (postorder numbers increase
+	 * towards the root).
+	 * 
+	 * @param dominators The immediate dominators found so far (by postorder number).
+	 * @param node The postorder number of the first node.
+	 * @param otherNode The postorder number of the second node.
+	 * @return The postorder number of the common dominator.
+	 */
+	private static int Intersect(int[] dominators, int node, int otherNode)
+	{
+		while (node != otherNode)
+		{
+			while (node < otherNode)
+			{
+				node = dominators[node];
+			}
+			while (otherNode < node)
+			{
+				otherNode = dominators[otherNode];
+			}
+		}
+		return node;
+	}
+}
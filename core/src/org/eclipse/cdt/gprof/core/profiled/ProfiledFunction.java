@@ -29,68 +29,142 @@
 package org.eclipse.cdt.gprof.core.profiled;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 
 /**
  * Represents a function that has been profiled.
  * 
+ * The function's statistics are held by a {@link ProfiledFunctionTable} once the function has been added to a report; the function
+ * itself is then merely a view over its row. Until then, the function holds its own data.
+ * 
  * @author chrisculy
  */
 public class ProfiledFunction
 {
-	// =============== Profiled Function Statistics Constants ============== //
-	
-    private static final int STAT_PERCENT_TOTAL_SELF_TIME_INDEX = 0;
-    
-	private static final int STAT_PERCENT_TOTAL_TIME_INDEX = 1;
-	
-	private static final int STAT_SELF_TIME_INDEX = 2;
-	
-	private static final int STAT_SUBROUTINE_TIME_INDEX = 3;
-	
-	private static final int STAT_TOTAL_TIME_INDEX = 4;
-	
-	private static final int STAT_CALL_COUNT_INDEX = 5;
-	
-	private static final int STAT_RECURSIVE_CALL_COUNT_INDEX = 6;
-	
-	private static final int STAT_SELF_MS_PER_CALL_INDEX = 7;
-	
-	private static final int STAT_TOTAL_MS_PER_CALL_INDEX = 8;
-	
-	private static final int STAT_COUNT = 9;
-	
-	// =============== Profiled Function Statistics Constants ============== //
+	/**
+	 * Holds the data of a function that has not been added to a report yet.
+	 */
+	private static final class StandaloneData
+	{
+		/** Holds the ID of the function. */
+		public int id = -1;
+		
+		/** Holds the name of the function. */
+		public String name;
+		
+		/** Holds the statistics of the function indexed by statistic (see the <code>ProfiledFunctionTable.STAT_</code> constants). */
+		public final double[] stats = new double[ProfiledFunctionTable.STAT_COUNT];
+		
+		/** Holds the call count of the function. */
+		public long callCount = -1;
+		
+		/** Holds the recursive call count of the function. */
+		public long recursiveCallCount = -1;
+		
+		/**
+		 * Constructor.
+		 */
+		public StandaloneData()
+		{
+			Arrays.fill(this.stats, -1);
+		}
+	}
 	
-	/** Holds the ID of the function. */
-	private int id;
+	/** Holds the table the function's data is stored in (<code>null</code> until the function is added to a report). */
+	private ProfiledFunctionTable table;
 	
-	/** The name of the profiled function. */
-	private String name;
+	/** Holds the row of the function within its table. */
+	private int row;
 	
-	/** Holds the various statistics of the profiled function. */
-	private float[] stats = new float[STAT_COUNT];
+	/** Holds the data of the function until it is added to a report (<code>null</code> from then on). */
+	private StandaloneData data;
 	
-	/** Holds the callers of this function. */
+	/** Holds the callers of the function until they are stored as arcs (i.e. until the function has been added to a report and named). */
 	private ArrayList<ProfiledCaller> callers;
 	
-	/** Holds the subroutines of this function. */
+	/** Holds the subroutines of the function until they are stored as arcs (see {@link #callers}). */
 	private ArrayList<ProfiledSubroutine> subroutines;
 	
 	/**
 	 * Constructor.
+	 * 
+	 * The function holds its own data until it is added to a report, which moves the data into the report's table (so parsing a
+	 * function does not cost a table of its own).
 	 */
 	public ProfiledFunction()
 	{
-		// Set all variables to invalid "flag" variables.
+		// All entries of the data are set to invalid "flag" variables.
 	    // This object should be parsed into, not initialized properly by default.
-	    this.id = -1;
-	    this.name = null;
-	    for (int i = 0; i < this.stats.length; i++)
-        {
-	        this.stats[i] = -1f;
-        }
-	    this.callers = null;
-	    this.subroutines = null;
+	    this.data = new StandaloneData();
+	    this.row = -1;
+	}
+	
+	/**
+	 * Constructs the profiled function as a view over the given row of the given table.
+	 * 
+	 * @param table The table.
+	 * @param row The row.
+	 */
+	ProfiledFunction(ProfiledFunctionTable table, int row)
+	{
+		this.table = table;
+		this.row = row;
+	}
+	
+	/**
+	 * Retrieves the table the profiled function's data is stored in.
+	 * 
+	 * @return The table (<code>null</code> if the function has not been added to a report).
+	 */
+	public ProfiledFunctionTable GetTable()
+	{
+		return this.table;
+	}
+	
+	/**
+	 * Retrieves the row of the profiled function within its table.
+	 * 
+	 * @return The row (-1 if the function has not been added to a report).
+	 */
+	public int GetRow()
+	{
+		return this.row;
+	}
+	
+	/**
+	 * Moves the profiled function's data into the given row of the given table (i.e. the table of the report it is added to).
+	 * 
+	 * @param table The table.
+	 * @param row The row.
+	 */
+	void MoveTo(ProfiledFunctionTable table, int row)
+	{
+		ArrayList<ProfiledCaller> callers = this.GetCallers();
+		ArrayList<ProfiledSubroutine> subroutines = this.GetSubroutines();
+		this.callers = null;
+		this.subroutines = null;
+		if (this.table != null)
+		{
+			table.CopyRow(this.table, this.row, row);
+		}
+		else
+		{
+			table.SetID(row, this.data.id);
+			table.SetName(row, this.data.name);
+			for (int stat = 0; stat < ProfiledFunctionTable.STAT_COUNT; stat++)
+			{
+				table.SetStat(stat, row, this.data.stats[stat]);
+			}
+			table.SetCallCount(row, this.data.callCount);
+			table.SetRecursiveCallCount(row, this.data.recursiveCallCount);
+			this.data = null;
+		}
+		this.table = table;
+		this.row = row;
+		
+		// Take the callers and subroutines along (as arcs of the new table).
+		this.SetCallers(callers);
+		this.SetSubroutines(subroutines);
 	}
 	
 	/**
@@ -100,7 +174,7 @@ public class ProfiledFunction
 	 */
 	public int GetID()
 	{
-		return this.id;
+		return this.table != null ? this.table.GetID(this.row) : this.data.id;
 	}
 	
 	/**
@@ -110,7 +184,7 @@ public class ProfiledFunction
 	 */
 	public String GetName()
 	{
-		return this.name;
+		return this.table != null ? this.table.GetName(this.row) : this.data.name;
 	}
 	
 	/**
@@ -120,7 +194,7 @@ public class ProfiledFunction
      */
     public float GetPercentTotalSelfTime()
     {
-        return this.stats[STAT_PERCENT_TOTAL_SELF_TIME_INDEX];
+        return (float)this.GetStat(ProfiledFunctionTable.STAT_PERCENT_TOTAL_SELF_TIME);
     }
 	
 	/**
@@ -130,7 +204,7 @@ public class ProfiledFunction
 	 */
 	public float GetPercentTotalTime()
 	{
-		return this.stats[STAT_PERCENT_TOTAL_TIME_INDEX];
+		return (float)this.GetStat(ProfiledFunctionTable.STAT_PERCENT_TOTAL_TIME);
 	}
 	
 	/**
@@ -140,7 +214,7 @@ public class ProfiledFunction
 	 */
 	public float GetSelfTime()
 	{
-		return this.stats[STAT_SELF_TIME_INDEX];
+		return (float)this.GetStat(ProfiledFunctionTable.STAT_SELF_TIME);
 	}
 	
 	/**
@@ -150,7 +224,7 @@ public class ProfiledFunction
 	 */
 	public float GetSubroutineTime()
 	{
-		return this.stats[STAT_SUBROUTINE_TIME_INDEX];
+		return (float)this.GetStat(ProfiledFunctionTable.STAT_SUBROUTINE_TIME);
 	}
 	
 	/**
@@ -160,7 +234,7 @@ public class ProfiledFunction
 	 */
 	public float GetTotalTime()
 	{
-		return this.stats[STAT_TOTAL_TIME_INDEX];
+		return (float)this.GetStat(ProfiledFunctionTable.STAT_TOTAL_TIME);
 	}
 	
 	/**
@@ -170,7 +244,7 @@ public class ProfiledFunction
 	 */
 	public int GetCallCount()
 	{
-		return (int)this.stats[STAT_CALL_COUNT_INDEX];
+		return (int)(this.table != null ? this.table.GetCallCount(this.row) : this.data.callCount);
 	}
 	
 	/**
@@ -180,7 +254,7 @@ public class ProfiledFunction
 	 */
 	public int GetRecursiveCallCount()
 	{
-		return (int)this.stats[STAT_RECURSIVE_CALL_COUNT_INDEX];
+		return (int)(this.table != null ? this.table.GetRecursiveCallCount(this.row) : this.data.recursiveCallCount);
 	}
 	
 	/**
@@ -190,7 +264,7 @@ public class ProfiledFunction
 	 */
 	public float GetSelfMSPerCall()
 	{
-		return this.stats[STAT_SELF_MS_PER_CALL_INDEX];
+		return (float)this.GetStat(ProfiledFunctionTable.STAT_SELF_MS_PER_CALL);
 	}
 	
 	/**
@@ -200,27 +274,54 @@ public class ProfiledFunction
 	 */
 	public float GetTotalMSPerCall()
 	{
-		return this.stats[STAT_TOTAL_MS_PER_CALL_INDEX];
+		return (float)this.GetStat(ProfiledFunctionTable.STAT_TOTAL_MS_PER_CALL);
 	}
 	
 	/**
 	 * Retrieves the callers of the profiled functions.
 	 * 
-	 * @return The callers of the profiled functions.
+	 * Once the function has been added to a report (and named), the callers are views over the arcs of the function's table and the
+	 * list writes changes through to the arcs: removing a caller removes the arc, so the function is removed from the subroutines of the
+	 * caller as well (and adding a caller adds the function to the subroutines of the caller).
+	 * 
+	 * @return The callers of the profiled functions or <code>null</code> if there are none.
 	 */
 	public ArrayList<ProfiledCaller> GetCallers()
 	{
-		return this.callers;
+		this.StorePendingArcs();
+		ProfiledArcTable arcs = this.table != null ? this.table.FindArcTable() : null;
+		if (arcs == null || this.table.GetNameID(this.row) < 0)
+		{
+			return this.callers;
+		}
+		if (arcs.GetFirstCallerArc(this.table.GetNameID(this.row)) < 0)
+		{
+			return null;
+		}
+		return new ProfiledArcList<ProfiledCaller>(this, arcs, true);
 	}
 	
 	/**
 	 * Retrieves the subroutines of the profiled function.
 	 * 
-	 * @return The subroutines of the profiled function.
+	 * Once the function has been added to a report (and named), the subroutines are views over the arcs of the function's table and the
+	 * list writes changes through to the arcs (see {@link #GetCallers()}).
+	 * 
+	 * @return The subroutines of the profiled function or <code>null</code> if there are none.
 	 */
 	public ArrayList<ProfiledSubroutine> GetSubroutines()
 	{
-		return this.subroutines;
+		this.StorePendingArcs();
+		ProfiledArcTable arcs = this.table != null ? this.table.FindArcTable() : null;
+		if (arcs == null || this.table.GetNameID(this.row) < 0)
+		{
+			return this.subroutines;
+		}
+		if (arcs.GetFirstSubroutineArc(this.table.GetNameID(this.row)) < 0)
+		{
+			return null;
+		}
+		return new ProfiledArcList<ProfiledSubroutine>(this, arcs, false);
 	}
 	
 	/**
@@ -230,7 +331,14 @@ public class ProfiledFunction
 	 */
 	public void SetID(int id)
 	{
-		this.id = id;
+		if (this.table != null)
+		{
+			this.table.SetID(this.row, id);
+		}
+		else
+		{
+			this.data.id = id;
+		}
 	}
 	
 	/**
@@ -240,7 +348,15 @@ public class ProfiledFunction
 	 */
 	public void SetName(String name)
 	{
-		this.name = name;
+		if (this.table != null)
+		{
+			this.table.SetName(this.row, name);
+			this.StorePendingArcs();
+		}
+		else
+		{
+			this.data.name = name;
+		}
 	}
 	
 	/**
@@ -250,7 +366,7 @@ public class ProfiledFunction
      */
     public void SetPercentTotalSelfTime(float percentTotalSelfTime)
     {
-        this.stats[STAT_PERCENT_TOTAL_SELF_TIME_INDEX] = percentTotalSelfTime;
+        this.SetStat(ProfiledFunctionTable.STAT_PERCENT_TOTAL_SELF_TIME, percentTotalSelfTime);
     }
 	
 	/**
@@ -260,7 +376,7 @@ public class ProfiledFunction
 	 */
 	public void SetPercentTotalTime(float percentTotalTime)
 	{
-		this.stats[STAT_PERCENT_TOTAL_TIME_INDEX] = percentTotalTime;
+		this.SetStat(ProfiledFunctionTable.STAT_PERCENT_TOTAL_TIME, percentTotalTime);
 	}
 	
 	/**
@@ -270,7 +386,7 @@ public class ProfiledFunction
 	 */
 	public void SetSelfTime(float selfTime)
 	{
-		this.stats[STAT_SELF_TIME_INDEX] = selfTime;
+		this.SetStat(ProfiledFunctionTable.STAT_SELF_TIME, selfTime);
 	}
 	
 	/**
@@ -280,7 +396,7 @@ public class ProfiledFunction
 	 */
 	public void SetSubroutineTime(float subroutineTime)
 	{
-		this.stats[STAT_SUBROUTINE_TIME_INDEX] = subroutineTime;
+		this.SetStat(ProfiledFunctionTable.STAT_SUBROUTINE_TIME, subroutineTime);
 	}
 	
 	/**
@@ -290,7 +406,7 @@ public class ProfiledFunction
 	 */
 	public void SetTotalTime(float totalTime)
 	{
-		this.stats[STAT_TOTAL_TIME_INDEX] = totalTime;
+		this.SetStat(ProfiledFunctionTable.STAT_TOTAL_TIME, totalTime);
 	}
 	
 	/**
@@ -300,7 +416,14 @@ public class ProfiledFunction
 	 */
 	public void SetCallCount(float callCount)
 	{
-		this.stats[STAT_CALL_COUNT_INDEX] = callCount;
+		if (this.table != null)
+		{
+			this.table.SetCallCount(this.row, (long)callCount);
+		}
+		else
+		{
+			this.data.callCount = (long)callCount;
+		}
 	}
 	
 	/**
@@ -310,7 +433,14 @@ public class ProfiledFunction
 	 */
 	public void SetRecursiveCallCount(int recursiveCallCount)
 	{
-		this.stats[STAT_RECURSIVE_CALL_COUNT_INDEX] = (float)recursiveCallCount;
+		if (this.table != null)
+		{
+			this.table.SetRecursiveCallCount(this.row, recursiveCallCount);
+		}
+		else
+		{
+			this.data.recursiveCallCount = recursiveCallCount;
+		}
 	}
 	
 	/**
@@ -320,7 +450,7 @@ public class ProfiledFunction
 	 */
 	public void SetSelfMSPerCall(float selfMSPerCall)
 	{
-		this.stats[STAT_SELF_MS_PER_CALL_INDEX] = selfMSPerCall;
+		this.SetStat(ProfiledFunctionTable.STAT_SELF_MS_PER_CALL, selfMSPerCall);
 	}
 	
 	/**
@@ -330,26 +460,87 @@ public class ProfiledFunction
 	 */
 	public void SetTotalMSPerCall(float totalMSPerCall)
 	{
-		this.stats[STAT_TOTAL_MS_PER_CALL_INDEX] = totalMSPerCall;
+		this.SetStat(ProfiledFunctionTable.STAT_TOTAL_MS_PER_CALL, totalMSPerCall);
 	}
 	
 	/**
 	 * Sets the callers of the profiled functions.
 	 * 
+	 * Once the function has been added to a report and named, the callers are stored as arcs of the function's table (merged with the same
+	 * arcs set as subroutines of the callers and followed by any arcs that have only been set that way), so the given list is not
+	 * retained; until then, the list is held by the function.
+	 * 
 	 * @param callers The callers of the profiled functions.
 	 */
 	public void SetCallers(ArrayList<ProfiledCaller> callers)
 	{
 		this.callers = callers;
+		this.StorePendingArcs();
 	}
 	
 	/**
 	 * Sets the subroutines of the profiled function.
 	 * 
+	 * Once the function has been added to a report and named, the subroutines are stored as arcs of the function's table (merged with the
+	 * same arcs set as callers of the subroutines and followed by any arcs that have only been set that way), so the given list is not
+	 * retained; until then, the list is held by the function.
+	 * 
 	 * @param subroutines The subroutines of the profiled function.
 	 */
 	public void SetSubroutines(ArrayList<ProfiledSubroutine> subroutines)
 	{
 		this.subroutines = subroutines;
+		this.StorePendingArcs();
+	}
+	
+	/**
+	 * Retrieves the given statistic of the profiled function.
+	 * 
+	 * @param stat The statistic (one of the <code>ProfiledFunctionTable.STAT_</code> constants).
+	 * @return The value of the statistic.
+	 */
+	private double GetStat(int stat)
+	{
+		return this.table != null ? this.table.GetStat(stat, this.row) : this.data.stats[stat];
+	}
+	
+	/**
+	 * Sets the given statistic of the profiled function.
+	 * 
+	 * @param stat The statistic (one of the <code>ProfiledFunctionTable.STAT_</code> constants).
+	 * @param value The value of the statistic.
+	 */
+	private void SetStat(int stat, double value)
+	{
+		if (this.table != null)
+		{
+			this.table.SetStat(stat, this.row, value);
+		}
+		else
+		{
+			this.data.stats[stat] = value;
+		}
+	}
+	
+	/**
+	 * Stores the callers and subroutines held by the profiled function as arcs of the function's table, once the function has been
+	 * added to a report and named (the arcs are keyed by the names of the functions).
+	 */
+	void StorePendingArcs()
+	{
+		if (this.table == null || this.table.GetNameID(this.row) < 0 || (this.callers == null && this.subroutines == null))
+		{
+			return;
+		}
+		if (this.callers != null && this.callers.size() > 0)
+		{
+			this.table.GetArcTable().SetCallers(this.GetName(), this.GetID(), this.callers);
+		}
+		if (this.subroutines != null && this.subroutines.size() > 0)
+		{
+			this.table.GetArcTable().SetSubroutines(this.GetName(), this.GetID(), this.subroutines);
+		}
+		this.callers = null;
+		this.subroutines = null;
 	}
 }
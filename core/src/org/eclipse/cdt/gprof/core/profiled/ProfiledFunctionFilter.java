@@ -0,0 +1,107 @@
+/*
+ * =======================================================================
+ * ============================ gprof-eclipse ============================
+ * =======================================================================
+ * 
+ * 
+ * File: ProfiledFunctionFilter.java
+ * 
+ * 
+ * -----------------------------------------------------------------------
+ * Copyright (c) 2009 Chris Culy and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * + Chris Culy - initial API and implementation
+ * -----------------------------------------------------------------------
+ * 
+ * 
+ * Last changed:
+ * $Revision$
+ * $Author$
+ * $Date$
+ */
+
+package org.eclipse.cdt.gprof.core.profiled;
+
+/**
+ * Selects the functions of a profiler report that a query considers (see
+ * {@link ProfilerReport#GetTopFunctions(int, int, ProfiledFunctionFilter)}). By default a filter accepts the functions whose name
+ * starts with the name prefix and whose call count is at least the minimum call count; subclasses may accept functions by any other
+ * criterion by overriding {@link #Accept(ProfiledFunctionTable, int)}.
+ * 
+ * @author chrisculy
+ */
+public class ProfiledFunctionFilter
+{
+	/** Holds the prefix that the names of the accepted functions start with (<code>null</code> for any name). */
+	private String namePrefix;
+	
+	/** Holds the minimum call count of the accepted functions (0 for any call count). */
+	private long minimumCallCount;
+	
+	/**
+	 * Retrieves the prefix that the names of the accepted functions start with.
+	 * 
+	 * @return The name prefix (<code>null</code> for any name).
+	 */
+	public String GetNamePrefix()
+	{
+		return this.namePrefix;
+	}
+	
+	/**
+	 * Sets the prefix that the names of the accepted functions start with.
+	 * 
+	 * @param namePrefix The name prefix (<code>null</code> for any name).
+	 */
+	public void SetNamePrefix(String namePrefix)
+	{
+		this.namePrefix = namePrefix;
+	}
+	
+	/**
+	 * Retrieves the minimum call count of the accepted functions.
+	 * 
+	 * @return The minimum call count (0 for any call count).
+	 */
+	public long GetMinimumCallCount()
+	{
+		return this.minimumCallCount;
+	}
+	
+	/**
+	 * Sets the minimum call count of the accepted functions. Functions without a call count are not accepted by a positive minimum.
+	 * 
+	 * @param minimumCallCount The minimum call count (0 for any call count).
+	 */
+	public void SetMinimumCallCount(long minimumCallCount)
+	{
+		this.minimumCallCount = minimumCallCount;
+	}
+	
+	/**
+	 * Retrieves whether the function in the given row of the given table is accepted.
+	 * 
+	 * @param table The function table.
+	 * @param row The row.
+	 * @return <code>true</code> if the function is accepted; <code>false</code> otherwise.
+	 */
+	public boolean Accept(ProfiledFunctionTable table, int row)
+	{
+		if (this.minimumCallCount > 0 && table.GetCallCount(row) < this.minimumCallCount)
+		{
+			return false;
+		}
+		if (this.namePrefix != null)
+		{
+			String name = table.GetName(row);
+			return name != null && name.startsWith(this.namePrefix);
+		}
+		return true;
+	}
+}
@@ -0,0 +1,492 @@
+/*
+ * =======================================================================
+ * ============================ gprof-eclipse ============================
+ * =======================================================================
+ * 
+ * 
+ * File: ProfiledFunctionTable.java
+ * 
+ * 
+ * -----------------------------------------------------------------------
+ * Copyright (c) 2009 Chris Culy and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * + Chris Culy - initial API and implementation
+ * -----------------------------------------------------------------------
+ * 
+ * 
+ * Last changed:
+ * $Revision$
+ * $Author$
+ * $Date$
+ */
+
+package org.eclipse.cdt.gprof.core.profiled;
+
+/**
+ * Holds the data of a set of profiled functions in columns, one primitive array per statistic, with a row per function.
+ * 
+ * A report of hundreds of thousands of functions thus costs a handful of arrays instead of several objects per function, and a
+ * statistic can be scanned across all functions without touching any other data. The functions' names are stored once in a name pool
+ * and referred to by ID. {@link ProfiledFunction} is a view over a single row of a table.
+ * 
+ * @author chrisculy
+ */
+public final class ProfiledFunctionTable
+{
+	// ============ Profiled Function Table Statistics Constants =========== //
+	
+	/** The percent of total program time that was spent in the function itself. */
+	public static final int STAT_PERCENT_TOTAL_SELF_TIME = 0;
+	
+	/** The percent of total program time that was spent in the function and its subroutines. */
+	public static final int STAT_PERCENT_TOTAL_TIME = 1;
+	
+	/** The amount of time spent in the function itself. */
+	public static final int STAT_SELF_TIME = 2;
+	
+	/** The amount of time spent in the function's subroutines. */
+	public static final int STAT_SUBROUTINE_TIME = 3;
+	
+	/** The total amount of time spent in the function (includes subroutines). */
+	public static final int STAT_TOTAL_TIME = 4;
+	
+	/** The average number of milliseconds spent in the function itself per call. */
+	public static final int STAT_SELF_MS_PER_CALL = 5;
+	
+	/** The average number of milliseconds spent in the function and its subroutines per call. */
+	public static final int STAT_TOTAL_MS_PER_CALL = 6;
+	
+	/** The number of statistics held in a column of their own. */
+	public static final int STAT_COUNT = 7;
+	
+	// ============ Profiled Function Table Statistics Constants =========== //
+	
+	/** Holds the value of a row's entries that have not been set. */
+	private static final int UNSET = -1;
+	
+	/** Holds the number of rows. */
+	private int rowCount;
+	
+	/** Holds the ID column. */
+	private int[] ids;
+	
+	/** Holds the name column (IDs within the name pool, -1 for no name). */
+	private int[] nameIDs;
+	
+	/** Holds the statistic columns indexed by statistic. */
+	private double[][] stats = new double[STAT_COUNT][];
+	
+	/** Holds the call count column. */
+	private long[] callCounts;
+	
+	/** Holds the recursive call count column. */
+	private long[] recursiveCallCounts;
+	
+	/** Holds the names of the functions. */
+	private ProfiledNamePool namePool;
+	
+	/** Holds the arcs between the functions (<code>null</code> until the first arc is added). */
+	private ProfiledArcTable arcTable;
+	
+	/** Holds the snapshot that the statistic and call count columns are still to be read from (<code>null</code> once read). */
+	private volatile ProfilerReportSnapshot.SnapshotSource pendingColumns;
+	
+	/** Holds the snapshot that the arc table is still to be read from (<code>null</code> once read). */
+	private volatile ProfilerReportSnapshot.SnapshotSource pendingArcs;
+	
+	/** Holds the number of modifications made to the table. */
+	private int modificationCount;
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param capacity The number of rows to make room for.
+	 */
+	public ProfiledFunctionTable(int capacity)
+	{
+		capacity = Math.max(capacity, 1);
+		this.ids = new int[capacity];
+		this.nameIDs = new int[capacity];
+		for (int i = 0; i < STAT_COUNT; i++)
+		{
+			this.stats[i] = new double[capacity];
+		}
+		this.callCounts = new long[capacity];
+		this.recursiveCallCounts = new long[capacity];
+		this.namePool = new ProfiledNamePool(capacity);
+	}
+	
+	/**
+	 * Constructs the table over the given columns as read from a snapshot. The statistic and call count columns and the arcs are read
+	 * from the snapshot once they are first used.
+	 * 
+	 * @param rowCount The number of rows.
+	 * @param ids The ID column.
+	 * @param nameIDs The name column.
+	 * @param namePool The names of the functions.
+	 * @param source The snapshot to read the remaining columns and the arcs from.
+	 */
+	ProfiledFunctionTable(int rowCount, int[] ids, int[] nameIDs, ProfiledNamePool namePool, ProfilerReportSnapshot.SnapshotSource source)
+	{
+		this.rowCount = rowCount;
+		this.ids = ids;
+		this.nameIDs = nameIDs;
+		this.namePool = namePool;
+		this.pendingColumns = source;
+		this.pendingArcs = source.HasArcs() ? source : null;
+	}
+	
+	/**
+	 * Retrieves the number of rows of the table.
+	 * 
+	 * @return The number of rows.
+	 */
+	public int GetRowCount()
+	{
+		return this.rowCount;
+	}
+	
+	/**
+	 * Retrieves the table holding the arcs of the call graph between the functions of this table.
+	 * 
+	 * @return The arc table.
+	 */
+	public ProfiledArcTable GetArcTable()
+	{
+		this.LoadArcs();
+		if (this.arcTable == null)
+		{
+			this.arcTable = new ProfiledArcTable(this.namePool);
+		}
+		return this.arcTable;
+	}
+	
+	/**
+	 * Retrieves the table holding the arcs of the call graph between the functions of this table, if any arcs have been added.
+	 * 
+	 * @return The arc table (<code>null</code> if no arcs have been added).
+	 */
+	ProfiledArcTable FindArcTable()
+	{
+		this.LoadArcs();
+		return this.arcTable;
+	}
+	
+	/**
+	 * Retrieves the names of the functions.
+	 * 
+	 * @return The name pool.
+	 */
+	ProfiledNamePool GetNamePool()
+	{
+		return this.namePool;
+	}
+	
+	/**
+	 * Retrieves the number of modifications made to the table (so that results derived from the table can tell whether they are stale).
+	 * 
+	 * @return The modification count.
+	 */
+	int GetModificationCount()
+	{
+		return this.modificationCount;
+	}
+	
+	/**
+	 * Adds a row to the table. All entries of the new row are set to invalid "flag" values (-1 and no name).
+	 * 
+	 * @return The index of the new row.
+	 */
+	public int AddRow()
+	{
+		this.LoadColumns();
+		this.modificationCount++;
+		if (this.rowCount == this.ids.length)
+		{
+			this.Grow(Math.max(this.ids.length * 2, 1));
+		}
+		
+		int row = this.rowCount++;
+		this.ids[row] = UNSET;
+		this.nameIDs[row] = UNSET;
+		for (int i = 0; i < STAT_COUNT; i++)
+		{
+			this.stats[i][row] = UNSET;
+		}
+		this.callCounts[row] = UNSET;
+		this.recursiveCallCounts[row] = UNSET;
+		return row;
+	}
+	
+	/**
+	 * Sets all entries of the given row to the entries of the given row of the given table.
+	 * 
+	 * @param source The table to copy from (may be this table).
+	 * @param sourceRow The row to copy from.
+	 * @param row The row to copy to.
+	 */
+	public void CopyRow(ProfiledFunctionTable source, int sourceRow, int row)
+	{
+		this.LoadColumns();
+		source.LoadColumns();
+		this.modificationCount++;
+		this.ids[row] = source.ids[sourceRow];
+		this.SetName(row, source.GetName(sourceRow));
+		for (int i = 0; i < STAT_COUNT; i++)
+		{
+			this.stats[i][row] = source.stats[i][sourceRow];
+		}
+		this.callCounts[row] = source.callCounts[sourceRow];
+		this.recursiveCallCounts[row] = source.recursiveCallCounts[sourceRow];
+	}
+	
+	/**
+	 * Retrieves the ID of the function in the given row.
+	 * 
+	 * @param row The row.
+	 * @return The ID.
+	 */
+	public int GetID(int row)
+	{
+		return this.ids[row];
+	}
+	
+	/**
+	 * Sets the ID of the function in the given row.
+	 * 
+	 * @param row The row.
+	 * @param id The ID.
+	 */
+	public void SetID(int row, int id)
+	{
+		this.modificationCount++;
+		this.ids[row] = id;
+	}
+	
+	/**
+	 * Retrieves the name of the function in the given row.
+	 * 
+	 * @param row The row.
+	 * @return The name (<code>null</code> if it has not been set).
+	 */
+	public String GetName(int row)
+	{
+		int nameID = this.nameIDs[row];
+		return nameID != UNSET ? this.namePool.Get(nameID) : null;
+	}
+	
+	/**
+	 * Retrieves the ID of the name of the function in the given row. Functions with the same name have the same name ID.
+	 * 
+	 * @param row The row.
+	 * @return The name ID (-1 if the name has not been set).
+	 */
+	public int GetNameID(int row)
+	{
+		return this.nameIDs[row];
+	}
+	
+	/**
+	 * Retrieves the ID of the given name.
+	 * 
+	 * @param name The name.
+	 * @return The name ID or -1 if no function of the table has (or had) the given name.
+	 */
+	public int FindNameID(String name)
+	{
+		return this.namePool.Find(name);
+	}
+	
+	/**
+	 * Retrieves the number of distinct names held by the table (the name IDs range from 0 to one less than the count).
+	 * 
+	 * @return The number of names.
+	 */
+	public int GetNameCount()
+	{
+		return this.namePool.GetCount();
+	}
+	
+	/**
+	 * Sets the name of the function in the given row.
+	 * 
+	 * @param row The row.
+	 * @param name The name.
+	 */
+	public void SetName(int row, String name)
+	{
+		this.modificationCount++;
+		this.nameIDs[row] = name != null ? this.namePool.Intern(name) : UNSET;
+	}
+	
+	/**
+	 * Retrieves the given statistic of the function in the given row.
+	 * 
+	 * @param stat The statistic (one of the <code>STAT_</code> constants).
+	 * @param row The row.
+	 * @return The value of the statistic.
+	 */
+	public double GetStat(int stat, int row)
+	{
+		this.LoadColumns();
+		return this.stats[stat][row];
+	}
+	
+	/**
+	 * Sets the given statistic of the function in the given row.
+	 * 
+	 * @param stat The statistic (one of the <code>STAT_</code> constants).
+	 * @param row The row.
+	 * @param value The value of the statistic.
+	 */
+	public void SetStat(int stat, int row, double value)
+	{
+		this.LoadColumns();
+		this.modificationCount++;
+		this.stats[stat][row] = value;
+	}
+	
+	/**
+	 * Retrieves the number of times the function in the given row was called.
+	 * 
+	 * @param row The row.
+	 * @return The call count.
+	 */
+	public long GetCallCount(int row)
+	{
+		this.LoadColumns();
+		return this.callCounts[row];
+	}
+	
+	/**
+	 * Sets the number of times the function in the given row was called.
+	 * 
+	 * @param row The row.
+	 * @param callCount The call count.
+	 */
+	public void SetCallCount(int row, long callCount)
+	{
+		this.LoadColumns();
+		this.modificationCount++;
+		this.callCounts[row] = callCount;
+	}
+	
+	/**
+	 * Retrieves the number of times the function in the given row was called recursively.
+	 * 
+	 * @param row The row.
+	 * @return The recursive call count.
+	 */
+	public long GetRecursiveCallCount(int row)
+	{
+		this.LoadColumns();
+		return this.recursiveCallCounts[row];
+	}
+	
+	/**
+	 * Sets the number of times the function in the given row was called recursively.
+	 * 
+	 * @param row The row.
+	 * @param recursiveCallCount The recursive call count.
+	 */
+	public void SetRecursiveCallCount(int row, long recursiveCallCount)
+	{
+		this.LoadColumns();
+		this.modificationCount++;
+		this.recursiveCallCounts[row] = recursiveCallCount;
+	}
+	
+	/**
+	 * Reads the statistic and call count columns from the snapshot the table was read from, if they have not been read yet.
+	 */
+	private void LoadColumns()
+	{
+		if (this.pendingColumns != null)
+		{
+			this.ReadColumns();
+		}
+	}
+	
+	/**
+	 * Reads the statistic and call count columns from the snapshot (once, however many threads get here).
+	 */
+	private synchronized void ReadColumns()
+	{
+		ProfilerReportSnapshot.SnapshotSource source = this.pendingColumns;
+		if (source != null)
+		{
+			this.stats = source.ReadStats();
+			this.callCounts = source.ReadCallCounts();
+			this.recursiveCallCounts = source.ReadRecursiveCallCounts();
+			this.pendingColumns = null;
+		}
+	}
+	
+	/**
+	 * Reads the arc table from the snapshot the table was read from, if it has not been read yet.
+	 */
+	private void LoadArcs()
+	{
+		if (this.pendingArcs != null)
+		{
+			this.ReadArcs();
+		}
+	}
+	
+	/**
+	 * Reads the arc table from the snapshot (once, however many threads get here).
+	 */
+	private synchronized void ReadArcs()
+	{
+		ProfilerReportSnapshot.SnapshotSource source = this.pendingArcs;
+		if (source != null)
+		{
+			this.arcTable = source.ReadArcs(this.namePool);
+			this.pendingArcs = null;
+		}
+	}
+	
+	/**
+	 * Resizes the columns to the given capacity.
+	 * 
+	 * @param capacity The new capacity (at least the number of rows).
+	 */
+	private void Grow(int capacity)
+	{
+		this.ids = CopyColumn(this.ids, capacity, this.rowCount);
+		this.nameIDs = CopyColumn(this.nameIDs, capacity, this.rowCount);
+		for (int i = 0; i < STAT_COUNT; i++)
+		{
+			double[] column = new double[capacity];
+			System.arraycopy(this.stats[i], 0, column, 0, this.rowCount);
+			this.stats[i] = column;
+		}
+		long[] callCounts = new long[capacity];
+		System.arraycopy(this.callCounts, 0, callCounts, 0, this.rowCount);
+		this.callCounts = callCounts;
+		long[] recursiveCallCounts = new long[capacity];
+		System.arraycopy(this.recursiveCallCounts, 0, recursiveCallCounts, 0, this.rowCount);
+		this.recursiveCallCounts = recursiveCallCounts;
+	}
+	
+	/**
+	 * Copies the given number of entries of the given column into a new column of the given capacity.
+	 * 
+	 * @param column The column to copy.
+	 * @param capacity The capacity of the new column.
+	 * @param count The number of entries to copy.
+	 * @return The new column.
+	 */
+	private static int[] CopyColumn(int[] column, int capacity, int count)
+	{
+		int[] copy = new int[capacity];
+		System.arraycopy(column, 0, copy, 0, count);
+		return copy;
+	}
+}
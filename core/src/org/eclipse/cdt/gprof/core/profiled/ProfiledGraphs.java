@@ -0,0 +1,161 @@
+/*
+ * =======================================================================
+ * ============================ gprof-eclipse ============================
+ * =======================================================================
+ * 
+ * 
+ * File: ProfiledGraphs.java
+ * 
+ * 
+ * -----------------------------------------------------------------------
+ * Copyright (c) 2009 Chris Culy and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * + Chris Culy - initial API and implementation
+ * -----------------------------------------------------------------------
+ * 
+ * 
+ * Last changed:
+ * $Revision$
+ * $Author$
+ * $Date$
+ */
+
+package org.eclipse.cdt.gprof.core.profiled;
+
+import java.util.Arrays;
+
+/**
+ * Holds the graph algorithms shared by the models of the call graph and by the readers that build one, over graphs in compressed sparse
+ * row form: the arcs leading from node <code>i</code> are those from <code>offsets[i]</code> up to <code>offsets[i + 1]</code>
+ * (exclusive) of an array of targets.
+ * 
+ * @author chrisculy
+ */
+public final class ProfiledGraphs
+{
+	/**
+	 * Constructor (the algorithms are used through the static methods).
+	 */
+	private ProfiledGraphs()
+	{
+		/* stub function */
+	}
+	
+	/**
+	 * Groups the indices <code>0</code> up to <code>count</code> (exclusive) by the given keys with a counting sort. The indices with key
+	 * <code>k</code> are found from <code>offsets[k]</code> up to <code>offsets[k + 1]</code> (exclusive) of the returned array, in
+	 * ascending order.
+	 * 
+	 * @param keys The key of each index (from 0 up to the number of keys, exclusive).
+	 * @param count The number of indices to group.
+	 * @param keyCount The number of keys.
+	 * @param offsets The array to fill with the position of the first index of each key (sized one larger than the number of keys).
+	 * @return The indices grouped by key.
+	 */
+	public static int[] Group(int[] keys, int count, int keyCount, int[] offsets)
+	{
+		for (int i = 0; i < count; i++)
+		{
+			offsets[keys[i] + 1]++;
+		}
+		for (int key = 0; key < keyCount; key++)
+		{
+			offsets[key + 1] += offsets[key];
+		}
+		int[] grouped = new int[count];
+		int[] next = Arrays.copyOf(offsets, keyCount);
+		for (int i = 0; i < count; i++)
+		{
+			grouped[next[keys[i]]++] = i;
+		}
+		return grouped;
+	}
+	
+	/**
+	 * Finds the strongly connected components of the given graph (i.e. the cycles of a call graph) by Tarjan's algorithm, keeping the
+	 * search stack in arrays rather than recursing (so that deep graphs do not overflow the thread's stack). The components are numbered
+	 * in the order they are completed, which is a reverse topological order: every component comes after the components its arcs lead
+	 * to.
+	 * 
+	 * @param nodeCount The number of nodes.
+	 * @param offsets The index of the first arc of each node (plus the total number of arcs at the end).
+	 * @param targets The node that each arc leads to.
+	 * @param components The array to fill with the component of each node.
+	 * @return The number of components.
+	 */
+	public static int FindComponents(int nodeCount, int[] offsets, int[] targets, int[] components)
+	{
+		int[] order = new int[nodeCount];
+		int[] lowLinks = new int[nodeCount];
+		int[] searchNodes = new int[nodeCount];
+		int[] searchArcs = new int[nodeCount];
+		int[] componentStack = new int[nodeCount];
+		int componentStackSize = 0;
+		int reached = 0;
+		int componentCount = 0;
+		Arrays.fill(components, 0, nodeCount, -1);
+		
+		// Search from every node that has not been reached yet (order 0 marking the nodes not reached).
+		for (int root = 0; root < nodeCount; root++)
+		{
+			if (order[root] != 0)
+			{
+				continue;
+			}
+			int depth = 0;
+			searchNodes[0] = root;
+			searchArcs[0] = offsets[root];
+			order[root] = lowLinks[root] = ++reached;
+			componentStack[componentStackSize++] = root;
+			while (depth >= 0)
+			{
+				int node = searchNodes[depth];
+				int arc = searchArcs[depth];
+				if (arc < offsets[node + 1])
+				{
+					searchArcs[depth] = arc + 1;
+					int target = targets[arc];
+					if (order[target] == 0)
+					{
+						// Descend into the target.
+						order[target] = lowLinks[target] = ++reached;
+						componentStack[componentStackSize++] = target;
+						searchNodes[++depth] = target;
+						searchArcs[depth] = offsets[target];
+					}
+					else if (components[target] < 0)
+					{
+						// The target is on the component stack, so it is part of the same component.
+						lowLinks[node] = Math.min(lowLinks[node], order[target]);
+					}
+					continue;
+				}
+				
+				// All targets have been searched; pop the component if the node is its root.
+				if (lowLinks[node] == order[node])
+				{
+					int member;
+					do
+					{
+						member = componentStack[--componentStackSize];
+						components[member] = componentCount;
+					}
+					while (member != node);
+					componentCount++;
+				}
+				if (--depth >= 0)
+				{
+					int parent = searchNodes[depth];
+					lowLinks[parent] = Math.min(lowLinks[parent], lowLinks[node]);
+				}
+			}
+		}
+		return componentCount;
+	}
+}
@@ -0,0 +1,420 @@
+/*
+ * =======================================================================
+ * ============================ gprof-eclipse ============================
+ * =======================================================================
+ * 
+ * 
+ * File: ProfiledHotPaths.java
+ * 
+ * 
+ * -----------------------------------------------------------------------
+ * Copyright (c) 2009 Chris Culy and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * + Chris Culy - initial API and implementation
+ * -----------------------------------------------------------------------
+ * 
+ * 
+ * Last changed:
+ * $Revision$
+ * $Author$
+ * $Date$
+ */
+
+package org.eclipse.cdt.gprof.core.profiled;
+
+import java.util.Arrays;
+
+/**
+ * Holds the heaviest call paths from a root function (i.e. <code>main</code>) down through the call graph of a profiler report.
+ * 
+ * The weight of a path is the child time propagated along its arcs (the time that gprof attributes to each subroutine, itself and its
+ * own subroutines, when called by the previous function of the path), so the heaviest path is the chain of calls that the time of the
+ * program is spent along. The paths are acyclic: a path never visits a function twice, and a path is complete once every subroutine
+ * of its last function is already on it.
+ * 
+ * The paths are enumerated best first from a priority queue of partial paths, each ranked by its weight plus an upper bound of the
+ * weight below its last function, memoized per component of the {@link ProfiledCondensedGraph}: a path that leaves a component never
+ * returns to it, so the bound of a component is the weight of all arcs within it plus the heaviest way out of it. A complete path is
+ * queued again with its own weight, so the paths are taken off the queue in the order of their weight. Outside of the cycles the bound
+ * is exact, and the search touches only the functions along the paths and their direct subroutines; within a cycle it tries the
+ * orders of the functions of the cycle as far as the bound demands. Whether a function is on a partial path is only checked against
+ * the functions of the path within the function's component (the tail of the path, the components being ordered topologically).
+ * 
+ * @author chrisculy
+ */
+public final class ProfiledHotPaths
+{
+	/** Holds the initial capacity of the partial path columns. */
+	private static final int INITIAL_CAPACITY = 64;
+	
+	/** Holds the call graph. */
+	private final ProfiledCallGraph callGraph;
+	
+	/** Holds the call graph condensed into its cycles. */
+	private final ProfiledCondensedGraph condensedGraph;
+	
+	/** Holds the upper bound of the weight of the paths below the functions of each component. */
+	private final double[] componentWeights;
+	
+	/** Holds the row of the last function of each partial path. */
+	private int[] stateRows = new int[INITIAL_CAPACITY];
+	
+	/** Holds the subroutine arc leading to the last function of each partial path (-1 for the root). */
+	private int[] stateArcs = new int[INITIAL_CAPACITY];
+	
+	/** Holds the partial path that each partial path extends (-1 for the root). */
+	private int[] stateParents = new int[INITIAL_CAPACITY];
+	
+	/** Holds the weight of each partial path. */
+	private double[] stateWeights = new double[INITIAL_CAPACITY];
+	
+	/** Holds the length (number of functions) of each partial path. */
+	private int[] stateLengths = new int[INITIAL_CAPACITY];
+	
+	/** Holds the estimated weight of each partial path (its weight plus the bound below its last function, or its weight once complete). */
+	private double[] stateEstimates = new double[INITIAL_CAPACITY];
+	
+	/** Holds whether each partial path is complete (none of the subroutines of its last function is off the path). */
+	private boolean[] stateCompletes = new boolean[INITIAL_CAPACITY];
+	
+	/** Holds the number of partial paths. */
+	private int stateCount;
+	
+	/** Holds the partial paths that have not been extended yet, as a max-heap by estimated weight. */
+	private int[] queue = new int[INITIAL_CAPACITY];
+	
+	/** Holds the number of partial paths in the queue. */
+	private int queueSize;
+	
+	/** Holds the partial path that each (complete) path ends with. */
+	private final int[] paths;
+	
+	/** Holds the number of paths. */
+	private int pathCount;
+	
+	/**
+	 * Finds the given number of heaviest paths from the given root function.
+	 * 
+	 * @param callGraph The call graph.
+	 * @param root The row of the root function.
+	 * @param count The number of paths to find.
+	 */
+	public ProfiledHotPaths(ProfiledCallGraph callGraph, int root, int count)
+	{
+		this.callGraph = callGraph;
+		this.condensedGraph = callGraph.GetCondensedGraph();
+		this.componentWeights = this.Weigh();
+		this.paths = new int[Math.max(count, 0)];
+		
+		// Extend the heaviest partial path until enough paths are complete.
+		this.AddState(root, -1, -1, 0);
+		while (this.queueSize > 0 && this.pathCount < this.paths.length)
+		{
+			int state = this.Poll();
+			if (this.stateCompletes[state])
+			{
+				this.paths[this.pathCount++] = state;
+				continue;
+			}
+			int row = this.stateRows[state];
+			boolean extended = false;
+			for (int arc = callGraph.GetSubroutineArcsStart(row); arc < callGraph.GetSubroutineArcsEnd(row); arc++)
+			{
+				int subroutine = callGraph.GetSubroutineRow(arc);
+				if (!this.IsOnPath(state, subroutine))
+				{
+					this.AddState(subroutine, arc, state, this.stateWeights[state] + GetArcWeight(callGraph, arc));
+					extended = true;
+				}
+			}
+			
+			// Queue the path again as complete, ranked by its own weight (the bound below its last function no longer applies).
+			if (!extended)
+			{
+				this.stateCompletes[state] = true;
+				this.stateEstimates[state] = this.stateWeights[state];
+				this.Offer(state);
+			}
+		}
+		
+		// Drop the search state that the paths do not need.
+		this.queue = null;
+	}
+	
+	/**
+	 * Retrieves the call graph that the paths run through.
+	 * 
+	 * @return The call graph.
+	 */
+	public ProfiledCallGraph GetCallGraph()
+	{
+		return this.callGraph;
+	}
+	
+	/**
+	 * Retrieves the number of paths found (fewer than requested if the call graph below the root has fewer paths).
+	 * 
+	 * @return The number of paths.
+	 */
+	public int GetPathCount()
+	{
+		return this.pathCount;
+	}
+	
+	/**
+	 * Retrieves the weight of the given path.
+	 * 
+	 * @param path The index of the path (the heaviest path first).
+	 * @return The weight of the path.
+	 */
+	public double GetPathWeight(int path)
+	{
+		return this.stateWeights[this.paths[path]];
+	}
+	
+	/**
+	 * Retrieves the number of functions of the given path (including the root).
+	 * 
+	 * @param path The index of the path.
+	 * @return The length of the path.
+	 */
+	public int GetPathLength(int path)
+	{
+		return this.stateLengths[this.paths[path]];
+	}
+	
+	/**
+	 * Retrieves the rows of the functions of the given path, from the root down.
+	 * 
+	 * @param path The index of the path.
+	 * @return The rows of the functions.
+	 */
+	public int[] GetPathRows(int path)
+	{
+		int state = this.paths[path];
+		int[] rows = new int[this.stateLengths[state]];
+		for (int i = rows.length - 1; i >= 0; i--)
+		{
+			rows[i] = this.stateRows[state];
+			state = this.stateParents[state];
+		}
+		return rows;
+	}
+	
+	/**
+	 * Retrieves the subroutine arcs of the given path, from the root down (the arc at index <code>i</code> leads from the function at
+	 * index <code>i</code> of the path to the function at index <code>i + 1</code>).
+	 * 
+	 * @param path The index of the path.
+	 * @return The subroutine arcs.
+	 */
+	public int[] GetPathArcs(int path)
+	{
+		int state = this.paths[path];
+		int[] arcs = new int[this.stateLengths[state] - 1];
+		for (int i = arcs.length - 1; i >= 0; i--)
+		{
+			arcs[i] = this.stateArcs[state];
+			state = this.stateParents[state];
+		}
+		return arcs;
+	}
+	
+	/**
+	 * Retrieves the upper bound of the weight of the paths below the given function (the exact weight of the heaviest path below it
+	 * unless the function is part of a cycle).
+	 * 
+	 * @param row The row of the function.
+	 * @return The bound of the weight.
+	 */
+	public double GetSubtreeWeight(int row)
+	{
+		return this.componentWeights[this.condensedGraph.GetComponent(row)];
+	}
+	
+	/**
+	 * Bounds the weight of the paths below the functions of each component, visiting the components in descending order (i.e. after all
+	 * of their subroutine components). A path entering a component can use each arc within it at most once before it leaves the
+	 * component for good, so the bound is the weight of the arcs within the component plus the heaviest arc out of it and the bound
+	 * beyond (a single function that is not part of a cycle thus gets the exact weight of the heaviest path below it).
+	 * 
+	 * @return The bound of each component.
+	 */
+	private double[] Weigh()
+	{
+		ProfiledCallGraph callGraph = this.callGraph;
+		ProfiledCondensedGraph condensedGraph = this.condensedGraph;
+		double[] weights = new double[condensedGraph.GetComponentCount()];
+		for (int component = weights.length - 1; component >= 0; component--)
+		{
+			// Add up the arcs within the component (a path never follows a recursive call of a function to itself).
+			double weight = 0;
+			for (int member = condensedGraph.GetMembersStart(component); member < condensedGraph.GetMembersEnd(component); member++)
+			{
+				int row = condensedGraph.GetMemberRow(member);
+				for (int arc = callGraph.GetSubroutineArcsStart(row); arc < callGraph.GetSubroutineArcsEnd(row); arc++)
+				{
+					int subroutine = callGraph.GetSubroutineRow(arc);
+					if (subroutine != row && condensedGraph.GetComponent(subroutine) == component)
+					{
+						weight += GetArcWeight(callGraph, arc);
+					}
+				}
+			}
+			
+			// Take the heaviest way out of the component (the merged arcs weigh at least as much as any of the arcs they merge).
+			double below = 0;
+			for (int arc = condensedGraph.GetArcsStart(component); arc < condensedGraph.GetArcsEnd(component); arc++)
+			{
+				double arcWeight = condensedGraph.GetArcSelfTime(arc) + condensedGraph.GetArcChildTime(arc);
+				below = Math.max(below, arcWeight + weights[condensedGraph.GetArcComponent(arc)]);
+			}
+			weights[component] = weight + below;
+		}
+		return weights;
+	}
+	
+	/**
+	 * Retrieves whether the given function is on the given partial path. Since the components are ordered topologically, the functions
+	 * of the path within the component of the function are at the end of the path, and only those are checked.
+	 * 
+	 * @param state The partial path.
+	 * @param row The row of the function.
+	 * @return <code>true</code> if the function is on the path; <code>false</code> otherwise.
+	 */
+	private boolean IsOnPath(int state, int row)
+	{
+		int component = this.condensedGraph.GetComponent(row);
+		for (; state >= 0 && this.condensedGraph.GetComponent(this.stateRows[state]) == component; state = this.stateParents[state])
+		{
+			if (this.stateRows[state] == row)
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Adds a partial path and queues it.
+	 * 
+	 * @param row The row of the last function of the path.
+	 * @param arc The subroutine arc leading to the last function (-1 for the root).
+	 * @param parent The partial path that the path extends (-1 for the root).
+	 * @param weight The weight of the path.
+	 */
+	private void AddState(int row, int arc, int parent, double weight)
+	{
+		// Make room for the path.
+		if (this.stateCount == this.stateRows.length)
+		{
+			int capacity = this.stateCount * 2;
+			this.stateRows = Arrays.copyOf(this.stateRows, capacity);
+			this.stateArcs = Arrays.copyOf(this.stateArcs, capacity);
+			this.stateParents = Arrays.copyOf(this.stateParents, capacity);
+			this.stateWeights = Arrays.copyOf(this.stateWeights, capacity);
+			this.stateLengths = Arrays.copyOf(this.stateLengths, capacity);
+			this.stateEstimates = Arrays.copyOf(this.stateEstimates, capacity);
+			this.stateCompletes = Arrays.copyOf(this.stateCompletes, capacity);
+		}
+		int state = this.stateCount++;
+		this.stateRows[state] = row;
+		this.stateArcs[state] = arc;
+		this.stateParents[state] = parent;
+		this.stateWeights[state] = weight;
+		this.stateLengths[state] = parent >= 0 ? this.stateLengths[parent] + 1 : 1;
+		this.stateEstimates[state] = weight + this.GetSubtreeWeight(row);
+		this.Offer(state);
+	}
+	
+	/**
+	 * Queues the given partial path (sifting it up the queue by its estimated weight).
+	 * 
+	 * @param state The partial path.
+	 */
+	private void Offer(int state)
+	{
+		if (this.queueSize == this.queue.length)
+		{
+			this.queue = Arrays.copyOf(this.queue, this.queueSize * 2);
+		}
+		int index = this.queueSize++;
+		while (index > 0)
+		{
+			int parentIndex = (index - 1) >>> 1;
+			if (!this.IsHeavier(state, this.queue[parentIndex]))
+			{
+				break;
+			}
+			this.queue[index] = this.queue[parentIndex];
+			index = parentIndex;
+		}
+		this.queue[index] = state;
+	}
+	
+	/**
+	 * Takes the partial path with the highest estimated weight off the queue.
+	 * 
+	 * @return The partial path.
+	 */
+	private int Poll()
+	{
+		int head = this.queue[0];
+		int last = this.queue[--this.queueSize];
+		int index = 0;
+		while (true)
+		{
+			int child = index * 2 + 1;
+			if (child >= this.queueSize)
+			{
+				break;
+			}
+			if (child + 1 < this.queueSize && this.IsHeavier(this.queue[child + 1], this.queue[child]))
+			{
+				child++;
+			}
+			if (!this.IsHeavier(this.queue[child], last))
+			{
+				break;
+			}
+			this.queue[index] = this.queue[child];
+			index = child;
+		}
+		this.queue[index] = last;
+		return head;
+	}
+	
+	/**
+	 * Retrieves whether the first partial path has a higher estimated weight than the second (or the same estimated weight and was added
+	 * later, so that paths of equal weight are completed depth first rather than all extended side by side).
+	 * 
+	 * @param state The first partial path.
+	 * @param otherState The second partial path.
+	 * @return <code>true</code> if the first partial path ranks above the second; <code>false</code> otherwise.
+	 */
+	private boolean IsHeavier(int state, int otherState)
+	{
+		double estimate = this.stateEstimates[state];
+		double otherEstimate = this.stateEstimates[otherState];
+		return estimate > otherEstimate || (estimate == otherEstimate && state > otherState);
+	}
+	
+	/**
+	 * Retrieves the weight of the given subroutine arc (the child time propagated along the arc, i.e. the time spent in the subroutine
+	 * itself and in its subroutines when called by the caller).
+	 * 
+	 * @param callGraph The call graph.
+	 * @param arc The subroutine arc.
+	 * @return The weight of the arc (not counting the times that are not known).
+	 */
+	private static double GetArcWeight(ProfiledCallGraph callGraph, int arc)
+	{
+		return Math.max(callGraph.GetSubroutineSelfTime(arc), 0) + Math.max(callGraph.GetSubroutineChildTime(arc), 0);
+	}
+}
@@ -0,0 +1,522 @@
+/*
+ * =======================================================================
+ * ============================ gprof-eclipse ============================
+ * =======================================================================
+ * 
+ * 
+ * File: ProfiledNameIndex.java
+ * 
+ * 
+ * -----------------------------------------------------------------------
+ * Copyright (c) 2009 Chris Culy and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * + Chris Culy - initial API and implementation
+ * -----------------------------------------------------------------------
+ * 
+ * 
+ * Last changed:
+ * $Revision$
+ * $Author$
+ * $Date$
+ */
+
+package org.eclipse.cdt.gprof.core.profiled;
+
+import java.util.Arrays;
+
+/**
+ * Indexes the names of the functions of a function table by their trigrams (the sequences of three consecutive characters, ignoring
+ * case), so that the functions matching a search query can be found without scanning every name.
+ * 
+ * The trigrams are packed into longs and kept in an open addressing hash table over primitive arrays; the postings of each trigram (the
+ * rows whose name contains it) are stored contiguously in a single array, in row order. A query is answered by intersecting the
+ * postings of its trigrams, starting from the shortest, and checking the few remaining candidates against the query itself.
+ * 
+ * A query matches a name if the name contains it (ignoring case) or, if the query contains upper case letters, if the name matches it
+ * by camel humps: the query is split before each upper case letter and each part must start one of the humps of the name, in order
+ * (a hump starts at an upper case letter or at a letter or digit following any other character), so that <code>NPE</code> matches
+ * <code>NullPointerException</code> and <code>GetNe</code> matches <code>ns::Klass::getNext(int)</code>. Queries that are too short to
+ * have trigrams are checked against every name.
+ * 
+ * @author chrisculy
+ */
+public final class ProfiledNameIndex
+{
+	/** Holds the number of characters of a gram. */
+	private static final int GRAM_LENGTH = 3;
+	
+	/** Holds the key marking an empty slot of the hash table (no trigram of 16-bit characters packs into it). */
+	private static final long EMPTY_KEY = -1L;
+	
+	/** Holds the names by row. */
+	private final String[] names;
+	
+	/** Holds the trigram of each slot of the hash table ({@link #EMPTY_KEY} for none). */
+	private long[] keys;
+	
+	/** Holds the index of the postings of the trigram of each slot within the postings. */
+	private int[] lists;
+	
+	/** Holds the number of trigrams. */
+	private int gramCount;
+	
+	/** Holds the index of the first posting of each trigram (plus the total number of postings at the end). */
+	private int[] postingOffsets;
+	
+	/** Holds the rows of the postings, by trigram. */
+	private int[] postings;
+	
+	/**
+	 * Indexes the names of the functions of the given table.
+	 * 
+	 * @param table The function table.
+	 */
+	public ProfiledNameIndex(ProfiledFunctionTable table)
+	{
+		int rowCount = table.GetRowCount();
+		this.names = new String[rowCount];
+		this.keys = NewKeys(1024);
+		this.lists = new int[this.keys.length];
+		
+		// Collect the trigrams and count the rows of each (once per row, the last row being remembered per trigram).
+		int[] counts = new int[1024];
+		int[] lastRows = new int[1024];
+		for (int row = 0; row < rowCount; row++)
+		{
+			String name = table.GetName(row);
+			this.names[row] = name;
+			for (int i = 0; name != null && i + GRAM_LENGTH <= name.length(); i++)
+			{
+				int list = this.Intern(Pack(name, i));
+				if (list == counts.length)
+				{
+					counts = Arrays.copyOf(counts, list * 2);
+					lastRows = Arrays.copyOf(lastRows, list * 2);
+				}
+				if (counts[list] == 0 || lastRows[list] != row)
+				{
+					counts[list]++;
+					lastRows[list] = row;
+				}
+			}
+		}
+		
+		// Turn the counts into offsets and fill in the postings.
+		this.postingOffsets = new int[this.gramCount + 1];
+		for (int list = 0; list < this.gramCount; list++)
+		{
+			this.postingOffsets[list + 1] = this.postingOffsets[list] + counts[list];
+		}
+		this.postings = new int[this.postingOffsets[this.gramCount]];
+		int[] next = Arrays.copyOf(this.postingOffsets, this.gramCount);
+		for (int row = 0; row < rowCount; row++)
+		{
+			String name = this.names[row];
+			for (int i = 0; name != null && i + GRAM_LENGTH <= name.length(); i++)
+			{
+				int list = this.Find(Pack(name, i));
+				int end = next[list];
+				if (end == this.postingOffsets[list] || this.postings[end - 1] != row)
+				{
+					this.postings[next[list]++] = row;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Retrieves the number of names indexed (the number of rows of the table).
+	 * 
+	 * @return The number of names.
+	 */
+	public int GetNameCount()
+	{
+		return this.names.length;
+	}
+	
+	/**
+	 * Retrieves the number of distinct trigrams of the names.
+	 * 
+	 * @return The number of trigrams.
+	 */
+	public int GetGramCount()
+	{
+		return this.gramCount;
+	}
+	
+	/**
+	 * Retrieves the rows of the functions whose name matches the given query.
+	 * 
+	 * @param query The query.
+	 * @return The rows, in row order.
+	 */
+	public int[] Search(String query)
+	{
+		return this.Search(query, null);
+	}
+	
+	/**
+	 * Retrieves the rows among the given rows of the functions whose name matches the given query. Passing the result of a query that
+	 * the given query starts with (i.e. the query before the last keystroke) narrows that result down rather than searching anew.
+	 * 
+	 * @param query The query.
+	 * @param rows The rows to search among, in row order (<code>null</code> for all rows).
+	 * @return The rows, in row order.
+	 */
+	public int[] Search(String query, int[] rows)
+	{
+		// Check the candidates that have all trigrams of the query against it.
+		int[] matches = this.Check(this.Intersect(query, rows), query, false);
+		if (!HasUpperCase(query))
+		{
+			return matches;
+		}
+		
+		// Add the names that match by camel humps (each part of the query must occur in the name).
+		int[] candidates = rows;
+		int start = 0;
+		for (int i = 1; i <= query.length(); i++)
+		{
+			if (i == query.length() || Character.isUpperCase(query.charAt(i)))
+			{
+				candidates = this.Intersect(query.substring(start, i), candidates);
+				start = i;
+			}
+		}
+		return Merge(matches, this.Check(candidates, query, true));
+	}
+	
+	/**
+	 * Retrieves whether the given name matches the given query (see {@link ProfiledNameIndex}).
+	 * 
+	 * @param name The name.
+	 * @param query The query.
+	 * @return <code>true</code> if the name matches the query; <code>false</code> otherwise.
+	 */
+	public static boolean Matches(String name, String query)
+	{
+		return name != null && (ContainsIgnoreCase(name, query) || (HasUpperCase(query) && MatchesCamelHumps(name, query)));
+	}
+	
+	/**
+	 * Retrieves the rows among the given rows whose name contains all trigrams of the given text, intersecting the postings of the
+	 * trigrams from the shortest up.
+	 * 
+	 * @param text The text.
+	 * @param rows The rows to search among, in row order (<code>null</code> for all rows).
+	 * @return The rows, in row order (<code>null</code> for all rows, if the text has no trigrams and no rows were given).
+	 */
+	private int[] Intersect(String text, int[] rows)
+	{
+		// Look up the postings of the trigrams, shortest first (no name contains a trigram that is not indexed).
+		int gramCount = Math.max(text.length() - GRAM_LENGTH + 1, 0);
+		long[] lists = new long[gramCount];
+		for (int i = 0; i < gramCount; i++)
+		{
+			int list = this.Find(Pack(text, i));
+			if (list < 0)
+			{
+				return new int[0];
+			}
+			lists[i] = ((long)(this.postingOffsets[list + 1] - this.postingOffsets[list]) << 32) | list;
+		}
+		Arrays.sort(lists);
+		
+		// Narrow the rows down by each list in turn.
+		for (int i = 0; i < gramCount; i++)
+		{
+			int list = (int)lists[i];
+			int start = this.postingOffsets[list];
+			int end = this.postingOffsets[list + 1];
+			if (rows == null)
+			{
+				rows = Arrays.copyOfRange(this.postings, start, end);
+				continue;
+			}
+			
+			// Keep the rows found in the list, searching the list from the last row found.
+			int[] found = new int[Math.min(rows.length, end - start)];
+			int count = 0;
+			for (int j = 0; j < rows.length && start < end; j++)
+			{
+				int position = Arrays.binarySearch(this.postings, start, end, rows[j]);
+				if (position >= 0)
+				{
+					found[count++] = rows[j];
+					start = position + 1;
+				}
+				else
+				{
+					start = -position - 1;
+				}
+			}
+			rows = Arrays.copyOf(found, count);
+		}
+		return rows;
+	}
+	
+	/**
+	 * Retrieves the given candidate rows whose name matches the given query.
+	 * 
+	 * @param rows The candidate rows, in row order (<code>null</code> for all rows).
+	 * @param query The query.
+	 * @param camelHumps Whether to match the query by camel humps (as opposed to as a substring).
+	 * @return The matching rows, in row order.
+	 */
+	private int[] Check(int[] rows, String query, boolean camelHumps)
+	{
+		int count = rows != null ? rows.length : this.names.length;
+		int[] matches = new int[count];
+		int matchCount = 0;
+		for (int i = 0; i < count; i++)
+		{
+			int row = rows != null ? rows[i] : i;
+			String name = this.names[row];
+			if (name != null && (camelHumps ? MatchesCamelHumps(name, query) : ContainsIgnoreCase(name, query)))
+			{
+				matches[matchCount++] = row;
+			}
+		}
+		return Arrays.copyOf(matches, matchCount);
+	}
+	
+	/**
+	 * Retrieves the slot of the given trigram in the hash table, adding the trigram if it is not in the table yet.
+	 * 
+	 * @param key The trigram.
+	 * @return The index of the postings of the trigram.
+	 */
+	private int Intern(long key)
+	{
+		int mask = this.keys.length - 1;
+		int slot = Hash(key) & mask;
+		while (this.keys[slot] != EMPTY_KEY)
+		{
+			if (this.keys[slot] == key)
+			{
+				return this.lists[slot];
+			}
+			slot = (slot + 1) & mask;
+		}
+		
+		// Add the trigram, doubling the table once it is half full.
+		this.keys[slot] = key;
+		this.lists[slot] = this.gramCount;
+		if (++this.gramCount * 2 > this.keys.length)
+		{
+			long[] keys = this.keys;
+			int[] lists = this.lists;
+			this.keys = NewKeys(keys.length * 2);
+			this.lists = new int[this.keys.length];
+			mask = this.keys.length - 1;
+			for (int i = 0; i < keys.length; i++)
+			{
+				if (keys[i] != EMPTY_KEY)
+				{
+					int newSlot = Hash(keys[i]) & mask;
+					while (this.keys[newSlot] != EMPTY_KEY)
+					{
+						newSlot = (newSlot + 1) & mask;
+					}
+					this.keys[newSlot] = keys[i];
+					this.lists[newSlot] = lists[i];
+				}
+			}
+		}
+		return this.gramCount - 1;
+	}
+	
+	/**
+	 * Retrieves the index of the postings of the given trigram.
+	 * 
+	 * @param key The trigram.
+	 * @return The index of the postings or -1 if no name contains the trigram.
+	 */
+	private int Find(long key)
+	{
+		int mask = this.keys.length - 1;
+		int slot = Hash(key) & mask;
+		while (this.keys[slot] != EMPTY_KEY)
+		{
+			if (this.keys[slot] == key)
+			{
+				return this.lists[slot];
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+	
+	/**
+	 * Packs the trigram starting at the given index of the given text (in lower case) into a long.
+	 * 
+	 * @param text The text.
+	 * @param index The index of the first character of the trigram.
+	 * @return The trigram.
+	 */
+	private static long Pack(String text, int index)
+	{
+		return ((long)Character.toLowerCase(text.charAt(index)) << 32) | ((long)Character.toLowerCase(text.charAt(index + 1)) << 16)
+			| Character.toLowerCase(text.charAt(index + 2));
+	}
+	
+	/**
+	 * Retrieves the hash of the given trigram.
+	 * 
+	 * @param key The trigram.
+	 * @return The hash.
+	 */
+	private static int Hash(long key)
+	{
+		long hash = key * 0x9E3779B97F4A7C15L;
+		return (int)(hash ^ (hash >>> 32));
+	}
+	
+	/**
+	 * Creates the given number of empty hash table slots.
+	 * 
+	 * @param capacity The number of slots (a power of two).
+	 * @return The slots.
+	 */
+	private static long[] NewKeys(int capacity)
+	{
+		long[] keys = new long[capacity];
+		Arrays.fill(keys, EMPTY_KEY);
+		return keys;
+	}
+	
+	/**
+	 * Merges the given rows into a single list of distinct rows.
+	 * 
+	 * @param rows The first rows, in row order.
+	 * @param otherRows The second rows, in row order.
+	 * @return The rows of both, in row order.
+	 */
+	private static int[] Merge(int[] rows, int[] otherRows)
+	{
+		int[] merged = new int[rows.length + otherRows.length];
+		int count = 0;
+		int i = 0;
+		int j = 0;
+		while (i < rows.length || j < otherRows.length)
+		{
+			if (j == otherRows.length || (i < rows.length && rows[i] < otherRows[j]))
+			{
+				merged[count++] = rows[i++];
+			}
+			else
+			{
+				if (i < rows.length && rows[i] == otherRows[j])
+				{
+					i++;
+				}
+				merged[count++] = otherRows[j++];
+			}
+		}
+		return Arrays.copyOf(merged, count);
+	}
+	
+	/**
+	 * Retrieves whether the given name contains the given query, ignoring case.
+	 * 
+	 * @param name The name.
+	 * @param query The query.
+	 * @return <code>true</code> if the name contains the query; <code>false</code> otherwise.
+	 */
+	private static boolean ContainsIgnoreCase(String name, String query)
+	{
+		for (int i = 0; i + query.length() <= name.length(); i++)
+		{
+			if (name.regionMatches(true, i, query, 0, query.length()))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Retrieves whether the given name matches the given query by camel humps (see {@link ProfiledNameIndex}).
+	 * 
+	 * @param name The name.
+	 * @param query The query.
+	 * @return <code>true</code> if the name matches the query; <code>false</code> otherwise.
+	 */
+	private static boolean MatchesCamelHumps(String name, String query)
+	{
+		// Match each part of the query to the earliest hump that it starts (which leaves the most humps for the parts to come).
+		int position = 0;
+		int start = 0;
+		while (start < query.length())
+		{
+			int end = start + 1;
+			while (end < query.length() && !Character.isUpperCase(query.charAt(end)))
+			{
+				end++;
+			}
+			int length = end - start;
+			while (position + length <= name.length()
+				&& (!IsHumpStart(name, position) || !name.regionMatches(true, position, query, start, length)))
+			{
+				position++;
+			}
+			if (position + length > name.length())
+			{
+				return false;
+			}
+			position += length;
+			start = end;
+		}
+		return true;
+	}
+	
+	/**
+	 * Retrieves whether a hump of the given name starts at the given index.
+	 * 
+	 * @param name The name.
+	 * @param index The index.
+	 * @return <code>true</code> if a hump starts at the index; <code>false</code> otherwise.
+	 */
+	private static boolean IsHumpStart(String name, int index)
+	{
+		char c = name.charAt(index);
+		if (!Character.isLetterOrDigit(c))
+		{
+			return false;
+		}
+		if (index == 0)
+		{
+			return true;
+		}
+		char previous = name.charAt(index - 1);
+		if (!Character.isLetterOrDigit(previous))
+		{
+			return true;
+		}
+		return Character.isUpperCase(c);
+	}
+	
+	/**
+	 * Retrieves whether the given query contains an upper case letter (and is thus also matched by camel humps).
+	 * 
+	 * @param query The query.
+	 * @return <code>true</code> if the query contains an upper case letter; <code>false</code> otherwise.
+	 */
+	private static boolean HasUpperCase(String query)
+	{
+		for (int i = 0; i < query.length(); i++)
+		{
+			if (Character.isUpperCase(query.charAt(i)))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+}
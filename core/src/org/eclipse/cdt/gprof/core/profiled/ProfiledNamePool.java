@@ -0,0 +1,233 @@
+/*
+ * =======================================================================
+ * ============================ gprof-eclipse ============================
+ * =======================================================================
+ * 
+ * 
+ * File: ProfiledNamePool.java
+ * 
+ * 
+ * -----------------------------------------------------------------------
+ * Copyright (c) 2009 Chris Culy and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * + Chris Culy - initial API and implementation
+ * -----------------------------------------------------------------------
+ * 
+ * 
+ * Last changed:
+ * $Revision$
+ * $Author$
+ * $Date$
+ */
+
+package org.eclipse.cdt.gprof.core.profiled;
+
+import java.nio.charset.Charset;
+import java.util.HashMap;
+
+/**
+ * Holds the distinct function names of a function table, each stored once and referred to by its ID.
+ * 
+ * Small pools (i.e. the single row of a function that has not been added to a report yet) are searched linearly; the hash index is
+ * only built once the pool grows beyond a few names. A pool read from a snapshot holds the names encoded and decodes each name when it
+ * is first retrieved (or all of them once a name is looked up). The decoding is synchronized, so the names of a published report may be
+ * retrieved and looked up from several threads (i.e. the view's background jobs) at once.
+ * 
+ * @author chrisculy
+ */
+final class ProfiledNamePool
+{
+	/** Holds the number of names up to which the pool is searched linearly. */
+	private static final int LINEAR_SEARCH_LIMIT = 8;
+	
+	/** Holds the character set of the encoded names. */
+	static final Charset NAME_CHARSET = Charset.forName("UTF-8");
+	
+	/** Holds the names by ID. */
+	private String[] names;
+	
+	/** Holds the number of names. */
+	private int count;
+	
+	/** Holds the IDs of the names indexed by name (<code>null</code> while the pool is searched linearly). */
+	private HashMap<String, Integer> ids;
+	
+	/** Holds the encoded names (<code>null</code> once all names have been decoded, which is set only after the names are). */
+	private volatile byte[] encodedNames;
+	
+	/** Holds the offset of each encoded name within the encoded names (plus the end of the last name). */
+	private int[] encodedOffsets;
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param capacity The number of names to make room for.
+	 */
+	ProfiledNamePool(int capacity)
+	{
+		this.names = new String[Math.max(capacity, 1)];
+	}
+	
+	/**
+	 * Constructs the pool over the given encoded names (UTF-8), which are decoded as they are needed.
+	 * 
+	 * @param encodedNames The encoded names.
+	 * @param encodedOffsets The offset of each encoded name within the encoded names (plus the end of the last name).
+	 * @param count The number of names.
+	 */
+	ProfiledNamePool(byte[] encodedNames, int[] encodedOffsets, int count)
+	{
+		this.names = new String[Math.max(count, 1)];
+		this.count = count;
+		this.encodedNames = encodedNames;
+		this.encodedOffsets = encodedOffsets;
+	}
+	
+	/**
+	 * Retrieves the number of names in the pool.
+	 * 
+	 * @return The number of names.
+	 */
+	int GetCount()
+	{
+		return this.count;
+	}
+	
+	/**
+	 * Retrieves the name with the given ID.
+	 * 
+	 * @param id The ID of the name.
+	 * @return The name.
+	 */
+	String Get(int id)
+	{
+		String name = this.names[id];
+		if (name == null)
+		{
+			name = this.Decode(id);
+		}
+		return name;
+	}
+	
+	/**
+	 * Retrieves the ID of the given name.
+	 * 
+	 * @param name The name.
+	 * @return The ID of the name or -1 if the pool does not contain the name.
+	 */
+	int Find(String name)
+	{
+		if (this.encodedNames != null)
+		{
+			this.DecodeAll();
+		}
+		if (this.ids != null)
+		{
+			Integer id = this.ids.get(name);
+			return id != null ? id.intValue() : -1;
+		}
+		for (int i = 0; i < this.count; i++)
+		{
+			if (this.names[i].equals(name))
+			{
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	/**
+	 * Retrieves the ID of the given name, adding the name to the pool if it is not in the pool yet.
+	 * 
+	 * @param name The name.
+	 * @return The ID of the name.
+	 */
+	int Intern(String name)
+	{
+		int id = this.Find(name);
+		if (id >= 0)
+		{
+			return id;
+		}
+		
+		// Make room for the name.
+		if (this.count == this.names.length)
+		{
+			String[] names = new String[this.names.length * 2];
+			System.arraycopy(this.names, 0, names, 0, this.count);
+			this.names = names;
+		}
+		
+		// Add the name (building the hash index once the pool is too large to search linearly).
+		id = this.count++;
+		this.names[id] = name;
+		if (this.ids != null)
+		{
+			this.ids.put(name, Integer.valueOf(id));
+		}
+		else if (this.count > LINEAR_SEARCH_LIMIT)
+		{
+			this.ids = new HashMap<String, Integer>(this.names.length * 2);
+			for (int i = 0; i < this.count; i++)
+			{
+				this.ids.put(this.names[i], Integer.valueOf(i));
+			}
+		}
+		return id;
+	}
+	
+	/**
+	 * Decodes the name with the given ID, unless another thread has decoded it already.
+	 * 
+	 * @param id The ID of the name.
+	 * @return The name.
+	 */
+	private synchronized String Decode(int id)
+	{
+		String name = this.names[id];
+		byte[] encodedNames = this.encodedNames;
+		if (name == null && encodedNames != null)
+		{
+			int start = this.encodedOffsets[id];
+			name = new String(encodedNames, start, this.encodedOffsets[id + 1] - start, NAME_CHARSET);
+			this.names[id] = name;
+		}
+		return name;
+	}
+	
+	/**
+	 * Decodes all names that have not been decoded yet, building the hash index if the pool is too large to search linearly. The
+	 * encoded names are released last, so that a thread that sees them released also sees the names and the index.
+	 */
+	private synchronized void DecodeAll()
+	{
+		if (this.encodedNames == null)
+		{
+			return;
+		}
+		for (int i = 0; i < this.count; i++)
+		{
+			if (this.names[i] == null)
+			{
+				this.Decode(i);
+			}
+		}
+		if (this.count > LINEAR_SEARCH_LIMIT)
+		{
+			HashMap<String, Integer> ids = new HashMap<String, Integer>(this.count * 2);
+			for (int i = 0; i < this.count; i++)
+			{
+				ids.put(this.names[i], Integer.valueOf(i));
+			}
+			this.ids = ids;
+		}
+		this.encodedOffsets = null;
+		this.encodedNames = null;
+	}
+}
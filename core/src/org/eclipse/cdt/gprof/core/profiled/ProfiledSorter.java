@@ -0,0 +1,328 @@
+/*
+ * =======================================================================
+ * ============================ gprof-eclipse ============================
+ * =======================================================================
+ * 
+ * 
+ * File: ProfiledSorter.java
+ * 
+ * 
+ * -----------------------------------------------------------------------
+ * Copyright (c) 2009 Chris Culy and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * + Chris Culy - initial API and implementation
+ * -----------------------------------------------------------------------
+ * 
+ * 
+ * Last changed:
+ * $Revision$
+ * $Author$
+ * $Date$
+ */
+
+package org.eclipse.cdt.gprof.core.profiled;
+
+import java.util.Arrays;
+
+/**
+ * Orders the rows of a function table by a column without boxing a single row.
+ * 
+ * The numeric columns are mapped to 64-bit keys whose unsigned order is the order of the values (inverted for a descending order), and
+ * the rows are sorted by their keys with a least significant digit radix sort, a byte per pass, skipping the passes in which all keys
+ * share the byte; this takes linear time and, being stable, leaves rows with equal values in row order. The names are sorted with a
+ * merge sort over the rows (equally stable). Columns held outside a function table (i.e. the deltas of a report diff) are sorted the
+ * same way through {@link #Sort(double[], boolean)} and {@link #SortByName(String[], boolean)}. Orders by several columns are built
+ * from the least significant column up, reordering the indexes stably through {@link #Sort(int[], double[], boolean)} and
+ * {@link #Sort(int[], long[], boolean)}.
+ * 
+ * @author chrisculy
+ */
+final class ProfiledSorter
+{
+	/** Holds the number of bits sorted per pass of the radix sort. */
+	private static final int RADIX_BITS = 8;
+	
+	/** Holds the number of buckets of each pass of the radix sort. */
+	private static final int RADIX = 1 << RADIX_BITS;
+	
+	/**
+	 * Constructor (the sorter is used through its static methods).
+	 */
+	private ProfiledSorter()
+	{
+		/* stub function */
+	}
+	
+	/**
+	 * Retrieves the rows of the given table ordered by the given column.
+	 * 
+	 * @param table The function table.
+	 * @param column The column (one of the <code>ProfiledFunctionTable.STAT_</code> constants, {@link ProfilerReport#TOP_CALL_COUNT},
+	 *        {@link ProfilerReport#TOP_RECURSIVE_CALL_COUNT}, {@link ProfilerReport#SORT_BY_NAME} or {@link ProfilerReport#SORT_BY_ID}).
+	 * @param descending Whether to order the rows by descending value (rows with equal values stay in row order either way).
+	 * @return The rows in order.
+	 */
+	static int[] Sort(ProfiledFunctionTable table, int column, boolean descending)
+	{
+		if (column == ProfilerReport.SORT_BY_NAME)
+		{
+			return SortByName(table, descending);
+		}
+		
+		// Map the values to keys in unsigned order.
+		int count = table.GetRowCount();
+		long[] keys = new long[count];
+		for (int row = 0; row < count; row++)
+		{
+			long key;
+			if (column == ProfilerReport.SORT_BY_ID)
+			{
+				key = table.GetID(row) ^ Long.MIN_VALUE;
+			}
+			else if (column == ProfilerReport.TOP_CALL_COUNT)
+			{
+				key = table.GetCallCount(row) ^ Long.MIN_VALUE;
+			}
+			else if (column == ProfilerReport.TOP_RECURSIVE_CALL_COUNT)
+			{
+				key = table.GetRecursiveCallCount(row) ^ Long.MIN_VALUE;
+			}
+			else
+			{
+				key = ToKey(table.GetStat(column, row));
+			}
+			keys[row] = descending ? ~key : key;
+		}
+		return RadixSort(keys);
+	}
+	
+	/**
+	 * Retrieves the indexes of the given values ordered by value.
+	 * 
+	 * @param values The values.
+	 * @param descending Whether to order the indexes by descending value (indexes with equal values stay in index order either way).
+	 * @return The indexes in order.
+	 */
+	static int[] Sort(double[] values, boolean descending)
+	{
+		long[] keys = new long[values.length];
+		for (int i = 0; i < values.length; i++)
+		{
+			long key = ToKey(values[i]);
+			keys[i] = descending ? ~key : key;
+		}
+		return RadixSort(keys);
+	}
+	
+	/**
+	 * Retrieves the given indexes ordered by their values.
+	 * 
+	 * @param indexes The indexes to order.
+	 * @param values The values by index.
+	 * @param descending Whether to order the indexes by descending value (indexes with equal values stay in the given order either way).
+	 * @return The indexes in order.
+	 */
+	static int[] Sort(int[] indexes, double[] values, boolean descending)
+	{
+		long[] keys = new long[indexes.length];
+		for (int i = 0; i < indexes.length; i++)
+		{
+			long key = ToKey(values[indexes[i]]);
+			keys[i] = descending ? ~key : key;
+		}
+		return Reorder(indexes, RadixSort(keys));
+	}
+	
+	/**
+	 * Retrieves the given indexes ordered by their values.
+	 * 
+	 * @param indexes The indexes to order.
+	 * @param values The values by index.
+	 * @param descending Whether to order the indexes by descending value (indexes with equal values stay in the given order either way).
+	 * @return The indexes in order.
+	 */
+	static int[] Sort(int[] indexes, long[] values, boolean descending)
+	{
+		long[] keys = new long[indexes.length];
+		for (int i = 0; i < indexes.length; i++)
+		{
+			long key = values[indexes[i]] ^ Long.MIN_VALUE;
+			keys[i] = descending ? ~key : key;
+		}
+		return Reorder(indexes, RadixSort(keys));
+	}
+	
+	/**
+	 * Retrieves the given indexes in the given order.
+	 * 
+	 * @param indexes The indexes.
+	 * @param order The positions of the indexes in order.
+	 * @return The indexes in order.
+	 */
+	private static int[] Reorder(int[] indexes, int[] order)
+	{
+		int[] ordered = new int[order.length];
+		for (int i = 0; i < order.length; i++)
+		{
+			ordered[i] = indexes[order[i]];
+		}
+		return ordered;
+	}
+	
+	/**
+	 * Maps the given value to a key whose unsigned order is the order of the values (as of {@link Double#compare(double, double)}).
+	 * 
+	 * @param value The value.
+	 * @return The key.
+	 */
+	private static long ToKey(double value)
+	{
+		// Flip the sign bit of positive values and all bits of negative values.
+		long bits = Double.doubleToLongBits(value);
+		return bits ^ ((bits >> 63) | Long.MIN_VALUE);
+	}
+	
+	/**
+	 * Retrieves the indexes of the given keys ordered by the unsigned value of the keys (equal keys in index order).
+	 * 
+	 * @param keys The keys (reordered by the sort).
+	 * @return The indexes in order.
+	 */
+	private static int[] RadixSort(long[] keys)
+	{
+		int count = keys.length;
+		int[] indexes = new int[count];
+		for (int i = 0; i < count; i++)
+		{
+			indexes[i] = i;
+		}
+		long[] sortedKeys = new long[count];
+		int[] sortedIndexes = new int[count];
+		int[] offsets = new int[RADIX];
+		for (int shift = 0; shift < Long.SIZE; shift += RADIX_BITS)
+		{
+			// Count the keys per bucket, skipping the pass if all keys fall into the same bucket.
+			Arrays.fill(offsets, 0);
+			for (int i = 0; i < count; i++)
+			{
+				offsets[(int)(keys[i] >>> shift) & (RADIX - 1)]++;
+			}
+			if (count == 0 || offsets[(int)(keys[0] >>> shift) & (RADIX - 1)] == count)
+			{
+				continue;
+			}
+			
+			// Turn the counts into offsets and distribute the keys.
+			int offset = 0;
+			for (int bucket = 0; bucket < RADIX; bucket++)
+			{
+				int bucketCount = offsets[bucket];
+				offsets[bucket] = offset;
+				offset += bucketCount;
+			}
+			for (int i = 0; i < count; i++)
+			{
+				int position = offsets[(int)(keys[i] >>> shift) & (RADIX - 1)]++;
+				sortedKeys[position] = keys[i];
+				sortedIndexes[position] = indexes[i];
+			}
+			long[] swapKeys = keys;
+			keys = sortedKeys;
+			sortedKeys = swapKeys;
+			int[] swapIndexes = indexes;
+			indexes = sortedIndexes;
+			sortedIndexes = swapIndexes;
+		}
+		return indexes;
+	}
+	
+	/**
+	 * Retrieves the rows of the given table ordered by name (functions without a name first).
+	 * 
+	 * @param table The function table.
+	 * @param descending Whether to order the rows by descending name.
+	 * @return The rows in order.
+	 */
+	private static int[] SortByName(ProfiledFunctionTable table, boolean descending)
+	{
+		String[] names = new String[table.GetRowCount()];
+		for (int row = 0; row < names.length; row++)
+		{
+			names[row] = table.GetName(row);
+		}
+		return SortByName(names, descending);
+	}
+	
+	/**
+	 * Retrieves the indexes of the given names ordered by name (<code>null</code> names first).
+	 * 
+	 * @param names The names.
+	 * @param descending Whether to order the indexes by descending name (indexes with equal names stay in index order either way).
+	 * @return The indexes in order.
+	 */
+	static int[] SortByName(String[] names, boolean descending)
+	{
+		int count = names.length;
+		int[] rows = new int[count];
+		for (int row = 0; row < count; row++)
+		{
+			rows[row] = row;
+		}
+		
+		// Merge runs of doubling width bottom up.
+		int[] merged = new int[count];
+		for (int width = 1; width < count; width *= 2)
+		{
+			for (int start = 0; start < count; start += width * 2)
+			{
+				int middle = Math.min(start + width, count);
+				int end = Math.min(start + width * 2, count);
+				int left = start;
+				int right = middle;
+				for (int i = start; i < end; i++)
+				{
+					if (left < middle && (right == end || CompareNames(names[rows[left]], names[rows[right]], descending) <= 0))
+					{
+						merged[i] = rows[left++];
+					}
+					else
+					{
+						merged[i] = rows[right++];
+					}
+				}
+			}
+			int[] swap = rows;
+			rows = merged;
+			merged = swap;
+		}
+		return rows;
+	}
+	
+	/**
+	 * Compares the given names (<code>null</code> coming first).
+	 * 
+	 * @param name The first name.
+	 * @param otherName The second name.
+	 * @param descending Whether to invert the order.
+	 * @return A negative number, zero or a positive number as the first name comes before, with or after the second name.
+	 */
+	private static int CompareNames(String name, String otherName, boolean descending)
+	{
+		int comparison;
+		if (name == null || otherName == null)
+		{
+			comparison = name == otherName ? 0 : (name == null ? -1 : 1);
+		}
+		else
+		{
+			comparison = name.compareTo(otherName);
+		}
+		return descending ? -comparison : comparison;
+	}
+}
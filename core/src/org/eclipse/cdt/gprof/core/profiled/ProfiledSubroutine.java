@@ -33,6 +33,8 @@ package org.eclipse.cdt.gprof.core.profiled;
  * 
  * This class represents a function that is called by a given function that we are interested in.
  * 
+ * The subroutines retrieved from a function are views over the arc table of the function's {@link ProfiledFunctionTable}.
+ * 
  * @author chrisculy
  * 
  */
@@ -59,6 +61,12 @@ public class ProfiledSubroutine
 	 */
 	private float timeInSubroutineSubroutines;
 	
+	/** Holds the arc table the subroutine is a view over (<code>null</code> if the subroutine holds its own data). */
+	private ProfiledArcTable arcs;
+	
+	/** Holds the arc of the subroutine within the arc table. */
+	private int arc;
+	
 	/**
 	 * Constructor.
 	 */
@@ -73,6 +81,18 @@ public class ProfiledSubroutine
         this.timeInSubroutineSubroutines = -1f;
 	}
 	
+	/**
+	 * Constructs the subroutine as a view over the given arc.
+	 * 
+	 * @param arcs The arc table.
+	 * @param arc The arc.
+	 */
+	ProfiledSubroutine(ProfiledArcTable arcs, int arc)
+	{
+		this.arcs = arcs;
+		this.arc = arc;
+	}
+	
 	/**
 	 * Retrieves the subroutine's ID.
 	 * 
@@ -80,7 +100,7 @@ public class ProfiledSubroutine
 	 */
 	public int GetID()
 	{
-		return this.id;
+		return this.arcs != null ? this.arcs.GetSubroutineID(this.arc) : this.id;
 	}
 	
 	/**
@@ -90,7 +110,7 @@ public class ProfiledSubroutine
      */
     public String GetName()
     {
-        return this.name;
+        return this.arcs != null ? this.arcs.GetSubroutineName(this.arc) : this.name;
     }
 	
 	/**
@@ -100,7 +120,7 @@ public class ProfiledSubroutine
 	 */
 	public int GetCallCount()
 	{
-		return this.callCount;
+		return this.arcs != null ? (int)this.arcs.GetCallCount(this.arc) : this.callCount;
 	}
 	
 	/**
@@ -110,7 +130,7 @@ public class ProfiledSubroutine
 	 */
 	public float GetTimeInSubroutineSelf()
 	{
-		return this.timeInSubroutineSelf;
+		return this.arcs != null ? (float)this.arcs.GetSelfTime(this.arc) : this.timeInSubroutineSelf;
 	}
 	
 	/**
@@ -120,7 +140,7 @@ public class ProfiledSubroutine
 	 */
 	public float GetTimeInSubroutineSubroutines()
 	{
-		return this.timeInSubroutineSubroutines;
+		return this.arcs != null ? (float)this.arcs.GetChildTime(this.arc) : this.timeInSubroutineSubroutines;
 	}
 	
 	/**
@@ -130,7 +150,14 @@ public class ProfiledSubroutine
 	 */
 	public void SetID(int id)
 	{
-		this.id = id;
+		if (this.arcs != null)
+		{
+			this.arcs.SetSubroutineID(this.arc, id);
+		}
+		else
+		{
+			this.id = id;
+		}
 	}
 	
 	/**
@@ -140,7 +167,14 @@ public class ProfiledSubroutine
      */
     public void SetName(String name)
     {
-        this.name = name;
+        if (this.arcs != null)
+        {
+            this.arcs.SetSubroutineName(this.arc, name);
+        }
+        else
+        {
+            this.name = name;
+        }
     }
 	
 	/**
@@ -150,7 +184,14 @@ public class ProfiledSubroutine
 	 */
 	public void SetCallCount(int callCount)
 	{
-		this.callCount = callCount;
+		if (this.arcs != null)
+		{
+			this.arcs.SetCallCount(this.arc, callCount);
+		}
+		else
+		{
+			this.callCount = callCount;
+		}
 	}
 	
 	/**
@@ -160,7 +201,14 @@ public class ProfiledSubroutine
 	 */
 	public void SetTimeInSubroutineSelf(float timeInSubroutineSelf)
 	{
-		this.timeInSubroutineSelf = timeInSubroutineSelf;
+		if (this.arcs != null)
+		{
+			this.arcs.SetSelfTime(this.arc, timeInSubroutineSelf);
+		}
+		else
+		{
+			this.timeInSubroutineSelf = timeInSubroutineSelf;
+		}
 	}
 	
 	/**
@@ -170,6 +218,24 @@ public class ProfiledSubroutine
 	 */
 	public void SetTimeInSubroutineSubroutines(float timeInSubroutineSubroutines)
 	{
-		this.timeInSubroutineSubroutines = timeInSubroutineSubroutines;
+		if (this.arcs != null)
+		{
+			this.arcs.SetChildTime(this.arc, timeInSubroutineSubroutines);
+		}
+		else
+		{
+			this.timeInSubroutineSubroutines = timeInSubroutineSubroutines;
+		}
+	}
+	
+	/**
+	 * Retrieves the arc the subroutine is a view over within the given arc table.
+	 * 
+	 * @param arcs The arc table.
+	 * @return The arc or -1 if the subroutine is not a view over an arc of the given table.
+	 */
+	int GetArc(ProfiledArcTable arcs)
+	{
+		return this.arcs == arcs && arcs != null ? this.arc : -1;
 	}
 }
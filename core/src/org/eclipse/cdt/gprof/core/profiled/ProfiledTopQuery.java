@@ -0,0 +1,323 @@
+/*
+ * =======================================================================
+ * ============================ gprof-eclipse ============================
+ * =======================================================================
+ * 
+ * 
+ * File: ProfiledTopQuery.java
+ * 
+ * 
+ * -----------------------------------------------------------------------
+ * Copyright (c) 2009 Chris Culy and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * + Chris Culy - initial API and implementation
+ * -----------------------------------------------------------------------
+ * 
+ * 
+ * Last changed:
+ * $Revision$
+ * $Author$
+ * $Date$
+ */
+
+package org.eclipse.cdt.gprof.core.profiled;
+
+import java.util.Arrays;
+
+/**
+ * Answers the top K queries of a profiler report: the K functions (or arcs) with the largest value of a statistic.
+ * 
+ * Each query is a single pass over the table that keeps the best K rows seen so far in a bounded min-heap of primitive arrays (the
+ * worst of the best at the root), so a query takes O(n log K) time and O(K) space rather than sorting the whole table. Ties are broken
+ * in favor of the earlier row. Rows whose statistic is not set are left out.
+ * 
+ * The results of unfiltered queries are cached by statistic; a query for fewer rows than a cached result is answered from the cached
+ * result. The cache is dropped as soon as the table it was computed from is modified (or replaced).
+ * 
+ * @author chrisculy
+ */
+final class ProfiledTopQuery
+{
+	/** Holds the number of statistics that functions can be queried by. */
+	private static final int FUNCTION_STATISTIC_COUNT = ProfilerReport.TOP_RECURSIVE_CALL_COUNT + 1;
+	
+	/** Holds the number of statistics that arcs can be queried by. */
+	private static final int ARC_STATISTIC_COUNT = ProfilerReport.TOP_ARC_TOTAL_TIME + 1;
+	
+	/** Holds the function table that the cached function results were computed from. */
+	private ProfiledFunctionTable functionTable;
+	
+	/** Holds the modification count of the function table when the cached function results were computed. */
+	private int functionTableModificationCount;
+	
+	/** Holds the cached function results by statistic (<code>null</code> if not cached). */
+	private final int[][] functionResults = new int[FUNCTION_STATISTIC_COUNT][];
+	
+	/** Holds the number of rows that each cached function result was queried for. */
+	private final int[] functionResultCounts = new int[FUNCTION_STATISTIC_COUNT];
+	
+	/** Holds the arc table that the cached arc results were computed from. */
+	private ProfiledArcTable arcTable;
+	
+	/** Holds the modification count of the arc table when the cached arc results were computed. */
+	private int arcTableModificationCount;
+	
+	/** Holds the cached arc results by statistic (<code>null</code> if not cached). */
+	private final int[][] arcResults = new int[ARC_STATISTIC_COUNT][];
+	
+	/** Holds the number of arcs that each cached arc result was queried for. */
+	private final int[] arcResultCounts = new int[ARC_STATISTIC_COUNT];
+	
+	/**
+	 * Retrieves the rows of the given number of functions of the given table with the largest value of the given statistic.
+	 * 
+	 * @param table The function table.
+	 * @param statistic The statistic (one of the <code>ProfiledFunctionTable.STAT_</code> constants,
+	 *        {@link ProfilerReport#TOP_CALL_COUNT} or {@link ProfilerReport#TOP_RECURSIVE_CALL_COUNT}).
+	 * @param count The number of functions.
+	 * @param filter The filter selecting the functions to consider (<code>null</code> for all functions).
+	 * @return The rows, the largest value first.
+	 */
+	synchronized int[] GetTopFunctions(ProfiledFunctionTable table, int statistic, int count, ProfiledFunctionFilter filter)
+	{
+		// Answer the query from the cache if possible.
+		if (filter == null)
+		{
+			if (this.functionTable != table || this.functionTableModificationCount != table.GetModificationCount())
+			{
+				Arrays.fill(this.functionResults, null);
+				this.functionTable = table;
+				this.functionTableModificationCount = table.GetModificationCount();
+			}
+			int[] result = this.functionResults[statistic];
+			if (result != null && (this.functionResultCounts[statistic] >= count || result.length < this.functionResultCounts[statistic]))
+			{
+				return Arrays.copyOf(result, Math.min(count, result.length));
+			}
+		}
+		
+		// Offer every accepted row to the heap.
+		int rowCount = table.GetRowCount();
+		double[] keys = new double[Math.min(count, rowCount)];
+		int[] rows = new int[keys.length];
+		int size = 0;
+		for (int row = 0; row < rowCount; row++)
+		{
+			double key = GetFunctionValue(table, statistic, row);
+			if (key >= 0 && (filter == null || filter.Accept(table, row)))
+			{
+				size = Offer(keys, rows, size, key, row);
+			}
+		}
+		int[] result = Drain(keys, rows, size);
+		
+		if (filter == null)
+		{
+			this.functionResults[statistic] = result;
+			this.functionResultCounts[statistic] = count;
+			return result.clone();
+		}
+		return result;
+	}
+	
+	/**
+	 * Retrieves the given number of arcs of the given table with the largest value of the given statistic.
+	 * 
+	 * @param arcs The arc table.
+	 * @param statistic The statistic (one of the <code>ProfilerReport.TOP_ARC_</code> constants).
+	 * @param count The number of arcs.
+	 * @return The arcs, the largest value first.
+	 */
+	synchronized int[] GetTopArcs(ProfiledArcTable arcs, int statistic, int count)
+	{
+		// Answer the query from the cache if possible.
+		if (this.arcTable != arcs || this.arcTableModificationCount != arcs.GetModificationCount())
+		{
+			Arrays.fill(this.arcResults, null);
+			this.arcTable = arcs;
+			this.arcTableModificationCount = arcs.GetModificationCount();
+		}
+		int[] result = this.arcResults[statistic];
+		if (result != null && (this.arcResultCounts[statistic] >= count || result.length < this.arcResultCounts[statistic]))
+		{
+			return Arrays.copyOf(result, Math.min(count, result.length));
+		}
+		
+		// Offer every arc to the heap.
+		int arcCount = arcs.GetArcCount();
+		double[] keys = new double[Math.min(count, arcCount)];
+		int[] items = new int[keys.length];
+		int size = 0;
+		for (int arc = 0; arc < arcCount; arc++)
+		{
+			double key = arcs.IsRemoved(arc) ? -1 : GetArcValue(arcs, statistic, arc);
+			if (key >= 0)
+			{
+				size = Offer(keys, items, size, key, arc);
+			}
+		}
+		result = Drain(keys, items, size);
+		this.arcResults[statistic] = result;
+		this.arcResultCounts[statistic] = count;
+		return result.clone();
+	}
+	
+	/**
+	 * Retrieves the value of the given statistic of the function in the given row.
+	 * 
+	 * @param table The function table.
+	 * @param statistic The statistic.
+	 * @param row The row.
+	 * @return The value (negative if not set).
+	 */
+	private static double GetFunctionValue(ProfiledFunctionTable table, int statistic, int row)
+	{
+		if (statistic == ProfilerReport.TOP_CALL_COUNT)
+		{
+			return table.GetCallCount(row);
+		}
+		if (statistic == ProfilerReport.TOP_RECURSIVE_CALL_COUNT)
+		{
+			return table.GetRecursiveCallCount(row);
+		}
+		return table.GetStat(statistic, row);
+	}
+	
+	/**
+	 * Retrieves the value of the given statistic of the given arc.
+	 * 
+	 * @param arcs The arc table.
+	 * @param statistic The statistic.
+	 * @param arc The arc.
+	 * @return The value (negative if not set).
+	 */
+	private static double GetArcValue(ProfiledArcTable arcs, int statistic, int arc)
+	{
+		switch (statistic)
+		{
+			case ProfilerReport.TOP_ARC_CALL_COUNT:
+				return arcs.GetCallCount(arc);
+			case ProfilerReport.TOP_ARC_SELF_TIME:
+				return arcs.GetSelfTime(arc);
+			case ProfilerReport.TOP_ARC_CHILD_TIME:
+				return arcs.GetChildTime(arc);
+			default:
+				double selfTime = arcs.GetSelfTime(arc);
+				double childTime = arcs.GetChildTime(arc);
+				return selfTime < 0 || childTime < 0 ? Math.max(selfTime, childTime) : selfTime + childTime;
+		}
+	}
+	
+	/**
+	 * Offers the given item to the heap, which keeps it if the heap is not full yet or if the item is better than the worst item held.
+	 * 
+	 * @param keys The keys of the items held by the heap (its capacity being the number of items to keep).
+	 * @param items The items held by the heap.
+	 * @param size The number of items held by the heap.
+	 * @param key The key of the item.
+	 * @param item The item.
+	 * @return The new number of items held by the heap.
+	 */
+	private static int Offer(double[] keys, int[] items, int size, double key, int item)
+	{
+		if (size < keys.length)
+		{
+			// Add the item as a leaf and sift it up.
+			int index = size;
+			while (index > 0)
+			{
+				int parent = (index - 1) >>> 1;
+				if (!IsWorse(key, item, keys[parent], items[parent]))
+				{
+					break;
+				}
+				keys[index] = keys[parent];
+				items[index] = items[parent];
+				index = parent;
+			}
+			keys[index] = key;
+			items[index] = item;
+			return size + 1;
+		}
+		if (size > 0 && IsWorse(keys[0], items[0], key, item))
+		{
+			SiftDown(keys, items, size, key, item);
+		}
+		return size;
+	}
+	
+	/**
+	 * Replaces the root of the heap (its worst item) by the given item and sifts it down.
+	 * 
+	 * @param keys The keys of the items held by the heap.
+	 * @param items The items held by the heap.
+	 * @param size The number of items held by the heap.
+	 * @param key The key of the item.
+	 * @param item The item.
+	 */
+	private static void SiftDown(double[] keys, int[] items, int size, double key, int item)
+	{
+		int index = 0;
+		while (true)
+		{
+			int child = index * 2 + 1;
+			if (child >= size)
+			{
+				break;
+			}
+			if (child + 1 < size && IsWorse(keys[child + 1], items[child + 1], keys[child], items[child]))
+			{
+				child++;
+			}
+			if (!IsWorse(keys[child], items[child], key, item))
+			{
+				break;
+			}
+			keys[index] = keys[child];
+			items[index] = items[child];
+			index = child;
+		}
+		keys[index] = key;
+		items[index] = item;
+	}
+	
+	/**
+	 * Empties the heap into an array, the best item first.
+	 * 
+	 * @param keys The keys of the items held by the heap.
+	 * @param items The items held by the heap.
+	 * @param size The number of items held by the heap.
+	 * @return The items, the best first.
+	 */
+	private static int[] Drain(double[] keys, int[] items, int size)
+	{
+		int[] result = new int[size];
+		for (int last = size - 1; last >= 0; last--)
+		{
+			// Take the worst item off the root and move the last leaf into its place.
+			result[last] = items[0];
+			SiftDown(keys, items, last, keys[last], items[last]);
+		}
+		return result;
+	}
+	
+	/**
+	 * Retrieves whether the first item ranks below the second item (it has the smaller key, or the same key and the later index).
+	 * 
+	 * @param key The key of the first item.
+	 * @param item The first item.
+	 * @param otherKey The key of the second item.
+	 * @param otherItem The second item.
+	 * @return <code>true</code> if the first item ranks below the second item; <code>false</code> otherwise.
+	 */
+	private static boolean IsWorse(double key, int item, double otherKey, int otherItem)
+	{
+		return key < otherKey || (key == otherKey && item > otherItem);
+	}
+}
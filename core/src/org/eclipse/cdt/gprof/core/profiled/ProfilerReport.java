@@ -29,28 +29,102 @@
 package org.eclipse.cdt.gprof.core.profiled;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 
 /**
  * Represents a full report from gprof for a given run of a program.
  * 
+ * The functions' data is stored in a single {@link ProfiledFunctionTable} (each function being a view over its row), and the report
+ * keeps the rows indexed by name and by gprof index (the '[n]' of the call graph) so that functions can be looked up in constant time.
+ * 
  * @author chrisculy
  */
 public class ProfilerReport
 {
-	/** Holds all the profiled functions. */
+	// ================== Profiler Report Sort Constants =================== //
+	
+	/** The sort key that orders the functions by name (as opposed to by a statistic). */
+	public static final int SORT_BY_NAME = -1;
+	
+	/** The sort key that orders the functions by ID. */
+	public static final int SORT_BY_ID = -2;
+	
+	// ================== Profiler Report Sort Constants =================== //
+	
+	// ================ Profiler Report Top Query Constants ================ //
+	
+	/** The number of calls to the function (a statistic that functions can be queried by besides the function table statistics). */
+	public static final int TOP_CALL_COUNT = ProfiledFunctionTable.STAT_COUNT;
+	
+	/** The number of recursive calls to the function (a statistic that functions can be queried by). */
+	public static final int TOP_RECURSIVE_CALL_COUNT = ProfiledFunctionTable.STAT_COUNT + 1;
+	
+	/** The number of calls along the arc (a statistic that arcs can be queried by). */
+	public static final int TOP_ARC_CALL_COUNT = 0;
+	
+	/** The amount of self time propagated along the arc (a statistic that arcs can be queried by). */
+	public static final int TOP_ARC_SELF_TIME = 1;
+	
+	/** The amount of child time propagated along the arc (a statistic that arcs can be queried by). */
+	public static final int TOP_ARC_CHILD_TIME = 2;
+	
+	/** The total amount of time propagated along the arc (a statistic that arcs can be queried by). */
+	public static final int TOP_ARC_TOTAL_TIME = 3;
+	
+	// ================ Profiler Report Top Query Constants ================ //
+	
+	/** Holds all the profiled functions (the function at each index is the view over the table row with the same index). */
 	private ArrayList<ProfiledFunction> functions;
 	
+	/** Holds the data of the profiled functions. */
+	private ProfiledFunctionTable table;
+	
+	/** Holds the rows of the profiled functions indexed by name ID (-1 for none). */
+	private int[] rowsByNameID;
+	
+	/** Holds the rows of the profiled functions indexed by ID (sparse; gprof assigns the IDs densely starting from 1; -1 for none). */
+	private int[] rowsByID;
+	
+	/** Holds the call graph of the profiled functions (<code>null</code> until it is built). */
+	private ProfiledCallGraph callGraph;
+	
+	/** Holds the engine answering the top K queries (and caching their results). */
+	private final ProfiledTopQuery topQuery = new ProfiledTopQuery();
+	
 	/**
 	 * Constructor.
 	 */
 	public ProfilerReport()
 	{
-		/* stub function */
+		this.SetFunctions(new ArrayList<ProfiledFunction>());
+	}
+	
+	/**
+	 * Constructs the report over the given function table (i.e. as read from a snapshot), a function for each row.
+	 * 
+	 * @param table The function table.
+	 */
+	ProfilerReport(ProfiledFunctionTable table)
+	{
+		int rowCount = table.GetRowCount();
+		this.table = table;
+		this.functions = new ArrayList<ProfiledFunction>(rowCount);
+		this.rowsByNameID = Grow(new int[0], table.GetNameCount());
+		this.rowsByID = Grow(new int[0], rowCount + 1);
+		for (int row = 0; row < rowCount; row++)
+		{
+			ProfiledFunction function = new ProfiledFunction(table, row);
+			this.functions.add(function);
+			this.IndexFunction(function);
+		}
 	}
 	
 	/**
 	 * Retrieves the profiler report's set of profiled functions
 	 * 
+	 * The returned list should not be modified directly, use {@link #AddFunction(ProfiledFunction)} so that the lookup indexes stay
+	 * current.
+	 * 
 	 * @return The profiler report's set of profiled functions.
 	 */
 	public ArrayList<ProfiledFunction> GetFunctions()
@@ -58,13 +132,251 @@ public class ProfilerReport
 		return this.functions;
 	}
 	
+	/**
+	 * Retrieves the table holding the data of the profiler report's functions, for scanning the statistics of all functions at once.
+	 * 
+	 * @return The function table.
+	 */
+	public ProfiledFunctionTable GetFunctionTable()
+	{
+		return this.table;
+	}
+	
+	/**
+	 * Retrieves the call graph of the profiler report's functions, building it if it has not been built yet. Background jobs retrieve
+	 * the call graph of the report shown, so the call graph is built under the report's lock.
+	 * 
+	 * @return The call graph.
+	 */
+	public synchronized ProfiledCallGraph GetCallGraph()
+	{
+		if (this.callGraph == null)
+		{
+			this.BuildCallGraph();
+		}
+		return this.callGraph;
+	}
+	
+	/**
+	 * Builds the call graph of the profiler report's functions. This must be called whenever the callers or subroutines of functions that
+	 * have already been added to the report change (the parsers call it once the report is complete).
+	 */
+	public synchronized void BuildCallGraph()
+	{
+		this.callGraph = new ProfiledCallGraph(this);
+	}
+	
+	/**
+	 * Retrieves the rows of all functions ordered by the given statistic (the function in each row being the function at the same index
+	 * of {@link #GetFunctions()}). The rows are sorted without boxing, by a radix sort over the column (or a merge sort by name);
+	 * functions with equal values stay in report order.
+	 * 
+	 * @param statistic The statistic (one of the <code>ProfiledFunctionTable.STAT_</code> constants, {@link #TOP_CALL_COUNT},
+	 *        {@link #TOP_RECURSIVE_CALL_COUNT}, {@link #SORT_BY_NAME} or {@link #SORT_BY_ID}).
+	 * @param descending Whether to order the functions by descending value.
+	 * @return The rows in order.
+	 */
+	public int[] Sort(int statistic, boolean descending)
+	{
+		return ProfiledSorter.Sort(this.table, statistic, descending);
+	}
+	
+	/**
+	 * Retrieves the rows of the given number of functions with the largest value of the given statistic (the function in each row being
+	 * the function at the same index of {@link #GetFunctions()}). Functions whose statistic is not set are left out.
+	 * 
+	 * @param statistic The statistic (one of the <code>ProfiledFunctionTable.STAT_</code> constants, {@link #TOP_CALL_COUNT} or
+	 *        {@link #TOP_RECURSIVE_CALL_COUNT}).
+	 * @param count The number of functions.
+	 * @return The rows, the largest value first.
+	 */
+	public int[] GetTopFunctions(int statistic, int count)
+	{
+		return this.topQuery.GetTopFunctions(this.table, statistic, count, null);
+	}
+	
+	/**
+	 * Retrieves the rows of the given number of functions accepted by the given filter with the largest value of the given statistic.
+	 * 
+	 * @param statistic The statistic (one of the <code>ProfiledFunctionTable.STAT_</code> constants, {@link #TOP_CALL_COUNT} or
+	 *        {@link #TOP_RECURSIVE_CALL_COUNT}).
+	 * @param count The number of functions.
+	 * @param filter The filter selecting the functions to consider (<code>null</code> for all functions).
+	 * @return The rows, the largest value first.
+	 * @see #GetTopFunctions(int, int)
+	 */
+	public int[] GetTopFunctions(int statistic, int count, ProfiledFunctionFilter filter)
+	{
+		return this.topQuery.GetTopFunctions(this.table, statistic, count, filter);
+	}
+	
+	/**
+	 * Retrieves the given number of call graph arcs with the largest value of the given statistic (as indexes into the arc table of the
+	 * function table). Arcs whose statistic is not set are left out.
+	 * 
+	 * @param statistic The statistic (one of the <code>TOP_ARC_</code> constants).
+	 * @param count The number of arcs.
+	 * @return The arcs, the largest value first.
+	 */
+	public int[] GetTopArcs(int statistic, int count)
+	{
+		return this.topQuery.GetTopArcs(this.table.GetArcTable(), statistic, count);
+	}
+	
+	/**
+	 * Finds the given number of heaviest call paths from the given function down through the call graph (see {@link ProfiledHotPaths}).
+	 * 
+	 * @param root The root function of the paths (i.e. <code>main</code>), which must have been added to the report.
+	 * @param count The number of paths.
+	 * @return The paths.
+	 */
+	public ProfiledHotPaths GetHotPaths(ProfiledFunction root, int count)
+	{
+		return new ProfiledHotPaths(this.GetCallGraph(), root.GetRow(), count);
+	}
+	
+	/**
+	 * Computes the dominator tree of the call graph (see {@link ProfiledDominatorTree}).
+	 * 
+	 * @param root The root function of the tree (i.e. <code>main</code>), which must have been added to the report, or
+	 *        <code>null</code> to root the tree at the functions without callers (the <code>&lt;spontaneous&gt;</code> entries).
+	 * @return The dominator tree.
+	 */
+	public ProfiledDominatorTree GetDominatorTree(ProfiledFunction root)
+	{
+		return new ProfiledDominatorTree(this.GetCallGraph(), this.table, root != null ? root.GetRow() : -1);
+	}
+	
+	/**
+	 * Retrieves the profiled function with the given name.
+	 * 
+	 * @param name The name of the function.
+	 * @return The function or <code>null</code> if the report does not contain a function with the given name.
+	 */
+	public ProfiledFunction FindByName(String name)
+	{
+		if (name == null)
+		{
+			return null;
+		}
+		int nameID = this.table.FindNameID(name);
+		if (nameID < 0 || nameID >= this.rowsByNameID.length || this.rowsByNameID[nameID] < 0)
+		{
+			return null;
+		}
+		return this.functions.get(this.rowsByNameID[nameID]);
+	}
+	
+	/**
+	 * Retrieves the profiled function with the given ID.
+	 * 
+	 * @param id The ID of the function (its gprof index).
+	 * @return The function or <code>null</code> if the report does not contain a function with the given ID.
+	 */
+	public ProfiledFunction FindByID(int id)
+	{
+		if (id < 0 || id >= this.rowsByID.length || this.rowsByID[id] < 0)
+		{
+			return null;
+		}
+		return this.functions.get(this.rowsByID[id]);
+	}
+	
+	/**
+	 * Retrieves the row of the function with the given ID or, failing that, with the given name.
+	 * 
+	 * @param id The ID of the function.
+	 * @param nameID The name ID of the function (-1 for none).
+	 * @return The row of the function or -1 if the report does not contain the function.
+	 */
+	int FindRow(int id, int nameID)
+	{
+		if (id >= 0 && id < this.rowsByID.length && this.rowsByID[id] >= 0)
+		{
+			return this.rowsByID[id];
+		}
+		return nameID >= 0 && nameID < this.rowsByNameID.length ? this.rowsByNameID[nameID] : -1;
+	}
+	
+	/**
+	 * Adds the given function to the profiler report and indexes it. The function's data is moved into the report's function table.
+	 * 
+	 * @param function The function to add.
+	 */
+	public void AddFunction(ProfiledFunction function)
+	{
+		function.MoveTo(this.table, this.table.AddRow());
+		this.functions.add(function);
+		this.IndexFunction(function);
+		this.callGraph = null;
+	}
+	
+	/**
+	 * Updates the lookup indexes for the given function. This must be called whenever the name or ID of a function that has already been
+	 * added to the report changes.
+	 * 
+	 * @param function The function to index.
+	 */
+	public void IndexFunction(ProfiledFunction function)
+	{
+		int row = function.GetRow();
+		int nameID = this.table.GetNameID(row);
+		if (nameID >= 0)
+		{
+			if (nameID >= this.rowsByNameID.length)
+			{
+				this.rowsByNameID = Grow(this.rowsByNameID, nameID + 1);
+			}
+			this.rowsByNameID[nameID] = row;
+		}
+		
+		int id = this.table.GetID(row);
+		if (id >= 0)
+		{
+			if (id >= this.rowsByID.length)
+			{
+				this.rowsByID = Grow(this.rowsByID, id + 1);
+			}
+			this.rowsByID[id] = row;
+		}
+	}
+	
 	/**
 	 * Sets the profiler report's set of profiled functions
 	 * 
+	 * The functions' data is moved into a new function table, in the order of the given list.
+	 * 
 	 * @param functions The profiler report's set of profiled functions.
 	 */
 	public void SetFunctions(ArrayList<ProfiledFunction> functions)
 	{
 		this.functions = functions;
+		this.callGraph = null;
+		
+		// Move the functions into a new table and rebuild the lookup indexes.
+		this.table = new ProfiledFunctionTable(functions.size());
+		this.rowsByNameID = Grow(new int[0], functions.size() + 1);
+		this.rowsByID = Grow(new int[0], functions.size() + 1);
+		for (int i = 0; i < functions.size(); i++)
+		{
+			ProfiledFunction function = functions.get(i);
+			function.MoveTo(this.table, this.table.AddRow());
+			this.IndexFunction(function);
+		}
+	}
+	
+	/**
+	 * Copies the given index into a new index of at least the given size, filling the new entries with -1.
+	 * 
+	 * @param index The index to copy.
+	 * @param size The minimum size of the new index.
+	 * @return The new index.
+	 */
+	private static int[] Grow(int[] index, int size)
+	{
+		int[] grown = new int[Math.max(size, index.length * 2)];
+		System.arraycopy(index, 0, grown, 0, index.length);
+		Arrays.fill(grown, index.length, grown.length, -1);
+		return grown;
 	}
 }
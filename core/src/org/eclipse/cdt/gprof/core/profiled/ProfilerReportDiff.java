@@ -0,0 +1,548 @@
+/*
+ * =======================================================================
+ * ============================ gprof-eclipse ============================
+ * =======================================================================
+ * 
+ * 
+ * File: ProfilerReportDiff.java
+ * 
+ * 
+ * -----------------------------------------------------------------------
+ * Copyright (c) 2009 Chris Culy and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * + Chris Culy - initial API and implementation
+ * -----------------------------------------------------------------------
+ * 
+ * 
+ * Last changed:
+ * $Revision$
+ * $Author$
+ * $Date$
+ */
+
+package org.eclipse.cdt.gprof.core.profiled;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Holds the differences between two profiler reports (a baseline and a candidate, i.e. before and after a change).
+ * 
+ * The functions of the reports are joined by name through a hash index (in time linear in the size of the reports); each function of
+ * the diff holds the self time, total time, call count and times per call of both sides and their deltas (candidate minus baseline),
+ * and whether the function is new, gone or common to both reports. The arcs are joined by the names of their caller and subroutine,
+ * giving the arcs that are new in the candidate and those that are gone from it. Optionally, the names are normalized first, so that
+ * the clones the compiler makes of a function (i.e. <code>f.isra.0</code> or <code>f.constprop.1</code>) are matched to the function
+ * (and added up with it).
+ * 
+ * The functions of the diff can be ordered by any delta or by name (see {@link #Sort(int, boolean)}).
+ * 
+ * @author chrisculy
+ */
+public final class ProfilerReportDiff
+{
+	// =================== Profiler Report Diff Constants =================== //
+	
+	/** The column of the time spent in a function itself. */
+	public static final int COLUMN_SELF_TIME = 0;
+	
+	/** The column of the total time spent in a function (the time spent in the function itself and in its subroutines). */
+	public static final int COLUMN_TOTAL_TIME = 1;
+	
+	/** The column of the call count of a function. */
+	public static final int COLUMN_CALL_COUNT = 2;
+	
+	/** The column of the time spent in a function itself per call (in milliseconds). */
+	public static final int COLUMN_SELF_MS_PER_CALL = 3;
+	
+	/** The column of the total time spent in a function per call (in milliseconds). */
+	public static final int COLUMN_TOTAL_MS_PER_CALL = 4;
+	
+	/** The number of columns. */
+	public static final int COLUMN_COUNT = 5;
+	
+	/** The sort key that orders the functions by name (as opposed to by the delta of a column). */
+	public static final int SORT_BY_NAME = -1;
+	
+	/** The status of a function that is in both reports. */
+	public static final int STATUS_COMMON = 0;
+	
+	/** The status of a function that is only in the candidate report. */
+	public static final int STATUS_NEW = 1;
+	
+	/** The status of a function that is only in the baseline report. */
+	public static final int STATUS_GONE = 2;
+	
+	// =================== Profiler Report Diff Constants =================== //
+	
+	/** Holds the index of the baseline side. */
+	private static final int BASELINE = 0;
+	
+	/** Holds the index of the candidate side. */
+	private static final int CANDIDATE = 1;
+	
+	/** Holds the clone suffixes that the compiler appends to the names of the clones it makes of a function. */
+	private static final Pattern CLONE_SUFFIXES = Pattern
+		.compile("(?:\\.(?:isra|constprop|part|cold|lto_priv|clone|localalias)(?:\\.\\d+)?| \\[clone \\.[\\w.]+\\])+$");
+	
+	/** Holds the initial capacity of the name and arc columns. */
+	private static final int INITIAL_CAPACITY = 64;
+	
+	/** Holds whether the names were normalized. */
+	private final boolean normalizeNames;
+	
+	/** Holds the indexes of the names (both as they are and normalized). */
+	private final HashMap<String, Integer> indexesByName = new HashMap<String, Integer>();
+	
+	/** Holds the (normalized) names by index. */
+	private String[] names = new String[INITIAL_CAPACITY];
+	
+	/** Holds the number of names. */
+	private int nameCount;
+	
+	/** Holds whether each name is a function of each side (indexed by side, then by name). */
+	private boolean[][] functions = new boolean[2][INITIAL_CAPACITY];
+	
+	/** Holds the self time, total time and call count of each name on each side (indexed by side, column, then name). */
+	private double[][][] values = new double[2][COLUMN_COUNT][INITIAL_CAPACITY];
+	
+	/** Holds the arcs by the name indexes of their caller (high half) and subroutine (low half). */
+	private final HashMap<Long, Integer> indexesByArc = new HashMap<Long, Integer>();
+	
+	/** Holds the name index of the caller of each arc. */
+	private int[] arcCallers = new int[INITIAL_CAPACITY];
+	
+	/** Holds the name index of the subroutine of each arc. */
+	private int[] arcSubroutines = new int[INITIAL_CAPACITY];
+	
+	/** Holds the call count of each arc on each side (negative if the arc is not on the side; indexed by side, then by arc). */
+	private long[][] arcCallCounts = new long[2][INITIAL_CAPACITY];
+	
+	/** Holds the number of arcs. */
+	private int arcCount;
+	
+	/** Holds the name indexes of the functions of the diff. */
+	private int[] functionNames;
+	
+	/** Holds the arcs that are only in the candidate report. */
+	private int[] newArcs;
+	
+	/** Holds the arcs that are only in the baseline report. */
+	private int[] goneArcs;
+	
+	/**
+	 * Constructs the diff between the given reports.
+	 * 
+	 * @param baseline The baseline report.
+	 * @param candidate The candidate report.
+	 * @param normalizeNames Whether to strip the clone suffixes from the names before matching them.
+	 */
+	public ProfilerReportDiff(ProfilerReport baseline, ProfilerReport candidate, boolean normalizeNames)
+	{
+		this.normalizeNames = normalizeNames;
+		this.Add(BASELINE, baseline);
+		this.Add(CANDIDATE, candidate);
+		
+		// Calculate the times per call (from the sums if several clones were added up, the total time being the self time and the
+		// subroutine time).
+		for (int side = 0; side < 2; side++)
+		{
+			double[][] values = this.values[side];
+			for (int name = 0; name < this.nameCount; name++)
+			{
+				double calls = values[COLUMN_CALL_COUNT][name];
+				values[COLUMN_SELF_MS_PER_CALL][name] = calls > 0 ? values[COLUMN_SELF_TIME][name] * 1000 / calls : 0;
+				values[COLUMN_TOTAL_MS_PER_CALL][name] = calls > 0 ? values[COLUMN_TOTAL_TIME][name] * 1000 / calls : 0;
+			}
+		}
+		
+		// Gather the functions (leaving out the names that only appear as callers or subroutines).
+		int functionCount = 0;
+		this.functionNames = new int[this.nameCount];
+		for (int name = 0; name < this.nameCount; name++)
+		{
+			if (this.functions[BASELINE][name] || this.functions[CANDIDATE][name])
+			{
+				this.functionNames[functionCount++] = name;
+			}
+		}
+		this.functionNames = Arrays.copyOf(this.functionNames, functionCount);
+		
+		// Gather the arcs that are new or gone.
+		this.newArcs = this.FindArcsOnlyOn(CANDIDATE);
+		this.goneArcs = this.FindArcsOnlyOn(BASELINE);
+	}
+	
+	/**
+	 * Normalizes the given function name by stripping the suffixes that the compiler appends to the names of the clones it makes of a
+	 * function (i.e. <code>.isra.0</code>, <code>.constprop.1</code> or <code>[clone .part.0]</code>).
+	 * 
+	 * @param name The function name.
+	 * @return The normalized name.
+	 */
+	public static String NormalizeName(String name)
+	{
+		int dot = name.indexOf('.');
+		if (dot < 0)
+		{
+			return name;
+		}
+		return CLONE_SUFFIXES.matcher(name).replaceFirst("");
+	}
+	
+	/**
+	 * Retrieves whether the names were normalized before they were matched.
+	 * 
+	 * @return <code>true</code> if the clone suffixes were stripped from the names; <code>false</code> otherwise.
+	 */
+	public boolean IsNormalizingNames()
+	{
+		return this.normalizeNames;
+	}
+	
+	/**
+	 * Retrieves the number of functions of the diff (those of either report).
+	 * 
+	 * @return The number of functions.
+	 */
+	public int GetFunctionCount()
+	{
+		return this.functionNames.length;
+	}
+	
+	/**
+	 * Retrieves the (normalized) name of the given function.
+	 * 
+	 * @param function The function.
+	 * @return The name.
+	 */
+	public String GetName(int function)
+	{
+		return this.names[this.functionNames[function]];
+	}
+	
+	/**
+	 * Retrieves whether the given function is new, gone or common to both reports.
+	 * 
+	 * @param function The function.
+	 * @return One of {@link #STATUS_COMMON}, {@link #STATUS_NEW} and {@link #STATUS_GONE}.
+	 */
+	public int GetStatus(int function)
+	{
+		int name = this.functionNames[function];
+		if (!this.functions[BASELINE][name])
+		{
+			return STATUS_NEW;
+		}
+		return this.functions[CANDIDATE][name] ? STATUS_COMMON : STATUS_GONE;
+	}
+	
+	/**
+	 * Retrieves the value of the given column of the given function in the baseline report.
+	 * 
+	 * @param column The column (i.e. {@link #COLUMN_SELF_TIME}).
+	 * @param function The function.
+	 * @return The value (0 if the function is not in the baseline report).
+	 */
+	public double GetBaselineValue(int column, int function)
+	{
+		return this.values[BASELINE][column][this.functionNames[function]];
+	}
+	
+	/**
+	 * Retrieves the value of the given column of the given function in the candidate report.
+	 * 
+	 * @param column The column (i.e. {@link #COLUMN_SELF_TIME}).
+	 * @param function The function.
+	 * @return The value (0 if the function is not in the candidate report).
+	 */
+	public double GetCandidateValue(int column, int function)
+	{
+		return this.values[CANDIDATE][column][this.functionNames[function]];
+	}
+	
+	/**
+	 * Retrieves the delta of the given column of the given function (the candidate value minus the baseline value).
+	 * 
+	 * @param column The column (i.e. {@link #COLUMN_SELF_TIME}).
+	 * @param function The function.
+	 * @return The delta.
+	 */
+	public double GetDelta(int column, int function)
+	{
+		int name = this.functionNames[function];
+		return this.values[CANDIDATE][column][name] - this.values[BASELINE][column][name];
+	}
+	
+	/**
+	 * Retrieves the order of the functions by the delta of the given column (or by name).
+	 * 
+	 * @param column The column to order the functions by the delta of (or {@link #SORT_BY_NAME}).
+	 * @param descending Whether to order the functions by decreasing delta (or name); functions with equal deltas (or names) stay in
+	 *        function order either way.
+	 * @return The functions in order.
+	 */
+	public int[] Sort(int column, boolean descending)
+	{
+		int functionCount = this.functionNames.length;
+		if (column == SORT_BY_NAME)
+		{
+			String[] names = new String[functionCount];
+			for (int i = 0; i < functionCount; i++)
+			{
+				names[i] = this.GetName(i);
+			}
+			return ProfiledSorter.SortByName(names, descending);
+		}
+		double[] deltas = new double[functionCount];
+		for (int i = 0; i < functionCount; i++)
+		{
+			deltas[i] = this.GetDelta(column, i);
+		}
+		return ProfiledSorter.Sort(deltas, descending);
+	}
+	
+	/**
+	 * Retrieves the number of arcs that are only in the candidate report.
+	 * 
+	 * @return The number of new arcs.
+	 */
+	public int GetNewArcCount()
+	{
+		return this.newArcs.length;
+	}
+	
+	/**
+	 * Retrieves the (normalized) name of the caller of the given new arc.
+	 * 
+	 * @param index The index of the new arc.
+	 * @return The name of the caller.
+	 */
+	public String GetNewArcCallerName(int index)
+	{
+		return this.names[this.arcCallers[this.newArcs[index]]];
+	}
+	
+	/**
+	 * Retrieves the (normalized) name of the subroutine of the given new arc.
+	 * 
+	 * @param index The index of the new arc.
+	 * @return The name of the subroutine.
+	 */
+	public String GetNewArcSubroutineName(int index)
+	{
+		return this.names[this.arcSubroutines[this.newArcs[index]]];
+	}
+	
+	/**
+	 * Retrieves the call count of the given new arc.
+	 * 
+	 * @param index The index of the new arc.
+	 * @return The call count (in the candidate report).
+	 */
+	public long GetNewArcCallCount(int index)
+	{
+		return this.arcCallCounts[CANDIDATE][this.newArcs[index]];
+	}
+	
+	/**
+	 * Retrieves the number of arcs that are only in the baseline report.
+	 * 
+	 * @return The number of gone arcs.
+	 */
+	public int GetGoneArcCount()
+	{
+		return this.goneArcs.length;
+	}
+	
+	/**
+	 * Retrieves the (normalized) name of the caller of the given gone arc.
+	 * 
+	 * @param index The index of the gone arc.
+	 * @return The name of the caller.
+	 */
+	public String GetGoneArcCallerName(int index)
+	{
+		return this.names[this.arcCallers[this.goneArcs[index]]];
+	}
+	
+	/**
+	 * Retrieves the (normalized) name of the subroutine of the given gone arc.
+	 * 
+	 * @param index The index of the gone arc.
+	 * @return The name of the subroutine.
+	 */
+	public String GetGoneArcSubroutineName(int index)
+	{
+		return this.names[this.arcSubroutines[this.goneArcs[index]]];
+	}
+	
+	/**
+	 * Retrieves the call count of the given gone arc.
+	 * 
+	 * @param index The index of the gone arc.
+	 * @return The call count (in the baseline report).
+	 */
+	public long GetGoneArcCallCount(int index)
+	{
+		return this.arcCallCounts[BASELINE][this.goneArcs[index]];
+	}
+	
+	/**
+	 * Adds the functions and arcs of the given report to the given side (straight from the columns of its tables).
+	 * 
+	 * @param side The side.
+	 * @param report The report.
+	 */
+	private void Add(int side, ProfilerReport report)
+	{
+		// Add the functions, adding up the statistics of functions whose names are the same (once normalized).
+		ProfiledFunctionTable table = report.GetFunctionTable();
+		int rowCount = table.GetRowCount();
+		for (int row = 0; row < rowCount; row++)
+		{
+			String name = table.GetName(row);
+			if (name == null)
+			{
+				continue;
+			}
+			int index = this.Index(name);
+			double[][] values = this.values[side];
+			this.functions[side][index] = true;
+			values[COLUMN_SELF_TIME][index] += Math.max(table.GetStat(ProfiledFunctionTable.STAT_SELF_TIME, row), 0);
+			values[COLUMN_TOTAL_TIME][index] += Math.max(table.GetStat(ProfiledFunctionTable.STAT_SELF_TIME, row), 0)
+				+ Math.max(table.GetStat(ProfiledFunctionTable.STAT_SUBROUTINE_TIME, row), 0);
+			values[COLUMN_CALL_COUNT][index] += Math.max(table.GetCallCount(row), 0);
+		}
+		
+		// Add the arcs.
+		ProfiledArcTable arcs = table.FindArcTable();
+		int arcCount = arcs != null ? arcs.GetArcCount() : 0;
+		for (int arc = 0; arc < arcCount; arc++)
+		{
+			if (arcs.IsRemoved(arc))
+			{
+				continue;
+			}
+			int caller = this.Index(arcs.GetCallerName(arc));
+			int subroutine = this.Index(arcs.GetSubroutineName(arc));
+			Long key = Long.valueOf(((long)caller << 32) | subroutine);
+			Integer existingArc = this.indexesByArc.get(key);
+			int index;
+			if (existingArc != null)
+			{
+				index = existingArc.intValue();
+			}
+			else
+			{
+				index = this.AddArc(caller, subroutine);
+				this.indexesByArc.put(key, Integer.valueOf(index));
+			}
+			this.arcCallCounts[side][index] = Math.max(this.arcCallCounts[side][index], 0) + Math.max(arcs.GetCallCount(arc), 0);
+		}
+	}
+	
+	/**
+	 * Retrieves the index of the given name (normalizing it first if appropriate), adding the name if it has not been added yet.
+	 * 
+	 * @param name The name.
+	 * @return The index.
+	 */
+	private int Index(String name)
+	{
+		Integer existingIndex = this.indexesByName.get(name);
+		if (existingIndex != null)
+		{
+			return existingIndex.intValue();
+		}
+		
+		// Look the normalized name up (indexing the name as it is as well, so that it is only normalized once).
+		if (this.normalizeNames)
+		{
+			String normalizedName = NormalizeName(name);
+			if (!normalizedName.equals(name))
+			{
+				int index = this.Index(normalizedName);
+				this.indexesByName.put(name, Integer.valueOf(index));
+				return index;
+			}
+		}
+		
+		// Make room for the name.
+		if (this.nameCount == this.names.length)
+		{
+			int capacity = this.names.length * 2;
+			this.names = Arrays.copyOf(this.names, capacity);
+			for (int side = 0; side < 2; side++)
+			{
+				this.functions[side] = Arrays.copyOf(this.functions[side], capacity);
+				for (int column = 0; column < COLUMN_COUNT; column++)
+				{
+					this.values[side][column] = Arrays.copyOf(this.values[side][column], capacity);
+				}
+			}
+		}
+		
+		// Add the name.
+		int index = this.nameCount++;
+		this.names[index] = name;
+		this.indexesByName.put(name, Integer.valueOf(index));
+		return index;
+	}
+	
+	/**
+	 * Adds the arc from the given caller to the given subroutine (not yet on either side).
+	 * 
+	 * @param caller The name index of the caller.
+	 * @param subroutine The name index of the subroutine.
+	 * @return The arc.
+	 */
+	private int AddArc(int caller, int subroutine)
+	{
+		if (this.arcCount == this.arcCallers.length)
+		{
+			int capacity = this.arcCallers.length * 2;
+			this.arcCallers = Arrays.copyOf(this.arcCallers, capacity);
+			this.arcSubroutines = Arrays.copyOf(this.arcSubroutines, capacity);
+			for (int side = 0; side < 2; side++)
+			{
+				this.arcCallCounts[side] = Arrays.copyOf(this.arcCallCounts[side], capacity);
+			}
+		}
+		int arc = this.arcCount++;
+		this.arcCallers[arc] = caller;
+		this.arcSubroutines[arc] = subroutine;
+		this.arcCallCounts[BASELINE][arc] = -1;
+		this.arcCallCounts[CANDIDATE][arc] = -1;
+		return arc;
+	}
+	
+	/**
+	 * Finds the arcs that are on the given side only.
+	 * 
+	 * @param side The side.
+	 * @return The arcs.
+	 */
+	private int[] FindArcsOnlyOn(int side)
+	{
+		long[] callCounts = this.arcCallCounts[side];
+		long[] otherCallCounts = this.arcCallCounts[1 - side];
+		int[] arcs = new int[this.arcCount];
+		int count = 0;
+		for (int arc = 0; arc < this.arcCount; arc++)
+		{
+			if (callCounts[arc] >= 0 && otherCallCounts[arc] < 0)
+			{
+				arcs[count++] = arc;
+			}
+		}
+		return Arrays.copyOf(arcs, count);
+	}
+}
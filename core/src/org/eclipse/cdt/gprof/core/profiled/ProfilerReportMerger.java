@@ -0,0 +1,548 @@
+/*
+ * =======================================================================
+ * ============================ gprof-eclipse ============================
+ * =======================================================================
+ * 
+ * 
+ * File: ProfilerReportMerger.java
+ * 
+ * 
+ * -----------------------------------------------------------------------
+ * Copyright (c) 2009 Chris Culy and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * + Chris Culy - initial API and implementation
+ * -----------------------------------------------------------------------
+ * 
+ * 
+ * Last changed:
+ * $Revision$
+ * $Author$
+ * $Date$
+ */
+
+package org.eclipse.cdt.gprof.core.profiled;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Merges profiler reports (i.e. of several runs of the same program) into a single report.
+ * 
+ * Functions are matched by name and arcs by the names of their caller and subroutine. The times and call counts of the matched
+ * functions and arcs are summed, the arcs of all reports are kept, and the total times, percentages and times per call are then
+ * recomputed from the sums (the total time of a function being the time spent in the function itself and in its subroutines). The
+ * functions of the merged report are numbered and ordered like gprof does (by decreasing total time and by decreasing self time
+ * respectively).
+ * 
+ * The reports are merged pairwise as a tree (the sums of each half of the reports being merged with each other), so that the merge
+ * spreads over the threads of a fork/join pool.
+ * 
+ * @author chrisculy
+ */
+public final class ProfilerReportMerger
+{
+	/** Holds the marker of an unset statistic (and of a name that has no row yet). */
+	private static final int UNSET = -1;
+	
+	/** Holds the marker of an empty hash slot. */
+	private static final int NONE = -1;
+	
+	/** Holds the initial capacity of the function and arc columns. */
+	private static final int INITIAL_CAPACITY = 16;
+	
+	/**
+	 * Holds the sums of the functions and arcs of one or more reports.
+	 * 
+	 * The functions are keyed by the IDs of their names in a name pool of the sums (the row of each function being the ID of its name),
+	 * and the arcs by the rows of their caller and subroutine in a hash index of their own, so that adding a report only looks each of
+	 * its names up once and adding its arcs does not box a single key.
+	 */
+	private static final class ReportSum
+	{
+		/** Holds the name of each function (the row of a function being the ID of its name). */
+		private final ProfiledNamePool names = new ProfiledNamePool(INITIAL_CAPACITY);
+		
+		/** Holds the number of functions. */
+		private int functionCount;
+		
+		/** Holds the time spent in each function itself (negative if unset). */
+		private double[] selfTimes = new double[INITIAL_CAPACITY];
+		
+		/** Holds the time spent in each function's subroutines (negative if unset). */
+		private double[] subroutineTimes = new double[INITIAL_CAPACITY];
+		
+		/** Holds the call count of each function (negative if unset). */
+		private long[] callCounts = new long[INITIAL_CAPACITY];
+		
+		/** Holds the recursive call count of each function (negative if unset). */
+		private long[] recursiveCallCounts = new long[INITIAL_CAPACITY];
+		
+		/** Holds the number of arcs. */
+		private int arcCount;
+		
+		/** Holds the row of the caller of each arc. */
+		private int[] arcCallers = new int[INITIAL_CAPACITY];
+		
+		/** Holds the row of the subroutine of each arc. */
+		private int[] arcSubroutines = new int[INITIAL_CAPACITY];
+		
+		/** Holds the call count of each arc. */
+		private long[] arcCallCounts = new long[INITIAL_CAPACITY];
+		
+		/** Holds the time spent in the subroutine itself of each arc. */
+		private double[] arcSelfTimes = new double[INITIAL_CAPACITY];
+		
+		/** Holds the time spent in the subroutine's subroutines of each arc. */
+		private double[] arcChildTimes = new double[INITIAL_CAPACITY];
+		
+		/** Holds the arcs indexed by the rows of their caller and subroutine (open addressing, the capacity being a power of two). */
+		private int[] arcSlots = NewSlots(INITIAL_CAPACITY * 2);
+		
+		/**
+		 * Constructs the sums of the given report.
+		 * 
+		 * @param report The report.
+		 */
+		public ReportSum(ProfilerReport report)
+		{
+			// Map the name IDs of the report to rows as the names are first met (the arcs name their functions by the same IDs).
+			ProfiledFunctionTable table = report.GetFunctionTable();
+			ProfiledArcTable arcs = table.FindArcTable();
+			ProfiledNamePool names = table.GetNamePool();
+			int[] rows = new int[names.GetCount()];
+			Arrays.fill(rows, UNSET);
+			
+			// Add the functions (straight from the columns of the function table).
+			int rowCount = table.GetRowCount();
+			for (int row = 0; row < rowCount; row++)
+			{
+				int nameID = table.GetNameID(row);
+				if (nameID != UNSET)
+				{
+					this.AddFunction(this.GetRow(names, nameID, rows), table.GetStat(ProfiledFunctionTable.STAT_SELF_TIME, row), table
+						.GetStat(ProfiledFunctionTable.STAT_SUBROUTINE_TIME, row), table.GetCallCount(row), table.GetRecursiveCallCount(row));
+				}
+			}
+			
+			// Add the arcs.
+			int arcCount = arcs != null ? arcs.GetArcCount() : 0;
+			for (int arc = 0; arc < arcCount; arc++)
+			{
+				if (arcs.IsRemoved(arc))
+				{
+					continue;
+				}
+				int caller = this.GetRow(names, arcs.GetCallerNameID(arc), rows);
+				int subroutine = this.GetRow(names, arcs.GetSubroutineNameID(arc), rows);
+				this.AddArc(caller, subroutine, arcs.GetCallCount(arc), arcs.GetSelfTime(arc), arcs.GetChildTime(arc));
+			}
+		}
+		
+		/**
+		 * Adds the functions and arcs of the given sums to these sums.
+		 * 
+		 * @param sum The sums to add.
+		 */
+		public void Add(ReportSum sum)
+		{
+			int[] rows = new int[sum.functionCount];
+			for (int row = 0; row < rows.length; row++)
+			{
+				rows[row] = this.AddRow(sum.names.Get(row));
+				this.AddFunction(rows[row], sum.selfTimes[row], sum.subroutineTimes[row], sum.callCounts[row], sum.recursiveCallCounts[row]);
+			}
+			for (int arc = 0; arc < sum.arcCount; arc++)
+			{
+				this.AddArc(rows[sum.arcCallers[arc]], rows[sum.arcSubroutines[arc]], sum.arcCallCounts[arc], sum.arcSelfTimes[arc],
+					sum.arcChildTimes[arc]);
+			}
+		}
+		
+		/**
+		 * Creates the report holding the sums, recomputing the total times, the percentages and the times per call.
+		 * 
+		 * @return The report.
+		 */
+		public ProfilerReport CreateReport()
+		{
+			// Add up the self times that the percentages are relative to, and the total time of each function (set like the parser
+			// does, i.e. only if both the self time and the subroutine time are set).
+			int functionCount = this.functionCount;
+			double totalSelfTime = 0;
+			double[] totalTimes = new double[functionCount];
+			String[] names = new String[functionCount];
+			for (int row = 0; row < functionCount; row++)
+			{
+				totalSelfTime += Math.max(this.selfTimes[row], 0);
+				totalTimes[row] = this.selfTimes[row] >= 0 && this.subroutineTimes[row] >= 0 ? this.selfTimes[row]
+					+ this.subroutineTimes[row] : UNSET;
+				names[row] = this.names.Get(row);
+			}
+			
+			// Number the functions like gprof does (by decreasing total time, then by decreasing calls and name), and order them like
+			// the flat profile (by decreasing self time, then by decreasing calls and name), sorting by the least significant key first.
+			int[] byCallsAndNames = ProfiledSorter.Sort(ProfiledSorter.SortByName(names, false), this.callCounts, true);
+			int[] byTotalTime = ProfiledSorter.Sort(byCallsAndNames, totalTimes, true);
+			int[] bySelfTime = ProfiledSorter.Sort(byCallsAndNames, this.selfTimes, true);
+			int[] ids = new int[functionCount];
+			for (int i = 0; i < functionCount; i++)
+			{
+				ids[byTotalTime[i]] = i + 1;
+			}
+			
+			// Fill the function table of the report in that order.
+			ProfiledFunctionTable table = new ProfiledFunctionTable(functionCount);
+			int[] tableRows = new int[functionCount];
+			for (int i = 0; i < functionCount; i++)
+			{
+				int row = bySelfTime[i];
+				int tableRow = table.AddRow();
+				double selfTime = this.selfTimes[row];
+				double totalTime = totalTimes[row];
+				long calls = this.callCounts[row];
+				tableRows[row] = tableRow;
+				table.SetID(tableRow, ids[row]);
+				table.SetName(tableRow, names[row]);
+				table.SetStat(ProfiledFunctionTable.STAT_SELF_TIME, tableRow, selfTime);
+				table.SetStat(ProfiledFunctionTable.STAT_SUBROUTINE_TIME, tableRow, this.subroutineTimes[row]);
+				table.SetStat(ProfiledFunctionTable.STAT_TOTAL_TIME, tableRow, totalTime);
+				table.SetCallCount(tableRow, calls);
+				table.SetRecursiveCallCount(tableRow, this.recursiveCallCounts[row]);
+				if (totalSelfTime > 0)
+				{
+					table.SetStat(ProfiledFunctionTable.STAT_PERCENT_TOTAL_SELF_TIME, tableRow, Math.max(selfTime, 0) * 100 / totalSelfTime);
+					if (totalTime >= 0)
+					{
+						table.SetStat(ProfiledFunctionTable.STAT_PERCENT_TOTAL_TIME, tableRow, totalTime * 100 / totalSelfTime);
+					}
+				}
+				if (calls > 0)
+				{
+					table.SetStat(ProfiledFunctionTable.STAT_SELF_MS_PER_CALL, tableRow, Math.max(selfTime, 0) * 1000 / calls);
+					if (totalTime >= 0)
+					{
+						table.SetStat(ProfiledFunctionTable.STAT_TOTAL_MS_PER_CALL, tableRow, totalTime * 1000 / calls);
+					}
+				}
+			}
+			
+			// Add the arcs straight to the arc table (so their call counts are not narrowed on the way).
+			ProfiledArcTable arcs = table.GetArcTable();
+			for (int arc = 0; arc < this.arcCount; arc++)
+			{
+				int caller = this.arcCallers[arc];
+				int subroutine = this.arcSubroutines[arc];
+				arcs.AddArc(table.GetNameID(tableRows[caller]), ids[caller], table.GetNameID(tableRows[subroutine]), ids[subroutine],
+					this.arcCallCounts[arc], this.arcSelfTimes[arc], this.arcChildTimes[arc]);
+			}
+			ProfilerReport report = new ProfilerReport(table);
+			report.BuildCallGraph();
+			return report;
+		}
+		
+		/**
+		 * Retrieves the row of the function with the given name ID in the given name pool of a report, adding the function (with unset
+		 * statistics) if the name has no row yet.
+		 * 
+		 * @param names The name pool of the report.
+		 * @param nameID The ID of the name in the report's name pool.
+		 * @param rows The row of each name ID of the report's name pool (<code>UNSET</code> until the name is first met).
+		 * @return The row of the function.
+		 */
+		private int GetRow(ProfiledNamePool names, int nameID, int[] rows)
+		{
+			int row = rows[nameID];
+			if (row == UNSET)
+			{
+				row = this.AddRow(names.Get(nameID));
+				rows[nameID] = row;
+			}
+			return row;
+		}
+		
+		/**
+		 * Retrieves the row of the function with the given name, adding the function (with unset statistics) if there is none with the
+		 * name yet.
+		 * 
+		 * @param name The name of the function.
+		 * @return The row of the function.
+		 */
+		private int AddRow(String name)
+		{
+			int row = this.names.Intern(name);
+			if (row < this.functionCount)
+			{
+				return row;
+			}
+			
+			// Make room for the function.
+			if (row == this.selfTimes.length)
+			{
+				int capacity = row * 2;
+				this.selfTimes = Arrays.copyOf(this.selfTimes, capacity);
+				this.subroutineTimes = Arrays.copyOf(this.subroutineTimes, capacity);
+				this.callCounts = Arrays.copyOf(this.callCounts, capacity);
+				this.recursiveCallCounts = Arrays.copyOf(this.recursiveCallCounts, capacity);
+			}
+			
+			// Add the function.
+			this.selfTimes[row] = UNSET;
+			this.subroutineTimes[row] = UNSET;
+			this.callCounts[row] = UNSET;
+			this.recursiveCallCounts[row] = UNSET;
+			this.functionCount++;
+			return row;
+		}
+		
+		/**
+		 * Adds the given statistics to the function in the given row.
+		 * 
+		 * @param row The row of the function.
+		 * @param selfTime The time spent in the function itself (negative if unset).
+		 * @param subroutineTime The time spent in the function's subroutines (negative if unset).
+		 * @param callCount The call count of the function (negative if unset).
+		 * @param recursiveCallCount The recursive call count of the function (negative if unset).
+		 */
+		private void AddFunction(int row, double selfTime, double subroutineTime, long callCount, long recursiveCallCount)
+		{
+			this.selfTimes[row] = Sum(this.selfTimes[row], selfTime);
+			this.subroutineTimes[row] = Sum(this.subroutineTimes[row], subroutineTime);
+			this.callCounts[row] = Sum(this.callCounts[row], callCount);
+			this.recursiveCallCounts[row] = Sum(this.recursiveCallCounts[row], recursiveCallCount);
+		}
+		
+		/**
+		 * Adds the given statistics to the arc from the given caller to the given subroutine (adding the arc if there is none yet).
+		 * 
+		 * @param caller The row of the caller.
+		 * @param subroutine The row of the subroutine.
+		 * @param callCount The call count of the arc.
+		 * @param selfTime The time spent in the subroutine itself of the arc.
+		 * @param childTime The time spent in the subroutine's subroutines of the arc.
+		 */
+		private void AddArc(int caller, int subroutine, long callCount, double selfTime, double childTime)
+		{
+			int slot = this.FindArcSlot(caller, subroutine);
+			int existingArc = this.arcSlots[slot];
+			if (existingArc != NONE)
+			{
+				this.arcCallCounts[existingArc] = Sum(this.arcCallCounts[existingArc], callCount);
+				this.arcSelfTimes[existingArc] = Sum(this.arcSelfTimes[existingArc], selfTime);
+				this.arcChildTimes[existingArc] = Sum(this.arcChildTimes[existingArc], childTime);
+				return;
+			}
+			
+			// Make room for the arc (keeping the hash index at most half full).
+			if (this.arcCount == this.arcCallers.length)
+			{
+				int capacity = this.arcCount * 2;
+				this.arcCallers = Arrays.copyOf(this.arcCallers, capacity);
+				this.arcSubroutines = Arrays.copyOf(this.arcSubroutines, capacity);
+				this.arcCallCounts = Arrays.copyOf(this.arcCallCounts, capacity);
+				this.arcSelfTimes = Arrays.copyOf(this.arcSelfTimes, capacity);
+				this.arcChildTimes = Arrays.copyOf(this.arcChildTimes, capacity);
+			}
+			if (this.arcCount * 2 >= this.arcSlots.length)
+			{
+				this.arcSlots = NewSlots(this.arcSlots.length * 2);
+				for (int arc = 0; arc < this.arcCount; arc++)
+				{
+					this.arcSlots[this.FindArcSlot(this.arcCallers[arc], this.arcSubroutines[arc])] = arc;
+				}
+				slot = this.FindArcSlot(caller, subroutine);
+			}
+			
+			// Add the arc.
+			int arc = this.arcCount++;
+			this.arcSlots[slot] = arc;
+			this.arcCallers[arc] = caller;
+			this.arcSubroutines[arc] = subroutine;
+			this.arcCallCounts[arc] = callCount;
+			this.arcSelfTimes[arc] = selfTime;
+			this.arcChildTimes[arc] = childTime;
+		}
+		
+		/**
+		 * Retrieves the slot of the arc from the given caller to the given subroutine, or the empty slot where it belongs (probing
+		 * linearly from the slot the rows hash to).
+		 * 
+		 * @param caller The row of the caller.
+		 * @param subroutine The row of the subroutine.
+		 * @return The slot.
+		 */
+		private int FindArcSlot(int caller, int subroutine)
+		{
+			int mask = this.arcSlots.length - 1;
+			int hash = caller * 0x9E3779B1 + subroutine;
+			int slot = (hash ^ (hash >>> 16)) & mask;
+			while (true)
+			{
+				int arc = this.arcSlots[slot];
+				if (arc == NONE || (this.arcCallers[arc] == caller && this.arcSubroutines[arc] == subroutine))
+				{
+					return slot;
+				}
+				slot = (slot + 1) & mask;
+			}
+		}
+	}
+	
+	/**
+	 * Sums a range of the reports, splitting the range in half and merging the sums of the halves.
+	 */
+	private static final class ReportSumTask extends RecursiveTask<ReportSum>
+	{
+		private static final long serialVersionUID = 1L;
+		
+		/** The reports to sum. */
+		private final List<ProfilerReport> reports;
+		
+		/** The index of the first report to sum. */
+		private final int start;
+		
+		/** The index of the report following the last report to sum. */
+		private final int end;
+		
+		/**
+		 * Constructs the task for the given range of reports.
+		 * 
+		 * @param reports The reports to sum.
+		 * @param start The index of the first report to sum.
+		 * @param end The index of the report following the last report to sum.
+		 */
+		public ReportSumTask(List<ProfilerReport> reports, int start, int end)
+		{
+			this.reports = reports;
+			this.start = start;
+			this.end = end;
+		}
+		
+		/**
+		 * @see RecursiveTask#compute()
+		 */
+		protected ReportSum compute()
+		{
+			if (this.end - this.start == 1)
+			{
+				return new ReportSum(this.reports.get(this.start));
+			}
+			int middle = (this.start + this.end) >>> 1;
+			ReportSumTask second = new ReportSumTask(this.reports, middle, this.end);
+			second.fork();
+			ReportSum sum = new ReportSumTask(this.reports, this.start, middle).compute();
+			sum.Add(second.join());
+			return sum;
+		}
+	}
+	
+	/**
+	 * Constructor (the merger is used through its static methods).
+	 */
+	private ProfilerReportMerger()
+	{
+		/* stub function */
+	}
+	
+	/**
+	 * Merges the given reports into a single report, using as many threads as there are processors.
+	 * 
+	 * @param reports The reports to merge (none of them is changed).
+	 * @return The merged report (empty if there are no reports).
+	 */
+	public static ProfilerReport Merge(List<ProfilerReport> reports)
+	{
+		return Merge(reports, Runtime.getRuntime().availableProcessors());
+	}
+	
+	/**
+	 * Merges the given reports into a single report.
+	 * 
+	 * @param reports The reports to merge (none of them is changed).
+	 * @param parallelism The number of threads to merge the reports with (1 to merge them serially).
+	 * @return The merged report (empty if there are no reports).
+	 */
+	public static ProfilerReport Merge(List<ProfilerReport> reports, int parallelism)
+	{
+		if (reports.isEmpty())
+		{
+			return new ProfilerReport();
+		}
+		
+		// Sum the reports (only bringing up a pool if there are reports to merge in parallel).
+		ReportSum sum;
+		if (parallelism <= 1 || reports.size() == 1)
+		{
+			sum = new ReportSum(reports.get(0));
+			for (int i = 1; i < reports.size(); i++)
+			{
+				sum.Add(new ReportSum(reports.get(i)));
+			}
+		}
+		else
+		{
+			ForkJoinPool pool = new ForkJoinPool(parallelism);
+			try
+			{
+				sum = pool.invoke(new ReportSumTask(reports, 0, reports.size()));
+			}
+			finally
+			{
+				pool.shutdown();
+			}
+		}
+		return sum.CreateReport();
+	}
+	
+	/**
+	 * Adds up the given statistics, either of which may be unset.
+	 * 
+	 * @param first The first statistic (negative if unset).
+	 * @param second The second statistic (negative if unset).
+	 * @return The sum (unset if both statistics are unset).
+	 */
+	private static double Sum(double first, double second)
+	{
+		if (first < 0)
+		{
+			return second;
+		}
+		return second < 0 ? first : first + second;
+	}
+	
+	/**
+	 * Creates an empty hash index of arcs.
+	 * 
+	 * @param capacity The number of slots (a power of two).
+	 * @return The slots.
+	 */
+	private static int[] NewSlots(int capacity)
+	{
+		int[] slots = new int[capacity];
+		Arrays.fill(slots, NONE);
+		return slots;
+	}
+	
+	/**
+	 * Adds up the given counts, either of which may be unset.
+	 * 
+	 * @param first The first count (negative if unset).
+	 * @param second The second count (negative if unset).
+	 * @return The sum (unset if both counts are unset).
+	 */
+	private static long Sum(long first, long second)
+	{
+		if (first < 0)
+		{
+			return second;
+		}
+		return second < 0 ? first : first + second;
+	}
+}
@@ -0,0 +1,837 @@
+/*
+ * =======================================================================
+ * ============================ gprof-eclipse ============================
+ * =======================================================================
+ * 
+ * 
+ * File: ProfilerReportSnapshot.java
+ * 
+ * 
+ * -----------------------------------------------------------------------
+ * Copyright (c) 2009 Chris Culy and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * + Chris Culy - initial API and implementation
+ * -----------------------------------------------------------------------
+ * 
+ * 
+ * Last changed:
+ * $Revision$
+ * $Author$
+ * $Date$
+ */
+
+package org.eclipse.cdt.gprof.core.profiled;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Saves profiler reports to and loads them from binary snapshot files.
+ * 
+ * A snapshot starts with a fixed-size header (magic, version, counts and the offsets of the sections), followed by the name section
+ * (each name as a varint length and its UTF-8 bytes), the function section (the columns of the function table, the call counts as
+ * zigzag varints) and the arc section (the arcs in compressed sparse row form, grouped by caller, followed by the order of the callers
+ * of each function). All fixed-size values are big-endian.
+ * 
+ * A snapshot is written as a stream straight from the report's tables, so saving a report takes no more than a small buffer. A
+ * snapshot is read into memory in one go, so the file is closed again at once (a mapped file would stay open until the mapping is
+ * collected, which keeps the file from being deleted or replaced on Windows). Every offset, count and index of the snapshot is checked
+ * against its size before anything is allocated, so a corrupt snapshot fails to be read rather than failing once used. Only the IDs and
+ * the names are read up front: the statistic and call count columns and the arcs are read by the function table once they are first
+ * used, and the names are only decoded once they are retrieved.
+ * 
+ * @author chrisculy
+ */
+public final class ProfilerReportSnapshot
+{
+	// ================ Profiler Report Snapshot Format Constants ============== //
+	
+	private static final byte[] SNAPSHOT_MAGIC = { 'G', 'P', 'R', 'S' };
+	
+	private static final int SNAPSHOT_VERSION = 1;
+	
+	private static final int SNAPSHOT_HEADER_SIZE = 64;
+	
+	private static final int SNAPSHOT_BUFFER_SIZE = 64 * 1024;
+	
+	private static final int SNAPSHOT_ARC_COLUMN_COUNT = 7;
+	
+	private static final int SNAPSHOT_MIN_ROW_SIZE = 4 + 4 + 8 * ProfiledFunctionTable.STAT_COUNT + 1 + 1;
+	
+	private static final int SNAPSHOT_MIN_ARC_SIZE = 4 + 4 + 4 + 8 + 8 + 1 + 1 + 4;
+	
+	// ================ Profiler Report Snapshot Format Constants ============== //
+	
+	/**
+	 * Buffers the bytes of a snapshot being written, keeping track of the position within the file.
+	 */
+	private static final class SnapshotOutput
+	{
+		/** The channel to write to. */
+		private final FileChannel channel;
+		
+		/** The buffer holding the bytes not written yet. */
+		private final ByteBuffer buffer = ByteBuffer.allocate(SNAPSHOT_BUFFER_SIZE);
+		
+		/** The number of bytes written to the channel. */
+		private long written;
+		
+		/**
+		 * Constructor.
+		 * 
+		 * @param channel The channel to write to.
+		 */
+		public SnapshotOutput(FileChannel channel)
+		{
+			this.channel = channel;
+		}
+		
+		/**
+		 * Retrieves the position within the file of the next byte to be put.
+		 * 
+		 * @return The position.
+		 */
+		public long GetPosition()
+		{
+			return this.written + this.buffer.position();
+		}
+		
+		/**
+		 * Makes room in the buffer for the given number of bytes, writing the buffered bytes if necessary.
+		 * 
+		 * @param length The number of bytes (at most the size of the buffer).
+		 * @throws IOException When the bytes cannot be written.
+		 */
+		public void Require(int length) throws IOException
+		{
+			if (this.buffer.remaining() < length)
+			{
+				this.Flush();
+			}
+		}
+		
+		/**
+		 * Puts the given int.
+		 * 
+		 * @param value The value.
+		 * @throws IOException When the buffered bytes cannot be written.
+		 */
+		public void PutInt(int value) throws IOException
+		{
+			this.Require(4);
+			this.buffer.putInt(value);
+		}
+		
+		/**
+		 * Puts the given double.
+		 * 
+		 * @param value The value.
+		 * @throws IOException When the buffered bytes cannot be written.
+		 */
+		public void PutDouble(double value) throws IOException
+		{
+			this.Require(8);
+			this.buffer.putDouble(value);
+		}
+		
+		/**
+		 * Puts the given byte.
+		 * 
+		 * @param value The value.
+		 * @throws IOException When the buffered bytes cannot be written.
+		 */
+		public void PutByte(byte value) throws IOException
+		{
+			this.Require(1);
+			this.buffer.put(value);
+		}
+		
+		/**
+		 * Puts the given value as a zigzag varint (so that small negative values, i.e. -1 for unset, take a single byte).
+		 * 
+		 * @param value The value.
+		 * @throws IOException When the buffered bytes cannot be written.
+		 */
+		public void PutVarLong(long value) throws IOException
+		{
+			this.Require(10);
+			long bits = (value << 1) ^ (value >> 63);
+			while ((bits & ~0x7FL) != 0)
+			{
+				this.buffer.put((byte)((bits & 0x7F) | 0x80));
+				bits >>>= 7;
+			}
+			this.buffer.put((byte)bits);
+		}
+		
+		/**
+		 * Puts the given bytes.
+		 * 
+		 * @param bytes The bytes.
+		 * @throws IOException When the buffered bytes cannot be written.
+		 */
+		public void PutBytes(byte[] bytes) throws IOException
+		{
+			for (int offset = 0; offset < bytes.length; )
+			{
+				this.Require(1);
+				int length = Math.min(bytes.length - offset, this.buffer.remaining());
+				this.buffer.put(bytes, offset, length);
+				offset += length;
+			}
+		}
+		
+		/**
+		 * Writes the buffered bytes to the channel.
+		 * 
+		 * @throws IOException When the bytes cannot be written.
+		 */
+		public void Flush() throws IOException
+		{
+			this.buffer.flip();
+			while (this.buffer.hasRemaining())
+			{
+				this.written += this.channel.write(this.buffer);
+			}
+			this.buffer.clear();
+		}
+	}
+	
+	/**
+	 * Holds a snapshot that has been checked but whose statistic and call count columns and arcs have not been read yet (see
+	 * {@link ProfiledFunctionTable}).
+	 */
+	static final class SnapshotSource
+	{
+		/** The snapshot. */
+		private final ByteBuffer buffer;
+		
+		/** The number of functions. */
+		private final int rowCount;
+		
+		/** The number of names. */
+		private final int nameCount;
+		
+		/** The number of arcs. */
+		private final int arcCount;
+		
+		/** The position of the statistic columns. */
+		private final int statsOffset;
+		
+		/** The position of the call count column. */
+		private final int callCountsOffset;
+		
+		/** The position of the recursive call count column. */
+		private final int recursiveCallCountsOffset;
+		
+		/** The position of the arc section. */
+		private final int arcsOffset;
+		
+		/**
+		 * Constructor.
+		 * 
+		 * @param buffer The snapshot.
+		 * @param rowCount The number of functions.
+		 * @param nameCount The number of names.
+		 * @param arcCount The number of arcs.
+		 * @param statsOffset The position of the statistic columns.
+		 * @param callCountsOffset The position of the call count column.
+		 * @param recursiveCallCountsOffset The position of the recursive call count column.
+		 * @param arcsOffset The position of the arc section.
+		 */
+		public SnapshotSource(ByteBuffer buffer, int rowCount, int nameCount, int arcCount, int statsOffset, int callCountsOffset,
+			int recursiveCallCountsOffset, int arcsOffset)
+		{
+			this.buffer = buffer;
+			this.rowCount = rowCount;
+			this.nameCount = nameCount;
+			this.arcCount = arcCount;
+			this.statsOffset = statsOffset;
+			this.callCountsOffset = callCountsOffset;
+			this.recursiveCallCountsOffset = recursiveCallCountsOffset;
+			this.arcsOffset = arcsOffset;
+		}
+		
+		/**
+		 * Retrieves whether the snapshot holds any arcs.
+		 * 
+		 * @return <code>true</code> if the snapshot holds arcs; <code>false</code> otherwise.
+		 */
+		public boolean HasArcs()
+		{
+			return this.arcCount > 0;
+		}
+		
+		/**
+		 * Reads the statistic columns.
+		 * 
+		 * @return The statistic columns indexed by statistic.
+		 */
+		public double[][] ReadStats()
+		{
+			ByteBuffer buffer = this.At(this.statsOffset);
+			double[][] stats = new double[ProfiledFunctionTable.STAT_COUNT][];
+			for (int stat = 0; stat < stats.length; stat++)
+			{
+				stats[stat] = GetDoubles(buffer, this.rowCount);
+			}
+			return stats;
+		}
+		
+		/**
+		 * Reads the call count column.
+		 * 
+		 * @return The call counts.
+		 */
+		public long[] ReadCallCounts()
+		{
+			return GetVarLongs(this.At(this.callCountsOffset), this.rowCount);
+		}
+		
+		/**
+		 * Reads the recursive call count column.
+		 * 
+		 * @return The recursive call counts.
+		 */
+		public long[] ReadRecursiveCallCounts()
+		{
+			return GetVarLongs(this.At(this.recursiveCallCountsOffset), this.rowCount);
+		}
+		
+		/**
+		 * Reads the arc table (expanding the caller offsets into the caller of each arc).
+		 * 
+		 * @param namePool The names of the functions.
+		 * @return The arc table.
+		 */
+		public ProfiledArcTable ReadArcs(ProfiledNamePool namePool)
+		{
+			ByteBuffer buffer = this.At(this.arcsOffset);
+			int[] subroutineOffsets = GetInts(buffer, this.nameCount + 1);
+			int[] callerNameIDs = new int[this.arcCount];
+			for (int nameID = 0; nameID < this.nameCount; nameID++)
+			{
+				for (int arc = subroutineOffsets[nameID]; arc < subroutineOffsets[nameID + 1]; arc++)
+				{
+					callerNameIDs[arc] = nameID;
+				}
+			}
+			int[] subroutineNameIDs = GetInts(buffer, this.arcCount);
+			int[] callerIDs = GetInts(buffer, this.arcCount);
+			int[] subroutineIDs = GetInts(buffer, this.arcCount);
+			double[] selfTimes = GetDoubles(buffer, this.arcCount);
+			double[] childTimes = GetDoubles(buffer, this.arcCount);
+			byte[] copies = new byte[this.arcCount];
+			buffer.get(copies);
+			long[] callCounts = GetVarLongs(buffer, this.arcCount);
+			int[] callerOrder = GetInts(buffer, this.arcCount);
+			return new ProfiledArcTable(namePool, this.arcCount, callerNameIDs, subroutineNameIDs, callerIDs, subroutineIDs, callCounts,
+				selfTimes, childTimes, copies, callerOrder);
+		}
+		
+		/**
+		 * Retrieves a view of the snapshot positioned at the given offset (so that the columns can be read from several threads).
+		 * 
+		 * @param offset The offset.
+		 * @return The view.
+		 */
+		private ByteBuffer At(int offset)
+		{
+			ByteBuffer buffer = this.buffer.duplicate();
+			buffer.position(offset);
+			return buffer;
+		}
+	}
+	
+	/**
+	 * Constructor (the snapshot is used through its static methods).
+	 */
+	private ProfilerReportSnapshot()
+	{
+		/* stub function */
+	}
+	
+	/**
+	 * Writes the given report to the given snapshot file (replacing the file if it exists).
+	 * 
+	 * @param report The report to write.
+	 * @param file The snapshot file.
+	 * @throws IOException When the snapshot file cannot be written.
+	 */
+	public static void Write(ProfilerReport report, File file) throws IOException
+	{
+		ProfiledFunctionTable table = report.GetFunctionTable();
+		ProfiledNamePool namePool = table.GetNamePool();
+		ProfiledArcTable arcs = table.FindArcTable();
+		int rowCount = table.GetRowCount();
+		int nameCount = namePool.GetCount();
+		int arcCount = arcs != null ? arcs.GetArcCount() - arcs.GetRemovedArcCount() : 0;
+		
+		FileOutputStream stream = new FileOutputStream(file);
+		try
+		{
+			FileChannel channel = stream.getChannel();
+			SnapshotOutput out = new SnapshotOutput(channel);
+			
+			// Leave room for the header (it is written once the offsets of the sections are known).
+			for (int i = 0; i < SNAPSHOT_HEADER_SIZE; i++)
+			{
+				out.PutByte((byte)0);
+			}
+			
+			// Write the names.
+			long namesOffset = out.GetPosition();
+			for (int i = 0; i < nameCount; i++)
+			{
+				byte[] name = namePool.Get(i).getBytes(ProfiledNamePool.NAME_CHARSET);
+				out.PutVarLong(name.length);
+				out.PutBytes(name);
+			}
+			
+			// Write the function columns.
+			long functionsOffset = out.GetPosition();
+			for (int row = 0; row < rowCount; row++)
+			{
+				out.PutInt(table.GetID(row));
+			}
+			for (int row = 0; row < rowCount; row++)
+			{
+				out.PutInt(table.GetNameID(row));
+			}
+			for (int stat = 0; stat < ProfiledFunctionTable.STAT_COUNT; stat++)
+			{
+				for (int row = 0; row < rowCount; row++)
+				{
+					out.PutDouble(table.GetStat(stat, row));
+				}
+			}
+			for (int row = 0; row < rowCount; row++)
+			{
+				out.PutVarLong(table.GetCallCount(row));
+			}
+			for (int row = 0; row < rowCount; row++)
+			{
+				out.PutVarLong(table.GetRecursiveCallCount(row));
+			}
+			
+			// Write the arcs.
+			long arcsOffset = out.GetPosition();
+			if (arcs != null)
+			{
+				WriteArcs(out, arcs, nameCount);
+			}
+			long length = out.GetPosition();
+			out.Flush();
+			
+			// Write the header.
+			ByteBuffer header = ByteBuffer.allocate(SNAPSHOT_HEADER_SIZE);
+			header.put(SNAPSHOT_MAGIC);
+			header.putInt(SNAPSHOT_VERSION);
+			header.putInt(rowCount);
+			header.putInt(nameCount);
+			header.putInt(arcCount);
+			header.putInt(0);
+			header.putLong(namesOffset);
+			header.putLong(functionsOffset);
+			header.putLong(arcsOffset);
+			header.putLong(length);
+			header.flip();
+			for (long position = 0; header.hasRemaining(); )
+			{
+				position += channel.write(header, position);
+			}
+		}
+		finally
+		{
+			stream.close();
+		}
+	}
+	
+	/**
+	 * Reads the report from the given snapshot file.
+	 * 
+	 * @param file The snapshot file.
+	 * @return The report.
+	 * @throws IOException When the snapshot file cannot be read or is not a valid snapshot.
+	 */
+	public static ProfilerReport Read(File file) throws IOException
+	{
+		return Read(ReadBytes(file));
+	}
+	
+	/**
+	 * Reads the whole of the given snapshot file (without parsing it), closing the file again before returning.
+	 * 
+	 * @param file The snapshot file.
+	 * @return The bytes of the snapshot, to be parsed by {@link #Read(byte[])}.
+	 * @throws IOException When the snapshot file cannot be read or is too large to be a snapshot.
+	 */
+	public static byte[] ReadBytes(File file) throws IOException
+	{
+		RandomAccessFile input = new RandomAccessFile(file, "r");
+		try
+		{
+			long size = input.length();
+			if (size > Integer.MAX_VALUE)
+			{
+				throw new IOException("The report snapshot is too large to be read.");
+			}
+			byte[] bytes = new byte[(int)size];
+			input.readFully(bytes);
+			return bytes;
+		}
+		finally
+		{
+			input.close();
+		}
+	}
+	
+	/**
+	 * Reads the report from the given snapshot bytes. The bytes are read lazily (as the report's columns and arcs are first used), so
+	 * they must not be changed afterwards; each call returns a report of its own that may be changed independently of the others.
+	 * 
+	 * @param bytes The bytes of the snapshot.
+	 * @return The report.
+	 * @throws IOException When the bytes are not a valid snapshot.
+	 */
+	public static ProfilerReport Read(byte[] bytes) throws IOException
+	{
+		if (bytes.length < SNAPSHOT_HEADER_SIZE)
+		{
+			throw new IOException("Not a report snapshot.");
+		}
+		try
+		{
+			return Read(ByteBuffer.wrap(bytes));
+		}
+		catch (BufferUnderflowException e)
+		{
+			throw new IOException("The report snapshot is truncated.");
+		}
+		catch (IllegalArgumentException e)
+		{
+			throw new IOException("The report snapshot is corrupt.");
+		}
+		catch (IndexOutOfBoundsException e)
+		{
+			throw new IOException("The report snapshot is corrupt.");
+		}
+	}
+	
+	/**
+	 * Writes the arc section for the given arcs.
+	 * 
+	 * @param out The output.
+	 * @param arcs The arcs.
+	 * @param nameCount The number of names.
+	 * @throws IOException When the arcs cannot be written.
+	 */
+	private static void WriteArcs(SnapshotOutput out, ProfiledArcTable arcs, int nameCount) throws IOException
+	{
+		// Write the offset of the arcs of each caller, numbering the arcs in the order they are written (the removed arcs are left out).
+		int[] positions = new int[arcs.GetArcCount()];
+		int position = 0;
+		for (int nameID = 0; nameID < nameCount; nameID++)
+		{
+			out.PutInt(position);
+			for (int arc = arcs.GetFirstSubroutineArc(nameID); arc >= 0; arc = arcs.GetNextSubroutineArc(arc))
+			{
+				positions[arc] = position++;
+			}
+		}
+		out.PutInt(position);
+		
+		// Write the arc columns, each in caller order.
+		for (int column = 0; column < SNAPSHOT_ARC_COLUMN_COUNT; column++)
+		{
+			for (int nameID = 0; nameID < nameCount; nameID++)
+			{
+				for (int arc = arcs.GetFirstSubroutineArc(nameID); arc >= 0; arc = arcs.GetNextSubroutineArc(arc))
+				{
+					WriteArcColumn(out, arcs, arc, column);
+				}
+			}
+		}
+		
+		// Write the order of the callers of each function.
+		for (int nameID = 0; nameID < nameCount; nameID++)
+		{
+			for (int arc = arcs.GetFirstCallerArc(nameID); arc >= 0; arc = arcs.GetNextCallerArc(arc))
+			{
+				out.PutInt(positions[arc]);
+			}
+		}
+	}
+	
+	/**
+	 * Writes the entry of the given column for the given arc.
+	 * 
+	 * @param out The output.
+	 * @param arcs The arcs.
+	 * @param arc The arc.
+	 * @param column The column (subroutine name ID, caller ID, subroutine ID, self time, child time, copies and call count).
+	 * @throws IOException When the entry cannot be written.
+	 */
+	private static void WriteArcColumn(SnapshotOutput out, ProfiledArcTable arcs, int arc, int column) throws IOException
+	{
+		switch (column)
+		{
+			case 0:
+				out.PutInt(arcs.GetSubroutineNameID(arc));
+				break;
+			case 1:
+				out.PutInt(arcs.GetCallerID(arc));
+				break;
+			case 2:
+				out.PutInt(arcs.GetSubroutineID(arc));
+				break;
+			case 3:
+				out.PutDouble(arcs.GetSelfTime(arc));
+				break;
+			case 4:
+				out.PutDouble(arcs.GetChildTime(arc));
+				break;
+			case 5:
+				out.PutByte(arcs.GetCopies(arc));
+				break;
+			default:
+				out.PutVarLong(arcs.GetCallCount(arc));
+				break;
+		}
+	}
+	
+	/**
+	 * Reads the report from the given snapshot, checking the snapshot as a whole but only reading the IDs and the names.
+	 * 
+	 * @param buffer The snapshot.
+	 * @return The report.
+	 * @throws IOException When the snapshot is not a valid snapshot.
+	 */
+	private static ProfilerReport Read(ByteBuffer buffer) throws IOException
+	{
+		// Check the header.
+		for (int i = 0; i < SNAPSHOT_MAGIC.length; i++)
+		{
+			if (buffer.get() != SNAPSHOT_MAGIC[i])
+			{
+				throw new IOException("Not a report snapshot.");
+			}
+		}
+		if (buffer.getInt() != SNAPSHOT_VERSION)
+		{
+			throw new IOException("Unsupported report snapshot version.");
+		}
+		int rowCount = buffer.getInt();
+		int nameCount = buffer.getInt();
+		int arcCount = buffer.getInt();
+		buffer.getInt();
+		long namesOffset = buffer.getLong();
+		long functionsOffset = buffer.getLong();
+		long arcsOffset = buffer.getLong();
+		long length = buffer.getLong();
+		if (rowCount < 0 || nameCount < 0 || arcCount < 0 || length != buffer.capacity() || namesOffset < SNAPSHOT_HEADER_SIZE
+			|| functionsOffset < namesOffset || arcsOffset < functionsOffset || length < arcsOffset)
+		{
+			throw new IOException("The report snapshot is corrupt.");
+		}
+		
+		// Check the counts against the size of their sections (so that corrupt counts cannot allocate more than the snapshot holds).
+		if (nameCount > functionsOffset - namesOffset || (long)rowCount * SNAPSHOT_MIN_ROW_SIZE > arcsOffset - functionsOffset
+			|| (arcCount > 0 && (nameCount + 1L) * 4 + (long)arcCount * SNAPSHOT_MIN_ARC_SIZE > length - arcsOffset))
+		{
+			throw new IOException("The report snapshot is corrupt.");
+		}
+		
+		// Read the names (copying the encoded names, which are only decoded once they are needed).
+		buffer.limit((int)functionsOffset).position((int)namesOffset);
+		byte[] encodedNames = new byte[(int)(functionsOffset - namesOffset)];
+		int[] encodedOffsets = new int[nameCount + 1];
+		int encodedLength = 0;
+		for (int i = 0; i < nameCount; i++)
+		{
+			long nameLength = GetVarLong(buffer);
+			if (nameLength < 0 || nameLength > buffer.remaining())
+			{
+				throw new IOException("The report snapshot is corrupt.");
+			}
+			buffer.get(encodedNames, encodedLength, (int)nameLength);
+			encodedOffsets[i] = encodedLength;
+			encodedLength += (int)nameLength;
+		}
+		encodedOffsets[nameCount] = encodedLength;
+		ProfiledNamePool namePool = new ProfiledNamePool(encodedNames, encodedOffsets, nameCount);
+		
+		// Read the ID and name columns and check that the other function columns fit their section (gprof numbering at most the
+		// functions and the cycles, which are fewer than the functions, so that larger IDs can only be corrupt).
+		buffer.limit((int)arcsOffset).position((int)functionsOffset);
+		CheckInts(buffer, buffer.position(), rowCount, -1, 2 * rowCount + 1);
+		int[] ids = GetInts(buffer, rowCount);
+		CheckInts(buffer, buffer.position(), rowCount, -1, nameCount);
+		int[] nameIDs = GetInts(buffer, rowCount);
+		int statsOffset = buffer.position();
+		buffer.position(statsOffset + rowCount * ProfiledFunctionTable.STAT_COUNT * 8);
+		int callCountsOffset = buffer.position();
+		SkipVarLongs(buffer, rowCount);
+		int recursiveCallCountsOffset = buffer.position();
+		SkipVarLongs(buffer, rowCount);
+		
+		// Check the arcs in place (the caller offsets ascending and the name IDs within bounds).
+		if (arcCount > 0)
+		{
+			buffer.limit((int)length).position((int)arcsOffset);
+			int previous = 0;
+			for (int i = 0; i <= nameCount; i++)
+			{
+				int offset = buffer.getInt();
+				if (offset < previous || offset > arcCount || (i == nameCount && offset != arcCount))
+				{
+					throw new IOException("The report snapshot is corrupt.");
+				}
+				previous = offset;
+			}
+			CheckInts(buffer, buffer.position(), arcCount, 0, nameCount);
+			buffer.position(buffer.position() + arcCount * (4 + 4 + 4 + 8 + 8 + 1));
+			SkipVarLongs(buffer, arcCount);
+			
+			// Check that the order of the callers holds every arc exactly once (so that the chains of callers end).
+			int callerOrderOffset = buffer.position();
+			CheckInts(buffer, callerOrderOffset, arcCount, 0, arcCount);
+			boolean[] ordered = new boolean[arcCount];
+			for (int i = 0; i < arcCount; i++)
+			{
+				int arc = buffer.getInt(callerOrderOffset + i * 4);
+				if (ordered[arc])
+				{
+					throw new IOException("The report snapshot is corrupt.");
+				}
+				ordered[arc] = true;
+			}
+		}
+		buffer.clear();
+		SnapshotSource source = new SnapshotSource(buffer, rowCount, nameCount, arcCount, statsOffset, callCountsOffset,
+			recursiveCallCountsOffset, (int)arcsOffset);
+		return new ProfilerReport(new ProfiledFunctionTable(rowCount, ids, nameIDs, namePool, source));
+	}
+	
+	/**
+	 * Checks that the given number of ints at the given position of the given buffer are within the given bounds.
+	 * 
+	 * @param buffer The buffer.
+	 * @param offset The position of the first int.
+	 * @param count The number of ints.
+	 * @param first The first valid value.
+	 * @param bound The bound (exclusive).
+	 * @throws IOException When a value is out of bounds or the ints run past the limit of the buffer.
+	 */
+	private static void CheckInts(ByteBuffer buffer, int offset, int count, int first, int bound) throws IOException
+	{
+		if (count > (buffer.limit() - offset) / 4)
+		{
+			throw new IOException("The report snapshot is truncated.");
+		}
+		for (int i = 0; i < count; i++)
+		{
+			int value = buffer.getInt(offset + i * 4);
+			if (value < first || value >= bound)
+			{
+				throw new IOException("The report snapshot is corrupt.");
+			}
+		}
+	}
+	
+	/**
+	 * Reads the given number of ints in bulk.
+	 * 
+	 * @param buffer The buffer to read from.
+	 * @param count The number of ints.
+	 * @return The ints.
+	 */
+	private static int[] GetInts(ByteBuffer buffer, int count)
+	{
+		int[] values = new int[count];
+		buffer.asIntBuffer().get(values);
+		buffer.position(buffer.position() + count * 4);
+		return values;
+	}
+	
+	/**
+	 * Reads the given number of doubles in bulk.
+	 * 
+	 * @param buffer The buffer to read from.
+	 * @param count The number of doubles.
+	 * @return The doubles.
+	 */
+	private static double[] GetDoubles(ByteBuffer buffer, int count)
+	{
+		double[] values = new double[count];
+		buffer.asDoubleBuffer().get(values);
+		buffer.position(buffer.position() + count * 8);
+		return values;
+	}
+	
+	/**
+	 * Reads the given number of zigzag varints.
+	 * 
+	 * @param buffer The buffer to read from.
+	 * @param count The number of varints.
+	 * @return The values.
+	 */
+	private static long[] GetVarLongs(ByteBuffer buffer, int count)
+	{
+		long[] values = new long[count];
+		for (int i = 0; i < count; i++)
+		{
+			values[i] = GetVarLong(buffer);
+		}
+		return values;
+	}
+	
+	/**
+	 * Reads past the given number of zigzag varints.
+	 * 
+	 * @param buffer The buffer to read from.
+	 * @param count The number of varints.
+	 */
+	private static void SkipVarLongs(ByteBuffer buffer, int count)
+	{
+		for (int i = 0; i < count; i++)
+		{
+			while (buffer.get() < 0)
+			{
+				continue;
+			}
+		}
+	}
+	
+	/**
+	 * Reads a zigzag varint.
+	 * 
+	 * @param buffer The buffer to read from.
+	 * @return The value.
+	 */
+	private static long GetVarLong(ByteBuffer buffer)
+	{
+		long bits = 0;
+		for (int shift = 0; ; shift += 7)
+		{
+			byte b = buffer.get();
+			bits |= (long)(b & 0x7F) << shift;
+			if (b >= 0)
+			{
+				break;
+			}
+		}
+		return (bits >>> 1) ^ -(bits & 1);
+	}
+}
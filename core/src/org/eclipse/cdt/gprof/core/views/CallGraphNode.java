@@ -0,0 +1,113 @@
+/*
+ * =======================================================================
+ * ============================ gprof-eclipse ============================
+ * =======================================================================
+ * 
+ * 
+ * File: CallGraphNode.java
+ * 
+ * 
+ * -----------------------------------------------------------------------
+ * Copyright (c) 2009 Chris Culy and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * + Chris Culy - initial API and implementation
+ * -----------------------------------------------------------------------
+ * 
+ * 
+ * Last changed:
+ * $Revision$
+ * $Author$
+ * $Date$
+ */
+
+package org.eclipse.cdt.gprof.core.views;
+
+/**
+ * Holds a node of the call graph tree: a function (reached through a subroutine arc of its parent, unless it is a root), the group of
+ * hot paths, a hot path or a function along a hot path, or the placeholder standing in for the children beyond a node's child limit.
+ * 
+ * The same function appears in a node for every path it is reached through, so nodes are compared by identity. The children of a node
+ * are only computed once the node is expanded and are kept until its child limit is raised.
+ */
+final class CallGraphNode
+{
+	// ==================== Call Graph Node Kind Constants ==================== //
+	
+	/** Holds the kind of the invisible node at the root of the tree. */
+	static final int KIND_ROOT = 0;
+	
+	/** Holds the kind of the nodes of functions. */
+	static final int KIND_FUNCTION = 1;
+	
+	/** Holds the kind of the node grouping the hot paths. */
+	static final int KIND_HOT_PATHS = 2;
+	
+	/** Holds the kind of the nodes of hot paths (whose child is the first function of the path). */
+	static final int KIND_HOT_PATH = 3;
+	
+	/** Holds the kind of the nodes of the functions along a hot path (whose child is the next function of the path). */
+	static final int KIND_PATH_STEP = 4;
+	
+	/** Holds the kind of the nodes standing in for the children beyond the child limit of their parent. */
+	static final int KIND_MORE = 5;
+	
+	// ==================== Call Graph Node Kind Constants ==================== //
+	
+	/** Holds the kind of the node. */
+	final int kind;
+	
+	/** Holds the parent node (<code>null</code> for the root). */
+	final CallGraphNode parent;
+	
+	/** Holds the row of the function (-1 if the node is not a function). */
+	final int row;
+	
+	/** Holds the subroutine arc that the function is called through (-1 for a root function or the first function of a path). */
+	final int arc;
+	
+	/** Holds the index of the hot path (-1 if the node is not part of a hot path). */
+	final int path;
+	
+	/** Holds the index of the function within its hot path, or the number of children that a placeholder stands in for. */
+	final int step;
+	
+	/** Holds whether the function is already on the path from the root to the node (so it is not expanded again). */
+	boolean recursive;
+	
+	/** Holds the number of children shown before the placeholder. */
+	int childLimit;
+	
+	/** Holds the candidates for the children, in order of display (<code>null</code> until the node has been expanded). */
+	int[] candidates;
+	
+	/** Holds the children (<code>null</code> until the node has been expanded or once its child limit has been raised). */
+	CallGraphNode[] children;
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param kind The kind of the node.
+	 * @param parent The parent node.
+	 * @param row The row of the function.
+	 * @param arc The subroutine arc that the function is called through.
+	 * @param path The index of the hot path.
+	 * @param step The index of the function within its hot path, or the number of children that a placeholder stands in for.
+	 * @param childLimit The number of children shown before the placeholder.
+	 */
+	CallGraphNode(int kind, CallGraphNode parent, int row, int arc, int path, int step, int childLimit)
+	{
+		this.kind = kind;
+		this.parent = parent;
+		this.row = row;
+		this.arc = arc;
+		this.path = path;
+		this.step = step;
+		this.childLimit = childLimit;
+	}
+}
@@ -0,0 +1,584 @@
+/*
+ * =======================================================================
+ * ============================ gprof-eclipse ============================
+ * =======================================================================
+ * 
+ * 
+ * File: CallGraphView.java
+ * 
+ * 
+ * -----------------------------------------------------------------------
+ * Copyright (c) 2009 Chris Culy and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * + Chris Culy - initial API and implementation
+ * -----------------------------------------------------------------------
+ * 
+ * 
+ * Last changed:
+ * $Revision$
+ * $Author$
+ * $Date$
+ */
+
+package org.eclipse.cdt.gprof.core.views;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import org.eclipse.cdt.gprof.core.GProfCorePlugin;
+import org.eclipse.cdt.gprof.core.IGProfReportListener;
+import org.eclipse.cdt.gprof.core.profiled.ProfiledCallGraph;
+import org.eclipse.cdt.gprof.core.profiled.ProfiledCondensedGraph;
+import org.eclipse.cdt.gprof.core.profiled.ProfiledFunctionTable;
+import org.eclipse.cdt.gprof.core.profiled.ProfiledHotPaths;
+import org.eclipse.cdt.gprof.core.profiled.ProfilerReport;
+import org.eclipse.jface.viewers.DoubleClickEvent;
+import org.eclipse.jface.viewers.IDoubleClickListener;
+import org.eclipse.jface.viewers.ILazyTreeContentProvider;
+import org.eclipse.jface.viewers.IStructuredSelection;
+import org.eclipse.jface.viewers.ITableLabelProvider;
+import org.eclipse.jface.viewers.LabelProvider;
+import org.eclipse.jface.viewers.TreeViewer;
+import org.eclipse.jface.viewers.Viewer;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Tree;
+import org.eclipse.swt.widgets.TreeColumn;
+import org.eclipse.ui.ISharedImages;
+import org.eclipse.ui.PlatformUI;
+import org.eclipse.ui.part.ViewPart;
+
+/**
+ * Displays the call graph of the profiler report as a tree of callers and their subroutines.
+ * 
+ * The tree is lazy: the subroutines of a function are only looked up (in the report's {@link ProfiledCallGraph}) when the function is
+ * expanded, so shared subroutines and recursion cost nothing until they are opened. A function that is already on the path from the
+ * root (same gprof ID) is shown as recursive and not expanded again, and the children of a node beyond {@link #CHILD_LIMIT} are folded
+ * into a placeholder that shows the next ones when double-clicked.
+ * 
+ * The roots of the tree are the functions that no function calls (or the heaviest function of each cycle that is not called from
+ * outside of it), heaviest first. Above them, the hot paths from the heaviest root ({@link ProfiledHotPaths}) are shown as chains
+ * that expand one function at a time.
+ */
+public class CallGraphView extends ViewPart implements IGProfReportListener
+{
+	/** Holds the titles of the columns of the tree. */
+	private static final String[] COLUMN_TITLES = { "Function", "Calls", "Self (s)", "Subroutines (s)", "Total (s)" };
+	
+	/** Holds the initial widths of the columns of the tree. */
+	private static final int[] COLUMN_WIDTHS = { 400, 80, 70, 90, 70 };
+	
+	/** Holds the number of children of a node shown before (and at a time after) the placeholder. */
+	private static final int CHILD_LIMIT = 100;
+	
+	/** Holds the number of hot paths shown. */
+	private static final int HOT_PATH_COUNT = 10;
+	
+	/** Holds the profiler's report. */
+	private ProfilerReport report;
+	
+	/** Holds the hot paths from the heaviest root (<code>null</code> until the hot paths are expanded). */
+	private ProfiledHotPaths hotPaths;
+	
+	/** Holds the actual graphical view. */
+	private TreeViewer viewer;
+	
+	/**
+	 * Provides the children of the nodes of the call graph to the lazy tree as the nodes are expanded.
+	 * 
+	 * @author chrisculy
+	 */
+	class ViewContentProvider implements ILazyTreeContentProvider
+	{
+		public void inputChanged(Viewer v, Object oldInput, Object newInput)
+		{
+			/* stub function */
+		}
+		
+		public void dispose()
+		{
+			/* stub function */
+		}
+		
+		public void updateElement(Object parent, int index)
+		{
+			CallGraphNode child = CallGraphView.this.getChildren((CallGraphNode)parent)[index];
+			CallGraphView.this.viewer.replace(parent, index, child);
+			CallGraphView.this.viewer.setHasChildren(child, CallGraphView.this.hasChildren(child));
+		}
+		
+		public void updateChildCount(Object element, int currentChildCount)
+		{
+			CallGraphView.this.viewer.setChildCount(element, CallGraphView.this.getChildren((CallGraphNode)element).length);
+		}
+		
+		public Object getParent(Object element)
+		{
+			return ((CallGraphNode)element).parent;
+		}
+	}
+	
+	/**
+	 * Formats the statistics of the function of each node (those of the arc that the function is called through, below a root).
+	 * 
+	 * @author chrisculy
+	 */
+	class ViewLabelProvider extends LabelProvider implements ITableLabelProvider
+	{
+		public String getColumnText(Object obj, int index)
+		{
+			return CallGraphView.this.getText((CallGraphNode)obj, index);
+		}
+		
+		public Image getColumnImage(Object obj, int index)
+		{
+			return index == 0 ? this.getImage(obj) : null;
+		}
+		
+		public Image getImage(Object obj)
+		{
+			int kind = ((CallGraphNode)obj).kind;
+			if (kind == CallGraphNode.KIND_FUNCTION || kind == CallGraphNode.KIND_PATH_STEP)
+			{
+				return PlatformUI.getWorkbench().getSharedImages().getImage(ISharedImages.IMG_OBJ_ELEMENT);
+			}
+			return PlatformUI.getWorkbench().getSharedImages().getImage(ISharedImages.IMG_OBJ_FOLDER);
+		}
+	}
+	
+	/**
+	 * Constructor.
+	 */
+	public CallGraphView()
+	{
+		/* stub function */
+	}
+	
+	/**
+	 * Create the viewer.
+	 */
+	public void createPartControl(Composite parent)
+	{
+		this.viewer = new TreeViewer(parent, SWT.VIRTUAL | SWT.SINGLE | SWT.FULL_SELECTION | SWT.H_SCROLL | SWT.V_SCROLL);
+		this.viewer.setUseHashlookup(true);
+		this.viewer.setContentProvider(new ViewContentProvider());
+		this.viewer.setLabelProvider(new ViewLabelProvider());
+		Tree tree = this.viewer.getTree();
+		tree.setHeaderVisible(true);
+		tree.setLinesVisible(true);
+		for (int i = 0; i < COLUMN_TITLES.length; i++)
+		{
+			TreeColumn column = new TreeColumn(tree, i == 0 ? SWT.LEFT : SWT.RIGHT);
+			column.setText(COLUMN_TITLES[i]);
+			column.setWidth(COLUMN_WIDTHS[i]);
+		}
+		
+		// Show the next children of a node when its placeholder is double-clicked.
+		this.viewer.addDoubleClickListener(new IDoubleClickListener()
+		{
+			public void doubleClick(DoubleClickEvent event)
+			{
+				Object element = ((IStructuredSelection)event.getSelection()).getFirstElement();
+				if (element != null && ((CallGraphNode)element).kind == CallGraphNode.KIND_MORE)
+				{
+					CallGraphNode parent = ((CallGraphNode)element).parent;
+					parent.childLimit += CHILD_LIMIT;
+					parent.children = null;
+					CallGraphView.this.viewer.refresh(parent);
+				}
+			}
+		});
+		
+		// Show the report of the last parse and follow the reports of the parses to come.
+		GProfCorePlugin plugin = GProfCorePlugin.getDefault();
+		plugin.addReportListener(this);
+		this.report = plugin.getReport();
+		this.showReport();
+	}
+	
+	/**
+	 * Shows the call graph of the report of a completed parse (once the UI thread gets to it).
+	 * 
+	 * @see IGProfReportListener#onReport(ProfilerReport)
+	 */
+	public void onReport(final ProfilerReport report)
+	{
+		PlatformUI.getWorkbench().getDisplay().asyncExec(new Runnable()
+		{
+			public void run()
+			{
+				if (CallGraphView.this.viewer.getControl().isDisposed())
+				{
+					return;
+				}
+				CallGraphView.this.report = report;
+				CallGraphView.this.showReport();
+			}
+		});
+	}
+	
+	/**
+	 * Passing the focus request to the viewer's control.
+	 */
+	public void setFocus()
+	{
+		this.viewer.getControl().setFocus();
+	}
+	
+	/**
+	 * Stops following the reports of the parses.
+	 * 
+	 * @see org.eclipse.ui.part.WorkbenchPart#dispose()
+	 */
+	public void dispose()
+	{
+		GProfCorePlugin plugin = GProfCorePlugin.getDefault();
+		if (plugin != null)
+		{
+			plugin.removeReportListener(this);
+		}
+		super.dispose();
+	}
+	
+	/**
+	 * Shows the call graph of the profiler report, starting over with a collapsed tree.
+	 */
+	private void showReport()
+	{
+		this.hotPaths = null;
+		this.viewer.setInput(new CallGraphNode(CallGraphNode.KIND_ROOT, null, -1, -1, -1, -1, CHILD_LIMIT));
+	}
+	
+	/**
+	 * Retrieves the children of the given node, computing them if the node has not been expanded since its child limit was set.
+	 * 
+	 * @param node The node.
+	 * @return The children.
+	 */
+	private CallGraphNode[] getChildren(CallGraphNode node)
+	{
+		if (node.children != null)
+		{
+			return node.children;
+		}
+		if (this.report == null)
+		{
+			node.children = new CallGraphNode[0];
+			return node.children;
+		}
+		ProfiledCallGraph callGraph = this.report.GetCallGraph();
+		
+		// Chain the functions of hot paths (each function's only child being the next function of the path).
+		if (node.kind == CallGraphNode.KIND_HOT_PATHS)
+		{
+			node.children = new CallGraphNode[this.getHotPaths().GetPathCount()];
+			for (int path = 0; path < node.children.length; path++)
+			{
+				node.children[path] = new CallGraphNode(CallGraphNode.KIND_HOT_PATH, node, -1, -1, path, -1, CHILD_LIMIT);
+			}
+			return node.children;
+		}
+		if (node.kind == CallGraphNode.KIND_HOT_PATH || node.kind == CallGraphNode.KIND_PATH_STEP)
+		{
+			int step = node.step + 1;
+			int[] rows = this.hotPaths.GetPathRows(node.path);
+			if (step == rows.length)
+			{
+				node.children = new CallGraphNode[0];
+				return node.children;
+			}
+			int arc = step > 0 ? this.hotPaths.GetPathArcs(node.path)[step - 1] : -1;
+			node.children = new CallGraphNode[] { new CallGraphNode(CallGraphNode.KIND_PATH_STEP, node, rows[step], arc, node.path, step,
+				CHILD_LIMIT) };
+			return node.children;
+		}
+		
+		// Order the candidates (the roots or the subroutine arcs of the function) the first time the node is expanded.
+		if (node.candidates == null)
+		{
+			if (node.kind == CallGraphNode.KIND_ROOT)
+			{
+				node.candidates = getRoots(this.report);
+			}
+			else if (node.kind == CallGraphNode.KIND_FUNCTION && !node.recursive)
+			{
+				node.candidates = getSubroutineArcs(callGraph, node.row);
+			}
+			else
+			{
+				node.candidates = new int[0];
+			}
+		}
+		
+		// Create the children up to the child limit, folding the rest into a placeholder.
+		int count = Math.min(node.candidates.length, node.childLimit);
+		int first = node.kind == CallGraphNode.KIND_ROOT && node.candidates.length > 0 ? 1 : 0;
+		int more = node.candidates.length - count;
+		node.children = new CallGraphNode[first + count + (more > 0 ? 1 : 0)];
+		if (first > 0)
+		{
+			node.children[0] = new CallGraphNode(CallGraphNode.KIND_HOT_PATHS, node, -1, -1, -1, -1, CHILD_LIMIT);
+		}
+		ProfiledFunctionTable table = this.report.GetFunctionTable();
+		for (int i = 0; i < count; i++)
+		{
+			CallGraphNode child;
+			if (node.kind == CallGraphNode.KIND_ROOT)
+			{
+				child = new CallGraphNode(CallGraphNode.KIND_FUNCTION, node, node.candidates[i], -1, -1, -1, CHILD_LIMIT);
+			}
+			else
+			{
+				int arc = node.candidates[i];
+				child = new CallGraphNode(CallGraphNode.KIND_FUNCTION, node, callGraph.GetSubroutineRow(arc), arc, -1, -1, CHILD_LIMIT);
+				child.recursive = isOnPath(table, node, child.row);
+			}
+			node.children[first + i] = child;
+		}
+		if (more > 0)
+		{
+			node.children[first + count] = new CallGraphNode(CallGraphNode.KIND_MORE, node, -1, -1, -1, more, CHILD_LIMIT);
+		}
+		return node.children;
+	}
+	
+	/**
+	 * Retrieves whether the given node has children (without computing them).
+	 * 
+	 * @param node The node.
+	 * @return <code>true</code> if the node has children; <code>false</code> otherwise.
+	 */
+	private boolean hasChildren(CallGraphNode node)
+	{
+		switch (node.kind)
+		{
+			case CallGraphNode.KIND_FUNCTION:
+				ProfiledCallGraph callGraph = this.report.GetCallGraph();
+				return !node.recursive && callGraph.GetSubroutineArcsEnd(node.row) > callGraph.GetSubroutineArcsStart(node.row);
+			case CallGraphNode.KIND_PATH_STEP:
+				return node.step + 1 < this.hotPaths.GetPathLength(node.path);
+			case CallGraphNode.KIND_MORE:
+				return false;
+			default:
+				return true;
+		}
+	}
+	
+	/**
+	 * Retrieves the hot paths from the heaviest root, finding them the first time they are needed.
+	 * 
+	 * @return The hot paths.
+	 */
+	private ProfiledHotPaths getHotPaths()
+	{
+		if (this.hotPaths == null)
+		{
+			CallGraphNode root = (CallGraphNode)this.viewer.getInput();
+			this.hotPaths = new ProfiledHotPaths(this.report.GetCallGraph(), root.candidates[0], HOT_PATH_COUNT);
+		}
+		return this.hotPaths;
+	}
+	
+	/**
+	 * Retrieves the roots of the call graph: the functions without callers and the heaviest function of each cycle without callers
+	 * from outside of the cycle (i.e. one function of each component of the condensed call graph that no arc leads to), heaviest first.
+	 * 
+	 * @param report The profiler report.
+	 * @return The rows of the roots.
+	 */
+	static int[] getRoots(ProfilerReport report)
+	{
+		// Find the components that no arc leads to.
+		ProfiledCondensedGraph condensedGraph = report.GetCallGraph().GetCondensedGraph();
+		int componentCount = condensedGraph.GetComponentCount();
+		boolean[] called = new boolean[componentCount];
+		for (int arc = 0; arc < condensedGraph.GetArcCount(); arc++)
+		{
+			called[condensedGraph.GetArcComponent(arc)] = true;
+		}
+		
+		// Take the heaviest function of each of them.
+		final ProfiledFunctionTable table = report.GetFunctionTable();
+		Integer[] roots = new Integer[componentCount];
+		int rootCount = 0;
+		for (int component = 0; component < componentCount; component++)
+		{
+			if (!called[component])
+			{
+				int heaviest = -1;
+				for (int member = condensedGraph.GetMembersStart(component); member < condensedGraph.GetMembersEnd(component); member++)
+				{
+					int row = condensedGraph.GetMemberRow(member);
+					if (heaviest < 0 || getTotalTime(table, row) > getTotalTime(table, heaviest))
+					{
+						heaviest = row;
+					}
+				}
+				roots[rootCount++] = Integer.valueOf(heaviest);
+			}
+		}
+		roots = Arrays.copyOf(roots, rootCount);
+		Arrays.sort(roots, new Comparator<Integer>()
+		{
+			public int compare(Integer row, Integer otherRow)
+			{
+				return Double.compare(getTotalTime(table, otherRow.intValue()), getTotalTime(table, row.intValue()));
+			}
+		});
+		return toIntArray(roots);
+	}
+	
+	/**
+	 * Retrieves the text of the given column of the given node.
+	 * 
+	 * @param node The node.
+	 * @param column The column.
+	 * @return The text.
+	 */
+	private String getText(CallGraphNode node, int column)
+	{
+		// Name the nodes that are not functions.
+		if (node.kind == CallGraphNode.KIND_HOT_PATHS)
+		{
+			return column == 0 ? "Hot paths from " + this.report.GetFunctionTable().GetName(((CallGraphNode)this.viewer.getInput()).candidates[0])
+				: "";
+		}
+		if (node.kind == CallGraphNode.KIND_HOT_PATH)
+		{
+			if (column == 0)
+			{
+				return "Path " + (node.path + 1) + " (" + this.hotPaths.GetPathLength(node.path) + " functions)";
+			}
+			return column == COLUMN_TITLES.length - 1 ? String.format("%.2f", Double.valueOf(this.hotPaths.GetPathWeight(node.path))) : "";
+		}
+		if (node.kind == CallGraphNode.KIND_MORE)
+		{
+			return column == 0 ? node.step + " more..." : "";
+		}
+		
+		// Show the statistics of the arc that the function is called through (or of the function itself).
+		ProfiledFunctionTable table = this.report.GetFunctionTable();
+		ProfiledCallGraph callGraph = this.report.GetCallGraph();
+		switch (column)
+		{
+			case 0:
+				return node.recursive ? table.GetName(node.row) + " (recursive)" : table.GetName(node.row);
+			case 1:
+				long calls = node.arc >= 0 ? callGraph.GetSubroutineCallCount(node.arc) : table.GetCallCount(node.row);
+				return calls >= 0 ? Long.toString(calls) : "";
+			case 2:
+				return formatTime(node.arc >= 0 ? callGraph.GetSubroutineSelfTime(node.arc)
+					: table.GetStat(ProfiledFunctionTable.STAT_SELF_TIME, node.row));
+			case 3:
+				return formatTime(node.arc >= 0 ? callGraph.GetSubroutineChildTime(node.arc)
+					: table.GetStat(ProfiledFunctionTable.STAT_SUBROUTINE_TIME, node.row));
+			default:
+				return formatTime(node.arc >= 0 ? callGraph.GetSubroutineSelfTime(node.arc) + callGraph.GetSubroutineChildTime(node.arc)
+					: getTotalTime(table, node.row));
+		}
+	}
+	
+	/**
+	 * Retrieves the subroutine arcs of the given function, heaviest (by self and child time) first.
+	 * 
+	 * @param callGraph The call graph.
+	 * @param row The row of the function.
+	 * @return The subroutine arcs.
+	 */
+	private static int[] getSubroutineArcs(final ProfiledCallGraph callGraph, int row)
+	{
+		int start = callGraph.GetSubroutineArcsStart(row);
+		Integer[] arcs = new Integer[callGraph.GetSubroutineArcsEnd(row) - start];
+		for (int i = 0; i < arcs.length; i++)
+		{
+			arcs[i] = Integer.valueOf(start + i);
+		}
+		Arrays.sort(arcs, new Comparator<Integer>()
+		{
+			public int compare(Integer arc, Integer otherArc)
+			{
+				return Double.compare(getArcTime(callGraph, otherArc.intValue()), getArcTime(callGraph, arc.intValue()));
+			}
+		});
+		return toIntArray(arcs);
+	}
+	
+	/**
+	 * Retrieves whether a function with the same gprof ID as the given function is on the path from the root to the given node.
+	 * 
+	 * @param table The function table.
+	 * @param node The node.
+	 * @param row The row of the function.
+	 * @return <code>true</code> if the function is on the path; <code>false</code> otherwise.
+	 */
+	private static boolean isOnPath(ProfiledFunctionTable table, CallGraphNode node, int row)
+	{
+		int id = table.GetID(row);
+		for (; node != null && node.kind == CallGraphNode.KIND_FUNCTION; node = node.parent)
+		{
+			if (node.row == row || table.GetID(node.row) == id)
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Retrieves the total time of the given function (zero if unknown).
+	 * 
+	 * @param table The function table.
+	 * @param row The row of the function.
+	 * @return The total time.
+	 */
+	private static double getTotalTime(ProfiledFunctionTable table, int row)
+	{
+		return Math.max(table.GetStat(ProfiledFunctionTable.STAT_TOTAL_TIME, row), 0);
+	}
+	
+	/**
+	 * Retrieves the time spent in the given subroutine arc (the self time and child time propagated along the arc).
+	 * 
+	 * @param callGraph The call graph.
+	 * @param arc The subroutine arc.
+	 * @return The time.
+	 */
+	private static double getArcTime(ProfiledCallGraph callGraph, int arc)
+	{
+		return callGraph.GetSubroutineSelfTime(arc) + callGraph.GetSubroutineChildTime(arc);
+	}
+	
+	/**
+	 * Formats the given time (nothing if unknown).
+	 * 
+	 * @param time The time.
+	 * @return The text.
+	 */
+	private static String formatTime(double time)
+	{
+		return time >= 0 ? String.format("%.2f", Double.valueOf(time)) : "";
+	}
+	
+	/**
+	 * Unboxes the given integers.
+	 * 
+	 * @param values The integers.
+	 * @return The values.
+	 */
+	private static int[] toIntArray(Integer[] values)
+	{
+		int[] ints = new int[values.length];
+		for (int i = 0; i < values.length; i++)
+		{
+			ints[i] = values[i].intValue();
+		}
+		return ints;
+	}
+}
@@ -0,0 +1,420 @@
+/*
+ * =======================================================================
+ * ============================ gprof-eclipse ============================
+ * =======================================================================
+ * 
+ * 
+ * File: FlameGraphLayout.java
+ * 
+ * 
+ * -----------------------------------------------------------------------
+ * Copyright (c) 2009 Chris Culy and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * + Chris Culy - initial API and implementation
+ * -----------------------------------------------------------------------
+ * 
+ * 
+ * Last changed:
+ * $Revision$
+ * $Author$
+ * $Date$
+ */
+
+package org.eclipse.cdt.gprof.core.views;
+
+import java.util.Arrays;
+
+import org.eclipse.cdt.gprof.core.profiled.ProfiledCallGraph;
+import org.eclipse.cdt.gprof.core.profiled.ProfiledFunctionTable;
+import org.eclipse.cdt.gprof.core.profiled.ProfilerReport;
+import org.eclipse.core.runtime.IProgressMonitor;
+
+/**
+ * Lays out the frames of the flame graph of a profiler report (drawn top down, as an icicle graph) into primitive arrays.
+ * 
+ * The call graph is unfolded into a tree from its roots (see {@link CallGraphView#getRoots(ProfilerReport)}) below a frame standing
+ * for the whole run. The width of a frame is the time spent in the function when called from its parent frame: the self and child
+ * time of the subroutine entry (the arc of the call graph), and the children of a frame share its width in proportion to the times of
+ * their own entries, next to the self time of the function. Positions and widths are relative to the width of the whole run, so the
+ * layout does not depend on the size of the canvas or the zoom: zooming and panning only change the range of the layout shown.
+ * 
+ * The frames are stored in depth first order, each with the end of its subtree, so a frame that is too narrow to be drawn or out of
+ * view is skipped together with everything below it. Frames narrower than {@link #MIN_FRAME_WIDTH} of the run (under a pixel at any
+ * sensible zoom) and functions that are already on the path from the root (recursion) are not unfolded, which bounds the layout even
+ * for call graphs whose unfolded tree would be exponential.
+ */
+final class FlameGraphLayout
+{
+	/** Holds the narrowest frame laid out, relative to the width of the whole run. */
+	static final double MIN_FRAME_WIDTH = 1e-6;
+	
+	/** Holds the maximum number of frames laid out. */
+	static final int MAX_FRAME_COUNT = 1 << 22;
+	
+	/** Holds the number of frames laid out between checks for cancellation. */
+	private static final int CANCEL_CHECK_INTERVAL = 4096;
+	
+	/** Holds the profiler report. */
+	private final ProfilerReport report;
+	
+	/** Holds the total time of the run (the time of all roots). */
+	private double totalTime;
+	
+	/** Holds the left edge of each frame, relative to the width of the run. */
+	private double[] xs = new double[1024];
+	
+	/** Holds the width of each frame, relative to the width of the run. */
+	private double[] widths = new double[1024];
+	
+	/** Holds the depth of each frame (0 for the frame of the whole run). */
+	private int[] depths = new int[1024];
+	
+	/** Holds the row of the function of each frame (-1 for the frame of the whole run). */
+	private int[] rows = new int[1024];
+	
+	/** Holds the subroutine arc that the function of each frame is called through (-1 for the roots). */
+	private int[] arcs = new int[1024];
+	
+	/** Holds the end of the subtree of each frame (the index of the first frame after its descendants). */
+	private int[] ends = new int[1024];
+	
+	/** Holds the number of frames. */
+	private int frameCount;
+	
+	/** Holds the depth of the deepest frame. */
+	private int maxDepth;
+	
+	/** Holds the frames on the unfolding stack. */
+	private int[] stackFrames = new int[64];
+	
+	/** Holds the next subroutine arc to unfold for each frame on the stack. */
+	private int[] stackArcs = new int[64];
+	
+	/** Holds the left edge of the next child of each frame on the stack. */
+	private double[] stackXs = new double[64];
+	
+	/** Holds the width per second of the children of each frame on the stack. */
+	private double[] stackScales = new double[64];
+	
+	/** Holds whether each function is on the unfolding stack. */
+	private boolean[] onStack;
+	
+	/**
+	 * Lays out the flame graph of the given report.
+	 * 
+	 * @param report The profiler report.
+	 * @param monitor The monitor of the job laying out the graph (the layout stops early if the job is canceled).
+	 */
+	FlameGraphLayout(ProfilerReport report, IProgressMonitor monitor)
+	{
+		this.report = report;
+		ProfiledFunctionTable table = report.GetFunctionTable();
+		this.onStack = new boolean[table.GetRowCount()];
+		int[] roots = CallGraphView.getRoots(report);
+		for (int i = 0; i < roots.length; i++)
+		{
+			this.totalTime += getTime(table, roots[i]);
+		}
+		
+		// Lay out the frame of the whole run and unfold each root below it.
+		this.addFrame(0, 1, 0, -1, -1);
+		double x = 0;
+		for (int i = 0; i < roots.length && !monitor.isCanceled(); i++)
+		{
+			double width = this.totalTime > 0 ? getTime(table, roots[i]) / this.totalTime : 0;
+			if (width >= MIN_FRAME_WIDTH)
+			{
+				this.unfold(roots[i], x, width, monitor);
+			}
+			x += width;
+		}
+		this.ends[0] = this.frameCount;
+		
+		// Drop the unfolding state.
+		this.stackFrames = null;
+		this.stackArcs = null;
+		this.stackXs = null;
+		this.stackScales = null;
+		this.onStack = null;
+	}
+	
+	/**
+	 * Retrieves the profiler report laid out.
+	 * 
+	 * @return The profiler report.
+	 */
+	ProfilerReport getReport()
+	{
+		return this.report;
+	}
+	
+	/**
+	 * Retrieves the total time of the run (the time that the width of the run stands for).
+	 * 
+	 * @return The total time.
+	 */
+	double getTotalTime()
+	{
+		return this.totalTime;
+	}
+	
+	/**
+	 * Retrieves the number of frames.
+	 * 
+	 * @return The number of frames.
+	 */
+	int getFrameCount()
+	{
+		return this.frameCount;
+	}
+	
+	/**
+	 * Retrieves the depth of the deepest frame.
+	 * 
+	 * @return The depth.
+	 */
+	int getMaxDepth()
+	{
+		return this.maxDepth;
+	}
+	
+	/**
+	 * Retrieves the left edge of the given frame.
+	 * 
+	 * @param frame The frame.
+	 * @return The left edge, relative to the width of the run.
+	 */
+	double getX(int frame)
+	{
+		return this.xs[frame];
+	}
+	
+	/**
+	 * Retrieves the width of the given frame.
+	 * 
+	 * @param frame The frame.
+	 * @return The width, relative to the width of the run.
+	 */
+	double getWidth(int frame)
+	{
+		return this.widths[frame];
+	}
+	
+	/**
+	 * Retrieves the depth of the given frame.
+	 * 
+	 * @param frame The frame.
+	 * @return The depth.
+	 */
+	int getDepth(int frame)
+	{
+		return this.depths[frame];
+	}
+	
+	/**
+	 * Retrieves the row of the function of the given frame.
+	 * 
+	 * @param frame The frame.
+	 * @return The row of the function (-1 for the frame of the whole run).
+	 */
+	int getRow(int frame)
+	{
+		return this.rows[frame];
+	}
+	
+	/**
+	 * Retrieves the subroutine arc that the function of the given frame is called through.
+	 * 
+	 * @param frame The frame.
+	 * @return The subroutine arc (-1 for the roots and the frame of the whole run).
+	 */
+	int getArc(int frame)
+	{
+		return this.arcs[frame];
+	}
+	
+	/**
+	 * Retrieves the end of the subtree of the given frame.
+	 * 
+	 * @param frame The frame.
+	 * @return The index of the first frame after the descendants of the frame.
+	 */
+	int getEnd(int frame)
+	{
+		return this.ends[frame];
+	}
+	
+	/**
+	 * Retrieves the frame at the given position.
+	 * 
+	 * @param x The position, relative to the width of the run.
+	 * @param depth The depth.
+	 * @return The frame or -1 if no frame is at the position.
+	 */
+	int findFrame(double x, int depth)
+	{
+		if (this.frameCount == 0 || depth < 0 || x < 0 || x >= 1)
+		{
+			return -1;
+		}
+		
+		// Descend from the frame of the whole run into the child containing the position, skipping the subtrees of the others.
+		int frame = 0;
+		int child = 1;
+		while (this.depths[frame] < depth && child < this.ends[frame])
+		{
+			if (x >= this.xs[child] && x < this.xs[child] + this.widths[child])
+			{
+				frame = child;
+				child++;
+			}
+			else
+			{
+				child = this.ends[child];
+			}
+		}
+		return this.depths[frame] == depth ? frame : -1;
+	}
+	
+	/**
+	 * Unfolds the call graph below the given root into frames, depth first (without recursing, so that deep call graphs do not
+	 * overflow the stack).
+	 * 
+	 * @param root The row of the root.
+	 * @param x The left edge of the root's frame.
+	 * @param width The width of the root's frame.
+	 * @param monitor The monitor of the job laying out the graph.
+	 */
+	private void unfold(int root, double x, double width, IProgressMonitor monitor)
+	{
+		ProfiledFunctionTable table = this.report.GetFunctionTable();
+		ProfiledCallGraph callGraph = this.report.GetCallGraph();
+		int depth = 0;
+		this.push(depth++, this.addFrame(x, width, 1, root, -1), table, callGraph);
+		while (depth > 0)
+		{
+			// Lay out the next subroutine of the frame on top of the stack.
+			int top = depth - 1;
+			int frame = this.stackFrames[top];
+			int arc = this.stackArcs[top];
+			if (arc < callGraph.GetSubroutineArcsEnd(this.rows[frame]))
+			{
+				this.stackArcs[top]++;
+				int row = callGraph.GetSubroutineRow(arc);
+				double childX = this.stackXs[top];
+				double childWidth = getTime(callGraph, arc) * this.stackScales[top];
+				this.stackXs[top] += childWidth;
+				if (childWidth >= MIN_FRAME_WIDTH && !this.onStack[row] && this.frameCount < MAX_FRAME_COUNT)
+				{
+					if (this.frameCount % CANCEL_CHECK_INTERVAL == 0 && monitor.isCanceled())
+					{
+						return;
+					}
+					this.push(depth++, this.addFrame(childX, childWidth, this.depths[frame] + 1, row, arc), table, callGraph);
+				}
+				continue;
+			}
+			
+			// Close the frame once all of its subroutines have been laid out.
+			this.ends[frame] = this.frameCount;
+			this.onStack[this.rows[frame]] = false;
+			depth--;
+		}
+	}
+	
+	/**
+	 * Pushes the given frame onto the unfolding stack, sharing its width between the self time of its function and its subroutines.
+	 * 
+	 * @param depth The depth of the stack.
+	 * @param frame The frame.
+	 * @param table The function table.
+	 * @param callGraph The call graph.
+	 */
+	private void push(int depth, int frame, ProfiledFunctionTable table, ProfiledCallGraph callGraph)
+	{
+		if (depth == this.stackFrames.length)
+		{
+			this.stackFrames = Arrays.copyOf(this.stackFrames, depth * 2);
+			this.stackArcs = Arrays.copyOf(this.stackArcs, depth * 2);
+			this.stackXs = Arrays.copyOf(this.stackXs, depth * 2);
+			this.stackScales = Arrays.copyOf(this.stackScales, depth * 2);
+		}
+		int row = this.rows[frame];
+		int start = callGraph.GetSubroutineArcsStart(row);
+		int end = callGraph.GetSubroutineArcsEnd(row);
+		double time = Math.max(table.GetStat(ProfiledFunctionTable.STAT_SELF_TIME, row), 0);
+		for (int arc = start; arc < end; arc++)
+		{
+			time += getTime(callGraph, arc);
+		}
+		this.stackFrames[depth] = frame;
+		this.stackArcs[depth] = start;
+		this.stackXs[depth] = this.xs[frame];
+		this.stackScales[depth] = time > 0 ? this.widths[frame] / time : 0;
+		this.onStack[row] = true;
+	}
+	
+	/**
+	 * Adds a frame.
+	 * 
+	 * @param x The left edge of the frame.
+	 * @param width The width of the frame.
+	 * @param depth The depth of the frame.
+	 * @param row The row of the function of the frame.
+	 * @param arc The subroutine arc that the function is called through.
+	 * @return The frame.
+	 */
+	private int addFrame(double x, double width, int depth, int row, int arc)
+	{
+		int frame = this.frameCount++;
+		if (frame == this.xs.length)
+		{
+			int capacity = frame * 2;
+			this.xs = Arrays.copyOf(this.xs, capacity);
+			this.widths = Arrays.copyOf(this.widths, capacity);
+			this.depths = Arrays.copyOf(this.depths, capacity);
+			this.rows = Arrays.copyOf(this.rows, capacity);
+			this.arcs = Arrays.copyOf(this.arcs, capacity);
+			this.ends = Arrays.copyOf(this.ends, capacity);
+		}
+		this.xs[frame] = x;
+		this.widths[frame] = width;
+		this.depths[frame] = depth;
+		this.rows[frame] = row;
+		this.arcs[frame] = arc;
+		this.ends[frame] = frame + 1;
+		this.maxDepth = Math.max(this.maxDepth, depth);
+		return frame;
+	}
+	
+	/**
+	 * Retrieves the time spent in the given root function (its self time and the time of its subroutines).
+	 * 
+	 * @param table The function table.
+	 * @param row The row of the function.
+	 * @return The time.
+	 */
+	private static double getTime(ProfiledFunctionTable table, int row)
+	{
+		return Math.max(table.GetStat(ProfiledFunctionTable.STAT_SELF_TIME, row), 0)
+			+ Math.max(table.GetStat(ProfiledFunctionTable.STAT_SUBROUTINE_TIME, row), 0);
+	}
+	
+	/**
+	 * Retrieves the time spent in the given subroutine arc (its self time and child time, zero where unknown, as for recursive calls).
+	 * 
+	 * @param callGraph The call graph.
+	 * @param arc The subroutine arc.
+	 * @return The time.
+	 */
+	private static double getTime(ProfiledCallGraph callGraph, int arc)
+	{
+		return Math.max(callGraph.GetSubroutineSelfTime(arc), 0) + Math.max(callGraph.GetSubroutineChildTime(arc), 0);
+	}
+}
@@ -0,0 +1,105 @@
+/*
+ * =======================================================================
+ * ============================ gprof-eclipse ============================
+ * =======================================================================
+ * 
+ * 
+ * File: FlameGraphLayoutJob.java
+ * 
+ * 
+ * -----------------------------------------------------------------------
+ * Copyright (c) 2009 Chris Culy and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * + Chris Culy - initial API and implementation
+ * -----------------------------------------------------------------------
+ * 
+ * 
+ * Last changed:
+ * $Revision$
+ * $Author$
+ * $Date$
+ */
+
+package org.eclipse.cdt.gprof.core.views;
+
+import org.eclipse.cdt.gprof.core.profiled.ProfilerReport;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+/**
+ * Lays out the flame graph of a profiler report in the background and hands the layout to the flame graph view. A new report cancels
+ * the layout in progress; the view ignores a layout whose report is no longer shown.
+ */
+final class FlameGraphLayoutJob extends Job
+{
+	// =============== Flame Graph Layout Job String Constants ================ //
+	
+	/** Holds the name of the job. */
+	private static final String LAYOUT_JOB_NAME = "Laying out the flame graph";
+	
+	// =============== Flame Graph Layout Job String Constants ================ //
+	
+	/** Holds the view that the layout is handed to. */
+	private final FlameGraphView view;
+	
+	/** Holds the report to lay out (<code>null</code> if none). */
+	private ProfilerReport report;
+	
+	/**
+	 * Constructs the job for the given view.
+	 * 
+	 * @param view The view that the layout is handed to.
+	 */
+	FlameGraphLayoutJob(FlameGraphView view)
+	{
+		super(LAYOUT_JOB_NAME);
+		this.view = view;
+		this.setSystem(true);
+	}
+	
+	/**
+	 * Requests the layout of the given report.
+	 * 
+	 * @param report The profiler report.
+	 */
+	synchronized void layOut(ProfilerReport report)
+	{
+		this.cancel();
+		this.report = report;
+		if (report != null)
+		{
+			this.schedule();
+		}
+	}
+	
+	/**
+	 * @see Job#run(IProgressMonitor)
+	 */
+	protected IStatus run(IProgressMonitor monitor)
+	{
+		ProfilerReport report;
+		synchronized (this)
+		{
+			report = this.report;
+		}
+		if (report == null)
+		{
+			return Status.OK_STATUS;
+		}
+		FlameGraphLayout layout = new FlameGraphLayout(report, monitor);
+		if (monitor.isCanceled())
+		{
+			return Status.CANCEL_STATUS;
+		}
+		this.view.showLayout(layout);
+		return Status.OK_STATUS;
+	}
+}
@@ -0,0 +1,594 @@
+/*
+ * =======================================================================
+ * ============================ gprof-eclipse ============================
+ * =======================================================================
+ * 
+ * 
+ * File: FlameGraphView.java
+ * 
+ * 
+ * -----------------------------------------------------------------------
+ * Copyright (c) 2009 Chris Culy and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * + Chris Culy - initial API and implementation
+ * -----------------------------------------------------------------------
+ * 
+ * 
+ * Last changed:
+ * $Revision$
+ * $Author$
+ * $Date$
+ */
+
+package org.eclipse.cdt.gprof.core.views;
+
+import java.util.Arrays;
+
+import org.eclipse.cdt.gprof.core.GProfCorePlugin;
+import org.eclipse.cdt.gprof.core.IGProfReportListener;
+import org.eclipse.cdt.gprof.core.profiled.ProfiledFunctionTable;
+import org.eclipse.cdt.gprof.core.profiled.ProfilerReport;
+import org.eclipse.jface.action.Action;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.Color;
+import org.eclipse.swt.graphics.GC;
+import org.eclipse.swt.graphics.Rectangle;
+import org.eclipse.swt.widgets.Canvas;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Event;
+import org.eclipse.swt.widgets.Listener;
+import org.eclipse.ui.PlatformUI;
+import org.eclipse.ui.part.ViewPart;
+
+/**
+ * Displays the call graph of the profiler report as a flame graph, drawn top down (an icicle graph): each function is a frame as wide
+ * as the time spent in it, below the frame of its caller.
+ * 
+ * The frames are laid out in the background by a {@link FlameGraphLayoutJob} into a {@link FlameGraphLayout} that does not depend on
+ * the size of the canvas, so zooming (clicking a frame zooms into its subtree; Ctrl and the mouse wheel zoom around the pointer) and
+ * panning (dragging) only change the range of the layout shown. Painting skips the subtrees of the frames that are out of the dirty
+ * region, and frames narrower than a pixel are not drawn one by one but merged with their neighbours into a single gray block, so
+ * the cost of a paint depends on the number of pixels rather than on the number of frames. Panning and scrolling move the pixels
+ * already drawn and only paint the strip uncovered, and hovering only repaints the frames highlighted.
+ */
+public class FlameGraphView extends ViewPart implements IGProfReportListener
+{
+	// ================== Flame Graph View String Constants =================== //
+	
+	/** Holds the text shown while the report is laid out. */
+	private static final String LAYOUT_PENDING_TEXT = "Laying out the flame graph...";
+	
+	/** Holds the name of the frame of the whole run. */
+	private static final String RUN_FRAME_NAME = "all";
+	
+	// ================== Flame Graph View String Constants =================== //
+	
+	/** Holds the height of a frame in pixels. */
+	private static final int FRAME_HEIGHT = 18;
+	
+	/** Holds the margin between the edge of a frame and its text in pixels. */
+	private static final int TEXT_MARGIN = 3;
+	
+	/** Holds the distance in pixels that the pointer must be dragged for a pan (shorter drags are clicks). */
+	private static final int DRAG_THRESHOLD = 3;
+	
+	/** Holds the factor by which one step of the mouse wheel zooms. */
+	private static final double ZOOM_FACTOR = 1.25;
+	
+	/** Holds the narrowest range of the layout that can be shown (the layout has no detail beyond it). */
+	private static final double MIN_VIEW_WIDTH = FlameGraphLayout.MIN_FRAME_WIDTH;
+	
+	/** Holds the number of colors of the frames. */
+	private static final int COLOR_COUNT = 16;
+	
+	/** Holds the profiler's report. */
+	private ProfilerReport report;
+	
+	/** Holds the layout of the report (<code>null</code> until it has been laid out). */
+	private FlameGraphLayout layout;
+	
+	/** Holds the job laying out the reports. */
+	private FlameGraphLayoutJob layoutJob;
+	
+	/** Holds the canvas. */
+	private Canvas canvas;
+	
+	/** Holds the colors of the frames (by function name). */
+	private Color[] colors;
+	
+	/** Holds the color of the blocks of merged frames. */
+	private Color mergedColor;
+	
+	/** Holds the color of the frame under the pointer. */
+	private Color hoverColor;
+	
+	/** Holds the action showing the whole run again. */
+	private Action resetZoomAction;
+	
+	/** Holds the left edge of the range of the layout shown. */
+	private double viewX;
+	
+	/** Holds the width of the range of the layout shown. */
+	private double viewWidth = 1;
+	
+	/** Holds the distance in pixels that the frames are scrolled up. */
+	private int scrollY;
+	
+	/** Holds the frame under the pointer (-1 if none). */
+	private int hoveredFrame = -1;
+	
+	/** Holds the horizontal position where the pointer was pressed (-1 unless a button is pressed). */
+	private int dragX = -1;
+	
+	/** Holds the left edge of the range shown when the pointer was pressed. */
+	private double dragViewX;
+	
+	/** Holds whether the pointer has been dragged since it was pressed. */
+	private boolean dragged;
+	
+	/**
+	 * Constructor.
+	 */
+	public FlameGraphView()
+	{
+		/* stub function */
+	}
+	
+	/**
+	 * Create the canvas.
+	 */
+	public void createPartControl(Composite parent)
+	{
+		this.layoutJob = new FlameGraphLayoutJob(this);
+		this.canvas = new Canvas(parent, SWT.DOUBLE_BUFFERED | SWT.NO_BACKGROUND);
+		
+		// Create the colors (warm shades, picked by function name so a function has the same color everywhere).
+		Display display = this.canvas.getDisplay();
+		this.colors = new Color[COLOR_COUNT];
+		for (int i = 0; i < COLOR_COUNT; i++)
+		{
+			this.colors[i] = new Color(display, 225 + (i * 7) % 31, 80 + (i * 53) % 140, 30 + (i * 29) % 60);
+		}
+		this.mergedColor = new Color(display, 200, 200, 200);
+		this.hoverColor = new Color(display, 250, 240, 120);
+		
+		// Paint the dirty region and follow the pointer.
+		Listener listener = new Listener()
+		{
+			public void handleEvent(Event event)
+			{
+				FlameGraphView.this.handleEvent(event);
+			}
+		};
+		int[] eventTypes = { SWT.Paint, SWT.Resize, SWT.MouseDown, SWT.MouseUp, SWT.MouseMove, SWT.MouseWheel, SWT.MouseDoubleClick,
+			SWT.KeyDown };
+		for (int i = 0; i < eventTypes.length; i++)
+		{
+			this.canvas.addListener(eventTypes[i], listener);
+		}
+		
+		// Add the action showing the whole run again to the view's toolbar.
+		this.resetZoomAction = new Action("Reset Zoom")
+		{
+			public void run()
+			{
+				FlameGraphView.this.zoom(0, 1);
+			}
+		};
+		this.resetZoomAction.setToolTipText("Show the whole run");
+		this.getViewSite().getActionBars().getToolBarManager().add(this.resetZoomAction);
+		
+		// Show the report of the last parse and follow the reports of the parses to come.
+		GProfCorePlugin plugin = GProfCorePlugin.getDefault();
+		plugin.addReportListener(this);
+		this.report = plugin.getReport();
+		this.layoutJob.layOut(this.report);
+	}
+	
+	/**
+	 * Lays out the report of a completed parse in the background (once the UI thread gets to it).
+	 * 
+	 * @see IGProfReportListener#onReport(ProfilerReport)
+	 */
+	public void onReport(final ProfilerReport report)
+	{
+		PlatformUI.getWorkbench().getDisplay().asyncExec(new Runnable()
+		{
+			public void run()
+			{
+				if (FlameGraphView.this.canvas.isDisposed())
+				{
+					return;
+				}
+				FlameGraphView.this.report = report;
+				FlameGraphView.this.layout = null;
+				FlameGraphView.this.layoutJob.layOut(report);
+				FlameGraphView.this.canvas.redraw();
+			}
+		});
+	}
+	
+	/**
+	 * Shows the given layout, unless its report is no longer the report shown. May be called on any thread.
+	 * 
+	 * @param layout The layout.
+	 */
+	void showLayout(final FlameGraphLayout layout)
+	{
+		PlatformUI.getWorkbench().getDisplay().asyncExec(new Runnable()
+		{
+			public void run()
+			{
+				FlameGraphView view = FlameGraphView.this;
+				if (view.canvas.isDisposed() || layout.getReport() != view.report)
+				{
+					return;
+				}
+				view.layout = layout;
+				view.viewX = 0;
+				view.viewWidth = 1;
+				view.scrollY = 0;
+				view.hoveredFrame = -1;
+				view.canvas.redraw();
+			}
+		});
+	}
+	
+	/**
+	 * Passing the focus request to the canvas.
+	 */
+	public void setFocus()
+	{
+		this.canvas.setFocus();
+	}
+	
+	/**
+	 * Stops following the reports of the parses and releases the colors.
+	 * 
+	 * @see org.eclipse.ui.part.WorkbenchPart#dispose()
+	 */
+	public void dispose()
+	{
+		this.layoutJob.cancel();
+		GProfCorePlugin plugin = GProfCorePlugin.getDefault();
+		if (plugin != null)
+		{
+			plugin.removeReportListener(this);
+		}
+		for (int i = 0; i < this.colors.length; i++)
+		{
+			this.colors[i].dispose();
+		}
+		this.mergedColor.dispose();
+		this.hoverColor.dispose();
+		super.dispose();
+	}
+	
+	/**
+	 * Handles the given event of the canvas.
+	 * 
+	 * @param event The event.
+	 */
+	private void handleEvent(Event event)
+	{
+		switch (event.type)
+		{
+			case SWT.Paint:
+				this.paint(event);
+				break;
+			case SWT.Resize:
+				this.scroll(0);
+				break;
+			case SWT.MouseDown:
+				if (event.button == 1)
+				{
+					this.dragX = event.x;
+					this.dragViewX = this.viewX;
+					this.dragged = false;
+				}
+				break;
+			case SWT.MouseMove:
+				if (this.dragX >= 0 && (this.dragged || Math.abs(event.x - this.dragX) > DRAG_THRESHOLD))
+				{
+					// Pan by the distance dragged.
+					this.dragged = true;
+					this.pan(this.dragViewX - (event.x - this.dragX) * this.viewWidth / this.canvas.getClientArea().width);
+				}
+				else
+				{
+					this.hover(this.getFrameAt(event.x, event.y));
+				}
+				break;
+			case SWT.MouseUp:
+				if (this.dragX >= 0 && !this.dragged)
+				{
+					// Zoom into the subtree of the frame clicked.
+					int frame = this.getFrameAt(event.x, event.y);
+					if (frame >= 0)
+					{
+						this.zoom(this.layout.getX(frame), this.layout.getWidth(frame));
+					}
+				}
+				this.dragX = -1;
+				break;
+			case SWT.MouseWheel:
+				if ((event.stateMask & SWT.MOD1) != 0)
+				{
+					// Zoom around the pointer.
+					double factor = event.count > 0 ? 1 / ZOOM_FACTOR : ZOOM_FACTOR;
+					double x = this.viewX + event.x * this.viewWidth / this.canvas.getClientArea().width;
+					this.zoom(x - (x - this.viewX) * factor, this.viewWidth * factor);
+				}
+				else
+				{
+					this.scroll(-event.count * FRAME_HEIGHT);
+				}
+				event.doit = false;
+				break;
+			case SWT.MouseDoubleClick:
+				this.zoom(0, 1);
+				break;
+			case SWT.KeyDown:
+				if (event.keyCode == SWT.ESC)
+				{
+					this.zoom(0, 1);
+				}
+				break;
+			default:
+				break;
+		}
+	}
+	
+	/**
+	 * Paints the frames within the dirty region of the given paint event.
+	 * 
+	 * @param event The paint event.
+	 */
+	private void paint(Event event)
+	{
+		GC gc = event.gc;
+		Display display = this.canvas.getDisplay();
+		gc.setBackground(display.getSystemColor(SWT.COLOR_LIST_BACKGROUND));
+		gc.fillRectangle(event.x, event.y, event.width, event.height);
+		gc.setForeground(display.getSystemColor(SWT.COLOR_LIST_FOREGROUND));
+		FlameGraphLayout layout = this.layout;
+		if (layout == null)
+		{
+			if (this.report != null)
+			{
+				gc.drawString(LAYOUT_PENDING_TEXT, TEXT_MARGIN, TEXT_MARGIN, true);
+			}
+			return;
+		}
+		
+		// Find the depths and the horizontal range of the dirty region.
+		double scale = this.canvas.getClientArea().width / this.viewWidth;
+		int firstDepth = Math.max((event.y + this.scrollY) / FRAME_HEIGHT, 0);
+		int lastDepth = (event.y + event.height + this.scrollY - 1) / FRAME_HEIGHT;
+		int clipLeft = event.x;
+		int clipRight = event.x + event.width;
+		int averageCharWidth = Math.max(gc.getFontMetrics().getAverageCharWidth(), 1);
+		
+		// Draw the frames in the dirty region, skipping the subtrees out of it and merging the runs of frames narrower than a pixel.
+		double[] mergedLefts = new double[layout.getMaxDepth() + 1];
+		double[] mergedRights = new double[layout.getMaxDepth() + 1];
+		Arrays.fill(mergedRights, Double.NEGATIVE_INFINITY);
+		int frameCount = layout.getFrameCount();
+		int frame = 0;
+		while (frame < frameCount)
+		{
+			int depth = layout.getDepth(frame);
+			double left = (layout.getX(frame) - this.viewX) * scale;
+			double right = left + layout.getWidth(frame) * scale;
+			if (depth > lastDepth || right < clipLeft || left >= clipRight)
+			{
+				frame = layout.getEnd(frame);
+				continue;
+			}
+			if (right - left < 1)
+			{
+				if (left > mergedRights[depth] + 1)
+				{
+					this.paintMerged(gc, depth, mergedLefts[depth], mergedRights[depth]);
+					mergedLefts[depth] = left;
+				}
+				mergedRights[depth] = Math.max(mergedRights[depth], right);
+				frame = layout.getEnd(frame);
+				continue;
+			}
+			if (depth >= firstDepth)
+			{
+				this.paintFrame(gc, frame, left, right, averageCharWidth);
+			}
+			frame++;
+		}
+		for (int depth = firstDepth; depth < mergedRights.length && depth <= lastDepth; depth++)
+		{
+			this.paintMerged(gc, depth, mergedLefts[depth], mergedRights[depth]);
+		}
+	}
+	
+	/**
+	 * Paints the given frame with its name (as much of it as fits).
+	 * 
+	 * @param gc The graphics context.
+	 * @param frame The frame.
+	 * @param left The left edge of the frame in pixels.
+	 * @param right The right edge of the frame in pixels.
+	 * @param averageCharWidth The average width of a character in pixels.
+	 */
+	private void paintFrame(GC gc, int frame, double left, double right, int averageCharWidth)
+	{
+		// Clip the frame to the canvas (a frame zoomed into spans far beyond it).
+		int width = this.canvas.getClientArea().width;
+		int x = (int)Math.max(left, -1);
+		int frameWidth = (int)Math.min(right, width + 1) - x;
+		int y = this.layout.getDepth(frame) * FRAME_HEIGHT - this.scrollY;
+		int row = this.layout.getRow(frame);
+		String name = RUN_FRAME_NAME;
+		Color color = this.colors[0];
+		if (row >= 0)
+		{
+			ProfiledFunctionTable table = this.layout.getReport().GetFunctionTable();
+			name = table.GetName(row);
+			color = this.colors[((table.GetNameID(row) * 0x9E3779B1) >>> 16) % COLOR_COUNT];
+		}
+		gc.setBackground(frame == this.hoveredFrame ? this.hoverColor : color);
+		gc.fillRectangle(x, y, Math.max(frameWidth - 1, 1), FRAME_HEIGHT - 1);
+		
+		// Draw as much of the name as fits.
+		int charCount = (frameWidth - 2 * TEXT_MARGIN) / averageCharWidth;
+		if (name != null && charCount >= 3)
+		{
+			String text = name.length() <= charCount ? name : name.substring(0, charCount - 2) + "..";
+			gc.drawString(text, Math.max(x, 0) + TEXT_MARGIN, y + 1, true);
+		}
+	}
+	
+	/**
+	 * Paints a block of merged frames (nothing if the block is narrower than a pixel).
+	 * 
+	 * @param gc The graphics context.
+	 * @param depth The depth of the frames.
+	 * @param left The left edge of the block in pixels.
+	 * @param right The right edge of the block in pixels.
+	 */
+	private void paintMerged(GC gc, int depth, double left, double right)
+	{
+		if (right - left >= 1)
+		{
+			gc.setBackground(this.mergedColor);
+			gc.fillRectangle((int)left, depth * FRAME_HEIGHT - this.scrollY, (int)Math.ceil(right - left), FRAME_HEIGHT - 1);
+		}
+	}
+	
+	/**
+	 * Shows the given range of the layout, repainting the rows of frames (the cached layout is drawn at the new scale).
+	 * 
+	 * @param x The left edge of the range.
+	 * @param width The width of the range.
+	 */
+	private void zoom(double x, double width)
+	{
+		if (this.layout == null)
+		{
+			return;
+		}
+		this.viewWidth = Math.min(Math.max(width, MIN_VIEW_WIDTH), 1);
+		this.viewX = Math.min(Math.max(x, 0), 1 - this.viewWidth);
+		Rectangle area = this.canvas.getClientArea();
+		int height = (this.layout.getMaxDepth() + 1) * FRAME_HEIGHT - this.scrollY;
+		this.canvas.redraw(0, 0, area.width, Math.min(height, area.height), false);
+	}
+	
+	/**
+	 * Pans the range shown to the given left edge, moving the pixels already drawn and only repainting the strip uncovered.
+	 * 
+	 * @param x The left edge of the range.
+	 */
+	private void pan(double x)
+	{
+		Rectangle area = this.canvas.getClientArea();
+		double scale = area.width / this.viewWidth;
+		x = Math.min(Math.max(x, 0), 1 - this.viewWidth);
+		
+		// Pan by whole pixels (keeping the range aligned with the pixels moved).
+		int distance = (int)Math.round((this.viewX - x) * scale);
+		if (distance != 0)
+		{
+			this.viewX -= distance / scale;
+			this.canvas.scroll(distance, 0, 0, 0, area.width, area.height, false);
+		}
+	}
+	
+	/**
+	 * Scrolls the frames up by the given distance (down if negative), moving the pixels already drawn and only repainting the strip
+	 * uncovered.
+	 * 
+	 * @param distance The distance in pixels.
+	 */
+	private void scroll(int distance)
+	{
+		Rectangle area = this.canvas.getClientArea();
+		int height = this.layout != null ? (this.layout.getMaxDepth() + 1) * FRAME_HEIGHT : 0;
+		int scrollY = Math.min(Math.max(this.scrollY + distance, 0), Math.max(height - area.height, 0));
+		if (scrollY != this.scrollY)
+		{
+			this.canvas.scroll(0, this.scrollY - scrollY, 0, 0, area.width, area.height, false);
+			this.scrollY = scrollY;
+		}
+	}
+	
+	/**
+	 * Highlights the given frame (repainting only the frame highlighted before and the frame highlighted now) and describes it in the
+	 * tool tip.
+	 * 
+	 * @param frame The frame (-1 for none).
+	 */
+	private void hover(int frame)
+	{
+		if (frame == this.hoveredFrame)
+		{
+			return;
+		}
+		int previousFrame = this.hoveredFrame;
+		this.hoveredFrame = frame;
+		this.redrawFrame(previousFrame);
+		this.redrawFrame(frame);
+		String text = null;
+		if (frame >= 0)
+		{
+			int row = this.layout.getRow(frame);
+			String name = row >= 0 ? this.layout.getReport().GetFunctionTable().GetName(row) : RUN_FRAME_NAME;
+			double width = this.layout.getWidth(frame);
+			text = String.format("%s\n%.2f s (%.2f%%)", name, Double.valueOf(width * this.layout.getTotalTime()),
+				Double.valueOf(width * 100));
+		}
+		this.canvas.setToolTipText(text);
+	}
+	
+	/**
+	 * Repaints the given frame.
+	 * 
+	 * @param frame The frame (nothing is repainted for -1).
+	 */
+	private void redrawFrame(int frame)
+	{
+		if (frame < 0 || this.layout == null)
+		{
+			return;
+		}
+		Rectangle area = this.canvas.getClientArea();
+		double scale = area.width / this.viewWidth;
+		int left = (int)Math.max((this.layout.getX(frame) - this.viewX) * scale, -1);
+		int right = (int)Math.min((this.layout.getX(frame) + this.layout.getWidth(frame) - this.viewX) * scale, area.width + 1);
+		if (right > left)
+		{
+			this.canvas.redraw(left, this.layout.getDepth(frame) * FRAME_HEIGHT - this.scrollY, right - left, FRAME_HEIGHT, false);
+		}
+	}
+	
+	/**
+	 * Retrieves the frame at the given position of the canvas.
+	 * 
+	 * @param x The horizontal position in pixels.
+	 * @param y The vertical position in pixels.
+	 * @return The frame or -1 if no frame is at the position.
+	 */
+	private int getFrameAt(int x, int y)
+	{
+		if (this.layout == null)
+		{
+			return -1;
+		}
+		double position = this.viewX + x * this.viewWidth / this.canvas.getClientArea().width;
+		return this.layout.findFrame(position, (y + this.scrollY) / FRAME_HEIGHT);
+	}
+}
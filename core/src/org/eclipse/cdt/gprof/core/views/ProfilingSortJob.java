@@ -0,0 +1,374 @@
+/*
+ * =======================================================================
+ * ============================ gprof-eclipse ============================
+ * =======================================================================
+ * 
+ * 
+ * File: ProfilingSortJob.java
+ * 
+ * 
+ * -----------------------------------------------------------------------
+ * Copyright (c) 2009 Chris Culy and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * + Chris Culy - initial API and implementation
+ * -----------------------------------------------------------------------
+ * 
+ * 
+ * Last changed:
+ * $Revision$
+ * $Author$
+ * $Date$
+ */
+
+package org.eclipse.cdt.gprof.core.views;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+import org.eclipse.cdt.gprof.core.profiled.ProfiledFunctionFilter;
+import org.eclipse.cdt.gprof.core.profiled.ProfiledFunctionTable;
+import org.eclipse.cdt.gprof.core.profiled.ProfiledNameIndex;
+import org.eclipse.cdt.gprof.core.profiled.ProfilerReport;
+import org.eclipse.cdt.gprof.core.profiled.ProfilerReportDiff;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+/**
+ * Orders, filters and searches the rows of the profiling view in the background, so that sorting hundreds of thousands of functions
+ * does not block the UI thread.
+ * 
+ * The order of the rows is a permutation of the functions of the view's input (a report or the differences between two reports),
+ * computed once for each sort key and direction and cached until the input changes, so returning to a column sorted before is
+ * immediate. The filter is applied to the cached permutation, keeping its order. A new request cancels the request in progress; the
+ * rows are handed to the view on the UI thread, which ignores them if its input has changed in the meantime.
+ * 
+ * The differences between two reports are built by the job as well, so comparing large reports does not block the UI thread either;
+ * they are handed to the view along with their first rows.
+ * 
+ * The names of a report are indexed by a {@link ProfiledNameIndex} as soon as the report is set as the input, so the search query is
+ * answered from the index; a query extending the previous query (i.e. the user typing on) only searches the previous matches.
+ */
+final class ProfilingSortJob extends Job
+{
+	// ================= Profiling Sort Job String Constants =============== //
+	
+	/** Holds the name of the job. */
+	private static final String SORT_JOB_NAME = "Sorting profiler results";
+	
+	// ================= Profiling Sort Job String Constants =============== //
+	
+	/** Holds the sort key that leaves the rows in the order of the input. */
+	static final int NATURAL_ORDER = Integer.MIN_VALUE;
+	
+	/** Holds the number of rows filtered between checks for cancellation. */
+	private static final int FILTER_CHECK_INTERVAL = 4096;
+	
+	/** Holds the view that the rows are handed to. */
+	private final ProfilingView view;
+	
+	/** Holds the input that the rows are ordered for (a report or the differences between two reports). */
+	private Object input;
+	
+	/** Holds the report that the input is to be compared to (<code>null</code> once the differences have been built or if none). */
+	private ProfilerReport baseline;
+	
+	/** Holds the permutations computed for the input by sort key and direction (see {@link #getCacheKey(int, boolean)}). */
+	private HashMap<Integer, int[]> permutations = new HashMap<Integer, int[]>();
+	
+	/** Holds the requested sort key (a sort key of the input or {@link #NATURAL_ORDER}). */
+	private int sortKey = NATURAL_ORDER;
+	
+	/** Holds whether the rows are requested in descending order. */
+	private boolean descending;
+	
+	/** Holds the requested filter (<code>null</code> for all rows; only applied to a report). */
+	private ProfiledFunctionFilter filter;
+	
+	/** Holds the requested search query (<code>null</code> for all rows). */
+	private String query;
+	
+	/** Holds whether rows have been requested since the last run (as opposed to the job only indexing the input). */
+	private boolean requested;
+	
+	/** Holds the name index of the input (<code>null</code> until it has been built or if the input is not a report). */
+	private ProfiledNameIndex index;
+	
+	/** Holds the last search query answered for the input (<code>null</code> if none). */
+	private String lastQuery;
+	
+	/** Holds the matches of the last search query (in the order of the input). */
+	private int[] lastMatches;
+	
+	/**
+	 * Constructs the job for the given view.
+	 * 
+	 * @param view The view that the rows are handed to.
+	 */
+	ProfilingSortJob(ProfilingView view)
+	{
+		super(SORT_JOB_NAME);
+		this.view = view;
+		this.setSystem(true);
+	}
+	
+	/**
+	 * Sets the report that the rows are ordered for, dropping the permutations and search results of the previous input and indexing the
+	 * names of the report (or building its differences to the given baseline) in the background.
+	 * 
+	 * @param report The report (<code>null</code> for none).
+	 * @param baseline The report to compare the report to (<code>null</code> to order the rows of the report itself).
+	 */
+	synchronized void setInput(ProfilerReport report, ProfilerReport baseline)
+	{
+		this.cancel();
+		this.input = report;
+		this.baseline = report != null ? baseline : null;
+		this.permutations = new HashMap<Integer, int[]>();
+		this.index = null;
+		this.lastQuery = null;
+		this.lastMatches = null;
+		this.schedule();
+	}
+	
+	/**
+	 * Retrieves whether the given input is the input that the rows are ordered for (i.e. the view's input has not changed since).
+	 * 
+	 * @param input The input.
+	 * @return <code>true</code> if the input is current; <code>false</code> otherwise.
+	 */
+	synchronized boolean isInput(Object input)
+	{
+		return this.input == input;
+	}
+	
+	/**
+	 * Requests the rows of the input in the given order, filtered by the given filter and search query.
+	 * 
+	 * @param sortKey The sort key (one of the sort keys of {@link ProfilerReport#Sort(int, boolean)} or
+	 *        {@link ProfilerReportDiff#Sort(int, boolean)}, depending on the input, or {@link #NATURAL_ORDER}).
+	 * @param descending Whether to order the rows by descending value.
+	 * @param filter The filter selecting the rows (<code>null</code> for all rows).
+	 * @param query The search query that the names of the rows must match (<code>null</code> for all rows; see
+	 *        {@link ProfiledNameIndex}).
+	 */
+	synchronized void sort(int sortKey, boolean descending, ProfiledFunctionFilter filter, String query)
+	{
+		this.cancel();
+		this.sortKey = sortKey;
+		this.descending = descending;
+		this.filter = filter;
+		this.query = query;
+		this.requested = true;
+		this.schedule();
+	}
+	
+	/**
+	 * @see Job#run(IProgressMonitor)
+	 */
+	protected IStatus run(IProgressMonitor monitor)
+	{
+		// Take the request.
+		Object input;
+		ProfilerReport baseline;
+		int sortKey;
+		boolean descending;
+		ProfiledFunctionFilter filter;
+		String query;
+		boolean requested;
+		HashMap<Integer, int[]> permutations;
+		ProfiledNameIndex index;
+		String lastQuery;
+		int[] lastMatches;
+		synchronized (this)
+		{
+			input = this.input;
+			baseline = this.baseline;
+			sortKey = this.sortKey;
+			descending = this.descending;
+			filter = this.filter;
+			query = this.query;
+			requested = this.requested;
+			this.requested = false;
+			permutations = this.permutations;
+			index = this.index;
+			lastQuery = this.lastQuery;
+			lastMatches = this.lastMatches;
+		}
+		if (input == null)
+		{
+			return Status.OK_STATUS;
+		}
+		
+		// Build the differences to the baseline (once per pair of reports), handing them to the view even if no rows were requested.
+		if (baseline != null)
+		{
+			ProfilerReportDiff diff = new ProfilerReportDiff(baseline, (ProfilerReport)input, true);
+			synchronized (this)
+			{
+				if (this.input != input || this.baseline != baseline)
+				{
+					return Status.CANCEL_STATUS;
+				}
+				this.input = diff;
+				this.baseline = null;
+			}
+			input = diff;
+			requested = true;
+		}
+		
+		// Index the names of a report (once per report).
+		if (index == null && input instanceof ProfilerReport)
+		{
+			index = new ProfiledNameIndex(((ProfilerReport)input).GetFunctionTable());
+			synchronized (this)
+			{
+				if (this.input == input)
+				{
+					this.index = index;
+				}
+			}
+		}
+		if (!requested || monitor.isCanceled())
+		{
+			return Status.OK_STATUS;
+		}
+		
+		// Search the names, narrowing the previous matches down if the query extends the previous query.
+		int[] matches = null;
+		if (query != null)
+		{
+			if (index != null)
+			{
+				matches = index.Search(query, lastQuery != null && query.startsWith(lastQuery) ? lastMatches : null);
+			}
+			else
+			{
+				matches = search((ProfilerReportDiff)input, query);
+			}
+			synchronized (this)
+			{
+				if (this.input == input)
+				{
+					this.lastQuery = query;
+					this.lastMatches = matches;
+				}
+			}
+			if (monitor.isCanceled())
+			{
+				return Status.CANCEL_STATUS;
+			}
+		}
+		
+		// Order the rows, reusing the permutation of an earlier request.
+		int[] rows = null;
+		if (sortKey != NATURAL_ORDER)
+		{
+			Integer cacheKey = getCacheKey(sortKey, descending);
+			synchronized (this)
+			{
+				rows = permutations.get(cacheKey);
+			}
+			if (rows == null)
+			{
+				if (input instanceof ProfilerReportDiff)
+				{
+					rows = ((ProfilerReportDiff)input).Sort(sortKey, descending);
+				}
+				else
+				{
+					rows = ((ProfilerReport)input).Sort(sortKey, descending);
+				}
+				synchronized (this)
+				{
+					permutations.put(cacheKey, rows);
+				}
+			}
+		}
+		if (monitor.isCanceled())
+		{
+			return Status.CANCEL_STATUS;
+		}
+		
+		// Filter the rows, keeping their order (the matches already are in the order of the input).
+		if ((filter != null && input instanceof ProfilerReport) || (matches != null && rows != null))
+		{
+			ProfiledFunctionTable table = input instanceof ProfilerReport ? ((ProfilerReport)input).GetFunctionTable() : null;
+			boolean[] matched = null;
+			if (matches != null && rows != null)
+			{
+				matched = new boolean[rows.length];
+				for (int i = 0; i < matches.length; i++)
+				{
+					matched[matches[i]] = true;
+				}
+			}
+			int[] candidates = rows != null ? rows : matches;
+			int count = candidates != null ? candidates.length : table.GetRowCount();
+			int[] filtered = new int[count];
+			int filteredCount = 0;
+			for (int i = 0; i < count; i++)
+			{
+				if (i % FILTER_CHECK_INTERVAL == 0 && monitor.isCanceled())
+				{
+					return Status.CANCEL_STATUS;
+				}
+				int row = candidates != null ? candidates[i] : i;
+				if ((matched == null || matched[row]) && (filter == null || table == null || filter.Accept(table, row)))
+				{
+					filtered[filteredCount++] = row;
+				}
+			}
+			rows = Arrays.copyOf(filtered, filteredCount);
+		}
+		else if (matches != null)
+		{
+			rows = matches;
+		}
+		
+		// Hand the rows to the view.
+		this.view.showRows(input, rows);
+		return Status.OK_STATUS;
+	}
+	
+	/**
+	 * Searches the names of the given differences (which are not indexed, being only shown while two reports are compared).
+	 * 
+	 * @param diff The differences.
+	 * @param query The search query.
+	 * @return The functions whose name matches the query, in the order of the differences.
+	 */
+	private static int[] search(ProfilerReportDiff diff, String query)
+	{
+		int count = diff.GetFunctionCount();
+		int[] matches = new int[count];
+		int matchCount = 0;
+		for (int function = 0; function < count; function++)
+		{
+			if (ProfiledNameIndex.Matches(diff.GetName(function), query))
+			{
+				matches[matchCount++] = function;
+			}
+		}
+		return Arrays.copyOf(matches, matchCount);
+	}
+	
+	/**
+	 * Retrieves the key of the permutation cache for the given sort key and direction.
+	 * 
+	 * @param sortKey The sort key.
+	 * @param descending Whether the rows are ordered by descending value.
+	 * @return The cache key.
+	 */
+	private static Integer getCacheKey(int sortKey, boolean descending)
+	{
+		return Integer.valueOf(sortKey * 2 + (descending ? 1 : 0));
+	}
+}
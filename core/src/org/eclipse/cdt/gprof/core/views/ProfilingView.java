@@ -28,15 +28,31 @@
 
 package org.eclipse.cdt.gprof.core.views;
 
+import org.eclipse.cdt.gprof.core.GProfCorePlugin;
+import org.eclipse.cdt.gprof.core.IGProfReportListener;
+import org.eclipse.cdt.gprof.core.profiled.ProfiledFunctionFilter;
+import org.eclipse.cdt.gprof.core.profiled.ProfiledFunctionTable;
 import org.eclipse.cdt.gprof.core.profiled.ProfilerReport;
-import org.eclipse.jface.viewers.IStructuredContentProvider;
+import org.eclipse.cdt.gprof.core.profiled.ProfilerReportDiff;
+import org.eclipse.jface.action.Action;
+import org.eclipse.jface.action.IAction;
+import org.eclipse.jface.viewers.ILazyContentProvider;
 import org.eclipse.jface.viewers.ITableLabelProvider;
 import org.eclipse.jface.viewers.LabelProvider;
 import org.eclipse.jface.viewers.TableViewer;
 import org.eclipse.jface.viewers.Viewer;
 import org.eclipse.swt.SWT;
+import org.eclipse.swt.events.ModifyEvent;
+import org.eclipse.swt.events.ModifyListener;
+import org.eclipse.swt.events.SelectionAdapter;
+import org.eclipse.swt.events.SelectionEvent;
 import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.layout.GridData;
+import org.eclipse.swt.layout.GridLayout;
 import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Table;
+import org.eclipse.swt.widgets.TableColumn;
+import org.eclipse.swt.widgets.Text;
 import org.eclipse.ui.ISharedImages;
 import org.eclipse.ui.PlatformUI;
 import org.eclipse.ui.part.ViewPart;
@@ -44,22 +60,93 @@ import org.eclipse.ui.part.ViewPart;
 
 /**
  * Displays the profiler results.
+ * 
+ * The functions of the report are shown in a virtual table: the table only holds the number of rows, and the items of the rows are
+ * created (and their text formatted straight from the report's function table) as they are scrolled into view, so the first paint and
+ * scrolling take the same time for any number of functions. The view shows the report of the last completed parse and, optionally, its
+ * differences to the report of the parse before it.
+ * 
+ * Clicking a column header sorts the rows by the column. The rows are sorted (and filtered) in the background by a
+ * {@link ProfilingSortJob}; the table reads its rows through the resulting permutation once it is ready. The search box above the table
+ * narrows the rows down to the functions whose name matches the text typed so far, by substring or by camel humps.
  */
 
-public class ProfilingView extends ViewPart
+public class ProfilingView extends ViewPart implements IGProfReportListener
 {
+	/** Holds the titles of the columns of the report (one for each statistic of a function). */
+	private static final String[] REPORT_COLUMN_TITLES = { "Function", "ID", "% Self", "% Total", "Self (s)", "Subroutines (s)",
+		"Total (s)", "Calls", "Recursive Calls", "Self ms/call", "Total ms/call" };
+	
+	/** Holds the initial widths of the columns of the report. */
+	private static final int[] REPORT_COLUMN_WIDTHS = { 300, 50, 60, 60, 70, 90, 70, 70, 90, 80, 80 };
+	
+	/** Holds the statistic shown in (and the sort key of) each column of the report (see {@link ProfilerReport#Sort(int, boolean)}). */
+	private static final int[] REPORT_COLUMN_KEYS = { ProfilerReport.SORT_BY_NAME, ProfilerReport.SORT_BY_ID,
+		ProfiledFunctionTable.STAT_PERCENT_TOTAL_SELF_TIME, ProfiledFunctionTable.STAT_PERCENT_TOTAL_TIME, ProfiledFunctionTable.STAT_SELF_TIME,
+		ProfiledFunctionTable.STAT_SUBROUTINE_TIME, ProfiledFunctionTable.STAT_TOTAL_TIME, ProfilerReport.TOP_CALL_COUNT,
+		ProfilerReport.TOP_RECURSIVE_CALL_COUNT, ProfiledFunctionTable.STAT_SELF_MS_PER_CALL, ProfiledFunctionTable.STAT_TOTAL_MS_PER_CALL };
+	
+	/** Holds the titles of the columns of the differences to the previous report (the deltas following the name and status). */
+	private static final String[] DIFF_COLUMN_TITLES = { "Function", "Change", "+/- Self (s)", "+/- Total (s)",
+		"+/- Calls", "+/- Self ms/call", "+/- Total ms/call" };
+	
+	/** Holds the initial widths of the columns of the differences to the previous report. */
+	private static final int[] DIFF_COLUMN_WIDTHS = { 300, 60, 90, 90, 80, 110, 110 };
+	
+	/** Holds the number of columns of the differences that precede the deltas. */
+	private static final int DIFF_COLUMN_DELTAS = 2;
+	
+	/** Holds the sort key of each column of the differences (see {@link ProfilerReportDiff#Sort(int, boolean)}). */
+	private static final int[] DIFF_COLUMN_KEYS = { ProfilerReportDiff.SORT_BY_NAME, ProfilingSortJob.NATURAL_ORDER,
+		ProfilerReportDiff.COLUMN_SELF_TIME, ProfilerReportDiff.COLUMN_TOTAL_TIME, ProfilerReportDiff.COLUMN_CALL_COUNT,
+		ProfilerReportDiff.COLUMN_SELF_MS_PER_CALL, ProfilerReportDiff.COLUMN_TOTAL_MS_PER_CALL };
+	
+	/** Holds the text shown for the status of each function of the differences. */
+	private static final String[] DIFF_STATUS_TEXTS = { "", "new", "gone" };
+	
 	/** Holds the profiler's report. */
 	private ProfilerReport report;
 	
+	/** Holds the report of the parse before the profiler's report (<code>null</code> if none). */
+	private ProfilerReport previousReport;
+	
+	/** Holds the differences between the previous report and the profiler's report (<code>null</code> unless they are shown). */
+	private ProfilerReportDiff diff;
+	
+	/** Holds whether the differences to the previous report are to be shown (they are built by the sort job, in the background). */
+	private boolean comparing;
+	
 	/** Holds the actual graphical view. */
 	private TableViewer viewer;
 	
+	/** Holds the search box filtering the functions by name. */
+	private Text searchText;
+	
+	/** Holds the action toggling between the report and its differences to the previous report. */
+	private Action compareAction;
+	
+	/** Holds the action toggling whether the functions that were never called are hidden. */
+	private Action hideUncalledAction;
+	
+	/** Holds the job sorting and filtering the rows in the background. */
+	private ProfilingSortJob sortJob;
+	
+	/** Holds the function shown in each row (<code>null</code> while the rows show the functions in the order of the input). */
+	private int[] rows;
+	
+	/** Holds the key that the rows are sorted by ({@link ProfilingSortJob#NATURAL_ORDER} if the rows are not sorted). */
+	private int sortKey = ProfilingSortJob.NATURAL_ORDER;
+	
+	/** Holds whether the rows are sorted in descending order. */
+	private boolean sortDescending;
+	
 	/**
-	 * Provides the profiler report to the view in a displayable format.
+	 * Provides the rows of the profiler report to the virtual table as they are scrolled into view (each row's element being the index
+	 * of the function in the report, or in the differences, that the row shows, read through the order of the rows).
 	 * 
 	 * @author chrisculy
 	 */
-	class ViewContentProvider implements IStructuredContentProvider
+	class ViewContentProvider implements ILazyContentProvider
 	{
 		public void inputChanged(Viewer v, Object oldInput, Object newInput)
 		{
@@ -71,22 +158,33 @@ public class ProfilingView extends ViewPart
 			/* stub function */
 		}
 		
-		public Object[] getElements(Object parent)
+		public void updateElement(int index)
 		{
-			return new String[] { "One", "Two", "Three" };
+			int[] rows = ProfilingView.this.rows;
+			ProfilingView.this.viewer.replace(Integer.valueOf(rows != null ? rows[index] : index), index);
 		}
 	}
 	
+	/**
+	 * Formats the statistics of the function shown in each row of the table.
+	 * 
+	 * @author chrisculy
+	 */
 	class ViewLabelProvider extends LabelProvider implements ITableLabelProvider
 	{
 		public String getColumnText(Object obj, int index)
 		{
-			return this.getText(obj);
+			int function = ((Integer)obj).intValue();
+			if (ProfilingView.this.diff != null)
+			{
+				return ProfilingView.this.getDiffText(function, index);
+			}
+			return ProfilingView.this.getReportText(function, index);
 		}
 		
 		public Image getColumnImage(Object obj, int index)
 		{
-			return this.getImage(obj);
+			return index == 0 ? this.getImage(obj) : null;
 		}
 		
 		public Image getImage(Object obj)
@@ -118,13 +216,88 @@ public class ProfilingView extends ViewPart
 	 */
 	public void createPartControl(Composite parent)
 	{
-		this.viewer = new TableViewer(parent, SWT.MULTI | SWT.H_SCROLL | SWT.V_SCROLL);
+		this.sortJob = new ProfilingSortJob(this);
+		GridLayout layout = new GridLayout();
+		layout.marginWidth = 0;
+		layout.marginHeight = 0;
+		parent.setLayout(layout);
+		
+		// Create the search box (searching the names again with every keystroke).
+		this.searchText = new Text(parent, SWT.SEARCH | SWT.ICON_CANCEL | SWT.BORDER);
+		this.searchText.setMessage("Search functions (substring or CamelHumps)");
+		this.searchText.setLayoutData(new GridData(GridData.FILL_HORIZONTAL));
+		this.searchText.addModifyListener(new ModifyListener()
+		{
+			public void modifyText(ModifyEvent e)
+			{
+				ProfilingView.this.requestRows();
+			}
+		});
+		
+		// Create the table.
+		this.viewer = new TableViewer(parent, SWT.VIRTUAL | SWT.MULTI | SWT.FULL_SELECTION | SWT.H_SCROLL | SWT.V_SCROLL);
+		this.viewer.setUseHashlookup(true);
 		this.viewer.setContentProvider(new ViewContentProvider());
 		this.viewer.setLabelProvider(new ViewLabelProvider());
-		this.viewer.setInput(this.getViewSite());
+		Table table = this.viewer.getTable();
+		table.setLayoutData(new GridData(GridData.FILL_BOTH));
+		table.setHeaderVisible(true);
+		table.setLinesVisible(true);
+		this.createColumns(REPORT_COLUMN_TITLES, REPORT_COLUMN_WIDTHS);
 		
 		// Create the help context id for the viewer's control
 		PlatformUI.getWorkbench().getHelpSystem().setHelp(this.viewer.getControl(), "org.eclipse.cdt.gprof.core.viewer");
+		
+		// Add the action comparing the report to the previous report to the view's toolbar.
+		this.compareAction = new Action("Compare with Previous Run", IAction.AS_CHECK_BOX)
+		{
+			public void run()
+			{
+				ProfilingView.this.showReport();
+			}
+		};
+		this.compareAction.setToolTipText("Show the changes since the previous profiler report");
+		this.compareAction.setEnabled(false);
+		this.getViewSite().getActionBars().getToolBarManager().add(this.compareAction);
+		
+		// Add the action hiding the functions that were never called.
+		this.hideUncalledAction = new Action("Hide Uncalled Functions", IAction.AS_CHECK_BOX)
+		{
+			public void run()
+			{
+				ProfilingView.this.requestRows();
+			}
+		};
+		this.hideUncalledAction.setToolTipText("Hide the functions that were never called");
+		this.getViewSite().getActionBars().getToolBarManager().add(this.hideUncalledAction);
+		
+		// Show the report of the last parse and follow the reports of the parses to come.
+		GProfCorePlugin plugin = GProfCorePlugin.getDefault();
+		plugin.addReportListener(this);
+		this.report = plugin.getReport();
+		this.showReport();
+	}
+	
+	/**
+	 * Shows the report of a completed parse (once the UI thread gets to it), keeping the report shown so far as the previous report.
+	 * 
+	 * @see IGProfReportListener#onReport(ProfilerReport)
+	 */
+	public void onReport(final ProfilerReport report)
+	{
+		PlatformUI.getWorkbench().getDisplay().asyncExec(new Runnable()
+		{
+			public void run()
+			{
+				if (ProfilingView.this.viewer.getControl().isDisposed())
+				{
+					return;
+				}
+				ProfilingView.this.previousReport = ProfilingView.this.report;
+				ProfilingView.this.report = report;
+				ProfilingView.this.showReport();
+			}
+		});
 	}
 	
 	/**
@@ -134,4 +307,245 @@ public class ProfilingView extends ViewPart
 	{
 		this.viewer.getControl().setFocus();
 	}
+	
+	/**
+	 * Stops following the reports of the parses.
+	 * 
+	 * @see org.eclipse.ui.part.WorkbenchPart#dispose()
+	 */
+	public void dispose()
+	{
+		this.sortJob.cancel();
+		GProfCorePlugin plugin = GProfCorePlugin.getDefault();
+		if (plugin != null)
+		{
+			plugin.removeReportListener(this);
+		}
+		super.dispose();
+	}
+	
+	/**
+	 * Shows the profiler report in the table (or its differences to the previous report if they are to be compared, once the sort job
+	 * has built them). Only the number of rows is set; the rows themselves are filled in as they are scrolled into view.
+	 */
+	private void showReport()
+	{
+		this.compareAction.setEnabled(this.report != null && this.previousReport != null);
+		this.comparing = this.compareAction.isEnabled() && this.compareAction.isChecked();
+		this.diff = null;
+		if (this.comparing)
+		{
+			this.createColumns(DIFF_COLUMN_TITLES, DIFF_COLUMN_WIDTHS);
+		}
+		else
+		{
+			this.createColumns(REPORT_COLUMN_TITLES, REPORT_COLUMN_WIDTHS);
+		}
+		int count = this.getInputCount();
+		this.viewer.setInput(this.report);
+		
+		// Show the rows in the order of the input until they have been sorted (and filtered).
+		this.rows = null;
+		this.sortKey = ProfilingSortJob.NATURAL_ORDER;
+		this.viewer.getTable().setSortColumn(null);
+		this.viewer.setItemCount(count);
+		this.sortJob.setInput(this.report, this.comparing ? this.previousReport : null);
+		this.requestRows();
+	}
+	
+	/**
+	 * Shows the rows ordered (and filtered) by the sort job, unless the input has changed since they were requested, taking on the
+	 * differences to the previous report if the job has built them. May be called on any thread.
+	 * 
+	 * @param input The input that the rows were ordered for.
+	 * @param rows The function shown in each row (<code>null</code> for the functions in the order of the input).
+	 */
+	void showRows(final Object input, final int[] rows)
+	{
+		PlatformUI.getWorkbench().getDisplay().asyncExec(new Runnable()
+		{
+			public void run()
+			{
+				ProfilingView view = ProfilingView.this;
+				if (view.viewer.getControl().isDisposed() || !view.sortJob.isInput(input))
+				{
+					return;
+				}
+				if (input instanceof ProfilerReportDiff)
+				{
+					view.diff = (ProfilerReportDiff)input;
+				}
+				view.rows = rows;
+				view.viewer.setItemCount(rows != null ? rows.length : view.getInputCount());
+				view.viewer.refresh();
+			}
+		});
+	}
+	
+	/**
+	 * Sorts the rows by the given column (reversing the order if the rows are already sorted by the column).
+	 * 
+	 * @param column The column.
+	 */
+	private void sortBy(TableColumn column)
+	{
+		Table table = this.viewer.getTable();
+		int index = table.indexOf(column);
+		int sortKey = this.comparing ? DIFF_COLUMN_KEYS[index] : REPORT_COLUMN_KEYS[index];
+		if (sortKey == ProfilingSortJob.NATURAL_ORDER)
+		{
+			return;
+		}
+		
+		// Sort the names in ascending order and the statistics in descending order first.
+		if (table.getSortColumn() == column)
+		{
+			this.sortDescending = !this.sortDescending;
+		}
+		else
+		{
+			this.sortDescending = index > 0;
+		}
+		this.sortKey = sortKey;
+		table.setSortColumn(column);
+		table.setSortDirection(this.sortDescending ? SWT.DOWN : SWT.UP);
+		this.requestRows();
+	}
+	
+	/**
+	 * Requests the rows in the current order from the sort job, filtered by the current filter and search query (nothing needs to be
+	 * done if the rows are to be shown in the order of the input).
+	 */
+	private void requestRows()
+	{
+		ProfiledFunctionFilter filter = null;
+		if (this.hideUncalledAction.isChecked() && !this.comparing)
+		{
+			filter = new ProfiledFunctionFilter();
+			filter.SetMinimumCallCount(1);
+		}
+		String query = this.searchText.getText().trim();
+		if (query.length() == 0)
+		{
+			query = null;
+		}
+		if (this.sortKey != ProfilingSortJob.NATURAL_ORDER || filter != null || query != null || this.rows != null)
+		{
+			this.sortJob.sort(this.sortKey, this.sortDescending, filter, query);
+		}
+	}
+	
+	/**
+	 * Retrieves the number of functions of the input (the report or its differences to the previous report, none until they are built).
+	 * 
+	 * @return The number of functions.
+	 */
+	private int getInputCount()
+	{
+		if (this.diff != null)
+		{
+			return this.diff.GetFunctionCount();
+		}
+		if (this.comparing)
+		{
+			return 0;
+		}
+		return this.report != null ? this.report.GetFunctions().size() : 0;
+	}
+	
+	/**
+	 * Replaces the columns of the table by columns with the given titles (nothing happens if the table already has these columns).
+	 * 
+	 * @param titles The titles of the columns.
+	 * @param widths The initial widths of the columns.
+	 */
+	private void createColumns(String[] titles, int[] widths)
+	{
+		Table table = this.viewer.getTable();
+		TableColumn[] columns = table.getColumns();
+		if (columns.length == titles.length && columns[0].getData() == titles)
+		{
+			return;
+		}
+		for (int i = 0; i < columns.length; i++)
+		{
+			columns[i].dispose();
+		}
+		for (int i = 0; i < titles.length; i++)
+		{
+			TableColumn column = new TableColumn(table, i > 0 ? SWT.RIGHT : SWT.LEFT);
+			column.setText(titles[i]);
+			column.setWidth(widths[i]);
+			column.setData(titles);
+			column.addSelectionListener(new SelectionAdapter()
+			{
+				public void widgetSelected(SelectionEvent e)
+				{
+					ProfilingView.this.sortBy((TableColumn)e.widget);
+				}
+			});
+		}
+	}
+	
+	/**
+	 * Retrieves the text of the given column of the given function of the report.
+	 * 
+	 * @param row The row of the function within the report's function table.
+	 * @param column The column.
+	 * @return The text.
+	 */
+	private String getReportText(int row, int column)
+	{
+		ProfiledFunctionTable table = this.report.GetFunctionTable();
+		if (column == 0)
+		{
+			return table.GetName(row);
+		}
+		int key = REPORT_COLUMN_KEYS[column];
+		if (key >= 0 && key < ProfiledFunctionTable.STAT_COUNT)
+		{
+			double value = table.GetStat(key, row);
+			return value >= 0 ? String.format("%.2f", Double.valueOf(value)) : "";
+		}
+		long value;
+		if (key == ProfilerReport.TOP_CALL_COUNT)
+		{
+			value = table.GetCallCount(row);
+		}
+		else if (key == ProfilerReport.TOP_RECURSIVE_CALL_COUNT)
+		{
+			value = table.GetRecursiveCallCount(row);
+		}
+		else
+		{
+			value = table.GetID(row);
+		}
+		return value >= 0 ? Long.toString(value) : "";
+	}
+	
+	/**
+	 * Retrieves the text of the given column of the given function of the differences to the previous report.
+	 * 
+	 * @param function The function of the differences.
+	 * @param column The column.
+	 * @return The text.
+	 */
+	private String getDiffText(int function, int column)
+	{
+		if (column == 0)
+		{
+			return this.diff.GetName(function);
+		}
+		if (column == 1)
+		{
+			return DIFF_STATUS_TEXTS[this.diff.GetStatus(function)];
+		}
+		int diffColumn = column - DIFF_COLUMN_DELTAS;
+		double delta = this.diff.GetDelta(diffColumn, function);
+		if (diffColumn == ProfilerReportDiff.COLUMN_CALL_COUNT)
+		{
+			return String.format("%+d", Long.valueOf((long)delta));
+		}
+		return String.format("%+.2f", Double.valueOf(delta));
+	}
 }
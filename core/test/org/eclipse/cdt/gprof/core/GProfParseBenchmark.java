@@ -0,0 +1,280 @@
+/*
+ * =======================================================================
+ * ============================ gprof-eclipse ============================
+ * =======================================================================
+ * 
+ * 
+ * File: GProfParseBenchmark.java
+ * 
+ * 
+ * -----------------------------------------------------------------------
+ * Copyright (c) 2009 Chris Culy and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * + Chris Culy - initial API and implementation
+ * -----------------------------------------------------------------------
+ * 
+ * 
+ * Last changed:
+ * $Revision$
+ * $Author$
+ * $Date$
+ */
+
+package org.eclipse.cdt.gprof.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Measures the throughput of {@link GProfLaunchParser} on a large synthetic gprof report.
+ * 
+ * The report is generated into a temporary file (a flat profile and a call graph whose functions form a binary tree, each function
+ * being called by its parent and calling its two children), parsed once to warm up and then parsed the given number of times; the
+ * lines per second of each timed parse are printed along with the median. Only {@link GProfLaunchParser#parse(InputStream)} is used,
+ * so the benchmark can be compiled against earlier versions of the parser to compare them on the same report.
+ * 
+ * Usage: <code>GProfParseBenchmark [function count] [parse count]</code> (100000 functions and 5 parses by default).
+ */
+public final class GProfParseBenchmark
+{
+    // ================= GProf Parse Benchmark String Constants =============== //
+    
+    private static final String REPORT_FILE_PREFIX = "gprof-benchmark";
+    
+    private static final String REPORT_FILE_SUFFIX = ".txt";
+    
+    private static final String FLAT_PROFILE_HEADER = "Flat profile:\n\nEach sample counts as 0.01 seconds.\n"
+        + "  %   cumulative   self              self     total           \n"
+        + " time   seconds   seconds    calls  ms/call  ms/call  name    \n";
+    
+    private static final String CALL_GRAPH_HEADER = "\f\n\t\t\tCall graph\n\n\n";
+    
+    private static final String CALL_GRAPH_GRANULARITY_LINE =
+        "granularity: each sample hit covers 2 byte(s) for 0.01%% of %.2f seconds\n\n";
+    
+    private static final String CALL_GRAPH_COLUMN_HEADER = "index % time    self  children    called     name\n";
+    
+    private static final String FLAT_PROFILE_LINE = "%6.2f %9.2f %8.2f %8d %8.2f %8.2f  %s\n";
+    
+    private static final String CALL_GRAPH_SPONTANEOUS_LINE = "                                                     <spontaneous>\n";
+    
+    private static final String CALL_GRAPH_PRIMARY_LINE = "%-6s %5.1f %7.2f %11.2f %7d         %s [%d]\n";
+    
+    private static final String CALL_GRAPH_ARC_LINE = "                %5.2f %11.2f %7d/%-7d        %s [%d]\n";
+    
+    private static final String CALL_GRAPH_SEPARATOR = "-----------------------------------------------\n";
+    
+    private static final String INDEX_HEADER = "\f\nIndex by function name\n\n";
+    
+    private static final String FUNCTION_NAME_FORMAT = "ns::Klass%d::method_%d(int, char const*)";
+    
+    private static final String RESULT_FORMAT = "parse %d: %d lines in %.1f ms (%.0f lines/sec)%n";
+    
+    private static final String MEDIAN_FORMAT = "median: %.0f lines/sec%n";
+    
+    // ================= GProf Parse Benchmark String Constants =============== //
+    
+    // ==================== GProf Parse Benchmark Constants ==================== //
+    
+    private static final Locale REPORT_LOCALE = Locale.ROOT;
+    
+    private static final int DEFAULT_FUNCTION_COUNT = 100000;
+    
+    private static final int DEFAULT_PARSE_COUNT = 5;
+    
+    private static final int METHODS_PER_CLASS = 16;
+    
+    private static final int BASE_CALL_COUNT = 1000;
+    
+    private static final int CALL_COUNT_PERIOD = 5000;
+    
+    // ==================== GProf Parse Benchmark Constants ==================== //
+    
+    /**
+     * Not to be instantiated.
+     */
+    private GProfParseBenchmark()
+    {
+        /* stub function */
+    }
+    
+    /**
+     * Runs the benchmark.
+     * 
+     * @param args The number of functions of the report and the number of timed parses (both optional).
+     * @throws IOException If the report could not be written or read.
+     */
+    public static void main(String[] args) throws IOException
+    {
+        int functionCount = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_FUNCTION_COUNT;
+        int parseCount = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_PARSE_COUNT;
+        
+        // Generate the report.
+        File report = File.createTempFile(REPORT_FILE_PREFIX, REPORT_FILE_SUFFIX);
+        report.deleteOnExit();
+        long lineCount = writeReport(report, functionCount);
+        
+        // Warm up, then time the parses.
+        parse(report);
+        double[] rates = new double[parseCount];
+        for (int i = 0; i < parseCount; i++)
+        {
+            long start = System.nanoTime();
+            parse(report);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            rates[i] = lineCount / seconds;
+            System.out.printf(RESULT_FORMAT, Integer.valueOf(i + 1), Long.valueOf(lineCount), Double.valueOf(seconds * 1000),
+                Double.valueOf(rates[i]));
+        }
+        Arrays.sort(rates);
+        System.out.printf(MEDIAN_FORMAT, Double.valueOf(rates[parseCount / 2]));
+    }
+    
+    /**
+     * Parses the given report with a new parser.
+     * 
+     * @param report The report.
+     * @throws IOException If the report could not be read.
+     */
+    private static void parse(File report) throws IOException
+    {
+        InputStream input = new BufferedInputStream(new FileInputStream(report));
+        try
+        {
+            new GProfLaunchParser().parse(input);
+        }
+        finally
+        {
+            input.close();
+        }
+    }
+    
+    /**
+     * Writes a synthetic report with the given number of functions to the given file.
+     * 
+     * @param file The file.
+     * @param functionCount The number of functions.
+     * @return The number of lines written.
+     * @throws IOException If the report could not be written.
+     */
+    private static long writeReport(File file, int functionCount) throws IOException
+    {
+        PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(file)));
+        long lineCount = 0;
+        try
+        {
+            // Write the flat profile (in descending order of self time, i.e. by function index).
+            double totalSeconds = 0;
+            for (int function = 1; function <= functionCount; function++)
+            {
+                totalSeconds += getSelfSeconds(function, functionCount);
+            }
+            out.print(FLAT_PROFILE_HEADER);
+            lineCount += 5;
+            double cumulativeSeconds = 0;
+            for (int function = 1; function <= functionCount; function++)
+            {
+                double selfSeconds = getSelfSeconds(function, functionCount);
+                int calls = getCallCount(function);
+                cumulativeSeconds += selfSeconds;
+                out.printf(REPORT_LOCALE, FLAT_PROFILE_LINE, Double.valueOf(selfSeconds * 100 / totalSeconds),
+                    Double.valueOf(cumulativeSeconds), Double.valueOf(selfSeconds), Integer.valueOf(calls),
+                    Double.valueOf(selfSeconds * 1000 / calls), Double.valueOf(selfSeconds * 2000 / calls), getName(function));
+                lineCount++;
+            }
+            
+            // Write the call graph (each function called by its parent and calling its children).
+            out.print(CALL_GRAPH_HEADER);
+            out.printf(REPORT_LOCALE, CALL_GRAPH_GRANULARITY_LINE, Double.valueOf(totalSeconds));
+            out.print(CALL_GRAPH_COLUMN_HEADER);
+            lineCount += 7;
+            for (int function = 1; function <= functionCount; function++)
+            {
+                double selfSeconds = getSelfSeconds(function, functionCount);
+                int calls = getCallCount(function);
+                if (function == 1)
+                {
+                    out.print(CALL_GRAPH_SPONTANEOUS_LINE);
+                }
+                else
+                {
+                    out.printf(REPORT_LOCALE, CALL_GRAPH_ARC_LINE, Double.valueOf(selfSeconds), Double.valueOf(selfSeconds),
+                        Integer.valueOf(calls), Integer.valueOf(calls), getName(function / 2), Integer.valueOf(function / 2));
+                }
+                out.printf(REPORT_LOCALE, CALL_GRAPH_PRIMARY_LINE, "[" + function + "]", Double.valueOf(selfSeconds * 200 / totalSeconds),
+                    Double.valueOf(selfSeconds), Double.valueOf(selfSeconds), Integer.valueOf(calls), getName(function),
+                    Integer.valueOf(function));
+                lineCount += 2;
+                for (int child = function * 2; child <= function * 2 + 1 && child <= functionCount; child++)
+                {
+                    double childSeconds = getSelfSeconds(child, functionCount);
+                    int childCalls = getCallCount(child);
+                    out.printf(REPORT_LOCALE, CALL_GRAPH_ARC_LINE, Double.valueOf(childSeconds), Double.valueOf(childSeconds),
+                        Integer.valueOf(childCalls), Integer.valueOf(childCalls), getName(child), Integer.valueOf(child));
+                    lineCount++;
+                }
+                out.print(CALL_GRAPH_SEPARATOR);
+                lineCount++;
+            }
+            out.print(INDEX_HEADER);
+            lineCount += 3;
+        }
+        finally
+        {
+            out.close();
+        }
+        if (out.checkError())
+        {
+            throw new IOException("Could not write the report to " + file);
+        }
+        return lineCount;
+    }
+    
+    /**
+     * Retrieves the name of the given function of the generated report.
+     * 
+     * @param function The index of the function (starting at 1).
+     * @return The name.
+     */
+    private static String getName(int function)
+    {
+        return String.format(REPORT_LOCALE, FUNCTION_NAME_FORMAT, Integer.valueOf(function / METHODS_PER_CLASS), Integer.valueOf(function));
+    }
+    
+    /**
+     * Retrieves the self time of the given function of the generated report (decreasing with the index of the function).
+     * 
+     * @param function The index of the function (starting at 1).
+     * @param functionCount The number of functions.
+     * @return The self time in seconds.
+     */
+    private static double getSelfSeconds(int function, int functionCount)
+    {
+        return (functionCount - function + 1) / 100.0;
+    }
+    
+    /**
+     * Retrieves the number of calls of the given function of the generated report.
+     * 
+     * @param function The index of the function (starting at 1).
+     * @return The number of calls.
+     */
+    private static int getCallCount(int function)
+    {
+        return BASE_CALL_COUNT + function % CALL_COUNT_PERIOD;
+    }
+}
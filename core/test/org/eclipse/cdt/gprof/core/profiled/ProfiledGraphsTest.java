@@ -0,0 +1,81 @@
+/*
+ * =======================================================================
+ * ============================ gprof-eclipse ============================
+ * =======================================================================
+ * 
+ * 
+ * File: ProfiledGraphsTest.java
+ * 
+ * 
+ * -----------------------------------------------------------------------
+ * Copyright (c) 2009 Chris Culy and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * + Chris Culy - initial API and implementation
+ * -----------------------------------------------------------------------
+ * 
+ * 
+ * Last changed:
+ * $Revision$
+ * $Author$
+ * $Date$
+ */
+
+package org.eclipse.cdt.gprof.core.profiled;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests the grouping and the strongly connected components of graphs in compressed sparse row form.
+ * 
+ * @author chrisculy
+ */
+public class ProfiledGraphsTest
+{
+	/**
+	 * Checks that the indices are grouped by key in ascending order, with empty groups for the keys without indices.
+	 */
+	@Test
+	public void testGroup()
+	{
+		int[] keys = { 2, 0, 2, 3, 0 };
+		int[] offsets = new int[5];
+		int[] grouped = ProfiledGraphs.Group(keys, keys.length, 4, offsets);
+		
+		assertArrayEquals(new int[] { 0, 2, 2, 4, 5 }, offsets);
+		assertArrayEquals(new int[] { 1, 4, 0, 2, 3 }, grouped);
+	}
+	
+	/**
+	 * Checks the components of a graph with two cycles (one of them a self loop) and that they are numbered in reverse topological order.
+	 */
+	@Test
+	public void testFindComponents()
+	{
+		// 0 -> 1, 1 -> 2, 2 -> 1, 2 -> 3, 3 -> 3, 4 -> 0.
+		int[] offsets = { 0, 1, 2, 4, 5, 6 };
+		int[] targets = { 1, 2, 1, 3, 3, 0 };
+		int[] components = new int[5];
+		
+		assertEquals(4, ProfiledGraphs.FindComponents(5, offsets, targets, components));
+		assertEquals(components[1], components[2]);
+		for (int node = 0; node < 5; node++)
+		{
+			for (int arc = offsets[node]; arc < offsets[node + 1]; arc++)
+			{
+				assertTrue(components[targets[arc]] <= components[node]);
+			}
+		}
+		assertEquals(0, components[3]);
+		assertEquals(3, components[4]);
+	}
+}
@@ -0,0 +1,261 @@
+/*
+ * =======================================================================
+ * ============================ gprof-eclipse ============================
+ * =======================================================================
+ * 
+ * 
+ * File: ProfiledHotPathsTest.java
+ * 
+ * 
+ * -----------------------------------------------------------------------
+ * Copyright (c) 2009 Chris Culy and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * + Chris Culy - initial API and implementation
+ * -----------------------------------------------------------------------
+ * 
+ * 
+ * Last changed:
+ * $Revision$
+ * $Author$
+ * $Date$
+ */
+
+package org.eclipse.cdt.gprof.core.profiled;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests the hot paths against the heaviest simple paths of small call graphs, including graphs with mutual recursion.
+ * 
+ * @author chrisculy
+ */
+public class ProfiledHotPathsTest
+{
+	/** Holds the number of random call graphs checked against the brute-force search. */
+	private static final int RANDOM_GRAPH_COUNT = 3000;
+	
+	/** Holds the largest number of functions of a random call graph. */
+	private static final int MAX_RANDOM_FUNCTION_COUNT = 8;
+	
+	/** Holds the number of paths requested for each random call graph. */
+	private static final int RANDOM_PATH_COUNT = 5;
+	
+	/** Holds the allowed difference between the weights (the times are stored as floats). */
+	private static final double TOLERANCE = 1e-6;
+	
+	/**
+	 * Checks that the heaviest path follows the mutual recursion all the way (main, b, a) rather than the arcs that a depth-first search
+	 * happens to find first, and that no path stops short at a function that still has a subroutine off the path.
+	 */
+	@Test
+	public void testMutualRecursion()
+	{
+		// main -> a (1), main -> b (1), a -> b (1), b -> a (10).
+		String[] names = { "main", "a", "b" };
+		int[][] arcs = { { 0, 1 }, { 0, 2 }, { 1, 2 }, { 2, 1 } };
+		float[] weights = { 1, 1, 1, 10 };
+		ProfiledHotPaths hotPaths = new ProfiledHotPaths(CreateReport(names, arcs, weights).GetCallGraph(), 0, 5);
+		
+		assertEquals(2, hotPaths.GetPathCount());
+		assertArrayEquals(new int[] { 0, 2, 1 }, hotPaths.GetPathRows(0));
+		assertEquals(11, hotPaths.GetPathWeight(0), TOLERANCE);
+		assertArrayEquals(new int[] { 0, 1, 2 }, hotPaths.GetPathRows(1));
+		assertEquals(2, hotPaths.GetPathWeight(1), TOLERANCE);
+	}
+	
+	/**
+	 * Checks that an arc is weighted by all of the time propagated along it (the subroutine's own time and the time of its subroutines).
+	 */
+	@Test
+	public void testChildTime()
+	{
+		// main -> a (self 1, children 5), main -> b (self 4, children 0), a -> c (self 5, children 0).
+		ProfilerReport report = CreateReport(new String[] { "main", "a", "b", "c" }, new int[][] { { 0, 1 }, { 0, 2 }, { 1, 3 } },
+			new float[] { 1, 4, 5 });
+		report.GetFunctions().get(0).GetSubroutines().get(0).SetTimeInSubroutineSubroutines(5);
+		report.BuildCallGraph();
+		ProfiledHotPaths hotPaths = new ProfiledHotPaths(report.GetCallGraph(), 0, 2);
+		
+		assertEquals(2, hotPaths.GetPathCount());
+		assertArrayEquals(new int[] { 0, 1, 3 }, hotPaths.GetPathRows(0));
+		assertEquals(11, hotPaths.GetPathWeight(0), TOLERANCE);
+		assertArrayEquals(new int[] { 0, 2 }, hotPaths.GetPathRows(1));
+		assertEquals(4, hotPaths.GetPathWeight(1), TOLERANCE);
+	}
+	
+	/**
+	 * Checks the weights of the heaviest paths of random call graphs (with cycles, self calls and unreachable functions) against all
+	 * complete simple paths enumerated by brute force, and that each path found is simple, complete and weighs what it claims.
+	 */
+	@Test
+	public void testRandomGraphs()
+	{
+		Random random = new Random(18);
+		for (int graph = 0; graph < RANDOM_GRAPH_COUNT; graph++)
+		{
+			// Create the graph.
+			int functionCount = 2 + random.nextInt(MAX_RANDOM_FUNCTION_COUNT - 1);
+			String[] names = new String[functionCount];
+			for (int i = 0; i < functionCount; i++)
+			{
+				names[i] = "f" + i;
+			}
+			ArrayList<int[]> arcList = new ArrayList<int[]>();
+			double density = random.nextDouble() * 0.6;
+			for (int caller = 0; caller < functionCount; caller++)
+			{
+				for (int subroutine = 0; subroutine < functionCount; subroutine++)
+				{
+					if (random.nextDouble() < density)
+					{
+						arcList.add(new int[] { caller, subroutine });
+					}
+				}
+			}
+			int[][] arcs = arcList.toArray(new int[arcList.size()][]);
+			float[] weights = new float[arcs.length];
+			for (int i = 0; i < weights.length; i++)
+			{
+				weights[i] = random.nextInt(11);
+			}
+			ProfiledCallGraph callGraph = CreateReport(names, arcs, weights).GetCallGraph();
+			
+			// Enumerate all complete paths and compare the heaviest with the paths found.
+			ArrayList<Double> allWeights = new ArrayList<Double>();
+			boolean[] onPath = new boolean[functionCount];
+			onPath[0] = true;
+			Enumerate(callGraph, 0, 0, onPath, allWeights);
+			double[] expected = new double[allWeights.size()];
+			for (int i = 0; i < expected.length; i++)
+			{
+				expected[i] = -allWeights.get(i).doubleValue();
+			}
+			Arrays.sort(expected);
+			ProfiledHotPaths hotPaths = new ProfiledHotPaths(callGraph, 0, RANDOM_PATH_COUNT);
+			assertEquals("path count of graph " + graph, Math.min(expected.length, RANDOM_PATH_COUNT), hotPaths.GetPathCount());
+			for (int path = 0; path < hotPaths.GetPathCount(); path++)
+			{
+				assertEquals("weight of path " + path + " of graph " + graph, -expected[path], hotPaths.GetPathWeight(path), TOLERANCE);
+				CheckPath(callGraph, hotPaths, path);
+			}
+		}
+	}
+	
+	/**
+	 * Checks that the given path starts at the root, is simple and complete, and weighs the sum of its arcs.
+	 * 
+	 * @param callGraph The call graph.
+	 * @param hotPaths The paths.
+	 * @param path The index of the path.
+	 */
+	private static void CheckPath(ProfiledCallGraph callGraph, ProfiledHotPaths hotPaths, int path)
+	{
+		int[] rows = hotPaths.GetPathRows(path);
+		int[] arcs = hotPaths.GetPathArcs(path);
+		boolean[] onPath = new boolean[callGraph.GetFunctionCount()];
+		double weight = 0;
+		assertEquals(0, rows[0]);
+		onPath[rows[0]] = true;
+		for (int i = 0; i < arcs.length; i++)
+		{
+			assertTrue(arcs[i] >= callGraph.GetSubroutineArcsStart(rows[i]) && arcs[i] < callGraph.GetSubroutineArcsEnd(rows[i]));
+			assertEquals(rows[i + 1], callGraph.GetSubroutineRow(arcs[i]));
+			assertTrue("simple path", !onPath[rows[i + 1]]);
+			onPath[rows[i + 1]] = true;
+			weight += callGraph.GetSubroutineSelfTime(arcs[i]) + callGraph.GetSubroutineChildTime(arcs[i]);
+		}
+		int last = rows[rows.length - 1];
+		for (int arc = callGraph.GetSubroutineArcsStart(last); arc < callGraph.GetSubroutineArcsEnd(last); arc++)
+		{
+			assertTrue("complete path", onPath[callGraph.GetSubroutineRow(arc)]);
+		}
+		assertEquals(weight, hotPaths.GetPathWeight(path), TOLERANCE);
+	}
+	
+	/**
+	 * Enumerates the weights of all complete simple paths below the given function by brute force.
+	 * 
+	 * @param callGraph The call graph.
+	 * @param row The row of the last function of the path so far.
+	 * @param weight The weight of the path so far.
+	 * @param onPath Whether each function is on the path so far.
+	 * @param weights The weights of the complete paths.
+	 */
+	private static void Enumerate(ProfiledCallGraph callGraph, int row, double weight, boolean[] onPath, ArrayList<Double> weights)
+	{
+		boolean extended = false;
+		for (int arc = callGraph.GetSubroutineArcsStart(row); arc < callGraph.GetSubroutineArcsEnd(row); arc++)
+		{
+			int subroutine = callGraph.GetSubroutineRow(arc);
+			if (!onPath[subroutine])
+			{
+				extended = true;
+				onPath[subroutine] = true;
+				double arcWeight = callGraph.GetSubroutineSelfTime(arc) + callGraph.GetSubroutineChildTime(arc);
+				Enumerate(callGraph, subroutine, weight + arcWeight, onPath, weights);
+				onPath[subroutine] = false;
+			}
+		}
+		if (!extended)
+		{
+			weights.add(Double.valueOf(weight));
+		}
+	}
+	
+	/**
+	 * Creates a report with the given functions and arcs, the weight of each arc being the self time propagated along it.
+	 * 
+	 * @param names The names of the functions (the function at index <code>i</code> getting the ID <code>i + 1</code>).
+	 * @param arcs The caller and subroutine index of each arc.
+	 * @param weights The weight of each arc.
+	 * @return The report.
+	 */
+	private static ProfilerReport CreateReport(String[] names, int[][] arcs, float[] weights)
+	{
+		ProfilerReport report = new ProfilerReport();
+		for (int i = 0; i < names.length; i++)
+		{
+			ProfiledFunction function = new ProfiledFunction();
+			function.SetID(i + 1);
+			function.SetName(names[i]);
+			report.AddFunction(function);
+		}
+		for (int i = 0; i < names.length; i++)
+		{
+			ArrayList<ProfiledSubroutine> subroutines = new ArrayList<ProfiledSubroutine>();
+			for (int arc = 0; arc < arcs.length; arc++)
+			{
+				if (arcs[arc][0] == i)
+				{
+					ProfiledSubroutine subroutine = new ProfiledSubroutine();
+					subroutine.SetID(arcs[arc][1] + 1);
+					subroutine.SetName(names[arcs[arc][1]]);
+					subroutine.SetCallCount(1);
+					subroutine.SetTimeInSubroutineSelf(weights[arc]);
+					subroutine.SetTimeInSubroutineSubroutines(0);
+					subroutines.add(subroutine);
+				}
+			}
+			if (!subroutines.isEmpty())
+			{
+				report.GetFunctions().get(i).SetSubroutines(subroutines);
+			}
+		}
+		report.BuildCallGraph();
+		return report;
+	}
+}
@@ -0,0 +1,191 @@
+/*
+ * =======================================================================
+ * ============================ gprof-eclipse ============================
+ * =======================================================================
+ * 
+ * 
+ * File: ProfilerReportSnapshotTest.java
+ * 
+ * 
+ * -----------------------------------------------------------------------
+ * Copyright (c) 2009 Chris Culy and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * + Chris Culy - initial API and implementation
+ * -----------------------------------------------------------------------
+ * 
+ * 
+ * Last changed:
+ * $Revision$
+ * $Author$
+ * $Date$
+ */
+
+package org.eclipse.cdt.gprof.core.profiled;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+/**
+ * Tests that snapshots read back the reports they were written from, and that corrupt snapshots fail to be read.
+ * 
+ * @author chrisculy
+ */
+public class ProfilerReportSnapshotTest
+{
+	/**
+	 * Checks that the functions and arcs of a report are read back from its snapshot, and that the file can be deleted once read.
+	 * 
+	 * @throws IOException When the snapshot cannot be written or read.
+	 */
+	@Test
+	public void testRoundTrip() throws IOException
+	{
+		File file = File.createTempFile("snapshot", ".bin");
+		try
+		{
+			ProfilerReportSnapshot.Write(CreateReport(), file);
+			ProfilerReport report = ProfilerReportSnapshot.Read(file);
+			assertEquals(true, file.delete());
+			
+			assertEquals(2, report.GetFunctions().size());
+			ProfiledFunction main = report.FindByName("main");
+			assertEquals(1, main.GetID());
+			assertEquals(1.5f, main.GetSelfTime(), 0);
+			assertEquals(-1, main.GetCallCount());
+			ProfiledFunction work = report.FindByID(2);
+			assertEquals("work", work.GetName());
+			assertEquals(300, work.GetCallCount());
+			assertEquals(1, work.GetCallers().size());
+			assertEquals(300, work.GetCallers().get(0).GetCallCount());
+			assertEquals(1, main.GetSubroutines().size());
+			assertEquals(2.5f, main.GetSubroutines().get(0).GetTimeInSubroutineSelf(), 0);
+		}
+		finally
+		{
+			file.delete();
+		}
+	}
+	
+	/**
+	 * Checks that truncated snapshots and snapshots with corrupt counts fail with an <code>IOException</code>.
+	 * 
+	 * @throws IOException When the snapshot cannot be written.
+	 */
+	@Test
+	public void testCorruptSnapshots() throws IOException
+	{
+		File file = File.createTempFile("snapshot", ".bin");
+		try
+		{
+			ProfilerReportSnapshot.Write(CreateReport(), file);
+			long length = file.length();
+			for (long truncated = length - 1; truncated >= 0; truncated--)
+			{
+				RandomAccessFile output = new RandomAccessFile(file, "rw");
+				try
+				{
+					output.setLength(truncated);
+				}
+				finally
+				{
+					output.close();
+				}
+				CheckCorrupt(file);
+			}
+			
+			// Restore the snapshot and claim a huge number of functions, names and arcs in turn.
+			for (int count = 0; count < 3; count++)
+			{
+				ProfilerReportSnapshot.Write(CreateReport(), file);
+				RandomAccessFile output = new RandomAccessFile(file, "rw");
+				try
+				{
+					output.seek(8 + count * 4);
+					output.writeInt(Integer.MAX_VALUE / 2);
+				}
+				finally
+				{
+					output.close();
+				}
+				CheckCorrupt(file);
+			}
+		}
+		finally
+		{
+			file.delete();
+		}
+	}
+	
+	/**
+	 * Checks that the given snapshot fails to be read with an <code>IOException</code>.
+	 * 
+	 * @param file The snapshot file.
+	 */
+	private static void CheckCorrupt(File file)
+	{
+		try
+		{
+			ProfilerReportSnapshot.Read(file);
+			fail("corrupt snapshot of " + file.length() + " bytes read");
+		}
+		catch (IOException e)
+		{
+			// The snapshot counts as corrupt.
+		}
+	}
+	
+	/**
+	 * Creates a report of two functions, main calling work.
+	 * 
+	 * @return The report.
+	 */
+	private static ProfilerReport CreateReport()
+	{
+		ProfilerReport report = new ProfilerReport();
+		ProfiledFunction main = new ProfiledFunction();
+		main.SetID(1);
+		main.SetName("main");
+		main.SetSelfTime(1.5f);
+		ProfiledFunction work = new ProfiledFunction();
+		work.SetID(2);
+		work.SetName("work");
+		work.SetSelfTime(2.5f);
+		work.SetCallCount(300);
+		
+		ProfiledSubroutine subroutine = new ProfiledSubroutine();
+		subroutine.SetID(2);
+		subroutine.SetName("work");
+		subroutine.SetCallCount(300);
+		subroutine.SetTimeInSubroutineSelf(2.5f);
+		subroutine.SetTimeInSubroutineSubroutines(0);
+		ArrayList<ProfiledSubroutine> subroutines = new ArrayList<ProfiledSubroutine>();
+		subroutines.add(subroutine);
+		ProfiledCaller caller = new ProfiledCaller();
+		caller.SetID(1);
+		caller.SetName("main");
+		caller.SetCallCount(300);
+		caller.SetTimeInCalledSelf(2.5f);
+		caller.SetTimeInCalledSubroutines(0);
+		ArrayList<ProfiledCaller> callers = new ArrayList<ProfiledCaller>();
+		callers.add(caller);
+		
+		report.AddFunction(main);
+		report.AddFunction(work);
+		main.SetSubroutines(subroutines);
+		work.SetCallers(callers);
+		return report;
+	}
+}
@@ -0,0 +1,132 @@
+/*
+ * =======================================================================
+ * ============================ gprof-eclipse ============================
+ * =======================================================================
+ * 
+ * 
+ * File: GProfErrorDrain.java
+ * 
+ * 
+ * -----------------------------------------------------------------------
+ * Copyright (c) 2009 Chris Culy and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * + Chris Culy - initial API and implementation
+ * -----------------------------------------------------------------------
+ * 
+ * 
+ * Last changed:
+ * $Revision$
+ * $Author$
+ * $Date$
+ */
+
+package org.eclipse.cdt.gprof.launch;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+
+import org.eclipse.ui.console.MessageConsoleStream;
+
+/**
+ * Drains the standard error of the gprof process on a thread of its own, writing it to the console.
+ * 
+ * The error stream has to be read while gprof is running (and while its standard output is being read), since gprof stops once the
+ * pipe buffer of either stream is full. The lines are written to the console in batches to keep the console updates down when gprof
+ * reports many errors.
+ */
+final class GProfErrorDrain implements Runnable
+{
+    /** Holds the number of characters after which a batch is written even though more lines are ready. */
+    private static final int BATCH_SIZE = 8 * 1024;
+    
+    /** Holds the name of the drain thread. */
+    private static final String THREAD_NAME = "gprof error reader";
+    
+    /** Holds the line separator written after each line. */
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+    
+    /** Holds the error stream to drain. */
+    private final InputStream input;
+    
+    /** Holds the console stream to write the errors to. */
+    private final MessageConsoleStream out;
+    
+    /** Holds the thread draining the error stream. */
+    private final Thread thread;
+    
+    /**
+     * Constructs the drain for the given error stream and starts draining it.
+     * 
+     * @param input The error stream to drain.
+     * @param out The console stream to write the errors to.
+     */
+    GProfErrorDrain(InputStream input, MessageConsoleStream out)
+    {
+        this.input = input;
+        this.out = out;
+        this.thread = new Thread(this, THREAD_NAME);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+    
+    /**
+     * Reads the error stream until its end, writing a batch to the console whenever no more lines are ready (or the batch is full).
+     * 
+     * @see Runnable#run()
+     */
+    public void run()
+    {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(this.input));
+        StringBuilder batch = new StringBuilder();
+        try
+        {
+            String line;
+            while ((line = reader.readLine()) != null)
+            {
+                batch.append(line).append(LINE_SEPARATOR);
+                if (batch.length() >= BATCH_SIZE || !reader.ready())
+                {
+                    this.out.print(batch.toString());
+                    batch.setLength(0);
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            // The stream has been closed (i.e. gprof has been stopped).
+        }
+        finally
+        {
+            if (batch.length() > 0)
+            {
+                this.out.print(batch.toString());
+            }
+            try
+            {
+                reader.close();
+            }
+            catch (IOException e)
+            {
+                // Nothing more to drain.
+            }
+        }
+    }
+    
+    /**
+     * Waits for the error stream to be drained completely.
+     * 
+     * @throws InterruptedException When interrupted while waiting.
+     */
+    void join() throws InterruptedException
+    {
+        this.thread.join();
+    }
+}
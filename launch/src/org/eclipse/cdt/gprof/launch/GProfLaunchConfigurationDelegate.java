@@ -73,8 +73,12 @@ public class GProfLaunchConfigurationDelegate extends AbstractCLaunchDelegate
             parser = (IGProfLaunchParser) extensions[0].createExecutableExtension("class");
         }
         
-        // Run the session with the given IO connection.
-        session.run(parser);
+        // Run the session with the given IO connection in the background (the launch is complete once it is scheduled).
+        if (monitor != null && monitor.isCanceled())
+        {
+            return;
+        }
+        new GProfSessionJob(session, parser).schedule();
     }
     
     /**
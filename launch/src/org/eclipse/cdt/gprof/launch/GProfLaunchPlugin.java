@@ -41,6 +41,18 @@ public class GProfLaunchPlugin extends Plugin
     /** The preferences element that holds the path to the gprof executable. */
     public static final String GPROF_COMMAND = "gprof_command";
     
+    /** The preferences element that holds whether gmon.out is read directly (instead of running gprof and parsing its output). */
+    public static final String GPROF_READ_GMON_DIRECTLY = "gprof_read_gmon_directly";
+    
+    /** The preferences element that holds whether parsed reports are cached (so that an unchanged gmon.out is not parsed again). */
+    public static final String GPROF_CACHE_REPORTS = "gprof_cache_reports";
+    
+    /** The preferences element that holds the number of cached reports that are also kept in memory. */
+    public static final String GPROF_REPORT_CACHE_SIZE = "gprof_report_cache_size";
+    
+    /** The default value for the GPROF_REPORT_CACHE_SIZE preferences element. */
+    private static final int GPROF_REPORT_CACHE_SIZE_DEFAULT_VALUE = 4;
+    
     /** The default value for the GPROF_COMMAND preferences element (for Windows). */
     private static final String GPROF_COMMAND_DEFAULT_VALUE_WINDOWS = "C:/MinGW/bin/gprof.exe";
     
@@ -105,5 +117,8 @@ public class GProfLaunchPlugin extends Plugin
         {
             preferences.setDefault(GProfLaunchPlugin.GPROF_COMMAND, GProfLaunchPlugin.GPROF_COMMAND_DEFAULT_VALUE_LINUX);
         }
+        preferences.setDefault(GProfLaunchPlugin.GPROF_READ_GMON_DIRECTLY, false);
+        preferences.setDefault(GProfLaunchPlugin.GPROF_CACHE_REPORTS, true);
+        preferences.setDefault(GProfLaunchPlugin.GPROF_REPORT_CACHE_SIZE, GProfLaunchPlugin.GPROF_REPORT_CACHE_SIZE_DEFAULT_VALUE);
     }
 }
@@ -0,0 +1,232 @@
+/*
+ * =======================================================================
+ * ============================ gprof-eclipse ============================
+ * =======================================================================
+ * 
+ * 
+ * File: GProfOutputPipe.java
+ * 
+ * 
+ * -----------------------------------------------------------------------
+ * Copyright (c) 2009 Chris Culy and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * + Chris Culy - initial API and implementation
+ * -----------------------------------------------------------------------
+ * 
+ * 
+ * Last changed:
+ * $Revision$
+ * $Author$
+ * $Date$
+ */
+
+package org.eclipse.cdt.gprof.launch;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Reads the standard output of the gprof process on a thread of its own and hands it to the parser as an input stream.
+ * 
+ * The output is read in fixed-size chunks that pass through a bounded queue, so that gprof keeps writing while the previous chunks are
+ * being parsed, and so that gprof is held up (instead of the heap filling up) when the parser falls behind. The chunks are recycled
+ * through a second queue once they have been consumed.
+ */
+final class GProfOutputPipe extends InputStream implements Runnable
+{
+    /**
+     * Represents a chunk of the output.
+     */
+    private static final class Chunk
+    {
+        /** The bytes of the chunk. */
+        public final byte[] bytes = new byte[CHUNK_SIZE];
+        
+        /** The number of valid bytes of the chunk (-1 for the chunk that marks the end of the output). */
+        public int length;
+    }
+    
+    /** Holds the size of a chunk. */
+    private static final int CHUNK_SIZE = 64 * 1024;
+    
+    /** Holds the number of chunks that may be waiting to be consumed. */
+    private static final int QUEUE_CAPACITY = 16;
+    
+    /** Holds the name of the reader thread. */
+    private static final String THREAD_NAME = "gprof output reader";
+    
+    /** Holds the stream to read the output from (i.e. the standard output of the gprof process). */
+    private final InputStream input;
+    
+    /** Holds the thread reading the output. */
+    private final Thread thread;
+    
+    /** Holds the chunks that have been read but not yet consumed. */
+    private final BlockingQueue<Chunk> filledChunks = new ArrayBlockingQueue<Chunk>(QUEUE_CAPACITY);
+    
+    /** Holds the chunks that have been consumed and may be read into again. */
+    private final BlockingQueue<Chunk> emptyChunks = new ArrayBlockingQueue<Chunk>(QUEUE_CAPACITY + 2);
+    
+    /** Holds the chunk being consumed (<code>null</code> if none). */
+    private Chunk chunk;
+    
+    /** Holds the index of the next byte to consume within the chunk being consumed. */
+    private int position;
+    
+    /** Holds the error that ended the reading of the output (<code>null</code> if none). */
+    private volatile IOException error;
+    
+    /** Holds whether the pipe has been closed. */
+    private volatile boolean closed;
+    
+    /**
+     * Constructs the pipe for the given stream and starts reading it.
+     * 
+     * @param input The stream to read the output from.
+     */
+    GProfOutputPipe(InputStream input)
+    {
+        this.input = input;
+        for (int i = 0; i < QUEUE_CAPACITY + 2; i++)
+        {
+            this.emptyChunks.add(new Chunk());
+        }
+        this.thread = new Thread(this, THREAD_NAME);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+    
+    /**
+     * Reads the output into chunks until the end of the output is reached or the pipe is closed.
+     * 
+     * @see Runnable#run()
+     */
+    public void run()
+    {
+        try
+        {
+            try
+            {
+                while (!this.closed)
+                {
+                    // Fill an empty chunk (a short read is passed on right away, so the parser never waits for a full chunk).
+                    Chunk chunk = this.emptyChunks.take();
+                    chunk.length = this.input.read(chunk.bytes, 0, chunk.bytes.length);
+                    this.filledChunks.put(chunk);
+                    if (chunk.length < 0)
+                    {
+                        return;
+                    }
+                }
+            }
+            catch (IOException e)
+            {
+                // Pass the error on to the parser and mark the end of the output (unless the parser has stopped reading anyway).
+                if (this.closed)
+                {
+                    return;
+                }
+                this.error = e;
+                Chunk chunk = this.emptyChunks.take();
+                chunk.length = -1;
+                this.filledChunks.put(chunk);
+            }
+        }
+        catch (InterruptedException e)
+        {
+            // The pipe has been closed.
+        }
+    }
+    
+    /**
+     * @see InputStream#read()
+     */
+    public int read() throws IOException
+    {
+        byte[] bytes = new byte[1];
+        return this.read(bytes, 0, 1) < 0 ? -1 : bytes[0] & 0xFF;
+    }
+    
+    /**
+     * @see InputStream#read(byte[], int, int)
+     */
+    public int read(byte[] bytes, int offset, int length) throws IOException
+    {
+        if (length == 0)
+        {
+            return 0;
+        }
+        
+        // Move on to the next chunk once the current one has been consumed (skipping any empty reads).
+        while (this.chunk == null || this.position == this.chunk.length)
+        {
+            if (this.chunk != null)
+            {
+                this.emptyChunks.add(this.chunk);
+                this.chunk = null;
+            }
+            if (this.closed)
+            {
+                throw new IOException("The gprof output has been closed.");
+            }
+            try
+            {
+                this.chunk = this.filledChunks.take();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for the gprof output.");
+            }
+            this.position = 0;
+        }
+        
+        // The end of the output remains queued up for any further reads.
+        if (this.chunk.length < 0)
+        {
+            if (this.error != null)
+            {
+                throw this.error;
+            }
+            return -1;
+        }
+        
+        // Copy as much of the current chunk as requested.
+        int count = Math.min(length, this.chunk.length - this.position);
+        System.arraycopy(this.chunk.bytes, this.position, bytes, offset, count);
+        this.position += count;
+        return count;
+    }
+    
+    /**
+     * @see InputStream#available()
+     */
+    public int available()
+    {
+        return this.chunk != null && this.chunk.length > 0 ? this.chunk.length - this.position : 0;
+    }
+    
+    /**
+     * Closes the pipe, stopping the reader thread (which may be waiting for the parser to catch up) and closing the output.
+     * 
+     * @see InputStream#close()
+     */
+    public void close() throws IOException
+    {
+        if (!this.closed)
+        {
+            this.closed = true;
+            this.thread.interrupt();
+            this.filledChunks.clear();
+            this.input.close();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * =======================================================================
+ * ============================ gprof-eclipse ============================
+ * =======================================================================
+ * 
+ * 
+ * File: GProfParseAdapter.java
+ * 
+ * 
+ * -----------------------------------------------------------------------
+ * Copyright (c) 2009 Chris Culy and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * + Chris Culy - initial API and implementation
+ * -----------------------------------------------------------------------
+ * 
+ * 
+ * Last changed:
+ * $Revision$
+ * $Author$
+ * $Date$
+ */
+
+package org.eclipse.cdt.gprof.launch;
+
+/**
+ * An implementation of {@link IGProfParseListener} that ignores every event, to be subclassed by listeners that are only interested in
+ * some of them.
+ */
+public class GProfParseAdapter implements IGProfParseListener
+{
+    /**
+     * @see IGProfParseListener#onFlatProfileEntry(String, float, float, float, int, float, float)
+     */
+    public void onFlatProfileEntry(String name, float percentTotalSelfTime, float cumulativeTime, float selfTime, int callCount,
+        float selfMSPerCall, float totalMSPerCall)
+    {
+        /* stub function */
+    }
+    
+    /**
+     * @see IGProfParseListener#onCallGraphBlock(int, String, float, float, float, int, int)
+     */
+    public void onCallGraphBlock(int id, String name, float percentTotalTime, float selfTime, float subroutineTime, int callCount,
+        int recursiveCallCount)
+    {
+        /* stub function */
+    }
+    
+    /**
+     * @see IGProfParseListener#onCaller(int, String, int, float, float)
+     */
+    public void onCaller(int id, String name, int callCount, float timeInCalledSelf, float timeInCalledSubroutines)
+    {
+        /* stub function */
+    }
+    
+    /**
+     * @see IGProfParseListener#onSubroutine(int, String, int, float, float)
+     */
+    public void onSubroutine(int id, String name, int callCount, float timeInSubroutineSelf, float timeInSubroutineSubroutines)
+    {
+        /* stub function */
+    }
+    
+    /**
+     * @see IGProfParseListener#onEnd()
+     */
+    public void onEnd()
+    {
+        /* stub function */
+    }
+}
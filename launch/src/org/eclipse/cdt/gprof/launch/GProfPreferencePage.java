@@ -29,10 +29,13 @@
 package org.eclipse.cdt.gprof.launch;
 
 import org.eclipse.core.runtime.Preferences;
+import org.eclipse.jface.preference.BooleanFieldEditor;
 import org.eclipse.jface.preference.FieldEditorPreferencePage;
 import org.eclipse.jface.preference.FileFieldEditor;
+import org.eclipse.jface.preference.IntegerFieldEditor;
 import org.eclipse.jface.util.IPropertyChangeListener;
 import org.eclipse.jface.util.PropertyChangeEvent;
+import org.eclipse.swt.widgets.Composite;
 import org.eclipse.ui.IWorkbench;
 import org.eclipse.ui.IWorkbenchPreferencePage;
 
@@ -41,6 +44,44 @@ public class GProfPreferencePage extends FieldEditorPreferencePage implements IW
     /** Holds the field that is used to select the location of the gprof executable. */
     FileFieldEditor gprofCommandField = null;
     
+    /** Holds the field that is used to select whether gmon.out is read directly (without running gprof). */
+    GProfBooleanFieldEditor readGMonDirectlyField = null;
+    
+    /** Holds the field that is used to select whether parsed reports are cached. */
+    GProfBooleanFieldEditor cacheReportsField = null;
+    
+    /** Holds the field that is used to select the number of cached reports kept in memory. */
+    IntegerFieldEditor reportCacheSizeField = null;
+    
+    /**
+     * A check box field whose value can be set directly (since the page keeps its values in the plugin preferences rather than in a
+     * preference store).
+     */
+    class GProfBooleanFieldEditor extends BooleanFieldEditor
+    {
+        /** Holds the parent of the check box. */
+        private Composite parent;
+        
+        /**
+         * @see BooleanFieldEditor#BooleanFieldEditor(String, String, Composite)
+         */
+        GProfBooleanFieldEditor(String name, String labelText, Composite parent)
+        {
+            super(name, labelText, parent);
+            this.parent = parent;
+        }
+        
+        /**
+         * Sets whether the check box is checked.
+         * 
+         * @param value The new value of the field.
+         */
+        void setBooleanValue(boolean value)
+        {
+            this.getChangeControl(this.parent).setSelection(value);
+        }
+    }
+    
     /**
      * @see FieldEditorPreferencePage#
      */
@@ -52,6 +93,16 @@ public class GProfPreferencePage extends FieldEditorPreferencePage implements IW
         // Create the field and add it to the page.
         gprofCommandField = new FileFieldEditor(GProfLaunchPlugin.GPROF_COMMAND, "gprof Command:", getFieldEditorParent());
         addField(gprofCommandField);
+        readGMonDirectlyField = new GProfBooleanFieldEditor(GProfLaunchPlugin.GPROF_READ_GMON_DIRECTLY,
+            "Read gmon.out directly (without running gprof)", getFieldEditorParent());
+        addField(readGMonDirectlyField);
+        cacheReportsField = new GProfBooleanFieldEditor(GProfLaunchPlugin.GPROF_CACHE_REPORTS,
+            "Reuse the parsed report while gmon.out and the executable are unchanged", getFieldEditorParent());
+        addField(cacheReportsField);
+        reportCacheSizeField = new IntegerFieldEditor(GProfLaunchPlugin.GPROF_REPORT_CACHE_SIZE, "Cached reports kept in memory:",
+            getFieldEditorParent());
+        reportCacheSizeField.setValidRange(0, 64);
+        addField(reportCacheSizeField);
         
         // Set the listener for the field and update the field before display.
         IPropertyChangeListener listener = new IPropertyChangeListener()
@@ -62,6 +113,7 @@ public class GProfPreferencePage extends FieldEditorPreferencePage implements IW
             }
         };
         gprofCommandField.setPropertyChangeListener(listener);
+        reportCacheSizeField.setPropertyChangeListener(listener);
         updateFields();
     }
     
@@ -80,6 +132,9 @@ public class GProfPreferencePage extends FieldEditorPreferencePage implements IW
     {
         Preferences preferences = GProfLaunchPlugin.getDefault().getPluginPreferences();
         preferences.setValue(GProfLaunchPlugin.GPROF_COMMAND, gprofCommandField.getStringValue().trim());
+        preferences.setValue(GProfLaunchPlugin.GPROF_READ_GMON_DIRECTLY, readGMonDirectlyField.getBooleanValue());
+        preferences.setValue(GProfLaunchPlugin.GPROF_CACHE_REPORTS, cacheReportsField.getBooleanValue());
+        preferences.setValue(GProfLaunchPlugin.GPROF_REPORT_CACHE_SIZE, reportCacheSizeField.getIntValue());
         return super.performOk();
     }
     
@@ -107,6 +162,9 @@ public class GProfPreferencePage extends FieldEditorPreferencePage implements IW
     {
         Preferences preferences = GProfLaunchPlugin.getDefault().getPluginPreferences();
         gprofCommandField.setStringValue(preferences.getString(GProfLaunchPlugin.GPROF_COMMAND));
+        readGMonDirectlyField.setBooleanValue(preferences.getBoolean(GProfLaunchPlugin.GPROF_READ_GMON_DIRECTLY));
+        cacheReportsField.setBooleanValue(preferences.getBoolean(GProfLaunchPlugin.GPROF_CACHE_REPORTS));
+        reportCacheSizeField.setStringValue(Integer.toString(preferences.getInt(GProfLaunchPlugin.GPROF_REPORT_CACHE_SIZE)));
     }
     
     /**
@@ -114,6 +172,6 @@ public class GProfPreferencePage extends FieldEditorPreferencePage implements IW
      */
     public boolean isValid()
     {
-        return gprofCommandField.isValid();
+        return gprofCommandField.isValid() && reportCacheSizeField.isValid();
     }
 }
@@ -28,12 +28,13 @@
 
 package org.eclipse.cdt.gprof.launch;
 
+import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
-import java.util.Scanner;
 
 import org.eclipse.cdt.debug.core.ICDTLaunchConfigurationConstants;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.Preferences;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.debug.core.ILaunchConfiguration;
@@ -41,7 +42,6 @@ import org.eclipse.ui.console.ConsolePlugin;
 import org.eclipse.ui.console.IConsole;
 import org.eclipse.ui.console.IConsoleManager;
 import org.eclipse.ui.console.MessageConsole;
-import org.eclipse.ui.console.MessageConsoleStream;
 
 /**
  * Represents the gprof profiling session to be run.
@@ -64,6 +64,8 @@ public class GProfSession
     
     private static final String GPROF_NOT_VERBOSE = "-b";
     
+    private static final String GPROF_GMON_READER_PRODUCER = "gmon.out reader";
+    
     // =================== GProf Session String Constants ================== //
     
     /** Holds the full path to the gprof executable. */
@@ -72,9 +74,21 @@ public class GProfSession
     /** Holds the full path to the project executable. */
     private String projectExecutable = GPROF_EMPTY_STRING;
     
+    /** Holds the full path to the project executable (without the program arguments). */
+    private String projectExecutablePath = GPROF_EMPTY_STRING;
+    
+    /** Holds whether the project's gprof output file is read directly (instead of running gprof and parsing its output). */
+    private boolean readGMonDirectly = false;
+    
+    /** Holds whether parsed reports are cached (and restored while gmon.out and the project executable are unchanged). */
+    private boolean cacheReports = false;
+    
     /** Holds the full path the project's gprof output file (i.e. gmon.out). */
     private String projectGProfOutputFile = GPROF_EMPTY_STRING;
     
+    /** Holds the running gprof process (<code>null</code> if gprof is not running). */
+    private volatile Process process;
+    
     /**
      * Constructs the session using the given configuration and working directory.
      * 
@@ -88,6 +102,8 @@ public class GProfSession
             // Get the full path to the gprof command.
             Preferences preferences = GProfLaunchPlugin.getDefault().getPluginPreferences();
             this.gprofCommand = preferences.getString(GProfLaunchPlugin.GPROF_COMMAND);
+            this.readGMonDirectly = preferences.getBoolean(GProfLaunchPlugin.GPROF_READ_GMON_DIRECTLY);
+            this.cacheReports = preferences.getBoolean(GProfLaunchPlugin.GPROF_CACHE_REPORTS);
             
             // Compose the full path to the executable to be launched (and profiled).
             String programName = config.getAttribute(ICDTLaunchConfigurationConstants.ATTR_PROGRAM_NAME, GPROF_EMPTY_STRING);
@@ -98,6 +114,7 @@ public class GProfSession
                 workingDirectory += GPROF_UNIVERSAL_PATH_SEPARATOR;
             }
             this.projectExecutable = workingDirectory + programName + " " + programArguments;
+            this.projectExecutablePath = workingDirectory + programName;
             this.projectGProfOutputFile = workingDirectory + GPROF_DEFAULT_OUTPUT_FILE;
             
         }
@@ -114,6 +131,100 @@ public class GProfSession
      * @throws CoreException When the complete gprof profiling command (including the project executable) fails to execute.
      */
     public void run(IGProfLaunchParser parser) throws CoreException
+    {
+        this.run(parser, new NullProgressMonitor());
+    }
+    
+    /**
+     * Runs the gprof profiling session, reporting the progress of the parse to the given progress monitor. If report caching is enabled
+     * and gmon.out and the project executable are unchanged since an earlier session, the earlier report is restored instead.
+     * 
+     * Progress reporting, report caching and reading gmon.out directly need a parser that implements {@link IGProfLaunchParser2}; any
+     * other parser is simply handed the output of gprof.
+     * 
+     * @param parser The parser used to parse the gprof profiling output.
+     * @param monitor The progress monitor to report to (and to check for cancellation).
+     * @throws CoreException When the complete gprof profiling command (including the project executable) fails to execute.
+     * @throws org.eclipse.core.runtime.OperationCanceledException When the session is cancelled through the progress monitor.
+     */
+    public void run(IGProfLaunchParser parser, IProgressMonitor monitor) throws CoreException
+    {
+        if (parser instanceof IGProfLaunchParser2)
+        {
+            this.runCached((IGProfLaunchParser2) parser, monitor);
+        }
+        else
+        {
+            this.runGProf(parser);
+        }
+    }
+    
+    /**
+     * Cancels the gprof profiling session by stopping gprof (if it is running). The parse of the gprof output then ends early and
+     * notices the cancellation through its progress monitor.
+     */
+    public void cancel()
+    {
+        Process process = this.process;
+        if (process != null)
+        {
+            process.destroy();
+        }
+    }
+    
+    /**
+     * Runs the gprof profiling session with a parser that reports its progress, restoring the report from the report cache (and storing
+     * the parsed report in it) if report caching is enabled.
+     * 
+     * @param parser The parser used to parse the gprof profiling output.
+     * @param monitor The progress monitor to report to (and to check for cancellation).
+     * @throws CoreException When the complete gprof profiling command (including the project executable) fails to execute.
+     */
+    private void runCached(IGProfLaunchParser2 parser, IProgressMonitor monitor) throws CoreException
+    {
+        parser.setProgressMonitor(monitor);
+        try
+        {
+            // Restore the report if gmon.out and the project executable have not changed since they were last parsed.
+            File gmonFile = new File(this.projectGProfOutputFile);
+            File executable = new File(this.projectExecutablePath);
+            String producer = this.readGMonDirectly ? GPROF_GMON_READER_PRODUCER : this.gprofCommand;
+            if (this.cacheReports && parser.restore(gmonFile, executable, producer))
+            {
+                return;
+            }
+            
+            // Read the gprof output file directly if appropriate (there is no need to run gprof at all).
+            boolean complete = true;
+            if (this.readGMonDirectly)
+            {
+                this.readGMon(parser);
+            }
+            else
+            {
+                complete = this.runGProf(parser);
+            }
+            
+            // Only cache a report parsed from complete output (gprof may have failed or been stopped part way through its output).
+            if (this.cacheReports && complete)
+            {
+                parser.store(gmonFile, executable, producer);
+            }
+        }
+        finally
+        {
+            parser.setProgressMonitor(null);
+        }
+    }
+    
+    /**
+     * Runs gprof and parses its output.
+     * 
+     * @param parser The parser used to parse the gprof profiling output.
+     * @return <code>true</code> if gprof exited cleanly (so its output was complete); <code>false</code> otherwise.
+     * @throws CoreException When the complete gprof profiling command (including the project executable) fails to execute.
+     */
+    private boolean runGProf(IGProfLaunchParser parser) throws CoreException
     {
         try
         {
@@ -123,22 +234,31 @@ public class GProfSession
             
             // Execute the gprof profiling command.
             Process process = Runtime.getRuntime().exec(command);
+            this.process = process;
             
-            // Process any errors right away (write them to the Console).
-            InputStream errorStream = process.getErrorStream();
-            Scanner errorScanner = new Scanner(errorStream);
+            // Drain any errors on a thread of their own (writing them to the Console), so that gprof never blocks on a full error pipe.
             MessageConsole console = getConsole(GPROF_CONSOLE_NAME);
-            MessageConsoleStream out = console.newMessageStream();
-            if (errorStream.available() > 0)
+            GProfErrorDrain errorDrain = new GProfErrorDrain(process.getErrorStream(), console.newMessageStream());
+            
+            // Start the parser, reading the output through a pipe that reads ahead of the parser while the parser catches up.
+            GProfOutputPipe output = new GProfOutputPipe(process.getInputStream());
+            boolean completed = false;
+            try
+            {
+                parser.parse(output);
+                completed = true;
+            }
+            finally
             {
-                while (errorScanner.hasNextLine())
+                // Stop gprof if the parse ended early (i.e. it was cancelled), then wait for the remaining errors to be written.
+                output.close();
+                if (!completed)
                 {
-                    out.println(errorScanner.nextLine());
+                    process.destroy();
                 }
+                this.joinErrorDrain(errorDrain);
             }
-            
-            // Start the parser.
-            parser.parse(process.getInputStream());
+            return this.waitForExit(process);
         }
         catch (IOException e)
         {
@@ -146,6 +266,66 @@ public class GProfSession
                 + "\' could not be run.\n" + e.getLocalizedMessage());
             throw new CoreException(status);
         }
+        finally
+        {
+            this.process = null;
+        }
+    }
+    
+    /**
+     * Waits for the given error drain to write the remaining errors of gprof to the console.
+     * 
+     * @param errorDrain The error drain to wait for.
+     */
+    private void joinErrorDrain(GProfErrorDrain errorDrain)
+    {
+        try
+        {
+            errorDrain.join();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * Waits for the given gprof process to exit.
+     * 
+     * @param process The gprof process to wait for.
+     * @return <code>true</code> if gprof exited cleanly; <code>false</code> if it failed (or the wait was interrupted).
+     */
+    private boolean waitForExit(Process process)
+    {
+        try
+        {
+            return process.waitFor() == 0;
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+    
+    /**
+     * Reads the project's gprof output file (i.e. gmon.out) directly, resolving the functions from the project executable.
+     * 
+     * @param parser The parser used to read the gprof output file.
+     * @throws CoreException When the gprof output file or the project executable cannot be read.
+     */
+    private void readGMon(IGProfLaunchParser2 parser) throws CoreException
+    {
+        try
+        {
+            parser.parse(new File(this.projectGProfOutputFile), new File(this.projectExecutablePath));
+        }
+        catch (IOException e)
+        {
+            Status status = new Status(Status.ERROR, GProfLaunchPlugin.PLUGIN_ID, "The gprof output file \'" + this.projectGProfOutputFile
+                + "\' could not be read.\n" + e.getLocalizedMessage());
+            throw new CoreException(status);
+        }
     }
     
     /**
@@ -0,0 +1,97 @@
+/*
+ * =======================================================================
+ * ============================ gprof-eclipse ============================
+ * =======================================================================
+ * 
+ * 
+ * File: GProfSessionJob.java
+ * 
+ * 
+ * -----------------------------------------------------------------------
+ * Copyright (c) 2009 Chris Culy and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * + Chris Culy - initial API and implementation
+ * -----------------------------------------------------------------------
+ * 
+ * 
+ * Last changed:
+ * $Revision$
+ * $Author$
+ * $Date$
+ */
+
+package org.eclipse.cdt.gprof.launch;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+/**
+ * Runs a gprof profiling session in the background, reporting the progress of the parse and allowing it to be cancelled.
+ */
+public class GProfSessionJob extends Job
+{
+    // ================= GProf Session Job String Constants ================ //
+    
+    private static final String GPROF_JOB_NAME = "Profiling with gprof";
+    
+    // ================= GProf Session Job String Constants ================ //
+    
+    /** Holds the session to run. */
+    private final GProfSession session;
+    
+    /** Holds the parser used to parse the gprof profiling output. */
+    private final IGProfLaunchParser parser;
+    
+    /**
+     * Constructs the job for the given session and parser.
+     * 
+     * @param session The session to run.
+     * @param parser The parser used to parse the gprof profiling output.
+     */
+    public GProfSessionJob(GProfSession session, IGProfLaunchParser parser)
+    {
+        super(GPROF_JOB_NAME);
+        this.session = session;
+        this.parser = parser;
+        this.setUser(true);
+    }
+    
+    /**
+     * @see Job#run(IProgressMonitor)
+     */
+    protected IStatus run(IProgressMonitor monitor)
+    {
+        try
+        {
+            this.session.run(this.parser, monitor);
+            return Status.OK_STATUS;
+        }
+        catch (OperationCanceledException e)
+        {
+            return Status.CANCEL_STATUS;
+        }
+        catch (CoreException e)
+        {
+            return e.getStatus();
+        }
+    }
+    
+    /**
+     * @see Job#canceling()
+     */
+    protected void canceling()
+    {
+        // Stop gprof so that the parse does not keep waiting for output.
+        this.session.cancel();
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * =======================================================================
+ * ============================ gprof-eclipse ============================
+ * =======================================================================
+ * 
+ * 
+ * File: IGProfLaunchParser2.java
+ * 
+ * 
+ * -----------------------------------------------------------------------
+ * Copyright (c) 2009 Chris Culy and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * + Chris Culy - initial API and implementation
+ * -----------------------------------------------------------------------
+ * 
+ * 
+ * Last changed:
+ * $Revision$
+ * $Author$
+ * $Date$
+ */
+
+package org.eclipse.cdt.gprof.launch;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+
+/**
+ * The optional extension of {@link IGProfLaunchParser} for parsers that can deliver parse events, read saved reports and gmon.out files
+ * directly, cache their results and report their progress. The session uses these capabilities when the parser implements this
+ * interface; otherwise it simply hands the output from gprof to {@link IGProfLaunchParser#parse(InputStream)}.
+ */
+public interface IGProfLaunchParser2 extends IGProfLaunchParser
+{
+    /**
+     * Used to parse the output from gprof received through the given input stream as a stream of events, without retaining the parsed
+     * results. The events are delivered to the given listener (and any listeners added through
+     * {@link #addParseListener(IGProfParseListener)}) as the output is read.
+     * 
+     * @param input The output from gprof as an input stream.
+     * @param listener The listener to receive the parse events.
+     */
+    public void parse(InputStream input, IGProfParseListener listener);
+    
+    /**
+     * Used to parse a saved gprof report (the text output of 'gprof -b') directly from disk.
+     * 
+     * @param reportFile The saved gprof report.
+     * @throws IOException When the report cannot be read.
+     */
+    public void parse(File reportFile) throws IOException;
+    
+    /**
+     * Used to read the profiling data written by the profiled program (i.e. gmon.out) directly, without running gprof. The names of the
+     * functions are resolved from the symbol table of the executable.
+     * 
+     * @param gmonFile The profiling data written by the profiled program.
+     * @param executable The profiled executable.
+     * @throws IOException When the profiling data or the executable cannot be read.
+     */
+    public void parse(File gmonFile, File executable) throws IOException;
+    
+    /**
+     * Used to restore the results of an earlier parse of the given profiling data and executable (i.e. from a cache) instead of running
+     * gprof and parsing its output again. The restored results are delivered as if they had been parsed.
+     * 
+     * @param gmonFile The profiling data written by the profiled program.
+     * @param executable The profiled executable.
+     * @param producer What produces the results from the files (i.e. the gprof command).
+     * @return <code>true</code> if the results were restored; <code>false</code> if the files have not been parsed before (or have
+     *         changed since).
+     */
+    public boolean restore(File gmonFile, File executable, String producer);
+    
+    /**
+     * Used to keep the results of the last parse for the given profiling data and executable, so that later sessions can restore them
+     * through {@link #restore(File, File, String)} while the files are unchanged.
+     * 
+     * @param gmonFile The profiling data written by the profiled program.
+     * @param executable The profiled executable.
+     * @param producer What produced the results from the files (i.e. the gprof command).
+     */
+    public void store(File gmonFile, File executable, String producer);
+    
+    /**
+     * Sets the progress monitor that subsequent parses report their progress to and check for cancellation. A parse that is cancelled
+     * through the monitor throws an {@link org.eclipse.core.runtime.OperationCanceledException}.
+     * 
+     * @param monitor The progress monitor (<code>null</code> for none).
+     */
+    public void setProgressMonitor(IProgressMonitor monitor);
+    
+    /**
+     * Adds a listener that receives the parse events of every subsequent parse. Has no effect if the listener has already been added.
+     * 
+     * @param listener The listener to add.
+     */
+    public void addParseListener(IGProfParseListener listener);
+    
+    /**
+     * Removes the given parse listener. Has no effect if the listener has not been added.
+     * 
+     * @param listener The listener to remove.
+     */
+    public void removeParseListener(IGProfParseListener listener);
+}
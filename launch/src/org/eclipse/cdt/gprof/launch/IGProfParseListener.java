@@ -0,0 +1,97 @@
+/*
+ * =======================================================================
+ * ============================ gprof-eclipse ============================
+ * =======================================================================
+ * 
+ * 
+ * File: IGProfParseListener.java
+ * 
+ * 
+ * -----------------------------------------------------------------------
+ * Copyright (c) 2009 Chris Culy and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * + Chris Culy - initial API and implementation
+ * -----------------------------------------------------------------------
+ * 
+ * 
+ * Last changed:
+ * $Revision$
+ * $Author$
+ * $Date$
+ */
+
+package org.eclipse.cdt.gprof.launch;
+
+/**
+ * The interface that must be implemented to receive the gprof output as a stream of parse events.
+ * 
+ * Events are delivered in the order the corresponding lines appear in the gprof output, so the first results are available while gprof
+ * is still writing. For each call graph block, {@link #onCallGraphBlock} is delivered first, followed by the block's callers (which gprof
+ * prints above the block's primary line) and then the block's subroutines as they are read. Statistics that are absent from the output
+ * are reported as -1.
+ * 
+ * @see GProfParseAdapter
+ */
+public interface IGProfParseListener
+{
+    /**
+     * Called for each function listed in the flat profile.
+     * 
+     * @param name The name of the function.
+     * @param percentTotalSelfTime The percent of total program time spent in the function itself.
+     * @param cumulativeTime The cumulative number of seconds spent in this function and the functions listed above it.
+     * @param selfTime The number of seconds spent in the function itself.
+     * @param callCount The number of times the function was called.
+     * @param selfMSPerCall The average number of milliseconds spent in the function itself per call.
+     * @param totalMSPerCall The average number of milliseconds spent in the function and its subroutines per call.
+     */
+    public void onFlatProfileEntry(String name, float percentTotalSelfTime, float cumulativeTime, float selfTime, int callCount,
+        float selfMSPerCall, float totalMSPerCall);
+    
+    /**
+     * Called for the primary line of each call graph block (the line describing the function the block is about).
+     * 
+     * @param id The ID (gprof index) of the function.
+     * @param name The name of the function.
+     * @param percentTotalTime The percent of total program time spent in the function and its subroutines.
+     * @param selfTime The number of seconds spent in the function itself.
+     * @param subroutineTime The number of seconds spent in the function's subroutines.
+     * @param callCount The number of times the function was called non-recursively.
+     * @param recursiveCallCount The number of times the function was called recursively.
+     */
+    public void onCallGraphBlock(int id, String name, float percentTotalTime, float selfTime, float subroutineTime, int callCount,
+        int recursiveCallCount);
+    
+    /**
+     * Called for each caller of the function of the current call graph block.
+     * 
+     * @param id The ID (gprof index) of the caller.
+     * @param name The name of the caller.
+     * @param callCount The number of times the caller called the function.
+     * @param timeInCalledSelf The number of seconds spent in the function itself when called by the caller.
+     * @param timeInCalledSubroutines The number of seconds spent in the function's subroutines when called by the caller.
+     */
+    public void onCaller(int id, String name, int callCount, float timeInCalledSelf, float timeInCalledSubroutines);
+    
+    /**
+     * Called for each subroutine of the function of the current call graph block.
+     * 
+     * @param id The ID (gprof index) of the subroutine.
+     * @param name The name of the subroutine.
+     * @param callCount The number of times the function called the subroutine.
+     * @param timeInSubroutineSelf The number of seconds spent in the subroutine itself when called by the function.
+     * @param timeInSubroutineSubroutines The number of seconds spent in the subroutine's subroutines when called by the function.
+     */
+    public void onSubroutine(int id, String name, int callCount, float timeInSubroutineSelf, float timeInSubroutineSubroutines);
+    
+    /**
+     * Called once the whole gprof output has been parsed.
+     */
+    public void onEnd();
+}